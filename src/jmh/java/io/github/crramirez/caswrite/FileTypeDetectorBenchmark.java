@@ -0,0 +1,111 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite;
+
+import io.github.crramirez.caswrite.bench.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for choosing how a file is opened: by name, and by sniffing
+ * the first bytes of text and CSV content.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileTypeDetectorBenchmark {
+
+    private static final String[] NAMES = {
+        "notes.txt", "export.CSV", "data.tsv", "Makefile", "/var/log/syslog", "report.final.Csv", null
+    };
+
+    private final FileTypeDetector detector = new FileTypeDetector();
+    private ByteBuffer textHeader;
+    private ByteBuffer csvHeader;
+
+    /**
+     * Read the headers of generated files into direct buffers, the way
+     * {@link FileTypeDetector#detect(Path)} reads them.
+     *
+     * @throws IOException if the inputs cannot be generated
+     */
+    @Setup
+    public void prepare() throws IOException {
+        textHeader = header(BenchmarkData.text("1MB"));
+        csvHeader = header(BenchmarkData.csv("1MB", 8));
+    }
+
+    private static ByteBuffer header(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] bytes = in.readNBytes(FileTypeDetector.PROBE_SIZE);
+            return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        }
+    }
+
+    /**
+     * Classify a mix of file names by extension.
+     *
+     * @param blackhole consumes the results
+     */
+    @Benchmark
+    public void detectFileType(Blackhole blackhole) {
+        for (String name : NAMES) {
+            blackhole.consume(detector.detectFileType(name));
+        }
+    }
+
+    /**
+     * Sniff the header of a plain text file.
+     *
+     * @return the detection result
+     */
+    @Benchmark
+    public FileTypeDetector.Detection analyzeText() {
+        return detector.analyze("README", textHeader.duplicate());
+    }
+
+    /**
+     * Sniff the header of an extensionless CSV file, which also finds its
+     * delimiter.
+     *
+     * @return the detection result
+     */
+    @Benchmark
+    public FileTypeDetector.Detection analyzeCsv() {
+        return detector.analyze("export", csvHeader.duplicate());
+    }
+}
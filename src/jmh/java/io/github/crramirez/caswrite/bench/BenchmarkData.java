@@ -0,0 +1,186 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.bench;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic inputs for the benchmarks.
+ *
+ * Files are generated from a fixed seed the first time a size is asked
+ * for and kept in a data directory, so runs are comparable and the 2 GB
+ * inputs are only written once. The directory defaults to caswrite-jmh in
+ * the temporary directory and can be changed with the
+ * caswrite.benchmarkData system property.
+ */
+public final class BenchmarkData {
+
+    // Word that the search benchmarks look for, about once per 4 KiB
+    public static final String NEEDLE = "needle";
+
+    private static final Path DIRECTORY = Path.of(System.getProperty("caswrite.benchmarkData",
+        Path.of(System.getProperty("java.io.tmpdir"), "caswrite-jmh").toString()));
+
+    private static final String[] WORDS = {
+        "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel",
+        "india", "juliett", "kilo", "lima", "mike", "november", "oscar", "papa",
+        "quebec", "romeo", "sierra", "tango", "uniform", "victor", "whiskey", "yankee",
+        "Ångström", "naïve", "façade", "Zürich"
+    };
+
+    private static final String[] CITIES = {
+        "Paris", "London", "Santo Domingo", "New York", "Tokyo", "Lagos", "Lima", "Oslo"
+    };
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Parse a size such as 512KB, 1MB or 2GB.
+     *
+     * @param size the size with a KB, MB or GB suffix, or a number of bytes
+     * @return the size in bytes
+     */
+    public static long parseSize(String size) {
+        String upper = size.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        if (upper.endsWith("KB")) {
+            unit = 1L << 10;
+        } else if (upper.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (upper.endsWith("GB")) {
+            unit = 1L << 30;
+        }
+        String digits = unit == 1 ? upper : upper.substring(0, upper.length() - 2);
+        return Long.parseLong(digits.trim()) * unit;
+    }
+
+    /**
+     * Get a text file of lines of words, with {@link #NEEDLE} scattered
+     * through it.
+     *
+     * @param size the approximate size, such as 64MB
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    public static Path text(String size) throws IOException {
+        long bytes = parseSize(size);
+        return generate("text-" + bytes + ".txt", bytes, (random, line) -> {
+            int words = 4 + random.nextInt(12);
+            for (int i = 0; i < words; i++) {
+                if (i > 0) {
+                    line.append(' ');
+                }
+                if (random.nextInt(600) == 0) {
+                    line.append(NEEDLE).append(random.nextInt(100));
+                } else {
+                    line.append(WORDS[random.nextInt(WORDS.length)]);
+                }
+            }
+            line.append('\n');
+        }, null);
+    }
+
+    /**
+     * Get a CSV file with a header and columns cycling through integers,
+     * text, decimals, dates, booleans and quoted text.
+     *
+     * @param size the approximate size, such as 64MB
+     * @param columns the number of columns
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    public static Path csv(String size, int columns) throws IOException {
+        long bytes = parseSize(size);
+        StringBuilder header = new StringBuilder();
+        for (int column = 0; column < columns; column++) {
+            header.append(column == 0 ? "" : ",").append("col").append(column);
+        }
+        header.append('\n');
+        long[] row = new long[1];
+        LocalDate epoch = LocalDate.of(2000, 1, 1);
+        return generate("table-" + columns + "-" + bytes + ".csv", bytes, (random, line) -> {
+            for (int column = 0; column < columns; column++) {
+                if (column > 0) {
+                    line.append(',');
+                }
+                switch (column % 6) {
+                    case 0 -> line.append(row[0]);
+                    case 1 -> line.append(CITIES[random.nextInt(CITIES.length)]);
+                    case 2 -> line.append(random.nextInt(100_000) / 100.0);
+                    case 3 -> line.append(epoch.plusDays(random.nextInt(9000)));
+                    case 4 -> line.append(random.nextBoolean());
+                    default -> line.append('"').append(WORDS[random.nextInt(WORDS.length)])
+                        .append(", ").append(WORDS[random.nextInt(WORDS.length)]).append('"');
+                }
+            }
+            line.append('\n');
+            row[0]++;
+        }, header.toString());
+    }
+
+    /**
+     * Appends one line of generated content.
+     */
+    @FunctionalInterface
+    private interface LineWriter {
+        void write(SplittableRandom random, StringBuilder line);
+    }
+
+    private static Path generate(String name, long bytes, LineWriter writer, String header)
+            throws IOException {
+        Path file = DIRECTORY.resolve(name);
+        if (Files.exists(file)) {
+            return file;
+        }
+        Files.createDirectories(DIRECTORY);
+        Path temp = Files.createTempFile(DIRECTORY, name, ".tmp");
+        try {
+            SplittableRandom random = new SplittableRandom(42);
+            StringBuilder line = new StringBuilder(256);
+            long written = 0;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 20)) {
+                if (header != null) {
+                    byte[] encoded = header.getBytes(StandardCharsets.UTF_8);
+                    out.write(encoded);
+                    written += encoded.length;
+                }
+                while (written < bytes) {
+                    line.setLength(0);
+                    writer.write(random, line);
+                    byte[] encoded = line.toString().getBytes(StandardCharsets.UTF_8);
+                    out.write(encoded);
+                    written += encoded.length;
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import io.github.crramirez.caswrite.bench.BenchmarkData;
+import io.github.crramirez.caswrite.load.LoadProgress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for parsing CSV files of different widths and lengths: the
+ * row index behind the paged table model, loading into typed columns, and
+ * reading a screenful of cells from an indexed file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CsvParseBenchmark {
+
+    // Rows and columns read per simulated screen
+    private static final int SCREEN_ROWS = 50;
+    private static final int SCREEN_COLUMNS = 8;
+
+    @Param({"1MB", "64MB"})
+    public String size;
+
+    @Param({"4", "32"})
+    public int columns;
+
+    private Path file;
+    private CsvTableModel indexed;
+    private long screenStart;
+
+    /**
+     * Generate the input and open an indexed model of it.
+     *
+     * @throws IOException if the input cannot be generated
+     */
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        file = BenchmarkData.csv(size, columns);
+        indexed = CsvTableModel.open(file, CsvFormat.CSV);
+        indexed.getRowIndex().run();
+    }
+
+    /**
+     * Release the indexed model.
+     *
+     * @throws IOException if closing fails
+     */
+    @TearDown(Level.Trial)
+    public void release() throws IOException {
+        indexed.close();
+    }
+
+    /**
+     * Find the start of every row, as opening a large table does.
+     *
+     * @return the number of rows
+     * @throws IOException if the file cannot be mapped
+     */
+    @Benchmark
+    public long indexRows() throws IOException {
+        try (CsvTableModel model = CsvTableModel.open(file, CsvFormat.CSV)) {
+            model.getRowIndex().run();
+            return model.getRowCount();
+        }
+    }
+
+    /**
+     * Parse every cell into typed columns.
+     *
+     * @return the number of rows
+     * @throws IOException if the file cannot be read
+     */
+    @Benchmark
+    public long loadColumnar() throws IOException {
+        LoadProgress progress = new LoadProgress(file, Files.size(file));
+        return ColumnarTableModel.load(file, CsvFormat.CSV, progress).getRowCount();
+    }
+
+    /**
+     * Read one screen of cells from an indexed table, moving to a
+     * different part of the file each time so that pages are parsed
+     * rather than served from the page cache.
+     *
+     * @param blackhole consumes the cells
+     */
+    @Benchmark
+    public void readScreen(Blackhole blackhole) {
+        long rows = indexed.getRowCount();
+        screenStart = (screenStart + 7919L * SCREEN_ROWS) % Math.max(1, rows - SCREEN_ROWS);
+        for (long row = screenStart; row < screenStart + SCREEN_ROWS; row++) {
+            for (int column = 0; column < Math.min(columns, SCREEN_COLUMNS); column++) {
+                blackhole.consume(indexed.getCell(row, column));
+            }
+        }
+    }
+}
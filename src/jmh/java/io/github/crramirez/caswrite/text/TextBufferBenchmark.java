@@ -0,0 +1,114 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import io.github.crramirez.caswrite.bench.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for opening a large text file and saving an edited one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TextBufferBenchmark {
+
+    // Distance between the edits made before saving
+    private static final long EDIT_STRIDE = 1 << 20;
+
+    @Param({"1MB", "64MB"})
+    public String size;
+
+    private Path file;
+    private Path target;
+    private TextBuffer edited;
+
+    /**
+     * Generate the input and an edited buffer to save.
+     *
+     * @throws IOException if the input cannot be generated
+     */
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        file = BenchmarkData.text(size);
+        target = Files.createTempFile("caswrite-save", ".txt");
+        edited = TextBuffer.open(file);
+        edited.getLineIndex().run();
+        byte[] edit = "edited line\n".getBytes(StandardCharsets.UTF_8);
+        for (long offset = edited.length() - 1; offset > 0; offset -= EDIT_STRIDE) {
+            edited.insert(offset, edit);
+        }
+    }
+
+    /**
+     * Release the edited buffer and the saved file.
+     *
+     * @throws IOException if closing fails
+     */
+    @TearDown(Level.Trial)
+    public void release() throws IOException {
+        edited.close();
+        Files.deleteIfExists(target);
+    }
+
+    /**
+     * Map the file and index every line, as opening a large file does
+     * before the last line can be shown.
+     *
+     * @return the number of lines
+     * @throws IOException if the file cannot be mapped
+     */
+    @Benchmark
+    public long openAndIndex() throws IOException {
+        try (TextBuffer buffer = TextBuffer.open(file)) {
+            buffer.getLineIndex().run();
+            return buffer.lineCount();
+        }
+    }
+
+    /**
+     * Save an edited buffer atomically, including the fsync.
+     *
+     * @throws IOException if writing fails
+     */
+    @Benchmark
+    public void save() throws IOException {
+        edited.saveTo(target);
+    }
+}
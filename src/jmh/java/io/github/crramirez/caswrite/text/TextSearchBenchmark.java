@@ -0,0 +1,91 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import io.github.crramirez.caswrite.bench.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for searching a whole large text buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TextSearchBenchmark {
+
+    @Param({"1MB", "64MB"})
+    public String size;
+
+    @Param({"needle", "needle42", "/needle[0-9]+/", "/ne+dle4\\d/i"})
+    public String query;
+
+    private TextBuffer buffer;
+    private TextSearch.Query parsed;
+
+    /**
+     * Open and index the input.
+     *
+     * @throws IOException if the input cannot be generated
+     */
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        buffer = TextBuffer.open(BenchmarkData.text(size));
+        buffer.getLineIndex().run();
+        parsed = TextSearch.Query.parse(query);
+    }
+
+    /**
+     * Release the buffer.
+     *
+     * @throws IOException if closing fails
+     */
+    @TearDown(Level.Trial)
+    public void release() throws IOException {
+        buffer.close();
+    }
+
+    /**
+     * Find every match, as the Find results window does.
+     *
+     * @return the number of matches
+     */
+    @Benchmark
+    public int findAll() {
+        TextSearch search = new TextSearch(buffer, parsed, null);
+        search.run();
+        return search.getHitCount();
+    }
+}
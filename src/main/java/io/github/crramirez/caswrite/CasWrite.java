@@ -21,16 +21,66 @@ import casciian.TApplication;
 import casciian.TCommand;
 import casciian.TEditor;
 import casciian.TEditorWindow;
+import casciian.TInputBox;
 import casciian.TMessageBox;
 import casciian.TTableWindow;
 import casciian.TWidget;
 import casciian.TWindow;
+import casciian.backend.Backend;
 import casciian.event.TCommandEvent;
 import casciian.event.TMenuEvent;
 import casciian.menu.TMenu;
+import io.github.crramirez.caswrite.batch.BatchMode;
+import io.github.crramirez.caswrite.compress.SpillFile;
+import io.github.crramirez.caswrite.diff.CompareWindow;
+import io.github.crramirez.caswrite.diff.FileComparison;
+import io.github.crramirez.caswrite.follow.Followable;
+import io.github.crramirez.caswrite.highlight.Language;
+import io.github.crramirez.caswrite.load.FileLoader;
+import io.github.crramirez.caswrite.load.LoadProgress;
+import io.github.crramirez.caswrite.load.LoadProgressWindow;
+import io.github.crramirez.caswrite.load.OpenBatch;
+import io.github.crramirez.caswrite.memory.MemoryGovernor;
+import io.github.crramirez.caswrite.metrics.DiagnosticsWindow;
+import io.github.crramirez.caswrite.metrics.FrameEvent;
+import io.github.crramirez.caswrite.metrics.Metrics;
+import io.github.crramirez.caswrite.metrics.TimingMetric;
+import io.github.crramirez.caswrite.perf.LatencyHarness;
+import io.github.crramirez.caswrite.render.FramePacer;
+import io.github.crramirez.caswrite.render.RenderMode;
+import io.github.crramirez.caswrite.save.Saveable;
+import io.github.crramirez.caswrite.session.PersistentIndex;
+import io.github.crramirez.caswrite.session.Resumable;
+import io.github.crramirez.caswrite.session.SessionStore;
+import io.github.crramirez.caswrite.session.Viewport;
+import io.github.crramirez.caswrite.session.WindowState;
+import io.github.crramirez.caswrite.table.ColumnStatisticsWindow;
+import io.github.crramirez.caswrite.table.ColumnarTableModel;
+import io.github.crramirez.caswrite.table.CsvFormat;
+import io.github.crramirez.caswrite.table.CsvTableModel;
+import io.github.crramirez.caswrite.table.LargeTableWindow;
+import io.github.crramirez.caswrite.table.RowFilter;
+import io.github.crramirez.caswrite.table.SortKey;
+import io.github.crramirez.caswrite.table.TableModel;
+import io.github.crramirez.caswrite.table.TableOperations;
+import io.github.crramirez.caswrite.table.TableView;
+import io.github.crramirez.caswrite.text.LargeTextWindow;
+import io.github.crramirez.caswrite.text.TextBuffer;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * CasWrite - A text editor with table support.
@@ -43,28 +93,140 @@ public class CasWrite extends TApplication {
 
     // Custom menu item IDs
     private static final int MID_OPEN_AS_TABLE = 2000;
+    private static final int MID_SORT_TABLE = 2001;
+    private static final int MID_CLEAR_SORT = 2002;
+    private static final int MID_FILTER_ROWS = 2003;
+    private static final int MID_CLEAR_FILTER = 2004;
+    private static final int MID_COLUMN_STATISTICS = 2005;
+    private static final int MID_DIAGNOSTICS = 2006;
+    private static final int MID_FOLLOW = 2007;
+    private static final int MID_OPEN_AND_FOLLOW = 2008;
+    private static final int MID_COMPARE = 2009;
+
+    // Text files at least this large are memory-mapped instead of loaded
+    // onto the heap (override with -Dcaswrite.largeFileThreshold=<bytes>)
+    private static final long LARGE_FILE_THRESHOLD =
+        Long.getLong("caswrite.largeFileThreshold", 8L * 1024 * 1024);
+
+    // Table files at least this large are shown through a virtualized,
+    // read-only view (override with -Dcaswrite.largeTableThreshold=<bytes>)
+    private static final long LARGE_TABLE_THRESHOLD =
+        Long.getLong("caswrite.largeTableThreshold", 4L * 1024 * 1024);
+
+    // Table files below this size are read into typed columns in memory;
+    // larger ones are mapped (override with -Dcaswrite.columnarTableLimit=<bytes>)
+    private static final long COLUMNAR_TABLE_LIMIT =
+        Long.getLong("caswrite.columnarTableLimit", 256L * 1024 * 1024);
+
+    // Number of files read at the same time (override with -Dcaswrite.openParallelism=<n>)
+    private static final int OPEN_PARALLELISM = Integer.getInteger("caswrite.openParallelism",
+        Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    // Heap the open windows may hold before the least recently used ones are
+    // spilled to disk (override with -Dcaswrite.memoryBudget=<bytes>)
+    private static final long MEMORY_BUDGET =
+        Long.getLong("caswrite.memoryBudget", Runtime.getRuntime().maxMemory() / 2);
+
+    // How frames reach the terminal: "immediate" writes each one at once,
+    // "adaptive" paces them to the measured speed of a slow link (override with -Dcaswrite.render=<mode>)
+    private static final RenderMode RENDER_MODE =
+        RenderMode.of(System.getProperty("caswrite.render"), RenderMode.IMMEDIATE);
+
+    // Frame rate a link must carry not to be paced in adaptive mode (override with -Dcaswrite.maxFps=<n>)
+    private static final int MAX_FPS = Integer.getInteger("caswrite.maxFps", 60);
+
+    // Failures listed individually in the summary shown after opening several files
+    private static final int MAX_LISTED_FAILURES = 10;
+
+    // Frame timings shown in the diagnostics window
+    private static final TimingMetric FRAME_TIME = Metrics.timing(Metrics.FRAME);
+    private static final TimingMetric PRE_DRAW_TIME = Metrics.timing(Metrics.PRE_DRAW);
 
     // File type detector for determining how to open files
     private final FileTypeDetector fileTypeDetector = new FileTypeDetector();
 
+    // Reads files on virtual threads and installs windows on the application thread
+    private final FileLoader fileLoader = new FileLoader(this::invokeLater, OPEN_PARALLELISM);
+
+    // Spills the content of windows left in the background when the heap is short
+    private final MemoryGovernor memoryGovernor = new MemoryGovernor(MEMORY_BUDGET);
+
+    // The active window when the memory governor was last told
+    private TWindow lastActiveWindow;
+
+    // Files shown in windows, so the session can reopen them and editable
+    // tables can be reopened read-only
+    private final Map<TWindow, File> windowFiles = new WeakHashMap<>();
+
+    // Keeps the open windows between runs; null when nothing is kept
+    private SessionStore sessionStore;
+
+    // Set once the session has been saved on exit
+    private boolean sessionSaved;
+
     // Track previous menu states to avoid unnecessary updates
     // volatile ensures visibility across threads (main thread vs application thread)
     private volatile boolean lastSaveEnabled = false;
     private volatile boolean lastSaveAsEnabled = false;
 
+    // The window state the menus were last updated for, so frames that
+    // change nothing skip the update
+    private TWindow stateWindow;
+    private BooleanSupplier stateDirtyCheck;
+    private boolean stateDirty;
+    private int stateWindowCount = -1;
+
+    // The frame being drawn, timed from onPreDraw to onPostDraw
+    private FrameEvent frameEvent;
+    private long frameStart;
+
+    // The open diagnostics window, if any
+    private DiagnosticsWindow diagnosticsWindow;
+
     /**
      * Constructor.
      *
      * @throws Exception if any error occurs
      */
     public CasWrite() throws Exception {
-        super(BackendType.XTERM);
-        
+        super(terminalBackend());
+        addMenus();
+    }
+
+    /**
+     * Constructor for a given backend, such as a headless one driven by a
+     * script instead of a terminal.
+     *
+     * @param backend the backend to read events from and draw to
+     */
+    public CasWrite(Backend backend) {
+        super(backend);
+        addMenus();
+    }
+
+    /**
+     * Get the backend for the terminal. In adaptive render mode, standard
+     * output is first routed through a {@link FramePacer}, which the
+     * terminal then writes its frames to.
+     *
+     * @return the backend type
+     */
+    private static BackendType terminalBackend() {
+        if (RENDER_MODE == RenderMode.ADAPTIVE) {
+            System.setOut(new PrintStream(new FramePacer(System.out, MAX_FPS), false, StandardCharsets.UTF_8));
+        }
+        return BackendType.XTERM;
+    }
+
+    /**
+     * Add all menus and set their initial state.
+     */
+    private void addMenus() {
         // Add all menus
         addSystemMenu();
         addFileMenuWithTable();
         addEditMenu();
-        addTableMenu();
+        addTableMenuWithSort();
         addWindowMenu();
 
         // Initialize menu states (no windows at startup)
@@ -81,6 +243,9 @@ public class CasWrite extends TApplication {
         fileMenu.addDefaultItem(TMenu.MID_NEW);
         fileMenu.addDefaultItem(TMenu.MID_OPEN_FILE);
         fileMenu.addItem(MID_OPEN_AS_TABLE, "&Open as Table...");
+        fileMenu.addItem(MID_OPEN_AND_FOLLOW, "Open and Fo&llow...");
+        fileMenu.addItem(MID_FOLLOW, "&Follow");
+        fileMenu.addItem(MID_COMPARE, "&Compare Files...");
         fileMenu.addDefaultItem(TMenu.MID_SAVE_FILE);
         fileMenu.addDefaultItem(TMenu.MID_SAVE_AS_FILE);
         fileMenu.addSeparator();
@@ -88,11 +253,25 @@ public class CasWrite extends TApplication {
     }
 
     /**
-     * Add the System menu with OS shell option.
+     * Add the Table menu with sort, filter and statistics options.
+     */
+    private void addTableMenuWithSort() {
+        TMenu tableMenu = addTableMenu();
+        tableMenu.addSeparator();
+        tableMenu.addItem(MID_SORT_TABLE, "&Sort by Column...");
+        tableMenu.addItem(MID_CLEAR_SORT, "&Unsort");
+        tableMenu.addItem(MID_FILTER_ROWS, "Filter Ro&ws...");
+        tableMenu.addItem(MID_CLEAR_FILTER, "Show A&ll Rows");
+        tableMenu.addItem(MID_COLUMN_STATISTICS, "Column S&tatistics");
+    }
+
+    /**
+     * Add the System menu with OS shell and diagnostics options.
      */
     private void addSystemMenu() {
         TMenu systemMenu = addToolMenu();
         systemMenu.addDefaultItem(TMenu.MID_SHELL);
+        systemMenu.addItem(MID_DIAGNOSTICS, "&Diagnostics");
     }
 
     /**
@@ -115,6 +294,75 @@ public class CasWrite extends TApplication {
                 openAsTable();
                 yield true;
             }
+            case MID_OPEN_AND_FOLLOW -> {
+                openAndFollow();
+                yield true;
+            }
+            case MID_FOLLOW -> {
+                toggleFollow();
+                yield true;
+            }
+            case MID_COMPARE -> {
+                compareFiles();
+                yield true;
+            }
+            case MID_SORT_TABLE -> {
+                sortActiveTable();
+                yield true;
+            }
+            case MID_CLEAR_SORT -> {
+                LargeTableWindow window = activeTableView();
+                if (window != null) {
+                    window.getView().clearSort();
+                    window.viewChanged();
+                }
+                yield true;
+            }
+            case MID_FILTER_ROWS -> {
+                filterActiveTable();
+                yield true;
+            }
+            case MID_COLUMN_STATISTICS -> {
+                LargeTableWindow window = activeTableView();
+                if (window != null) {
+                    new ColumnStatisticsWindow(this, window);
+                }
+                yield true;
+            }
+            case MID_CLEAR_FILTER -> {
+                LargeTableWindow window = activeTableView();
+                if (window != null) {
+                    window.getView().clearFilter();
+                    window.viewChanged();
+                }
+                yield true;
+            }
+            case MID_DIAGNOSTICS -> {
+                toggleDiagnostics();
+                yield true;
+            }
+            case TMenu.MID_FIND, TMenu.MID_REPLACE, TMenu.MID_SEARCH_AGAIN -> {
+                if (!(getActiveWindow() instanceof LargeTextWindow window)) {
+                    yield super.onMenu(menu);
+                }
+                switch (menu.getId()) {
+                    case TMenu.MID_FIND -> window.find();
+                    case TMenu.MID_REPLACE -> window.replace();
+                    default -> window.findNext();
+                }
+                yield true;
+            }
+            case TMenu.MID_UNDO, TMenu.MID_REDO -> {
+                if (!(getActiveWindow() instanceof LargeTextWindow window)) {
+                    yield super.onMenu(menu);
+                }
+                if (menu.getId() == TMenu.MID_UNDO) {
+                    window.undo();
+                } else {
+                    window.redo();
+                }
+                yield true;
+            }
             case TMenu.MID_SAVE_FILE -> {
                 postMenuEvent(new TCommandEvent(menu.getBackend(), TCommand.cmSave));
                 yield true;
@@ -137,47 +385,95 @@ public class CasWrite extends TApplication {
     protected boolean onCommand(TCommandEvent command) {
         if (command.getCmd().equals(TCommand.cmWindowClose)) {
             TWindow activeWindow = getActiveWindow();
-            if (activeWindow instanceof TEditorWindow) {
-                TEditor editor = findEditor((TEditorWindow) activeWindow);
-                if (editor != null && editor.isDirty()) {
-                    TMessageBox.Result result = messageBox(
-                        "Save Changes?",
-                        "The file has unsaved changes. Do you want to save before closing?",
-                        TMessageBox.Type.YESNOCANCEL
-                    ).getResult();
-
-                    switch (result) {
-                        case YES:
-                            // Save the file (synchronous); only close if editor is no longer dirty
-                            activeWindow.onCommand(new TCommandEvent(
-                                command.getBackend(), TCommand.cmSave));
-                            // Check if the save succeeded by verifying the editor is no longer dirty
-                            if (!editor.isDirty()) {
-                                closeWindow(activeWindow);
-                            } else {
-                                // Save failed or was cancelled, keep the window open
-                                messageBox(
+            BooleanSupplier dirty = dirtyCheck(activeWindow);
+            if (dirty != null && dirty.getAsBoolean()) {
+                TMessageBox.Result result = messageBox(
+                    "Save Changes?",
+                    "The file has unsaved changes. Do you want to save before closing?",
+                    TMessageBox.Type.YESNOCANCEL
+                ).getResult();
+
+                switch (result) {
+                    case YES:
+                        if (activeWindow instanceof Saveable saveable) {
+                            // Saved in the background; close once the file is on disk
+                            saveable.save(() -> closeIfClean(activeWindow, saveable::isDirty),
+                                e -> messageBox(
                                     "Save Failed",
-                                    "The file could not be saved. The window will remain open.",
+                                    "The file could not be saved: " + e.getMessage()
+                                        + "\nThe window will remain open.",
                                     TMessageBox.Type.OK
-                                ).getResult();
-                            }
+                                ).getResult());
                             return true;
-                        case NO:
-                            // Close without saving
+                        }
+                        // Save the file (synchronous); only close if the window is no longer dirty
+                        activeWindow.onCommand(new TCommandEvent(
+                            command.getBackend(), TCommand.cmSave));
+                        // Check if the save succeeded by verifying the window is no longer dirty
+                        if (!dirty.getAsBoolean()) {
                             closeWindow(activeWindow);
-                            return true;
-                        case CANCEL:
-                        default:
-                            // Don't close
-                            return true;
-                    }
+                        } else {
+                            // Save failed or was cancelled, keep the window open
+                            messageBox(
+                                "Save Failed",
+                                "The file could not be saved. The window will remain open.",
+                                TMessageBox.Type.OK
+                            ).getResult();
+                        }
+                        return true;
+                    case NO:
+                        // Close without saving
+                        closeWindow(activeWindow);
+                        return true;
+                    case CANCEL:
+                    default:
+                        // Don't close
+                        return true;
                 }
             }
         }
         return super.onCommand(command);
     }
 
+    /**
+     * Close a window after a background save, unless it was edited while
+     * the file was being written.
+     *
+     * @param window the window that was saved
+     * @param dirty reports whether the window has unsaved changes
+     */
+    private void closeIfClean(TWindow window, BooleanSupplier dirty) {
+        if (dirty.getAsBoolean()) {
+            messageBox(
+                "File Changed",
+                "The file was changed while it was being saved. The window will remain open.",
+                TMessageBox.Type.OK
+            ).getResult();
+            return;
+        }
+        closeWindow(window);
+    }
+
+    /**
+     * Get a check for unsaved changes in a window.
+     *
+     * @param window the window to check, may be null
+     * @return a supplier reporting whether the window is dirty, or null if
+     * the window does not track unsaved changes
+     */
+    private BooleanSupplier dirtyCheck(TWindow window) {
+        if (window instanceof TEditorWindow) {
+            TEditor editor = findEditor((TEditorWindow) window);
+            if (editor != null) {
+                return editor::isDirty;
+            }
+        }
+        if (window instanceof Saveable) {
+            return ((Saveable) window)::isDirty;
+        }
+        return null;
+    }
+
     /**
      * Find the TEditor widget within a TEditorWindow.
      *
@@ -226,25 +522,618 @@ public class CasWrite extends TApplication {
     }
 
     /**
-     * Open a file in the appropriate window type.
+     * Open a file in the appropriate window type, reporting load failures
+     * in a message box.
      *
      * @param file the file to open
      * @param forceTable if true, always open as table regardless of extension
-     * @throws IOException if an error occurs opening the file
+     * @throws IOException if the file does not exist or is not a regular file
      */
     private void openFileInWindow(File file, boolean forceTable) throws IOException {
+        LoadProgress progress = openFileInWindow(file, forceTable,
+            e -> showOpenError(file, e), () -> { });
+        LoadProgressWindow.showIfSlow(this, progress);
+    }
+
+    /**
+     * Open a file in the appropriate window type. Text files above
+     * {@link #LARGE_FILE_THRESHOLD} and table files above
+     * {@link #LARGE_TABLE_THRESHOLD} are memory-mapped rather than read
+     * onto the heap.
+     *
+     * The file is read on a virtual thread and the window is created on
+     * the application thread once the data is ready, so this method
+     * returns immediately.
+     *
+     * @param file the file to open
+     * @param forceTable if true, always open as table regardless of extension
+     * @param onError receives load failures on the application thread
+     * @param onSettled runs on the application thread once the window is
+     * shown, the failure reported or the load cancelled
+     * @return the progress of the load
+     * @throws IOException if the file does not exist or is not a regular file
+     */
+    private LoadProgress openFileInWindow(File file, boolean forceTable,
+                                          Consumer<Exception> onError,
+                                          Runnable onSettled) throws IOException {
         if (!file.exists()) {
             throw new IOException("File does not exist: " + file.getPath());
         }
         if (!file.isFile()) {
             throw new IOException("Not a regular file: " + file.getPath());
         }
-        // Determine if it's a CSV/TSV file or text file
-        if (forceTable || fileTypeDetector.isTableFile(file.getName())) {
-            new TTableWindow(this, file);
-        } else {
-            new TEditorWindow(this, file);
+        Path path = file.toPath();
+        return fileLoader.load(path, file.length(),
+            loading -> prepareWindow(file, forceTable, loading),
+            pending -> windowFiles.put(pending.show(), file), onError, onSettled);
+    }
+
+    /**
+     * Probe a file and load whatever its window needs, off the UI thread.
+     * The file type comes from its content as well as its name: binary
+     * files are only ever mapped, extensionless delimited files open as
+     * tables, and tables use the delimiter found in their first lines.
+     * Tables too large for the table widget are read into typed columns,
+     * or mapped if they are too large for that as well.
+     *
+     * @param file the file to open
+     * @param forceTable if true, open as a table whatever the content
+     * @param progress the progress of the load
+     * @return the window to show once loading has finished
+     * @throws IOException if the file cannot be read
+     */
+    private PendingWindow prepareWindow(File file, boolean forceTable,
+                                        LoadProgress progress) throws IOException {
+        Path path = file.toPath();
+        long size = progress.getTotalBytes();
+        FileTypeDetector.Detection detection = fileTypeDetector.detect(path);
+        if (detection.compression() != null) {
+            return prepareCompressedWindow(file, forceTable, detection, progress);
+        }
+        // The table views split fields on bytes, so UTF-16 tables open as text
+        if ((forceTable || detection.type() == FileTypeDetector.FileType.TABLE) && detection.isAsciiCompatible()) {
+            CsvFormat format = new CsvFormat((byte) detection.delimiter(), CsvFormat.CSV.quote(),
+                detection.charset());
+            if (opensEditable(file.getName(), size, format)) {
+                // The widget parses the file on the application thread; it
+                // is read here first so that it then comes from memory
+                FileLoader.readAhead(progress);
+                return () -> new TTableWindow(this, file);
+            }
+            if (size < COLUMNAR_TABLE_LIMIT) {
+                ColumnarTableModel model = ColumnarTableModel.load(path, format, progress);
+                return () -> new LargeTableWindow(this, file.getName(), model);
+            }
+            CsvTableModel model = CsvTableModel.open(path, format);
+            restoreIndex(path, model.getRowIndex());
+            return owning(model, () -> new LargeTableWindow(this, model));
+        }
+        // The editor widget only reads UTF-8; the mapped view decodes other
+        // charsets line by line and saves them without transcoding
+        if (size >= LARGE_FILE_THRESHOLD || detection.type() == FileTypeDetector.FileType.BINARY
+            || !detection.charset().equals(StandardCharsets.UTF_8)) {
+            TextBuffer buffer = TextBuffer.open(path, detection.charset());
+            restoreIndex(path, buffer.getLineIndex());
+            Language language = fileTypeDetector.detectLanguage(file.getName());
+            return owning(buffer, () -> {
+                LargeTextWindow window = new LargeTextWindow(this, buffer);
+                window.setLanguage(language);
+                return window;
+            });
+        }
+        FileLoader.readAhead(progress);
+        return () -> new TEditorWindow(this, file);
+    }
+
+    /**
+     * Check whether a table opens in the editable table widget. The widget
+     * only understands UTF-8 with the delimiter its name implies, so other
+     * formats go through the read-only views whatever the file size.
+     *
+     * @param filename the name of the file
+     * @param size the size of the file in bytes
+     * @param format the format found in the file
+     * @return true if the table opens for editing
+     */
+    static boolean opensEditable(String filename, long size, CsvFormat format) {
+        return size < LARGE_TABLE_THRESHOLD && format.equals(CsvFormat.forFileName(filename));
+    }
+
+    /**
+     * Decompress a file into a spill file and map it, off the UI thread.
+     * The content always opens in the mapped views, which are the ones
+     * that can save it compressed again or refuse to write into an archive;
+     * the spill file is deleted as soon as it is mapped.
+     *
+     * @param file the compressed file
+     * @param forceTable if true, open as a table whatever the content
+     * @param detection what the decompressed content looks like
+     * @param progress the progress of the load, in compressed bytes
+     * @return the window to show once loading has finished
+     * @throws IOException if the file cannot be decompressed
+     */
+    private PendingWindow prepareCompressedWindow(File file, boolean forceTable,
+                                                  FileTypeDetector.Detection detection,
+                                                  LoadProgress progress) throws IOException {
+        Path path = file.toPath();
+        Path spill = SpillFile.inflate(path, detection.compression(), progress);
+        try {
+            if ((forceTable || detection.type() == FileTypeDetector.FileType.TABLE)
+                && detection.isAsciiCompatible()) {
+                CsvFormat format = new CsvFormat((byte) detection.delimiter(), CsvFormat.CSV.quote(),
+                    detection.charset());
+                CsvTableModel model = CsvTableModel.open(spill, format);
+                return owning(model, () -> new LargeTableWindow(this, file.getName(), model));
+            }
+            TextBuffer buffer = TextBuffer.open(spill, detection.charset());
+            Language language = fileTypeDetector.detectLanguage(file.getName());
+            return owning(buffer, () -> {
+                LargeTextWindow window = new LargeTextWindow(this, buffer, path, detection.compression());
+                window.setLanguage(language);
+                return window;
+            });
+        } finally {
+            SpillFile.discard(spill);
+        }
+    }
+
+    /**
+     * Map a file for following, off the UI thread. Files are always mapped
+     * so that appended bytes can be added without reading the file again:
+     * delimited files open in a read-only table view, everything else in
+     * the large-file text view.
+     *
+     * Compressed files cannot grow in place and open like any other.
+     *
+     * @param file the file to open
+     * @param progress the progress of the load
+     * @return the window to show once the file is mapped
+     * @throws IOException if the file cannot be read
+     */
+    private PendingWindow prepareFollowedWindow(File file, LoadProgress progress) throws IOException {
+        Path path = file.toPath();
+        FileTypeDetector.Detection detection = fileTypeDetector.detect(path);
+        if (detection.compression() != null) {
+            return prepareCompressedWindow(file, false, detection, progress);
+        }
+        if (detection.type() == FileTypeDetector.FileType.TABLE && detection.isAsciiCompatible()) {
+            CsvFormat format = new CsvFormat((byte) detection.delimiter(), CsvFormat.CSV.quote(),
+                detection.charset());
+            CsvTableModel model = CsvTableModel.open(path, format);
+            restoreIndex(path, model.getRowIndex());
+            return owning(model, () -> {
+                LargeTableWindow window = new LargeTableWindow(this, model);
+                window.setFollowing(true);
+                return window;
+            });
+        }
+        TextBuffer buffer = TextBuffer.open(path, detection.charset());
+        restoreIndex(path, buffer.getLineIndex());
+        Language language = fileTypeDetector.detectLanguage(file.getName());
+        return owning(buffer, () -> {
+            LargeTextWindow window = new LargeTextWindow(this, buffer);
+            window.setLanguage(language);
+            window.setFollowing(true);
+            return window;
+        });
+    }
+
+    /**
+     * A window that is ready to be created on the UI thread. If the load is
+     * cancelled first, it is closed instead.
+     */
+    private interface PendingWindow extends Closeable {
+
+        /**
+         * Create the window.
+         *
+         * @return the window
+         * @throws IOException if the window cannot be created
+         */
+        TWindow show() throws IOException;
+
+        /**
+         * Release what was loaded for a window that will not be shown.
+         *
+         * @throws IOException if releasing fails
+         */
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    /**
+     * Wrap a pending window that owns a resource, so that a cancelled load
+     * releases it.
+     *
+     * @param resource the resource the window will take over
+     * @param window the pending window
+     * @return a pending window that closes the resource when discarded
+     */
+    private static PendingWindow owning(Closeable resource, PendingWindow window) {
+        return new PendingWindow() {
+            @Override
+            public TWindow show() throws IOException {
+                return window.show();
+            }
+
+            @Override
+            public void close() throws IOException {
+                resource.close();
+            }
+        };
+    }
+
+    /**
+     * Get the active table window that can be sorted, filtered and summarized. If the
+     * active window is an editable table instead, offer to open the same
+     * file in a read-only view.
+     *
+     * @return the window, or null if there is none
+     */
+    private LargeTableWindow activeTableView() {
+        TWindow active = getActiveWindow();
+        if (active instanceof LargeTableWindow window) {
+            return window;
+        }
+        File file = active instanceof TTableWindow ? windowFiles.get(active) : null;
+        if (file == null) {
+            messageBox("Table", "Sorting, filtering and statistics work on table windows.");
+            return null;
+        }
+        TMessageBox.Result result = messageBox("Table",
+            "'" + file.getName() + "' is open for editing. Sorting, filtering and statistics\n"
+                + "work on a read-only view. Open a read-only view of the file now?",
+            TMessageBox.Type.YESNO).getResult();
+        if (result == TMessageBox.Result.YES) {
+            Path path = file.toPath();
+            LoadProgress progress = fileLoader.load(path, file.length(),
+                // Only comma-separated files open in editable table windows
+                loading -> ColumnarTableModel.load(path, CsvFormat.CSV, loading),
+                model -> windowFiles.put(new LargeTableWindow(this, file.getName(), model), file),
+                e -> showOpenError(file, e));
+            LoadProgressWindow.showIfSlow(this, progress);
+        }
+        return null;
+    }
+
+    /**
+     * Ask for sort keys and sort the active table in the background.
+     */
+    private void sortActiveTable() {
+        LargeTableWindow window = activeTableView();
+        if (window == null) {
+            return;
+        }
+        TableView view = window.getView();
+        TableModel source = view.getSource();
+        StringBuilder current = new StringBuilder();
+        for (SortKey key : view.getSortKeys()) {
+            current.append(current.length() == 0 ? "" : ", ")
+                .append(source.getColumnName(key.column()))
+                .append(key.descending() ? " desc" : "");
+        }
+        TInputBox input = inputBox("Sort by Column",
+            "Columns to sort by, e.g. 'price desc, name':", current.toString(),
+            TInputBox.Type.OKCANCEL);
+        if (input.getResult() != TMessageBox.Result.OK) {
+            return;
+        }
+        List<SortKey> keys;
+        try {
+            keys = SortKey.parse(input.getText(), source);
+        } catch (IllegalArgumentException e) {
+            messageBox("Sort by Column", e.getMessage());
+            return;
+        }
+        LoadProgress progress = LoadProgress.forRows(tablePath(window), "Sorting", source.getRowCount());
+        fileLoader.submit(progress,
+            sorting -> TableOperations.sort(source, keys, sorting),
+            order -> {
+                view.setSort(keys, order);
+                window.viewChanged();
+            },
+            e -> messageBox("Sort by Column", "Could not sort: " + e.getMessage()),
+            () -> { });
+        LoadProgressWindow.showIfSlow(this, progress);
+    }
+
+    /**
+     * Ask for a condition and filter the rows of the active table in the
+     * background.
+     */
+    private void filterActiveTable() {
+        LargeTableWindow window = activeTableView();
+        if (window == null) {
+            return;
+        }
+        TableView view = window.getView();
+        TableModel source = view.getSource();
+        String current = view.getFilter() == null ? "" : view.getFilter().describe(source);
+        TInputBox input = inputBox("Filter Rows",
+            "Condition, e.g. 'price > 10' or 'city ~ par':", current,
+            TInputBox.Type.OKCANCEL);
+        if (input.getResult() != TMessageBox.Result.OK) {
+            return;
+        }
+        RowFilter filter;
+        try {
+            filter = RowFilter.parse(input.getText(), source);
+        } catch (IllegalArgumentException e) {
+            messageBox("Filter Rows", e.getMessage());
+            return;
         }
+        LoadProgress progress = LoadProgress.forRows(tablePath(window), "Filtering", source.getRowCount());
+        fileLoader.submit(progress,
+            filtering -> TableOperations.filter(source, filter, filtering),
+            kept -> {
+                view.setFilter(filter, kept);
+                window.viewChanged();
+            },
+            e -> messageBox("Filter Rows", "Could not filter: " + e.getMessage()),
+            () -> { });
+        LoadProgressWindow.showIfSlow(this, progress);
+    }
+
+    /**
+     * Get the file shown in a table window, for progress displays.
+     *
+     * @param window the window
+     * @return the path of the file, or the window title if the model does
+     * not come from a file
+     */
+    private static Path tablePath(LargeTableWindow window) {
+        TableModel model = window.getModel();
+        if (model instanceof ColumnarTableModel columnar) {
+            return columnar.getPath();
+        }
+        if (model instanceof CsvTableModel csv) {
+            return csv.getPath();
+        }
+        return Path.of(window.getTitle());
+    }
+
+    /**
+     * Open several files at once. Up to {@link #OPEN_PARALLELISM} files
+     * are read concurrently and each window appears as soon as its file is
+     * ready. Files that cannot be opened are reported together in one
+     * message box after the last file has settled.
+     *
+     * @param filenames the files to open
+     */
+    public void openFiles(String[] filenames) {
+        OpenBatch batch = new OpenBatch(filenames.length, this::showOpenSummary);
+        for (String filename : filenames) {
+            File file = new File(filename);
+            try {
+                openFileInWindow(file, false, e -> batch.failed(file.getName(), e), batch::settle);
+            } catch (IOException e) {
+                batch.failed(file.getName(), e);
+                batch.settle();
+            }
+        }
+    }
+
+    /**
+     * Keep the open windows between runs. Without a store, as when a
+     * script is replayed, nothing is saved or restored.
+     *
+     * @param sessionStore where to keep the session
+     */
+    public void setSessionStore(SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    /**
+     * Reopen the windows of the last session, each where it was and
+     * showing what it showed. The files are read in parallel like any
+     * batch, with the indexes kept for them; once the last one has
+     * settled, the windows are stacked as they were.
+     */
+    public void restoreSession() {
+        if (sessionStore == null) {
+            return;
+        }
+        List<WindowState> states;
+        try {
+            states = sessionStore.load();
+        } catch (IOException e) {
+            messageBox("Error Restoring Session", "The last session could not be read: " + e.getMessage());
+            return;
+        }
+        TWindow[] restored = new TWindow[states.size()];
+        OpenBatch batch = new OpenBatch(states.size(), failures -> {
+            stackRestored(states, restored);
+            showOpenSummary(failures);
+        });
+        for (int i = 0; i < states.size(); i++) {
+            WindowState state = states.get(i);
+            File file = state.path().toFile();
+            if (!file.isFile()) {
+                batch.failed(file.getName(), new IOException("File no longer exists: " + file.getPath()));
+                batch.settle();
+                continue;
+            }
+            int slot = i;
+            fileLoader.load(file.toPath(), file.length(),
+                loading -> state.following() ? prepareFollowedWindow(file, loading)
+                    : prepareWindow(file, state.table(), loading),
+                pending -> restored[slot] = resume(pending.show(), file, state),
+                e -> batch.failed(file.getName(), e), batch::settle);
+        }
+    }
+
+    /**
+     * Put a reopened window where it was in the last session.
+     *
+     * @param window the window
+     * @param file the file it shows
+     * @param state what it looked like
+     * @return the window
+     */
+    private TWindow resume(TWindow window, File file, WindowState state) {
+        windowFiles.put(window, file);
+        int width = Math.min(state.width(), getScreen().getWidth());
+        int height = Math.min(state.height(), getDesktopBottom() - getDesktopTop());
+        window.setWidth(width);
+        window.setHeight(height);
+        window.setX(Math.max(0, Math.min(state.x(), getScreen().getWidth() - width)));
+        window.setY(Math.max(getDesktopTop(), Math.min(state.y(), getDesktopBottom() - height)));
+        if (window instanceof Resumable resumable && state.viewport() != null) {
+            resumable.setViewport(state.viewport());
+        }
+        return window;
+    }
+
+    /**
+     * Activate the restored windows from the back of the saved stack to
+     * the front, then the one that was active.
+     *
+     * @param states the saved windows, front to back
+     * @param restored the window reopened for each, or null
+     */
+    private void stackRestored(List<WindowState> states, TWindow[] restored) {
+        TWindow active = null;
+        for (int i = restored.length - 1; i >= 0; i--) {
+            if (restored[i] != null) {
+                activateWindow(restored[i]);
+                if (states.get(i).active()) {
+                    active = restored[i];
+                }
+            }
+        }
+        if (active != null) {
+            activateWindow(active);
+        }
+    }
+
+    /**
+     * Save the session, once, when the exit has been confirmed.
+     */
+    @Override
+    public void exit() {
+        if (!sessionSaved) {
+            sessionSaved = true;
+            saveSession();
+        }
+        super.exit();
+    }
+
+    /**
+     * Save the windows showing files, and the complete indexes of those
+     * files, for the next run. Windows of new documents and tool windows
+     * are left out, and so are unsaved changes.
+     */
+    private void saveSession() {
+        if (sessionStore == null) {
+            return;
+        }
+        TWindow active = getActiveWindow();
+        List<WindowState> windows = new ArrayList<>();
+        Map<Path, PersistentIndex> indexes = new HashMap<>();
+        // The windows are listed front to back
+        for (TWindow window : getAllWindows()) {
+            Path path = windowPath(window);
+            if (path == null) {
+                continue;
+            }
+            boolean table = window instanceof LargeTableWindow || window instanceof TTableWindow;
+            boolean following = window instanceof Followable followable && followable.isFollowing();
+            Viewport viewport = window instanceof Resumable resumable ? resumable.getViewport() : null;
+            windows.add(new WindowState(path, table, following, window == active,
+                window.getX(), window.getY(), window.getWidth(), window.getHeight(), viewport));
+            PersistentIndex index = persistentIndex(window, path);
+            if (index != null) {
+                indexes.put(path, index);
+            }
+        }
+        try {
+            sessionStore.save(windows, indexes);
+        } catch (IOException e) {
+            messageBox("Error Saving Session", "The open windows could not be saved: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the file shown in a window.
+     *
+     * @param window the window
+     * @return the file, or null if the window does not show one
+     */
+    private Path windowPath(TWindow window) {
+        if (window instanceof LargeTextWindow text) {
+            // Save As moves the window to another file
+            return text.getPath();
+        }
+        File file = windowFiles.get(window);
+        return file == null ? null : file.toPath();
+    }
+
+    /**
+     * Get the index worth keeping for the file of a window: that of a
+     * mapped file, not of the spill file a compressed one was inflated to.
+     *
+     * @param window the window
+     * @param path the file it shows
+     * @return the index, or null if the window has none for that file
+     */
+    private static PersistentIndex persistentIndex(TWindow window, Path path) {
+        if (window instanceof LargeTextWindow text && text.getBuffer().getPath().equals(path)) {
+            return text.getBuffer().getLineIndex();
+        }
+        if (window instanceof LargeTableWindow table && table.getModel() instanceof CsvTableModel csv
+            && csv.getPath().equals(path)) {
+            return csv.getRowIndex();
+        }
+        return null;
+    }
+
+    /**
+     * Give a new index the state kept for its file in the session, if the
+     * file has not changed since, so the file is not scanned again.
+     *
+     * @param path the file
+     * @param index the index, not run yet
+     */
+    private void restoreIndex(Path path, PersistentIndex index) {
+        if (sessionStore != null) {
+            sessionStore.loadIndex(path, index);
+        }
+    }
+
+    /**
+     * Report the files of a batch that could not be opened.
+     *
+     * @param failures one message per failed file
+     */
+    private void showOpenSummary(List<String> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        if (failures.size() == 1) {
+            messageBox("Error Opening File", "Failed to open " + failures.get(0));
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        text.append(failures.size()).append(" files could not be opened:\n");
+        for (int i = 0; i < Math.min(failures.size(), MAX_LISTED_FAILURES); i++) {
+            text.append('\n').append(failures.get(i));
+        }
+        if (failures.size() > MAX_LISTED_FAILURES) {
+            text.append("\n... and ").append(failures.size() - MAX_LISTED_FAILURES).append(" more");
+        }
+        messageBox("Errors Opening Files", text.toString());
+    }
+
+    /**
+     * Show a message box for a file that could not be opened.
+     *
+     * @param file the file
+     * @param error the failure
+     */
+    private void showOpenError(File file, Exception error) {
+        messageBox("Error Opening File",
+            "Failed to open '" + file.getName() + "': " + error.getMessage());
     }
 
     /**
@@ -262,14 +1151,219 @@ public class CasWrite extends TApplication {
         }
     }
 
+    /**
+     * Open a file and follow it as it grows.
+     */
+    private void openAndFollow() {
+        try {
+            String filename = fileOpenBox(".");
+            if (filename == null) {
+                return;
+            }
+            File file = new File(filename);
+            if (!file.isFile()) {
+                throw new IOException("Not a regular file: " + file.getPath());
+            }
+            LoadProgress progress = fileLoader.load(file.toPath(), file.length(),
+                loading -> prepareFollowedWindow(file, loading),
+                pending -> windowFiles.put(pending.show(), file),
+                e -> showOpenError(file, e));
+            LoadProgressWindow.showIfSlow(this, progress);
+        } catch (IOException e) {
+            messageBox("Error Opening File", "Error opening file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ask for two files and compare them side by side. Two tables can be
+     * compared by a key column; anything else is compared line by line.
+     * The files are hashed and compared in the background.
+     */
+    private void compareFiles() {
+        try {
+            String oldName = fileOpenBox(".");
+            if (oldName == null) {
+                return;
+            }
+            String newName = fileOpenBox(".");
+            if (newName == null) {
+                return;
+            }
+            File oldFile = new File(oldName);
+            File newFile = new File(newName);
+            for (File file : List.of(oldFile, newFile)) {
+                if (!file.isFile()) {
+                    throw new IOException("Not a regular file: " + file.getPath());
+                }
+            }
+            FileTypeDetector.Detection oldType = fileTypeDetector.detect(oldFile.toPath());
+            FileTypeDetector.Detection newType = fileTypeDetector.detect(newFile.toPath());
+            if (oldType.compression() != null || newType.compression() != null) {
+                messageBox("Compare Files", "Compressed files cannot be compared.");
+                return;
+            }
+            String keyColumn = null;
+            if (isMappableTable(oldType) && isMappableTable(newType)) {
+                TInputBox input = inputBox("Compare Files",
+                    "Key column to match records by, name or number;\nempty to compare lines:", "",
+                    TInputBox.Type.OKCANCEL);
+                if (input.getResult() != TMessageBox.Result.OK) {
+                    return;
+                }
+                keyColumn = input.getText().isBlank() ? null : input.getText();
+            }
+            String key = keyColumn;
+            LoadProgress progress = fileLoader.load(oldFile.toPath(), oldFile.length() + newFile.length(),
+                loading -> prepareComparison(oldFile.toPath(), oldType, newFile.toPath(), newType, key, loading),
+                comparison -> new CompareWindow(this, comparison),
+                e -> messageBox("Compare Files", "Could not compare the files: " + e.getMessage()));
+            LoadProgressWindow.showIfSlow(this, progress);
+        } catch (IOException e) {
+            messageBox("Compare Files", "Error opening file: " + e.getMessage());
+        }
+    }
+
+    private static boolean isMappableTable(FileTypeDetector.Detection detection) {
+        return detection.type() == FileTypeDetector.FileType.TABLE && detection.isAsciiCompatible();
+    }
+
+    /**
+     * Map two files and compare them, off the UI thread. Indexes kept with
+     * the session are reused.
+     *
+     * @param keyColumn the key column of two tables, or null to compare
+     * lines
+     * @return the comparison
+     * @throws IOException if a file cannot be read
+     */
+    private FileComparison prepareComparison(Path oldPath, FileTypeDetector.Detection oldType,
+                                             Path newPath, FileTypeDetector.Detection newType,
+                                             String keyColumn, LoadProgress progress) throws IOException {
+        if (keyColumn != null) {
+            CsvTableModel oldTable = CsvTableModel.open(oldPath, new CsvFormat((byte) oldType.delimiter(),
+                CsvFormat.CSV.quote(), oldType.charset()));
+            CsvTableModel newTable;
+            try {
+                newTable = CsvTableModel.open(newPath, new CsvFormat((byte) newType.delimiter(),
+                    CsvFormat.CSV.quote(), newType.charset()));
+            } catch (IOException e) {
+                oldTable.close();
+                throw e;
+            }
+            restoreIndex(oldPath, oldTable.getRowIndex());
+            restoreIndex(newPath, newTable.getRowIndex());
+            return FileComparison.ofTables(oldTable, newTable, keyColumn, progress);
+        }
+        TextBuffer oldBuffer = TextBuffer.open(oldPath, oldType.charset());
+        TextBuffer newBuffer;
+        try {
+            newBuffer = TextBuffer.open(newPath, newType.charset());
+        } catch (IOException e) {
+            oldBuffer.close();
+            throw e;
+        }
+        restoreIndex(oldPath, oldBuffer.getLineIndex());
+        restoreIndex(newPath, newBuffer.getLineIndex());
+        return FileComparison.ofText(oldBuffer, newBuffer, progress);
+    }
+
+    /**
+     * Start or stop following the file of the active window.
+     */
+    private void toggleFollow() {
+        if (getActiveWindow() instanceof Followable window && window.canFollow()) {
+            window.setFollowing(!window.isFollowing());
+            return;
+        }
+        messageBox("Follow", "Only files shown in the large-file and table views can be followed.\n"
+            + "Use Open and Follow to open a file in one of them.");
+    }
+
+    /**
+     * Open the diagnostics window, or close it if it is already open.
+     */
+    private void toggleDiagnostics() {
+        if (diagnosticsWindow != null && getAllWindows().contains(diagnosticsWindow)) {
+            closeWindow(diagnosticsWindow);
+            diagnosticsWindow = null;
+        } else {
+            diagnosticsWindow = new DiagnosticsWindow(this);
+        }
+    }
+
     /**
      * Called before drawing the screen. Updates menu item states based on
-     * current application state.
+     * current application state if the window state changed, and starts
+     * timing the frame.
      */
     @Override
     protected void onPreDraw() {
+        frameStart = System.nanoTime();
+        frameEvent = new FrameEvent();
+        frameEvent.begin();
         super.onPreDraw();
-        updateMenuStates();
+        if (windowStateChanged()) {
+            updateMenuStates();
+            governMemory();
+        }
+        long preDraw = System.nanoTime() - frameStart;
+        PRE_DRAW_TIME.record(preDraw);
+        frameEvent.preDrawTime = preDraw;
+    }
+
+    /**
+     * Called after drawing the screen. Records the frame time.
+     */
+    @Override
+    protected void onPostDraw() {
+        super.onPostDraw();
+        if (frameEvent == null) {
+            return;
+        }
+        FRAME_TIME.record(System.nanoTime() - frameStart);
+        frameEvent.windows = windowCount();
+        frameEvent.commit();
+        frameEvent = null;
+    }
+
+    /**
+     * Check whether the active window, the number of windows or the unsaved
+     * changes of the active window differ from the last frame. The dirty
+     * check is only looked up again when another window is activated.
+     *
+     * @return true if the state changed
+     */
+    private boolean windowStateChanged() {
+        TWindow active = getActiveWindow();
+        int count = windowCount();
+        if (active != stateWindow) {
+            stateWindow = active;
+            stateDirtyCheck = dirtyCheck(active);
+        } else if (count == stateWindowCount
+            && (stateDirtyCheck == null || stateDirtyCheck.getAsBoolean() == stateDirty)) {
+            return false;
+        }
+        stateWindowCount = count;
+        stateDirty = stateDirtyCheck != null && stateDirtyCheck.getAsBoolean();
+        return true;
+    }
+
+    /**
+     * Tell the memory governor when another window has been activated, so
+     * it can restore that window and spill the ones left behind.
+     */
+    private void governMemory() {
+        TWindow active = getActiveWindow();
+        if (active == lastActiveWindow) {
+            return;
+        }
+        lastActiveWindow = active;
+        try {
+            memoryGovernor.activated(active, getAllWindows());
+        } catch (IOException e) {
+            invokeLater(() -> messageBox("Error Reading Spill File",
+                "Failed to read back '" + active.getTitle() + "': " + e.getMessage()));
+        }
     }
 
     /**
@@ -312,12 +1406,10 @@ public class CasWrite extends TApplication {
             return false;
         }
 
-        // For TEditorWindow, find the TEditor child and check if it's dirty
-        if (activeWindow instanceof TEditorWindow) {
-            TEditor editor = findEditor((TEditorWindow) activeWindow);
-            if (editor != null) {
-                return editor.isDirty();
-            }
+        // For TEditorWindow and LargeTextWindow, check if the content is dirty
+        BooleanSupplier dirty = dirtyCheck(activeWindow);
+        if (dirty != null) {
+            return dirty.getAsBoolean();
         }
 
         // For TTableWindow, we assume it can always be saved (no isDirty method available)
@@ -332,11 +1424,28 @@ public class CasWrite extends TApplication {
     /**
      * Main entry point.
      *
+     * With -Dcaswrite.replay=SCRIPT the editor instead replays an input
+     * script on a headless backend and reports its latency, which is how
+     * the startup benchmark and the CDS and PGO training runs drive it.
+     * With --batch as the first argument, a delimited file is transformed
+     * without starting the user interface; see {@link BatchMode}.
+     * Started without files, the editor reopens the windows of the last
+     * session.
+     *
      * @param args Command line arguments (optional filenames to open)
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(BatchMode.run(Arrays.copyOfRange(args, 1, args.length), System.err));
+        }
+        String replay = System.getProperty("caswrite.replay");
+        if (replay != null) {
+            LatencyHarness.main(new String[] {replay});
+            return;
+        }
         try {
             CasWrite app = new CasWrite();
+            app.setSessionStore(SessionStore.defaultStore());
             
             // Start the application thread first to ensure the event loop is running
             Thread appThread = new Thread(app, "CasWrite-Main");
@@ -344,20 +1453,12 @@ public class CasWrite extends TApplication {
             
             // Schedule file opening to run on the application thread
             // This avoids race conditions by ensuring UI operations happen
-            // in the application's event loop after it has started
+            // in the application's event loop after it has started; the
+            // files themselves are read in parallel in the background
             if (args.length > 0) {
-                app.invokeLater(() -> {
-                    for (String arg : args) {
-                        File file = new File(arg);
-                        try {
-                            app.openFileInWindow(file);
-                        } catch (Exception e) {
-                            // Show error message to user via message box
-                            app.messageBox("Error Opening File",
-                                "Failed to open '" + file.getName() + "': " + e.getMessage());
-                        }
-                    }
-                });
+                app.invokeLater(() -> app.openFiles(args));
+            } else {
+                app.invokeLater(app::restoreSession);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -17,9 +17,43 @@
  */
 package io.github.crramirez.caswrite;
 
+import io.github.crramirez.caswrite.compress.Compression;
+import io.github.crramirez.caswrite.highlight.Language;
+import io.github.crramirez.caswrite.table.CsvParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
 /**
- * Detects file types based on filename extension to determine
- * the appropriate viewer/editor mode.
+ * Detects file types to determine the appropriate viewer/editor mode.
+ *
+ * Detection by name only looks at the extension. Detection by path also
+ * reads the first {@value #PROBE_SIZE} bytes of the file to recognize
+ * binary content, the charset, the line endings and the field delimiter of
+ * tabular data. Results are cached by path, size and modification time, so
+ * probing the same unchanged file again costs a single stat call.
+ *
+ * The charset comes from a byte order mark if there is one. Otherwise
+ * UTF-16 is recognized by its zero bytes, and anything that is not valid
+ * UTF-8 is taken to be the legacy Windows charset. A file whose first
+ * bytes are plain ASCII is also sampled at a few places further on, since
+ * an export often has its first accented letter far from the header.
+ *
+ * Compressed files are seen through: {@code data.csv.gz} is a table, and
+ * its content is probed after decompressing the first bytes.
  */
 public class FileTypeDetector {
 
@@ -30,12 +64,101 @@ public class FileTypeDetector {
         /** Text file to be opened in text editor */
         TEXT,
         /** Table file (CSV/TSV) to be opened in table viewer */
-        TABLE
+        TABLE,
+        /** Binary file that should not be loaded as text */
+        BINARY
+    }
+
+    /**
+     * Line terminator used by a file.
+     */
+    public enum LineEnding {
+        /** Unix line feed */
+        LF,
+        /** Windows carriage return and line feed */
+        CRLF,
+        /** Classic Mac OS carriage return */
+        CR,
+        /** No line terminator found in the probed bytes */
+        NONE
     }
 
+    /**
+     * Result of probing a file's content.
+     *
+     * @param type the viewer to use
+     * @param charset the detected character set
+     * @param bomLength length of the byte order mark, 0 if there is none
+     * @param lineEnding the dominant line terminator
+     * @param delimiter the field delimiter for tabular data
+     * @param compression the compression around the content, null if the
+     * file is not compressed
+     */
+    public record Detection(FileType type, Charset charset, int bomLength,
+                            LineEnding lineEnding, char delimiter, Compression compression) {
+
+        /**
+         * Check whether the charset encodes ASCII, and so newlines and
+         * delimiters, as single bytes, which the table viewer relies on.
+         *
+         * @return false for UTF-16
+         */
+        public boolean isAsciiCompatible() {
+            return !charset.equals(StandardCharsets.UTF_16LE) && !charset.equals(StandardCharsets.UTF_16BE);
+        }
+    }
+
+    /** Number of bytes read from the start of a file when probing. */
+    public static final int PROBE_SIZE = 8192;
+
+    // Delimiters recognized in tabular data, in order of preference
+    private static final char[] DELIMITERS = {',', '\t', ';', '|'};
+
+    // Quote around fields of tabular data
+    private static final byte QUOTE = '"';
+
+    // Lines examined when looking for a consistent delimiter
+    private static final int DELIMITER_SAMPLE_LINES = 20;
+
+    // Share of control bytes above which content counts as binary
+    private static final double BINARY_CONTROL_RATIO = 0.10;
+
+    private static final int CACHE_SIZE = 256;
+
+    // Blocks sampled beyond the probe when it holds only ASCII
+    private static final int CHARSET_SAMPLES = 8;
+
+    // Share of code units with a zero high byte above which text without a
+    // byte order mark is taken as UTF-16, and the share of zero low bytes
+    // it may have at most
+    private static final double UTF16_ZERO_RATIO = 0.3;
+    private static final double UTF16_STRAY_RATIO = 0.05;
+
+    // Windows-1252 is what legacy "ANSI" exports use; fall back to Latin-1
+    private static final Charset LEGACY_CHARSET = Charset.isSupported("windows-1252")
+        ? Charset.forName("windows-1252") : StandardCharsets.ISO_8859_1;
+
+    /**
+     * Cache key: a file is re-probed only if its size or mtime changed.
+     */
+    private record Key(Path path, long size, long modified) {
+    }
+
+    private final Map<Key, Detection> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Detection> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    // Direct buffers reused between probes, so reading a header copies
+    // nothing onto the heap and allocates nothing after warm-up
+    private final Queue<ByteBuffer> probeBuffers = new ConcurrentLinkedQueue<>();
+
     /**
      * Determines the file type based on the filename.
      * CSV and TSV files are detected as TABLE type, all other files as TEXT.
+     * A gzip suffix is ignored, so data.csv.gz is a table too.
      * If the filename is null, returns TEXT as the default type.
      *
      * @param filename the name of the file (can include path), may be null
@@ -45,13 +168,24 @@ public class FileTypeDetector {
         if (filename == null) {
             return FileType.TEXT;
         }
-        String lowerName = filename.toLowerCase(java.util.Locale.ROOT);
+        String lowerName = Compression.stripSuffix(filename).toLowerCase(Locale.ROOT);
         if (lowerName.endsWith(".csv") || lowerName.endsWith(".tsv")) {
             return FileType.TABLE;
         }
         return FileType.TEXT;
     }
 
+    /**
+     * Determines the language to highlight a file in from its name. A gzip
+     * suffix is ignored, so Main.java.gz is highlighted as Java.
+     *
+     * @param filename the name of the file (can include path), may be null
+     * @return the language, or null for files that are not source code
+     */
+    public Language detectLanguage(String filename) {
+        return filename == null ? null : Language.forFileName(Compression.stripSuffix(filename));
+    }
+
     /**
      * Checks if the given filename represents a table file (CSV/TSV).
      *
@@ -61,4 +195,407 @@ public class FileTypeDetector {
     public boolean isTableFile(String filename) {
         return detectFileType(filename) == FileType.TABLE;
     }
+
+    /**
+     * Determines the file type from the name and the first bytes of a file.
+     * Files with a CSV or TSV extension are tables; files without an
+     * extension are tables if their first lines share a delimiter. Content
+     * that is not text is reported as BINARY whatever the name.
+     *
+     * @param path the file to probe
+     * @return the detection result, never null
+     * @throws IOException if the file cannot be read
+     */
+    public Detection detect(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Key key = new Key(path.toAbsolutePath().normalize(), attributes.size(),
+            attributes.lastModifiedTime().toMillis());
+        synchronized (cache) {
+            Detection cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        ByteBuffer buffer = probeBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(PROBE_SIZE);
+        }
+        Detection detection;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer.clear();
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // Keep reading until the probe is full or the file ends
+            }
+            buffer.flip();
+            String filename = path.getFileName() == null ? null : path.getFileName().toString();
+            Compression compression = Compression.sniff(buffer);
+            if (compression != null) {
+                filename = compression.innerName(path);
+                readDecompressed(path, compression, buffer);
+            }
+            boolean ascii = isAscii(buffer);
+            detection = analyze(filename, buffer, compression);
+            if (ascii && compression == null && detection.type() != FileType.BINARY
+                && detection.charset().equals(StandardCharsets.UTF_8) && detection.bomLength() == 0
+                && hasInvalidUtf8(channel, buffer)) {
+                detection = new Detection(detection.type(), LEGACY_CHARSET, 0,
+                    detection.lineEnding(), detection.delimiter(), null);
+            }
+        } finally {
+            probeBuffers.offer(buffer);
+        }
+
+        synchronized (cache) {
+            cache.put(key, detection);
+        }
+        return detection;
+    }
+
+    /**
+     * Fill the probe buffer with the first decompressed bytes of a file.
+     *
+     * @param path the compressed file
+     * @param compression its format
+     * @param buffer the probe buffer, flipped for reading on return
+     * @throws IOException if the file cannot be decompressed
+     */
+    private static void readDecompressed(Path path, Compression compression, ByteBuffer buffer)
+            throws IOException {
+        buffer.clear();
+        byte[] chunk = new byte[buffer.capacity()];
+        try (InputStream in = compression.open(path)) {
+            int count;
+            while (buffer.hasRemaining() && (count = in.read(chunk, 0, buffer.remaining())) >= 0) {
+                buffer.put(chunk, 0, count);
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Analyze the first bytes of a file.
+     *
+     * @param filename the name of the file, may be null
+     * @param header the bytes at the start of the file, from position to limit
+     * @return the detection result
+     */
+    Detection analyze(String filename, ByteBuffer header) {
+        return analyze(filename, header, null);
+    }
+
+    /**
+     * Analyze the first bytes of the content of a file.
+     *
+     * @param filename the name of the content, may be null
+     * @param header the first bytes of the content, from position to limit
+     * @param compression the compression around the content, may be null
+     * @return the detection result
+     */
+    private Detection analyze(String filename, ByteBuffer header, Compression compression) {
+        int bomLength = 0;
+        Charset charset;
+        if (startsWith(header, 0xEF, 0xBB, 0xBF)) {
+            bomLength = 3;
+            charset = StandardCharsets.UTF_8;
+        } else if (startsWith(header, 0xFF, 0xFE)) {
+            bomLength = 2;
+            charset = StandardCharsets.UTF_16LE;
+        } else if (startsWith(header, 0xFE, 0xFF)) {
+            bomLength = 2;
+            charset = StandardCharsets.UTF_16BE;
+        } else {
+            charset = sniffUtf16(header);
+            if (charset == null) {
+                charset = isValidUtf8(header) ? StandardCharsets.UTF_8 : LEGACY_CHARSET;
+            }
+        }
+
+        // UTF-16 text is full of zero bytes; only single-byte content is sniffed further
+        boolean singleByte = !charset.equals(StandardCharsets.UTF_16LE) && !charset.equals(StandardCharsets.UTF_16BE);
+        if (singleByte && isBinary(header)) {
+            return new Detection(FileType.BINARY, charset, 0, LineEnding.NONE, ',', compression);
+        }
+
+        LineEnding lineEnding = singleByte
+            ? detectLineEnding(header)
+            : detectLineEnding(utf16Units(header, bomLength, charset.equals(StandardCharsets.UTF_16BE)));
+        FileType byName = detectFileType(filename);
+        char defaultDelimiter = filename != null
+            && filename.toLowerCase(Locale.ROOT).endsWith(".tsv") ? '\t' : ',';
+        char sniffed = singleByte ? detectDelimiter(header, bomLength) : 0;
+        char delimiter = sniffed != 0 ? sniffed : defaultDelimiter;
+
+        FileType type = byName;
+        if (type == FileType.TEXT && sniffed != 0 && hasNoExtension(filename)) {
+            type = FileType.TABLE;
+        }
+        return new Detection(type, charset, bomLength, lineEnding, delimiter, compression);
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int... bytes) {
+        if (buffer.remaining() < bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if ((buffer.get(buffer.position() + i) & 0xFF) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasNoExtension(String filename) {
+        if (filename == null) {
+            return false;
+        }
+        // A leading dot, as in .env, starts an extension too
+        return filename.lastIndexOf('.') < 0;
+    }
+
+    /**
+     * Check for content that is not text: any NUL byte, or too many other
+     * control characters.
+     */
+    private static boolean isBinary(ByteBuffer header) {
+        int control = 0;
+        int start = header.position();
+        int end = header.limit();
+        for (int i = start; i < end; i++) {
+            int b = header.get(i) & 0xFF;
+            if (b == 0) {
+                return true;
+            }
+            if (b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f' && b != 0x1B && b != '\b') {
+                control++;
+            }
+        }
+        return end > start && control > (end - start) * BINARY_CONTROL_RATIO;
+    }
+
+    /**
+     * Recognize UTF-16 without a byte order mark: text in Latin scripts
+     * has a zero byte in most code units, always on the same side.
+     *
+     * @return UTF-16LE or UTF-16BE, or null if the bytes do not look like
+     * UTF-16 text
+     */
+    private static Charset sniffUtf16(ByteBuffer header) {
+        int start = header.position();
+        int units = (header.limit() - start) / 2;
+        if (units == 0) {
+            return null;
+        }
+        int evenZeros = 0;
+        int oddZeros = 0;
+        for (int i = 0; i < units; i++) {
+            if (header.get(start + 2 * i) == 0) {
+                evenZeros++;
+            }
+            if (header.get(start + 2 * i + 1) == 0) {
+                oddZeros++;
+            }
+        }
+        Charset charset;
+        if (oddZeros >= units * UTF16_ZERO_RATIO && evenZeros <= units * UTF16_STRAY_RATIO) {
+            charset = StandardCharsets.UTF_16LE;
+        } else if (evenZeros >= units * UTF16_ZERO_RATIO && oddZeros <= units * UTF16_STRAY_RATIO) {
+            charset = StandardCharsets.UTF_16BE;
+        } else {
+            return null;
+        }
+        // Arrays of small integers have the same zero pattern; text does
+        // not decode to control characters
+        return isBinary(utf16Units(header, 0, charset.equals(StandardCharsets.UTF_16BE))) ? null : charset;
+    }
+
+    /**
+     * Squeeze UTF-16 code units into one byte each, keeping the low byte
+     * of units below 0x100 and mapping the rest to a letter, so the
+     * single-byte checks can look at them.
+     */
+    private static ByteBuffer utf16Units(ByteBuffer header, int bomLength, boolean bigEndian) {
+        int start = header.position() + bomLength;
+        int units = (header.limit() - start) / 2;
+        ByteBuffer squeezed = ByteBuffer.allocate(units);
+        for (int i = 0; i < units; i++) {
+            byte first = header.get(start + 2 * i);
+            byte second = header.get(start + 2 * i + 1);
+            byte high = bigEndian ? first : second;
+            byte low = bigEndian ? second : first;
+            squeezed.put(high == 0 ? low : (byte) 'x');
+        }
+        return squeezed.flip();
+    }
+
+    private static boolean isAscii(ByteBuffer header) {
+        for (int i = header.position(); i < header.limit(); i++) {
+            if (header.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Look for bytes that are not UTF-8 in blocks spread over the rest of
+     * a file whose probe held only ASCII.
+     *
+     * @param channel the open file
+     * @param buffer the probe buffer, reused for the samples
+     * @return true if a sample is not valid UTF-8
+     * @throws IOException if the file cannot be read
+     */
+    private static boolean hasInvalidUtf8(FileChannel channel, ByteBuffer buffer) throws IOException {
+        long size = channel.size();
+        int block = buffer.capacity();
+        if (size <= block) {
+            return false;
+        }
+        long step = Math.max(block, (size - block) / CHARSET_SAMPLES);
+        for (long position = block; position < size; position += step) {
+            buffer.clear();
+            long at = position;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, at);
+                if (read <= 0) {
+                    break;
+                }
+                at += read;
+            }
+            buffer.flip();
+            // The block may start inside a multi-byte sequence
+            int skipped = 0;
+            while (buffer.hasRemaining() && skipped < 3 && (buffer.get(buffer.position()) & 0xC0) == 0x80) {
+                buffer.get();
+                skipped++;
+            }
+            if (!isValidUtf8(buffer)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check that the bytes form valid UTF-8. A sequence cut off by the end
+     * of the probe is accepted.
+     */
+    private static boolean isValidUtf8(ByteBuffer header) {
+        int end = header.limit();
+        int i = header.position();
+        while (i < end) {
+            int b = header.get(i) & 0xFF;
+            int continuation;
+            if (b < 0x80) {
+                i++;
+                continue;
+            } else if (b >= 0xC2 && b <= 0xDF) {
+                continuation = 1;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                continuation = 2;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                continuation = 3;
+            } else {
+                return false;
+            }
+            for (int j = 1; j <= continuation; j++) {
+                if (i + j >= end) {
+                    return true;
+                }
+                if ((header.get(i + j) & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+            i += continuation + 1;
+        }
+        return true;
+    }
+
+    private static LineEnding detectLineEnding(ByteBuffer header) {
+        int lf = 0;
+        int crlf = 0;
+        int cr = 0;
+        int end = header.limit();
+        for (int i = header.position(); i < end; i++) {
+            byte b = header.get(i);
+            if (b == '\n') {
+                lf++;
+            } else if (b == '\r') {
+                if (i + 1 < end && header.get(i + 1) == '\n') {
+                    crlf++;
+                    i++;
+                } else if (i + 1 < end) {
+                    cr++;
+                }
+            }
+        }
+        if (crlf == 0 && lf == 0 && cr == 0) {
+            return LineEnding.NONE;
+        }
+        if (crlf >= lf && crlf >= cr) {
+            return LineEnding.CRLF;
+        }
+        return lf >= cr ? LineEnding.LF : LineEnding.CR;
+    }
+
+    /**
+     * Find a delimiter that appears the same, non-zero number of times
+     * outside quotes on each of the first complete lines. Each candidate
+     * splits the lines into fields by the rules of {@link CsvParser}, so a
+     * quote only opens a field at its start.
+     *
+     * @return the delimiter, or 0 if no candidate is consistent
+     */
+    private static char detectDelimiter(ByteBuffer header, int bomLength) {
+        char best = 0;
+        int bestCount = 0;
+        for (char delimiter : DELIMITERS) {
+            int count = delimitersPerLine(header, bomLength, (byte) delimiter);
+            if (count > bestCount) {
+                best = delimiter;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Count a delimiter on each of the first complete lines.
+     *
+     * @return the count every line has, or 0 if the lines differ or there
+     * are fewer than two
+     */
+    private static int delimitersPerLine(ByteBuffer header, int bomLength, byte delimiter) {
+        int[] counts = new int[DELIMITER_SAMPLE_LINES];
+        int lines = 0;
+        int state = CsvParser.FIELD_START;
+        // Empty lines have no fields and are not compared
+        boolean blank = true;
+        int end = header.limit();
+        for (int i = header.position() + bomLength; i < end && lines < DELIMITER_SAMPLE_LINES; i++) {
+            byte b = header.get(i);
+            state = CsvParser.scan(state, b, delimiter, QUOTE);
+            if (state != CsvParser.FIELD_START) {
+                blank &= b == '\r';
+            } else if (b == delimiter) {
+                counts[lines]++;
+                blank = false;
+            } else {
+                if (!blank) {
+                    lines++;
+                }
+                blank = true;
+            }
+        }
+        if (lines < 2) {
+            return 0;
+        }
+        for (int line = 1; line < lines; line++) {
+            if (counts[line] != counts[0]) {
+                return 0;
+            }
+        }
+        return counts[0];
+    }
 }
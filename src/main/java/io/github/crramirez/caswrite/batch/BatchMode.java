@@ -0,0 +1,141 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.batch;
+
+import io.github.crramirez.caswrite.FileTypeDetector;
+import io.github.crramirez.caswrite.compress.Compression;
+import io.github.crramirez.caswrite.compress.SpillFile;
+import io.github.crramirez.caswrite.load.LoadProgress;
+import io.github.crramirez.caswrite.save.AtomicFile;
+import io.github.crramirez.caswrite.table.CsvFormat;
+import io.github.crramirez.caswrite.text.MappedFile;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Entry point for {@code caswrite --batch}, which converts, projects,
+ * filters or dedupes a delimited file without starting the user
+ * interface.
+ *
+ * The input is memory-mapped and its format detected with
+ * {@link FileTypeDetector}, like files opened in a table window.
+ * Compressed inputs are decompressed into a spill file first, and an
+ * output file named .gz is written compressed. An output
+ * file is written atomically, so a failed run leaves any existing file
+ * unchanged.
+ */
+public final class BatchMode {
+
+    private BatchMode() {
+    }
+
+    /**
+     * Run a batch transformation.
+     *
+     * @param args the arguments following {@code --batch}
+     * @param err receives errors and a summary of the run
+     * @return the exit status: 0 on success, 1 if the run failed and 2 if
+     * the command line was wrong
+     */
+    public static int run(String[] args, PrintStream err) {
+        BatchOptions options;
+        try {
+            options = BatchOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println("caswrite: " + e.getMessage());
+            err.print(BatchOptions.USAGE);
+            return 2;
+        }
+
+        long started = System.nanoTime();
+        try (MappedFile input = open(options.getInput())) {
+            FileTypeDetector.Detection detection = new FileTypeDetector().detect(options.getInput());
+            if (!detection.isAsciiCompatible()) {
+                err.println("caswrite: " + options.getInput() + " is " + detection.charset().name()
+                    + ", convert it to UTF-8 first");
+                return 1;
+            }
+            CsvFormat format = options.getInputFormat();
+            if (format == null) {
+                if (detection.type() == FileTypeDetector.FileType.BINARY) {
+                    err.println("caswrite: " + options.getInput() + " is not a text file");
+                    return 1;
+                }
+                format = new CsvFormat((byte) detection.delimiter(), CsvFormat.CSV.quote());
+            }
+            // Fields are decoded and written back in the charset of the input
+            format = format.withCharset(detection.charset());
+            BatchPipeline pipeline = new BatchPipeline(options, format);
+            BatchPipeline.Result[] result = new BatchPipeline.Result[1];
+            if (options.getOutput() == null) {
+                // Standard output stays open for the rest of the process
+                FileChannel stdout = new FileOutputStream(FileDescriptor.out).getChannel();
+                result[0] = pipeline.run(input, detection.bomLength(), stdout);
+            } else {
+                Compression.Content content =
+                    channel -> result[0] = pipeline.run(input, detection.bomLength(), channel);
+                boolean gzip = Compression.forFileName(options.getOutput().getFileName().toString())
+                    == Compression.GZIP;
+                AtomicFile.write(options.getOutput(), gzip ? Compression.gzip(content) : content::writeTo);
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+            err.printf("caswrite: read %d rows, wrote %d rows in %.1f s (%.0f MB/s)%n",
+                result[0].rowsRead(), result[0].rowsWritten(), seconds,
+                input.size() / 1e6 / Math.max(seconds, 1e-3));
+            return 0;
+        } catch (IllegalArgumentException e) {
+            err.println("caswrite: " + e.getMessage());
+            return 2;
+        } catch (IOException e) {
+            err.println("caswrite: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Map the input, decompressing it into a spill file first if it is
+     * compressed.
+     *
+     * @param path the input file
+     * @return the mapped content
+     * @throws IOException if the file cannot be read or decompressed
+     */
+    private static MappedFile open(Path path) throws IOException {
+        Compression compression;
+        try (InputStream in = Files.newInputStream(path)) {
+            compression = Compression.sniff(ByteBuffer.wrap(in.readNBytes(4)));
+        }
+        if (compression == null) {
+            return MappedFile.open(path);
+        }
+        Path spill = SpillFile.inflate(path, compression, new LoadProgress(path, Files.size(path)));
+        try {
+            return MappedFile.open(spill);
+        } finally {
+            SpillFile.discard(spill);
+        }
+    }
+}
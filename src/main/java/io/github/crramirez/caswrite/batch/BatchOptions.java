@@ -0,0 +1,223 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.batch;
+
+import io.github.crramirez.caswrite.table.CsvFormat;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Command line of a batch run, which transforms a delimited file without
+ * starting the user interface.
+ */
+public final class BatchOptions {
+
+    /** Command line help. */
+    public static final String USAGE = """
+        Usage: caswrite --batch INPUT [options]
+          -o, --output FILE     write to FILE instead of standard output
+          --select COLUMNS      keep only these columns, by name or number, e.g. 'id,3,name'
+          --where CONDITION     keep rows matching e.g. 'price > 10' or 'city ~ par'; repeat
+                                to require several conditions
+          --dedupe              drop rows already written
+          --dedupe-on COLUMNS   drop rows whose values in COLUMNS were already written
+          --from FORMAT         input format: csv, tsv or a delimiter character; detected
+                                from the content by default
+          --to FORMAT           output format: csv, tsv or a delimiter character; same as
+                                the input by default
+          --threads N           number of parsing threads, default one per processor
+        """;
+
+    private Path input;
+    private Path output;
+    private String select;
+    private final List<String> conditions = new ArrayList<>();
+    private boolean dedupe;
+    private String dedupeOn;
+    private CsvFormat inputFormat;
+    private CsvFormat outputFormat;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private BatchOptions() {
+    }
+
+    /**
+     * Parse the arguments that follow {@code --batch}.
+     *
+     * @param args the arguments
+     * @return the options
+     * @throws IllegalArgumentException if an argument is unknown, lacks its
+     * value or there is not exactly one input file
+     */
+    public static BatchOptions parse(String[] args) {
+        BatchOptions options = new BatchOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-o", "--output" -> options.output = Path.of(value(args, ++i, arg));
+                case "--select" -> options.select = value(args, ++i, arg);
+                case "--where" -> options.conditions.add(value(args, ++i, arg));
+                case "--dedupe" -> options.dedupe = true;
+                case "--dedupe-on" -> {
+                    options.dedupe = true;
+                    options.dedupeOn = value(args, ++i, arg);
+                }
+                case "--from" -> options.inputFormat = parseFormat(value(args, ++i, arg));
+                case "--to" -> options.outputFormat = parseFormat(value(args, ++i, arg));
+                case "--threads" -> options.threads = parseThreads(value(args, ++i, arg));
+                default -> {
+                    if (arg.startsWith("-") && arg.length() > 1) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    if (options.input != null) {
+                        throw new IllegalArgumentException("Only one input file can be given");
+                    }
+                    options.input = Path.of(arg);
+                }
+            }
+        }
+        if (options.input == null) {
+            throw new IllegalArgumentException("No input file given");
+        }
+        return options;
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[index];
+    }
+
+    /**
+     * Parse a format given as csv, tsv, tab or a single delimiter character.
+     *
+     * @param text the format
+     * @return the format, quoting with double quotes
+     * @throws IllegalArgumentException if the text names no format
+     */
+    static CsvFormat parseFormat(String text) {
+        return switch (text.toLowerCase(Locale.ROOT)) {
+            case "csv" -> CsvFormat.CSV;
+            case "tsv", "tab", "\\t" -> CsvFormat.TSV;
+            default -> {
+                if (text.length() == 1 && text.charAt(0) < 0x80 && text.charAt(0) != '"') {
+                    yield new CsvFormat((byte) text.charAt(0), CsvFormat.CSV.quote());
+                }
+                throw new IllegalArgumentException("Unknown format '" + text
+                    + "'; use csv, tsv or a single delimiter character");
+            }
+        };
+    }
+
+    private static int parseThreads(String text) {
+        try {
+            int threads = Integer.parseInt(text);
+            if (threads >= 1) {
+                return threads;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("--threads needs a positive number, not '" + text + "'");
+    }
+
+    /**
+     * Get the file to read.
+     *
+     * @return the input path
+     */
+    public Path getInput() {
+        return input;
+    }
+
+    /**
+     * Get the file to write.
+     *
+     * @return the output path, or null to write to standard output
+     */
+    public Path getOutput() {
+        return output;
+    }
+
+    /**
+     * Get the columns to keep.
+     *
+     * @return the column list as given, or null to keep every column
+     */
+    public String getSelect() {
+        return select;
+    }
+
+    /**
+     * Get the conditions every written row must meet.
+     *
+     * @return the conditions as given, possibly empty
+     */
+    public List<String> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * Check whether repeated rows are dropped.
+     *
+     * @return true to write each row, or each key, only once
+     */
+    public boolean isDedupe() {
+        return dedupe;
+    }
+
+    /**
+     * Get the columns that identify a row when dropping repeats.
+     *
+     * @return the column list as given, or null to compare whole output rows
+     */
+    public String getDedupeOn() {
+        return dedupeOn;
+    }
+
+    /**
+     * Get the format of the input.
+     *
+     * @return the format, or null to detect it from the content
+     */
+    public CsvFormat getInputFormat() {
+        return inputFormat;
+    }
+
+    /**
+     * Get the format of the output.
+     *
+     * @return the format, or null to use the input format
+     */
+    public CsvFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    /**
+     * Get the number of threads parsing the input.
+     *
+     * @return at least 1
+     */
+    public int getThreads() {
+        return threads;
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.batch;
+
+import io.github.crramirez.caswrite.table.CsvFormat;
+import io.github.crramirez.caswrite.table.CsvParser;
+import io.github.crramirez.caswrite.table.RowFilter;
+import io.github.crramirez.caswrite.table.SortKey;
+import io.github.crramirez.caswrite.table.TableModel;
+import io.github.crramirez.caswrite.text.ByteSource;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams a delimited file through parse, transform and write stages.
+ *
+ * One thread cuts the input into chunks at record boundaries, a pool of
+ * workers parses, filters, projects and re-encodes the chunks in
+ * parallel, and the calling thread writes the results in input order,
+ * dropping repeated rows if asked to. Only a few chunks per worker are
+ * in flight at any time, so memory use does not depend on the size of the
+ * input and a slow output holds back the parsing.
+ *
+ * The first record is the header. Output records end with a newline and
+ * fields are quoted only when they need to be.
+ */
+public final class BatchPipeline {
+
+    /**
+     * Counts of a finished run.
+     *
+     * @param rowsRead data rows in the input, not counting the header
+     * @param rowsWritten data rows written
+     * @param bytesWritten bytes written, including the header
+     */
+    public record Result(long rowsRead, long rowsWritten, long bytesWritten) {
+    }
+
+    // Bytes of input handed to a worker at a time
+    static final int CHUNK_SIZE = 4 << 20;
+
+    // Chunks queued for writing per worker; bounds memory use
+    private static final int CHUNKS_PER_WORKER = 2;
+
+    // Bytes read at a time while looking for chunk boundaries
+    private static final int SCAN_BLOCK = 64 * 1024;
+
+    // Marks the end of the input in the queue of chunks
+    private static final Future<Chunk> END = CompletableFuture.completedFuture(null);
+
+    private final BatchOptions options;
+    private final CsvFormat inputFormat;
+    private final CsvFormat outputFormat;
+    private final int chunkSize;
+
+    // Resolved from the header at the start of a run
+    private int[] columns;
+    private int[] keyColumns;
+    private RowFilter[] filters;
+
+    /**
+     * Create a pipeline.
+     *
+     * @param options what to do with the rows
+     * @param inputFormat the format of the input, usually detected
+     */
+    public BatchPipeline(BatchOptions options, CsvFormat inputFormat) {
+        this(options, inputFormat, CHUNK_SIZE);
+    }
+
+    BatchPipeline(BatchOptions options, CsvFormat inputFormat, int chunkSize) {
+        this.options = options;
+        this.inputFormat = inputFormat;
+        // Records copied unchanged keep the input charset, so encoded ones must too
+        this.outputFormat = options.getOutputFormat() != null
+            ? options.getOutputFormat().withCharset(inputFormat.charset()) : inputFormat;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Transform the input and write the result.
+     *
+     * @param input the delimited text
+     * @param start position of the header, after any byte order mark
+     * @param output receives the transformed text
+     * @return the counts of the run
+     * @throws IOException if writing fails or the run is interrupted
+     * @throws IllegalArgumentException if a column or condition does not
+     * match the header
+     */
+    public Result run(ByteSource input, long start, WritableByteChannel output) throws IOException {
+        List<String> header = new ArrayList<>();
+        long dataStart = new CsvParser(inputFormat).parseRecord(input, start, header);
+        if (header.isEmpty()) {
+            return new Result(0, 0, 0);
+        }
+        resolve(header);
+
+        RecordEncoder encoder = new RecordEncoder(outputFormat, 256);
+        encoder.write(project(header, new ArrayList<>()));
+        long bytesWritten = writeFully(output, encoder.bytes, 0, encoder.length);
+        long rowsRead = 0;
+        long rowsWritten = 0;
+        KeySet seen = options.isDedupe() ? new KeySet() : null;
+
+        int threads = options.getThreads();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "CasWrite-Batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        BlockingQueue<Future<Chunk>> pending = new ArrayBlockingQueue<>(threads * CHUNKS_PER_WORKER);
+        Runnable splitting = () -> split(input, dataStart, workers, pending);
+        Thread splitter = Thread.ofVirtual().name("CasWrite-BatchSplit").start(splitting);
+        try {
+            for (Chunk chunk = pending.take().get(); chunk != null; chunk = pending.take().get()) {
+                rowsRead += chunk.rowsRead;
+                if (seen == null) {
+                    rowsWritten += chunk.records;
+                    bytesWritten += writeFully(output, chunk.data, 0, chunk.length);
+                } else {
+                    bytesWritten += writeNew(output, chunk, seen);
+                    rowsWritten = seen.size();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch run interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw failure;
+            }
+            throw new IOException("Batch run failed: " + e.getCause(), e.getCause());
+        } finally {
+            splitter.interrupt();
+            workers.shutdownNow();
+        }
+        return new Result(rowsRead, rowsWritten, bytesWritten);
+    }
+
+    /**
+     * Look up the selected columns, conditions and key columns in the
+     * header.
+     *
+     * @param header the column names
+     */
+    private void resolve(List<String> header) {
+        TableModel names = new HeaderModel(header);
+        columns = options.getSelect() == null ? null : findColumns(options.getSelect(), names);
+        keyColumns = options.getDedupeOn() == null ? null : findColumns(options.getDedupeOn(), names);
+        filters = new RowFilter[options.getConditions().size()];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = RowFilter.parse(options.getConditions().get(i), names);
+        }
+    }
+
+    private static int[] findColumns(String list, TableModel names) {
+        String[] parts = list.split(",");
+        int[] found = new int[parts.length];
+        int count = 0;
+        for (String part : parts) {
+            if (!part.isBlank()) {
+                found[count++] = SortKey.findColumn(part.trim(), names);
+            }
+        }
+        if (count == 0) {
+            throw new IllegalArgumentException("No columns given in '" + list + "'");
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Cut the input into chunks and queue them for the workers. Runs on
+     * its own thread and blocks while the queue is full.
+     */
+    private void split(ByteSource input, long dataStart, ExecutorService workers,
+                       BlockingQueue<Future<Chunk>> pending) {
+        byte[] block = new byte[SCAN_BLOCK];
+        try {
+            try {
+                long position = dataStart;
+                while (position < input.size()) {
+                    long from = position;
+                    long to = chunkEnd(input, from, block);
+                    pending.put(workers.submit(() -> process(input, from, to)));
+                    position = to;
+                }
+                pending.put(END);
+            } catch (RuntimeException e) {
+                pending.put(CompletableFuture.failedFuture(e));
+            }
+        } catch (InterruptedException e) {
+            // The run ended early; nobody is waiting for more chunks
+        }
+    }
+
+    /**
+     * Find the end of the first record that reaches the chunk size. Fields
+     * are followed from the start of the chunk, which is a record boundary.
+     *
+     * @param input the delimited text
+     * @param from start of the chunk
+     * @param block scratch space for reading the input in blocks
+     * @return the start of the next chunk
+     */
+    long chunkEnd(ByteSource input, long from, byte[] block) {
+        long size = input.size();
+        long last = Math.min(size, from + chunkSize) - 1;
+        byte delimiter = inputFormat.delimiter();
+        byte quote = inputFormat.quote();
+        int state = CsvParser.FIELD_START;
+        for (long position = from; position < size; position += block.length) {
+            int count = (int) Math.min(block.length, size - position);
+            input.get(position, block, 0, count);
+            for (int i = 0; i < count; i++) {
+                byte b = block[i];
+                state = CsvParser.scan(state, b, delimiter, quote);
+                if (b == '\n' && state == CsvParser.FIELD_START && position + i >= last) {
+                    return position + i + 1;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Parse, filter, project and encode the records of one chunk. Runs on
+     * a worker thread, parsing a copy of the chunk on the heap rather than
+     * the mapped file one byte at a time.
+     */
+    private Chunk process(ByteSource input, long from, long to) {
+        byte[] bytes = new byte[Math.toIntExact(to - from)];
+        input.get(from, bytes, 0, bytes.length);
+        ByteSource source = new ArraySource(bytes, from);
+        CsvParser parser = new CsvParser(inputFormat);
+        List<String> fields = new ArrayList<>();
+        List<String> row = new ArrayList<>();
+        List<String> key = new ArrayList<>();
+        RecordEncoder encoder = new RecordEncoder(outputFormat, (int) Math.min(to - from, chunkSize) + 64);
+        Chunk chunk = new Chunk();
+        long position = from;
+        while (position < to) {
+            position = parser.parseRecord(source, position, fields);
+            chunk.rowsRead++;
+            if (!matches(fields)) {
+                continue;
+            }
+            List<String> projected = project(fields, row);
+            encoder.write(projected);
+            if (options.isDedupe()) {
+                chunk.addKey(encoder.length, keyColumns == null ? projected : pick(fields, keyColumns, key));
+            }
+            chunk.records++;
+        }
+        chunk.data = encoder.bytes;
+        chunk.length = encoder.length;
+        return chunk;
+    }
+
+    private boolean matches(List<String> fields) {
+        for (RowFilter filter : filters) {
+            int column = filter.getColumn();
+            if (!filter.test(column < fields.size() ? fields.get(column) : "")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<String> project(List<String> fields, List<String> row) {
+        if (columns == null) {
+            return fields;
+        }
+        return pick(fields, columns, row);
+    }
+
+    private static List<String> pick(List<String> fields, int[] picked, List<String> into) {
+        into.clear();
+        for (int column : picked) {
+            into.add(column < fields.size() ? fields.get(column) : "");
+        }
+        return into;
+    }
+
+    /**
+     * Write the records of a chunk whose keys have not been seen, in runs
+     * of consecutive new records.
+     */
+    private static long writeNew(WritableByteChannel output, Chunk chunk, KeySet seen) throws IOException {
+        long written = 0;
+        int runStart = -1;
+        int previousEnd = 0;
+        for (int i = 0; i < chunk.records; i++) {
+            boolean added = seen.add(chunk.hashes[i * 2], chunk.hashes[i * 2 + 1]);
+            if (added && runStart < 0) {
+                runStart = previousEnd;
+            } else if (!added && runStart >= 0) {
+                written += writeFully(output, chunk.data, runStart, previousEnd - runStart);
+                runStart = -1;
+            }
+            previousEnd = chunk.ends[i];
+        }
+        if (runStart >= 0) {
+            written += writeFully(output, chunk.data, runStart, previousEnd - runStart);
+        }
+        return written;
+    }
+
+    private static long writeFully(WritableByteChannel output, byte[] bytes, int offset, int length)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+        return length;
+    }
+
+    /**
+     * The encoded records of one chunk.
+     */
+    private static final class Chunk {
+        private byte[] data;
+        private int length;
+        private long rowsRead;
+        private int records;
+        // End of each record in data and the hash of its key, when
+        // dropping repeats
+        private int[] ends = new int[0];
+        private long[] hashes = new long[0];
+
+        void addKey(int end, List<String> key) {
+            if (records == ends.length) {
+                ends = Arrays.copyOf(ends, Math.max(64, records * 2));
+                hashes = Arrays.copyOf(hashes, ends.length * 2);
+            }
+            ends[records] = end;
+            hashes[records * 2] = KeySet.high(key);
+            hashes[records * 2 + 1] = KeySet.low(key);
+        }
+    }
+
+    /**
+     * Encodes records into a growing byte array.
+     */
+    private static final class RecordEncoder {
+        private final byte delimiter;
+        private final byte quote;
+        private final Charset charset;
+        private byte[] bytes;
+        private int length;
+
+        RecordEncoder(CsvFormat format, int capacity) {
+            this.delimiter = format.delimiter();
+            this.quote = format.quote();
+            this.charset = format.charset();
+            this.bytes = new byte[Math.max(capacity, 64)];
+        }
+
+        void write(List<String> fields) {
+            for (int i = 0; i < fields.size(); i++) {
+                if (i > 0) {
+                    put(delimiter);
+                }
+                field(fields.get(i));
+            }
+            put((byte) '\n');
+        }
+
+        private void field(String text) {
+            boolean ascii = true;
+            boolean quoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c >= 0x80) {
+                    ascii = false;
+                } else if (c == delimiter || c == quote || c == '\n' || c == '\r') {
+                    quoted = true;
+                }
+            }
+            if (ascii && !quoted) {
+                ensure(text.length());
+                for (int i = 0; i < text.length(); i++) {
+                    bytes[length++] = (byte) text.charAt(i);
+                }
+                return;
+            }
+            byte[] encoded = text.getBytes(charset);
+            if (!quoted) {
+                ensure(encoded.length);
+                System.arraycopy(encoded, 0, bytes, length, encoded.length);
+                length += encoded.length;
+                return;
+            }
+            put(quote);
+            for (byte b : encoded) {
+                if (b == quote) {
+                    put(quote);
+                }
+                put(b);
+            }
+            put(quote);
+        }
+
+        private void put(byte b) {
+            ensure(1);
+            bytes[length++] = b;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+
+    /**
+     * A chunk of the input copied to the heap, read at its positions in
+     * the input.
+     */
+    private record ArraySource(byte[] bytes, long base) implements ByteSource {
+
+        @Override
+        public long size() {
+            return base + bytes.length;
+        }
+
+        @Override
+        public byte get(long position) {
+            return bytes[(int) (position - base)];
+        }
+    }
+
+    /**
+     * Column names of the input, so that columns and conditions can be
+     * given by name.
+     */
+    private record HeaderModel(List<String> names) implements TableModel {
+
+        @Override
+        public int getColumnCount() {
+            return names.size();
+        }
+
+        @Override
+        public long getRowCount() {
+            return 0;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return names.get(column);
+        }
+
+        @Override
+        public String getCell(long row, int column) {
+            return "";
+        }
+    }
+}
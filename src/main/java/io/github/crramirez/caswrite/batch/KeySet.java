@@ -0,0 +1,140 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.batch;
+
+import java.util.List;
+
+/**
+ * Set of row keys for dropping repeated rows, holding two independent
+ * 64-bit hashes per key instead of the key itself.
+ *
+ * Sixteen bytes per distinct key keep multi-gigabyte inputs within a
+ * small heap; with 128 bits, a false repeat is as unlikely as a disk
+ * error even across billions of rows.
+ */
+final class KeySet {
+
+    // Initial number of slots, a power of two
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Each slot holds two longs; (0, 0) marks an empty slot
+    private long[] slots = new long[INITIAL_CAPACITY * 2];
+    private int size;
+
+    /**
+     * Get the first half of the hash of a key.
+     *
+     * @param values the fields making up the key
+     * @return the upper 64 bits
+     */
+    static long high(List<String> values) {
+        return hash(values, 0xcbf29ce484222325L, 0x100000001b3L);
+    }
+
+    /**
+     * Get the second half of the hash of a key.
+     *
+     * @param values the fields making up the key
+     * @return the lower 64 bits
+     */
+    static long low(List<String> values) {
+        return hash(values, 0x9e3779b97f4a7c15L, 0xd6e8feb86659fd93L);
+    }
+
+    /**
+     * Add a key by its hash. Hashes are computed separately with
+     * {@link #high(List)} and {@link #low(List)}, so that they can be
+     * computed on the threads parsing the rows.
+     *
+     * @param high the upper 64 bits
+     * @param low the lower 64 bits
+     * @return true if the key was not in the set
+     */
+    boolean add(long high, long low) {
+        if (high == 0 && low == 0) {
+            low = 1;
+        }
+        if ((size + 1) * 2L > slots.length / 2) {
+            grow();
+        }
+        return insert(slots, high, low);
+    }
+
+    /**
+     * Get the number of distinct keys added.
+     *
+     * @return the key count
+     */
+    int size() {
+        return size;
+    }
+
+    private boolean insert(long[] table, long high, long low) {
+        int mask = table.length / 2 - 1;
+        int slot = (int) (high ^ (high >>> 32)) & mask;
+        while (table[slot * 2] != 0 || table[slot * 2 + 1] != 0) {
+            if (table[slot * 2] == high && table[slot * 2 + 1] == low) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot * 2] = high;
+        table[slot * 2 + 1] = low;
+        if (table == slots) {
+            size++;
+        }
+        return true;
+    }
+
+    private void grow() {
+        long[] old = slots;
+        long[] table = new long[old.length * 2];
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != 0 || old[i + 1] != 0) {
+                insert(table, old[i], old[i + 1]);
+            }
+        }
+        slots = table;
+    }
+
+    /**
+     * Hash a list of fields, keeping the field boundaries so that
+     * {@code "ab", "c"} and {@code "a", "bc"} differ.
+     *
+     * @param values the fields
+     * @param seed the starting value
+     * @param multiplier an odd constant mixed in after each char
+     * @return the hash
+     */
+    private static long hash(List<String> values, long seed, long multiplier) {
+        long hash = seed;
+        for (String value : values) {
+            hash = (hash ^ value.length()) * multiplier;
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * multiplier;
+            }
+        }
+        // MurmurHash3 finalizer
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
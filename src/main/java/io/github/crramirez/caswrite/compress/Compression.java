@@ -0,0 +1,211 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.compress;
+
+import io.github.crramirez.caswrite.save.AtomicFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Compressed container formats that are opened transparently.
+ *
+ * Formats are recognized by their magic bytes rather than by name. Only
+ * the first file of a zip archive is shown, and only gzip can be written
+ * back, since replacing a zip entry would mean rewriting the archive.
+ */
+public enum Compression {
+
+    /** Gzip, including concatenated members as written by pigz or bgzip. */
+    GZIP(".gz"),
+
+    /** Zip archive; its first file is opened. */
+    ZIP(".zip");
+
+    // Buffer size for decompressing and compressing streams
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String suffix;
+
+    Compression(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /**
+     * Get the usual file name suffix.
+     *
+     * @return the suffix, including the dot
+     */
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * Recognize a compressed file by its first bytes.
+     *
+     * @param header the bytes at the start of the file, from position to
+     * limit; the position is not changed
+     * @return the compression, or null for uncompressed content
+     */
+    public static Compression sniff(ByteBuffer header) {
+        int start = header.position();
+        if (header.remaining() >= 2 && (header.get(start) & 0xFF) == 0x1F
+                && (header.get(start + 1) & 0xFF) == 0x8B) {
+            return GZIP;
+        }
+        if (header.remaining() >= 4 && header.get(start) == 'P' && header.get(start + 1) == 'K'
+                && header.get(start + 2) == 3 && header.get(start + 3) == 4) {
+            return ZIP;
+        }
+        return null;
+    }
+
+    /**
+     * Choose the compression a file name asks for.
+     *
+     * @param filename the file name, may be null
+     * @return the compression, or null if the name has no compression suffix
+     */
+    public static Compression forFileName(String filename) {
+        if (filename == null) {
+            return null;
+        }
+        String lowerName = filename.toLowerCase(Locale.ROOT);
+        for (Compression compression : values()) {
+            if (lowerName.endsWith(compression.suffix)) {
+                return compression;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove a gzip suffix from a file name, so that {@code data.csv.gz}
+     * is recognized as {@code data.csv}.
+     *
+     * @param filename the file name, may be null
+     * @return the name without the suffix, or the name unchanged
+     */
+    public static String stripSuffix(String filename) {
+        if (forFileName(filename) != GZIP) {
+            return filename;
+        }
+        return filename.substring(0, filename.length() - GZIP.suffix.length());
+    }
+
+    /**
+     * Get the name of the content of a compressed file: the file name
+     * without its gzip suffix, or the name of the first file of a zip
+     * archive.
+     *
+     * @param path the compressed file
+     * @return the name, without any directory
+     * @throws IOException if the archive cannot be read or holds no file
+     */
+    public String innerName(Path path) throws IOException {
+        if (this == GZIP) {
+            return stripSuffix(path.getFileName().toString());
+        }
+        try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(path))) {
+            String name = firstFile(zip).getName();
+            return name.substring(name.lastIndexOf('/') + 1);
+        }
+    }
+
+    /**
+     * Open the decompressed content of a file.
+     *
+     * @param path the compressed file
+     * @return the content, which must be closed
+     * @throws IOException if the file cannot be read or is not valid
+     */
+    public InputStream open(Path path) throws IOException {
+        return decompress(Files.newInputStream(path));
+    }
+
+    /**
+     * Decompress a stream.
+     *
+     * @param compressed the compressed bytes, closed with the returned stream
+     * @return the content; for zip archives, the content of the first file
+     * @throws IOException if the stream is not valid
+     */
+    public InputStream decompress(InputStream compressed) throws IOException {
+        try {
+            if (this == GZIP) {
+                return new GZIPInputStream(compressed, BUFFER_SIZE);
+            }
+            ZipInputStream zip = new ZipInputStream(compressed);
+            firstFile(zip);
+            return zip;
+        } catch (IOException e) {
+            compressed.close();
+            throw e;
+        }
+    }
+
+    private static ZipEntry firstFile(ZipInputStream zip) throws IOException {
+        for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            if (!entry.isDirectory()) {
+                return entry;
+            }
+        }
+        throw new IOException("The archive holds no files");
+    }
+
+    /**
+     * Writes content to a channel.
+     */
+    @FunctionalInterface
+    public interface Content {
+        /**
+         * Write the whole content.
+         *
+         * @param channel the destination
+         * @throws IOException if writing fails
+         */
+        void writeTo(WritableByteChannel channel) throws IOException;
+    }
+
+    /**
+     * Wrap content so that it is saved gzip-compressed.
+     *
+     * @param content writes the uncompressed content
+     * @return content for {@link AtomicFile#write(Path, AtomicFile.Content)}
+     */
+    public static AtomicFile.Content gzip(Content content) {
+        return channel -> {
+            // Not closed, which would close the channel AtomicFile still
+            // has to force; the deflater is freed with the stream
+            GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            content.writeTo(Channels.newChannel(gzip));
+            gzip.finish();
+            gzip.flush();
+        };
+    }
+}
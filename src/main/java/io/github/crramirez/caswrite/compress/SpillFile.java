@@ -0,0 +1,138 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.compress;
+
+import io.github.crramirez.caswrite.load.LoadProgress;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Decompressed copy of a compressed file, for random access.
+ *
+ * A deflate stream can only be read from the start, and the JDK inflater
+ * cannot save and restore its state mid-stream. So a compressed file is
+ * inflated once, in the background, into a temporary spill file that is
+ * then mapped like any large file: scrolling or jumping to a far line
+ * never inflates anything again.
+ *
+ * Spill files go to the directory named by {@code -Dcaswrite.spillDir},
+ * or the temporary directory, which should not be a RAM disk for very
+ * large files. Other content evicted from the heap is written there too.
+ */
+public final class SpillFile {
+
+    // Where spill files are written
+    private static final String SPILL_DIR = System.getProperty("caswrite.spillDir",
+        System.getProperty("java.io.tmpdir"));
+
+    private SpillFile() {
+    }
+
+    /**
+     * Decompress a file into a new spill file. Progress is reported in
+     * compressed bytes, so it matches the size of the file being opened.
+     *
+     * @param source the compressed file
+     * @param compression its format
+     * @param progress receives the compressed bytes read; cancelling it
+     * stops the inflation
+     * @return the spill file, which the caller must {@link #discard(Path)}
+     * @throws IOException if the file cannot be decompressed; no spill file
+     * is left behind
+     */
+    public static Path inflate(Path source, Compression compression, LoadProgress progress)
+            throws IOException {
+        Path spill = create(compression.innerName(source));
+        boolean inflated = false;
+        try (InputStream in = compression.decompress(new CountingStream(Files.newInputStream(source), progress));
+             OutputStream out = Files.newOutputStream(spill)) {
+            byte[] buffer = new byte[Compression.BUFFER_SIZE];
+            for (int count = in.read(buffer); count >= 0; count = in.read(buffer)) {
+                progress.checkCancelled();
+                out.write(buffer, 0, count);
+            }
+            inflated = true;
+        } finally {
+            if (!inflated) {
+                Files.deleteIfExists(spill);
+            }
+        }
+        return spill;
+    }
+
+    /**
+     * Create a new, empty spill file.
+     *
+     * @param name a name to end the file name with, for recognizing it
+     * @return the spill file, which the caller must {@link #discard(Path)}
+     * @throws IOException if the file cannot be created
+     */
+    public static Path create(String name) throws IOException {
+        return Files.createTempFile(Path.of(SPILL_DIR), "caswrite-", "-" + name);
+    }
+
+    /**
+     * Delete a spill file once it has been mapped or read. Mapped files
+     * stay readable until unmapped on systems that allow deleting them;
+     * elsewhere the file is deleted when the application exits.
+     *
+     * @param spill the spill file
+     */
+    public static void discard(Path spill) {
+        try {
+            Files.deleteIfExists(spill);
+        } catch (IOException e) {
+            spill.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Reports the compressed bytes read as load progress.
+     */
+    private static final class CountingStream extends FilterInputStream {
+        private final LoadProgress progress;
+
+        CountingStream(InputStream in, LoadProgress progress) {
+            super(in);
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                progress.advance(1, 0);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                progress.advance(count, 0);
+            }
+            return count;
+        }
+    }
+}
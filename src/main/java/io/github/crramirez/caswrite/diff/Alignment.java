@@ -0,0 +1,94 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.diff;
+
+/**
+ * The rows of a side-by-side comparison. A row shows a line or record of
+ * the old file, of the new file, or of both; rows of the same kind next
+ * to each other form a change.
+ */
+interface Alignment {
+
+    /**
+     * Get the number of rows.
+     *
+     * @return the row count
+     */
+    long size();
+
+    /**
+     * Get the line or record of the old file shown on a row.
+     *
+     * @param row the row
+     * @return the zero-based index, or -1 if the row shows none
+     */
+    long oldIndex(long row);
+
+    /**
+     * Get the line or record of the new file shown on a row.
+     *
+     * @param row the row
+     * @return the zero-based index, or -1 if the row shows none
+     */
+    long newIndex(long row);
+
+    /**
+     * Check whether a row is part of a change.
+     *
+     * @param row the row
+     * @return false if the row shows the same content on both sides
+     */
+    boolean isChanged(long row);
+
+    /**
+     * Find the next change.
+     *
+     * @param row the current row
+     * @return the first row of the first change starting after it, or -1
+     */
+    long nextChange(long row);
+
+    /**
+     * Find the previous change.
+     *
+     * @param row the current row
+     * @return the first row of the last change starting before it, or -1
+     */
+    long previousChange(long row);
+
+    /**
+     * Get the number of changes.
+     *
+     * @return the number of runs of changed rows
+     */
+    long changeCount();
+
+    /**
+     * Get the number of lines or records of the old file in changes.
+     *
+     * @return the count
+     */
+    long removedCount();
+
+    /**
+     * Get the number of lines or records of the new file in changes.
+     *
+     * @return the count
+     */
+    long addedCount();
+}
@@ -0,0 +1,246 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.diff;
+
+import casciian.TApplication;
+import casciian.TWindow;
+import casciian.bits.CellAttributes;
+import casciian.bits.Color;
+import casciian.event.TKeypressEvent;
+import casciian.event.TMouseEvent;
+import io.github.crramirez.caswrite.text.LargeTextWindow;
+
+import java.io.IOException;
+
+import static casciian.TKeypress.kbCtrlEnd;
+import static casciian.TKeypress.kbCtrlHome;
+import static casciian.TKeypress.kbDown;
+import static casciian.TKeypress.kbHome;
+import static casciian.TKeypress.kbLeft;
+import static casciian.TKeypress.kbPgDn;
+import static casciian.TKeypress.kbPgUp;
+import static casciian.TKeypress.kbRight;
+import static casciian.TKeypress.kbUp;
+
+/**
+ * Window showing two compared files side by side, the old one on the left
+ * and the new one on the right. In a change, the lines or records of the
+ * old file are red and those of the new file green, each marked in the
+ * margin next to its number.
+ *
+ * Only the rows on screen are looked up in the alignment and read from
+ * the files, so scrolling through a comparison of large files costs the
+ * same as through small ones. N and P jump to the next and previous
+ * change.
+ */
+public class CompareWindow extends TWindow {
+
+    // Rows shown above a change jumped to
+    private static final int CONTEXT = 3;
+
+    private static final String SEPARATOR = "\u2502";
+
+    private final FileComparison comparison;
+    private final Alignment alignment;
+    private long topRow;
+    private int leftColumn;
+
+    /**
+     * Create a window showing a comparison, scrolled to the first change.
+     *
+     * @param application the application
+     * @param comparison the comparison, owned by the window from now on
+     */
+    public CompareWindow(TApplication application, FileComparison comparison) {
+        super(application, "Compare " + comparison.getOldPath().getFileName() + " with "
+                + comparison.getNewPath().getFileName(), 0, 0,
+            application.getScreen().getWidth(),
+            application.getDesktopBottom() - application.getDesktopTop(), RESIZABLE);
+        this.comparison = comparison;
+        this.alignment = comparison.getAlignment();
+        long first = alignment.nextChange(-1);
+        topRow = Math.max(0, first - CONTEXT);
+    }
+
+    /**
+     * Release both files when the window closes.
+     */
+    @Override
+    public void onClose() {
+        try {
+            comparison.close();
+        } catch (IOException e) {
+            // Nothing useful to do while closing
+        }
+        super.onClose();
+    }
+
+    /**
+     * Handle keystrokes for scrolling and jumping between changes.
+     *
+     * @param keypress keystroke event
+     */
+    @Override
+    public void onKeypress(TKeypressEvent keypress) {
+        long pageSize = Math.max(1, getHeight() - 4);
+        if (keypress.equals(kbUp)) {
+            scrollTo(topRow - 1);
+        } else if (keypress.equals(kbDown)) {
+            scrollTo(topRow + 1);
+        } else if (keypress.equals(kbPgUp)) {
+            scrollTo(topRow - pageSize);
+        } else if (keypress.equals(kbPgDn)) {
+            scrollTo(topRow + pageSize);
+        } else if (keypress.equals(kbCtrlHome)) {
+            scrollTo(0);
+        } else if (keypress.equals(kbCtrlEnd)) {
+            scrollTo(alignment.size() - pageSize);
+        } else if (keypress.equals(kbHome)) {
+            leftColumn = 0;
+        } else if (keypress.equals(kbLeft)) {
+            leftColumn = Math.max(0, leftColumn - 1);
+        } else if (keypress.equals(kbRight)) {
+            leftColumn++;
+        } else if (!keypress.getKey().isFnKey() && !keypress.getKey().isAlt()
+            && !keypress.getKey().isCtrl()
+            && Character.toLowerCase(keypress.getKey().getChar()) == 'n') {
+            nextChange();
+        } else if (!keypress.getKey().isFnKey() && !keypress.getKey().isAlt()
+            && !keypress.getKey().isCtrl()
+            && Character.toLowerCase(keypress.getKey().getChar()) == 'p') {
+            previousChange();
+        } else {
+            super.onKeypress(keypress);
+        }
+    }
+
+    /**
+     * Scroll to the start of the next change.
+     */
+    public void nextChange() {
+        long row = alignment.nextChange(Math.min(topRow + CONTEXT, alignment.size() - 1));
+        if (row >= 0) {
+            scrollTo(row - CONTEXT);
+        }
+    }
+
+    /**
+     * Scroll to the start of the previous change.
+     */
+    public void previousChange() {
+        long row = alignment.previousChange(Math.min(topRow + CONTEXT, alignment.size()));
+        if (row >= 0) {
+            scrollTo(row - CONTEXT);
+        }
+    }
+
+    private void scrollTo(long row) {
+        topRow = Math.max(0, Math.min(row, alignment.size() - 1));
+    }
+
+    /**
+     * Handle mouse wheel scrolling.
+     *
+     * @param mouse mouse button event
+     */
+    @Override
+    public void onMouseDown(TMouseEvent mouse) {
+        super.onMouseDown(mouse);
+        if (mouse.isMouseWheelUp()) {
+            scrollTo(topRow - 3);
+        } else if (mouse.isMouseWheelDown()) {
+            scrollTo(topRow + 3);
+        }
+    }
+
+    /**
+     * Draw the file names, the visible rows of both files and the counts
+     * of changed lines.
+     */
+    @Override
+    public void draw() {
+        super.draw();
+
+        CellAttributes color = getTheme().getColor("teditor");
+        CellAttributes removed = changeColor(color, Color.RED);
+        CellAttributes added = changeColor(color, Color.GREEN);
+        CellAttributes header = getTheme().getColor("tlabel");
+        int columns = getWidth() - 2;
+        int left = (columns - 1) / 2;
+        int right = columns - 1 - left;
+        int digits = Math.max(3, Long.toString(alignment.size()).length());
+
+        getScreen().putStringXY(1, 1, fit(" " + comparison.getOldPath().getFileName(), left), header);
+        getScreen().putStringXY(1 + left, 1, SEPARATOR, header);
+        getScreen().putStringXY(2 + left, 1, fit(" " + comparison.getNewPath().getFileName(), right), header);
+
+        int rows = getHeight() - 3;
+        for (int i = 0; i < rows; i++) {
+            long row = topRow + i;
+            boolean changed = alignment.isChanged(row);
+            drawSide(1, i + 2, left, digits, alignment.oldIndex(row), comparison.oldText(row),
+                changed ? removed : color, changed ? '-' : ' ');
+            getScreen().putStringXY(1 + left, i + 2, SEPARATOR, color);
+            drawSide(2 + left, i + 2, right, digits, alignment.newIndex(row), comparison.newText(row),
+                changed ? added : color, changed ? '+' : ' ');
+        }
+
+        String status = String.format(" %d changes  -%d +%d %s  %d/%d ", alignment.changeCount(),
+            alignment.removedCount(), alignment.addedCount(), comparison.isKeyed() ? "records" : "lines",
+            Math.min(topRow + 1, alignment.size()), alignment.size());
+        if (status.length() < getWidth() - 4) {
+            getScreen().putStringXY(2, getHeight() - 1, status, getTheme().getColor("twindow.border"));
+        }
+    }
+
+    /**
+     * Draw one side of a row: the line or record number, the change mark
+     * and the text scrolled to the left column.
+     */
+    private void drawSide(int x, int y, int width, int digits, long index, String text,
+                          CellAttributes color, char mark) {
+        if (index < 0) {
+            getScreen().putStringXY(x, y, " ".repeat(Math.max(0, width)), color);
+            return;
+        }
+        String expanded = LargeTextWindow.expandTabs(text);
+        String visible = expanded.length() > leftColumn ? expanded.substring(leftColumn) : "";
+        String number = String.format("%" + digits + "d%c ", index + 1, mark);
+        getScreen().putStringXY(x, y, fit(number + visible, width), color);
+    }
+
+    private static CellAttributes changeColor(CellAttributes base, Color fore) {
+        CellAttributes color = new CellAttributes(base);
+        color.setForeColor(fore);
+        color.setBold(true);
+        return color;
+    }
+
+    /**
+     * Cut or pad text to a width.
+     */
+    private static String fit(String text, int width) {
+        if (width <= 0) {
+            return "";
+        }
+        if (text.length() >= width) {
+            return text.substring(0, width);
+        }
+        return text + " ".repeat(width - text.length());
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.diff;
+
+import io.github.crramirez.caswrite.load.LoadProgress;
+import io.github.crramirez.caswrite.table.CsvTableModel;
+import io.github.crramirez.caswrite.table.SortKey;
+import io.github.crramirez.caswrite.text.LineHashes;
+import io.github.crramirez.caswrite.text.TextBuffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Two files compared side by side: the alignment of their lines or
+ * records, and the files themselves, mapped, so that only the rows on
+ * screen are ever read and decoded.
+ *
+ * Text files are compared line by line from hashes of their lines; see
+ * {@link LineDiff}. Tables can instead be compared by a key column, which
+ * pairs records with the same key wherever they are; see {@link KeyedDiff}.
+ */
+public final class FileComparison implements Closeable {
+
+    // Lines longer than this are truncated on screen
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+
+    // Shown between the cells of a record
+    private static final String SEPARATOR = " \u2502 ";
+
+    /**
+     * One of the compared files.
+     */
+    private interface Side extends Closeable {
+
+        /**
+         * Get the text of a line or record.
+         *
+         * @param index zero-based index
+         * @return the text, without line terminator
+         */
+        String text(long index);
+    }
+
+    private final Path oldPath;
+    private final Path newPath;
+    private final Side oldSide;
+    private final Side newSide;
+    private final Alignment alignment;
+    private final boolean keyed;
+
+    private FileComparison(Path oldPath, Side oldSide, Path newPath, Side newSide, Alignment alignment,
+                           boolean keyed) {
+        this.oldPath = oldPath;
+        this.oldSide = oldSide;
+        this.newPath = newPath;
+        this.newSide = newSide;
+        this.alignment = alignment;
+        this.keyed = keyed;
+    }
+
+    /**
+     * Compare two text files line by line. Line endings are ignored.
+     *
+     * @param oldBuffer the old file, owned by the comparison from now on
+     * @param newBuffer the new file, owned by the comparison from now on
+     * @param progress receives progress in bytes of both files, and
+     * cancellation requests
+     * @return the comparison
+     * @throws IOException if the files cannot be read
+     */
+    public static FileComparison ofText(TextBuffer oldBuffer, TextBuffer newBuffer,
+                                        LoadProgress progress) throws IOException {
+        Side oldSide = textSide(oldBuffer);
+        Side newSide = textSide(newBuffer);
+        try {
+            runBoth(oldBuffer.getLineIndex(), newBuffer.getLineIndex());
+            progress.checkCancelled();
+            long[] oldHashes = LineHashes.of(oldBuffer, progress);
+            long[] newHashes = LineHashes.of(newBuffer, progress);
+            Alignment alignment = LineDiff.diff(oldHashes, newHashes, progress);
+            return new FileComparison(oldBuffer.getPath(), oldSide, newBuffer.getPath(), newSide,
+                alignment, false);
+        } catch (RuntimeException e) {
+            closeBoth(oldSide, newSide);
+            throw e;
+        }
+    }
+
+    /**
+     * Compare two tables, pairing their records by a key column.
+     *
+     * @param oldTable the old table, owned by the comparison from now on
+     * @param newTable the new table, owned by the comparison from now on
+     * @param keyColumn the name or one-based number of the key column in
+     * both tables
+     * @param progress receives progress in bytes of both files, and
+     * cancellation requests
+     * @return the comparison
+     * @throws IOException if the files cannot be read
+     * @throws IllegalArgumentException if a table has no such column
+     */
+    public static FileComparison ofTables(CsvTableModel oldTable, CsvTableModel newTable, String keyColumn,
+                                          LoadProgress progress) throws IOException {
+        Side oldSide = tableSide(oldTable);
+        Side newSide = tableSide(newTable);
+        try {
+            int oldKey = findKey(oldTable, keyColumn);
+            int newKey = findKey(newTable, keyColumn);
+            runBoth(oldTable.getRowIndex(), newTable.getRowIndex());
+            progress.checkCancelled();
+            Alignment alignment = KeyedDiff.diff(oldTable, oldKey, newTable, newKey, progress,
+                Files.size(oldTable.getPath()), Files.size(newTable.getPath()));
+            return new FileComparison(oldTable.getPath(), oldSide, newTable.getPath(), newSide,
+                alignment, true);
+        } catch (IOException | RuntimeException e) {
+            closeBoth(oldSide, newSide);
+            throw e;
+        }
+    }
+
+    /**
+     * Build the indexes of both files at the same time.
+     */
+    private static void runBoth(Runnable oldIndex, Runnable newIndex) {
+        ForkJoinTask<?> other = ForkJoinPool.commonPool().submit(oldIndex);
+        newIndex.run();
+        other.join();
+    }
+
+    private static int findKey(CsvTableModel table, String keyColumn) {
+        try {
+            return SortKey.findColumn(keyColumn.trim(), table);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(e.getMessage() + " in " + table.getPath().getFileName(), e);
+        }
+    }
+
+    private static Side textSide(TextBuffer buffer) {
+        return new Side() {
+            @Override
+            public String text(long index) {
+                String text = buffer.lineText(index, MAX_LINE_BYTES);
+                return text == null ? "" : text;
+            }
+
+            @Override
+            public void close() throws IOException {
+                buffer.close();
+            }
+        };
+    }
+
+    private static Side tableSide(CsvTableModel table) {
+        return new Side() {
+            @Override
+            public String text(long index) {
+                StringBuilder text = new StringBuilder();
+                for (int column = 0; column < table.getColumnCount(); column++) {
+                    String cell = table.getCell(index, column);
+                    text.append(column == 0 ? "" : SEPARATOR).append(cell == null ? "" : cell);
+                }
+                return text.toString();
+            }
+
+            @Override
+            public void close() throws IOException {
+                table.close();
+            }
+        };
+    }
+
+    private static void closeBoth(Side first, Side second) {
+        try (first; second) {
+            // Only closing
+        } catch (IOException e) {
+            // Nothing was shown, nothing else to clean up
+        }
+    }
+
+    /**
+     * Get the old file.
+     *
+     * @return the path
+     */
+    public Path getOldPath() {
+        return oldPath;
+    }
+
+    /**
+     * Get the new file.
+     *
+     * @return the path
+     */
+    public Path getNewPath() {
+        return newPath;
+    }
+
+    /**
+     * Check whether records were paired by key rather than lines by
+     * position.
+     *
+     * @return true for tables compared by key
+     */
+    public boolean isKeyed() {
+        return keyed;
+    }
+
+    Alignment getAlignment() {
+        return alignment;
+    }
+
+    /**
+     * Get the text a row shows for the old file.
+     *
+     * @param row the row
+     * @return the text, or null if the row shows nothing of the old file
+     */
+    String oldText(long row) {
+        long index = alignment.oldIndex(row);
+        return index < 0 ? null : oldSide.text(index);
+    }
+
+    /**
+     * Get the text a row shows for the new file.
+     *
+     * @param row the row
+     * @return the text, or null if the row shows nothing of the new file
+     */
+    String newText(long row) {
+        long index = alignment.newIndex(row);
+        return index < 0 ? null : newSide.text(index);
+    }
+
+    /**
+     * Unmap both files.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try (oldSide; newSide) {
+            // Only closing
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.diff;
+
+import java.util.Arrays;
+
+/**
+ * Alignment of two files compared line by line, stored as segments that
+ * are either matched lines or a change. A row is found by a binary search
+ * over the segments, so only the rows on screen are ever worked out.
+ */
+final class HunkAlignment implements Alignment {
+
+    private long[] rowStart = new long[16];
+    private int[] oldStart = new int[16];
+    private int[] newStart = new int[16];
+    private int[] oldCount = new int[16];
+    private int[] newCount = new int[16];
+    private boolean[] changed = new boolean[16];
+    private int segments;
+
+    private long rows;
+    private long changes;
+    private long removed;
+    private long added;
+
+    /**
+     * Build the segments from the matched runs.
+     *
+     * @param runs the runs, as aStart, bStart, length, in order
+     * @param oldLines number of lines of the old file
+     * @param newLines number of lines of the new file
+     */
+    HunkAlignment(int[] runs, int oldLines, int newLines) {
+        int oldLine = 0;
+        int newLine = 0;
+        for (int i = 0; i < runs.length; i += 3) {
+            addSegment(oldLine, newLine, runs[i] - oldLine, runs[i + 1] - newLine, true);
+            addSegment(runs[i], runs[i + 1], runs[i + 2], runs[i + 2], false);
+            oldLine = runs[i] + runs[i + 2];
+            newLine = runs[i + 1] + runs[i + 2];
+        }
+        addSegment(oldLine, newLine, oldLines - oldLine, newLines - newLine, true);
+    }
+
+    private void addSegment(int oldFrom, int newFrom, int oldLength, int newLength, boolean change) {
+        if (oldLength == 0 && newLength == 0) {
+            return;
+        }
+        if (segments == rowStart.length) {
+            int capacity = segments * 2;
+            rowStart = Arrays.copyOf(rowStart, capacity);
+            oldStart = Arrays.copyOf(oldStart, capacity);
+            newStart = Arrays.copyOf(newStart, capacity);
+            oldCount = Arrays.copyOf(oldCount, capacity);
+            newCount = Arrays.copyOf(newCount, capacity);
+            changed = Arrays.copyOf(changed, capacity);
+        }
+        rowStart[segments] = rows;
+        oldStart[segments] = oldFrom;
+        newStart[segments] = newFrom;
+        oldCount[segments] = oldLength;
+        newCount[segments] = newLength;
+        changed[segments] = change;
+        segments++;
+        rows += Math.max(oldLength, newLength);
+        if (change) {
+            changes++;
+            removed += oldLength;
+            added += newLength;
+        }
+    }
+
+    @Override
+    public long size() {
+        return rows;
+    }
+
+    @Override
+    public long oldIndex(long row) {
+        int segment = segmentOf(row);
+        if (segment < 0) {
+            return -1;
+        }
+        long offset = row - rowStart[segment];
+        return offset < oldCount[segment] ? oldStart[segment] + offset : -1;
+    }
+
+    @Override
+    public long newIndex(long row) {
+        int segment = segmentOf(row);
+        if (segment < 0) {
+            return -1;
+        }
+        long offset = row - rowStart[segment];
+        return offset < newCount[segment] ? newStart[segment] + offset : -1;
+    }
+
+    @Override
+    public boolean isChanged(long row) {
+        int segment = segmentOf(row);
+        return segment >= 0 && changed[segment];
+    }
+
+    @Override
+    public long nextChange(long row) {
+        for (int segment = Math.max(0, segmentOf(row) + 1); segment < segments; segment++) {
+            if (changed[segment] && rowStart[segment] > row) {
+                return rowStart[segment];
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long previousChange(long row) {
+        for (int segment = row >= rows ? segments - 1 : segmentOf(row); segment >= 0; segment--) {
+            if (changed[segment] && rowStart[segment] < row) {
+                return rowStart[segment];
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long changeCount() {
+        return changes;
+    }
+
+    @Override
+    public long removedCount() {
+        return removed;
+    }
+
+    @Override
+    public long addedCount() {
+        return added;
+    }
+
+    /**
+     * Find the segment holding a row.
+     *
+     * @return the segment, or -1 if the row is out of range
+     */
+    private int segmentOf(long row) {
+        if (row < 0 || row >= rows) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(rowStart, 0, segments, row);
+        return index >= 0 ? index : -index - 2;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.diff;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Alignment of two tables whose rows were matched by key. Each row of the
+ * comparison stores its record on each side, so rows can pair records in
+ * any order.
+ */
+final class KeyedAlignment implements Alignment {
+
+    private int[] oldRecords;
+    private int[] newRecords;
+    private final BitSet changed = new BitSet();
+    private int rows;
+
+    private long changes;
+    private long removed;
+    private long added;
+
+    /**
+     * Create an empty alignment.
+     *
+     * @param capacity the number of rows expected
+     */
+    KeyedAlignment(int capacity) {
+        oldRecords = new int[Math.max(16, capacity)];
+        newRecords = new int[oldRecords.length];
+    }
+
+    /**
+     * Append a row.
+     *
+     * @param oldRecord the record of the old table, or -1
+     * @param newRecord the record of the new table, or -1
+     * @param change true if the records differ or one is missing
+     */
+    void add(int oldRecord, int newRecord, boolean change) {
+        if (rows == oldRecords.length) {
+            oldRecords = Arrays.copyOf(oldRecords, rows * 2);
+            newRecords = Arrays.copyOf(newRecords, rows * 2);
+        }
+        oldRecords[rows] = oldRecord;
+        newRecords[rows] = newRecord;
+        if (change) {
+            if (rows == 0 || !changed.get(rows - 1)) {
+                changes++;
+            }
+            changed.set(rows);
+            removed += oldRecord >= 0 ? 1 : 0;
+            added += newRecord >= 0 ? 1 : 0;
+        }
+        rows++;
+    }
+
+    @Override
+    public long size() {
+        return rows;
+    }
+
+    @Override
+    public long oldIndex(long row) {
+        return row >= 0 && row < rows ? oldRecords[(int) row] : -1;
+    }
+
+    @Override
+    public long newIndex(long row) {
+        return row >= 0 && row < rows ? newRecords[(int) row] : -1;
+    }
+
+    @Override
+    public boolean isChanged(long row) {
+        return row >= 0 && row < rows && changed.get((int) row);
+    }
+
+    @Override
+    public long nextChange(long row) {
+        if (row >= rows) {
+            return -1;
+        }
+        int from = row < 0 ? 0 : isChanged(row) ? changed.nextClearBit((int) row) : (int) row + 1;
+        int next = changed.nextSetBit(from);
+        return next >= 0 && next < rows ? next : -1;
+    }
+
+    @Override
+    public long previousChange(long row) {
+        if (row <= 0) {
+            return -1;
+        }
+        int last = changed.previousSetBit((int) Math.min(row, rows) - 1);
+        return last < 0 ? -1 : changed.previousClearBit(last) + 1;
+    }
+
+    @Override
+    public long changeCount() {
+        return changes;
+    }
+
+    @Override
+    public long removedCount() {
+        return removed;
+    }
+
+    @Override
+    public long addedCount() {
+        return added;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.diff;
+
+import io.github.crramirez.caswrite.load.LoadProgress;
+import io.github.crramirez.caswrite.table.TableModel;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Comparison of two tables that matches records by the value of a key
+ * column instead of by position.
+ *
+ * The key and a hash of every record are read in parallel, in fork-join
+ * tasks on the common pool that check the progress for cancellation
+ * before they start. The records of the new table are then listed in
+ * their order, each next to the old record with the same key, if any;
+ * repeated keys are paired in order. Old records whose key is gone are
+ * listed before the first new record matched to a later old one, which
+ * keeps them near their neighbours when the order did not change.
+ */
+final class KeyedDiff {
+
+    // Records read by a single task
+    static final int GRAIN = 8192;
+
+    // Largest number of rows an alignment can hold
+    private static final int MAX_ROWS = Integer.MAX_VALUE - 8;
+
+    private KeyedDiff() {
+    }
+
+    /**
+     * Keys and record hashes of a table.
+     */
+    private record Records(String[] keys, long[] hashes) {
+    }
+
+    /**
+     * Compare two tables by key.
+     *
+     * @param oldTable the old table, whose record count must be known
+     * @param oldKey zero-based key column of the old table
+     * @param newTable the new table, whose record count must be known
+     * @param newKey zero-based key column of the new table
+     * @param progress receives progress and cancellation requests
+     * @param oldBytes size of the old file, for progress reporting
+     * @param newBytes size of the new file, for progress reporting
+     * @return the alignment of the records
+     * @throws IllegalArgumentException if the tables have too many records
+     */
+    static KeyedAlignment diff(TableModel oldTable, int oldKey, TableModel newTable, int newKey,
+                               LoadProgress progress, long oldBytes, long newBytes) {
+        long total = oldTable.getRowCount() + newTable.getRowCount();
+        if (total > MAX_ROWS) {
+            throw new IllegalArgumentException("Too many records to compare: " + total);
+        }
+        Records before = read(oldTable, oldKey, progress, oldBytes);
+        Records after = read(newTable, newKey, progress, newBytes);
+        progress.checkCancelled();
+
+        // First old record of each key, and the next one with the same key
+        int[] nextSame = new int[before.keys().length];
+        Map<String, Integer> first = new HashMap<>();
+        for (int record = before.keys().length - 1; record >= 0; record--) {
+            Integer next = first.put(before.keys()[record], record);
+            nextSame[record] = next == null ? -1 : next;
+        }
+
+        int[] match = new int[after.keys().length];
+        BitSet matched = new BitSet(before.keys().length);
+        for (int record = 0; record < match.length; record++) {
+            Integer old = first.get(after.keys()[record]);
+            match[record] = old == null ? -1 : old;
+            if (old != null) {
+                matched.set(old);
+                if (nextSame[old] < 0) {
+                    first.remove(after.keys()[record]);
+                } else {
+                    first.put(after.keys()[record], nextSame[old]);
+                }
+            }
+        }
+
+        KeyedAlignment alignment = new KeyedAlignment((int) total);
+        int listed = 0;
+        for (int record = 0; record < match.length; record++) {
+            int old = match[record];
+            if (old < 0) {
+                alignment.add(-1, record, true);
+                continue;
+            }
+            for (; listed < old; listed++) {
+                if (!matched.get(listed)) {
+                    alignment.add(listed, -1, true);
+                }
+            }
+            listed = Math.max(listed, old + 1);
+            alignment.add(old, record, before.hashes()[old] != after.hashes()[record]);
+        }
+        for (; listed < before.keys().length; listed++) {
+            if (!matched.get(listed)) {
+                alignment.add(listed, -1, true);
+            }
+        }
+        return alignment;
+    }
+
+    private static Records read(TableModel table, int key, LoadProgress progress, long bytes) {
+        int count = (int) table.getRowCount();
+        Records records = new Records(new String[count], new long[count]);
+        ForkJoinPool.commonPool().invoke(new ReadTask(table, key, records, 0, count, progress, bytes));
+        return records;
+    }
+
+    /**
+     * Hash the cells of a record, with the column count, so records only
+     * hash the same if every cell is equal.
+     */
+    private static long hash(TableModel table, long record) {
+        int columns = table.getColumnCount();
+        long hash = 0xCBF29CE484222325L ^ columns;
+        for (int column = 0; column < columns; column++) {
+            String cell = table.getCell(record, column);
+            if (cell != null) {
+                for (int i = 0; i < cell.length(); i++) {
+                    hash = (hash ^ cell.charAt(i)) * 0x100000001B3L;
+                }
+            }
+            // A code unit no cell can hold separates the cells
+            hash = (hash ^ 0x1_0000) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Reads the keys and hashes of a range of records, or splits it in two.
+     */
+    private static final class ReadTask extends RecursiveAction {
+        private final TableModel table;
+        private final int key;
+        private final Records records;
+        private final int from;
+        private final int to;
+        private final LoadProgress progress;
+        private final long bytes;
+
+        ReadTask(TableModel table, int key, Records records, int from, int to, LoadProgress progress,
+                 long bytes) {
+            this.table = table;
+            this.key = key;
+            this.records = records;
+            this.from = from;
+            this.to = to;
+            this.progress = progress;
+            this.bytes = bytes;
+        }
+
+        @Override
+        protected void compute() {
+            progress.checkCancelled();
+            if (to - from <= GRAIN) {
+                for (int record = from; record < to; record++) {
+                    String value = table.getCell(record, key);
+                    records.keys()[record] = value == null ? "" : value;
+                    records.hashes()[record] = hash(table, record);
+                }
+                // Records are assumed to be of similar size
+                progress.advance(bytes * (to - from) / records.keys().length, to - from);
+                return;
+            }
+            int middle = from + Math.max(1, (to - from) / 2 / GRAIN) * GRAIN;
+            invokeAll(new ReadTask(table, key, records, from, middle, progress, bytes),
+                new ReadTask(table, key, records, middle, to, progress, bytes));
+        }
+    }
+}
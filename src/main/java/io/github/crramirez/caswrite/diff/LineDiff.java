@@ -0,0 +1,404 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.diff;
+
+import io.github.crramirez.caswrite.load.LoadProgress;
+
+import java.util.Arrays;
+
+/**
+ * Line diff of two files, given the hashes of their lines.
+ *
+ * Ranges are compared from a work list, so deep recursion never happens.
+ * Lines common to the start and the end of a range are matched first.
+ * A large range is then split at the lines that occur exactly once on
+ * each side, keeping the longest run of them that appears in the same
+ * order on both sides (patience diff); the gaps between them are compared
+ * the same way. What is left goes to the linear-space variant of Myers'
+ * algorithm, which finds the middle of a shortest edit script and splits
+ * the range there. Ranges too different to find the middle within
+ * {@link #MAX_COST} edits are split where the search got furthest, or
+ * left as one change if hardly any line matched on the way, which keeps
+ * the time near linear at the price of a longer script.
+ *
+ * Memory is linear in the number of lines: the hashes, the matched runs
+ * and, for one range at a time, the table of unique lines.
+ */
+final class LineDiff {
+
+    // Ranges with more lines than this on both sides together are split at
+    // unique lines before Myers' algorithm runs
+    private static final int ANCHOR_THRESHOLD = 256;
+
+    // Ranges with more lines than this skip the unique lines, whose table
+    // would take too much memory
+    private static final int MAX_ANCHOR_LINES = 1 << 22;
+
+    // Edits explored from each end of a range before it is split anyway
+    private static final int MAX_COST = 1024;
+
+    // A range still too costly is given up on unless at least one line in
+    // this many edits matched on the way
+    private static final int MIN_MATCH_RATIO = 8;
+
+    private final long[] a;
+    private final long[] b;
+    private final LoadProgress progress;
+
+    // Ranges left to compare, as aFrom, aTo, bFrom, bTo, and 1 if the
+    // range may be split at unique lines
+    private int[] ranges = new int[80];
+    private int rangeCount;
+
+    // Matched runs, as aStart, bStart, length, in the order they were found
+    private int[] runs = new int[96];
+    private int runCount;
+
+    private LineDiff(long[] a, long[] b, LoadProgress progress) {
+        this.a = a;
+        this.b = b;
+        this.progress = progress;
+    }
+
+    /**
+     * Compare two files line by line.
+     *
+     * @param a hashes of the lines of the old file
+     * @param b hashes of the lines of the new file
+     * @param progress checked for cancellation
+     * @return the alignment of the lines
+     */
+    static HunkAlignment diff(long[] a, long[] b, LoadProgress progress) {
+        LineDiff diff = new LineDiff(a, b, progress);
+        diff.pushRange(0, a.length, 0, b.length, true);
+        while (diff.rangeCount > 0) {
+            progress.checkCancelled();
+            diff.rangeCount--;
+            int at = diff.rangeCount * 5;
+            diff.compare(diff.ranges[at], diff.ranges[at + 1], diff.ranges[at + 2], diff.ranges[at + 3],
+                diff.ranges[at + 4] != 0);
+        }
+        return new HunkAlignment(diff.sortedRuns(), a.length, b.length);
+    }
+
+    private void compare(int aFrom, int aTo, int bFrom, int bTo, boolean anchored) {
+        int start = 0;
+        while (aFrom + start < aTo && bFrom + start < bTo && a[aFrom + start] == b[bFrom + start]) {
+            start++;
+        }
+        addRun(aFrom, bFrom, start);
+        aFrom += start;
+        bFrom += start;
+        int end = 0;
+        while (aTo - end > aFrom && bTo - end > bFrom && a[aTo - end - 1] == b[bTo - end - 1]) {
+            end++;
+        }
+        aTo -= end;
+        bTo -= end;
+        addRun(aTo, bTo, end);
+        if (aFrom == aTo || bFrom == bTo) {
+            return;
+        }
+        if (aTo - aFrom == 1 || bTo - bFrom == 1) {
+            matchSingle(aFrom, aTo, bFrom, bTo);
+            return;
+        }
+        int lines = (aTo - aFrom) + (bTo - bFrom);
+        if (anchored && lines > ANCHOR_THRESHOLD && lines <= MAX_ANCHOR_LINES
+            && splitAtUniqueLines(aFrom, aTo, bFrom, bTo)) {
+            return;
+        }
+        bisect(aFrom, aTo, bFrom, bTo, anchored);
+    }
+
+    /**
+     * Match the one line of a side to its first occurrence on the other.
+     */
+    private void matchSingle(int aFrom, int aTo, int bFrom, int bTo) {
+        if (aTo - aFrom == 1) {
+            for (int j = bFrom; j < bTo; j++) {
+                if (b[j] == a[aFrom]) {
+                    addRun(aFrom, j, 1);
+                    return;
+                }
+            }
+        } else {
+            for (int i = aFrom; i < aTo; i++) {
+                if (a[i] == b[bFrom]) {
+                    addRun(i, bFrom, 1);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Match the lines occurring once on each side that keep their order,
+     * and queue the gaps between them.
+     *
+     * @return false if there are no such lines
+     */
+    private boolean splitAtUniqueLines(int aFrom, int aTo, int bFrom, int bTo) {
+        int capacity = Integer.highestOneBit((aTo - aFrom + bTo - bFrom) * 3 / 2) << 1;
+        int mask = capacity - 1;
+        long[] keys = new long[capacity];
+        // One past the position of the only occurrence, -1 if repeated,
+        // 0 if absent; a slot is free while both are 0
+        int[] inA = new int[capacity];
+        int[] inB = new int[capacity];
+        for (int i = aFrom; i < aTo; i++) {
+            int slot = find(keys, inA, inB, mask, a[i]);
+            keys[slot] = a[i];
+            inA[slot] = inA[slot] == 0 ? i + 1 : -1;
+        }
+        for (int j = bFrom; j < bTo; j++) {
+            int slot = find(keys, inA, inB, mask, b[j]);
+            keys[slot] = b[j];
+            inB[slot] = inB[slot] == 0 ? j + 1 : -1;
+        }
+        progress.checkCancelled();
+
+        // Unique lines in the order of the old side, with their new position
+        int[] anchorA = new int[Math.min(aTo - aFrom, bTo - bFrom)];
+        int[] anchorB = new int[anchorA.length];
+        int anchors = 0;
+        for (int i = aFrom; i < aTo && anchors < anchorA.length; i++) {
+            int slot = find(keys, inA, inB, mask, a[i]);
+            if (inA[slot] > 0 && inB[slot] > 0) {
+                anchorA[anchors] = i;
+                anchorB[anchors] = inB[slot] - 1;
+                anchors++;
+            }
+        }
+        if (anchors == 0) {
+            return false;
+        }
+
+        int[] chain = longestIncreasing(anchorB, anchors);
+        int previousA = aFrom;
+        int previousB = bFrom;
+        for (int index : chain) {
+            pushRange(previousA, anchorA[index], previousB, anchorB[index], true);
+            addRun(anchorA[index], anchorB[index], 1);
+            previousA = anchorA[index] + 1;
+            previousB = anchorB[index] + 1;
+        }
+        pushRange(previousA, aTo, previousB, bTo, true);
+        return true;
+    }
+
+    private static int find(long[] keys, int[] inA, int[] inB, int mask, long key) {
+        int slot = (int) key & mask;
+        while ((inA[slot] != 0 || inB[slot] != 0) && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Find the longest strictly increasing subsequence, by patience
+     * sorting.
+     *
+     * @return the indexes of its values, in order
+     */
+    private static int[] longestIncreasing(int[] values, int count) {
+        // tails[k] is the index of the smallest value ending a subsequence
+        // of length k + 1
+        int[] tails = new int[count];
+        int[] previous = new int[count];
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[tails[middle]] < values[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        int[] chain = new int[length];
+        for (int k = length - 1, i = tails[length - 1]; k >= 0; k--, i = previous[i]) {
+            chain[k] = i;
+        }
+        return chain;
+    }
+
+    /**
+     * Search for the middle of a shortest edit script from both ends at
+     * once and split the range there. Both sides have at least two lines.
+     */
+    private void bisect(int aFrom, int aTo, int bFrom, int bTo, boolean anchored) {
+        int n = aTo - aFrom;
+        int m = bTo - bFrom;
+        int limit = Math.min((n + m + 1) / 2, MAX_COST);
+        int offset = limit;
+        // Furthest x reached on each diagonal k = x - y, from the start and
+        // from the end
+        int[] forward = new int[2 * limit + 2];
+        int[] reverse = new int[2 * limit + 2];
+        Arrays.fill(forward, -1);
+        Arrays.fill(reverse, -1);
+        forward[offset + 1] = 0;
+        reverse[offset + 1] = 0;
+        int delta = n - m;
+        // With an odd delta the paths meet during a forward step, otherwise
+        // during a reverse one
+        boolean odd = (delta & 1) != 0;
+        int k1Start = 0;
+        int k1End = 0;
+        int k2Start = 0;
+        int k2End = 0;
+        int bestX = 0;
+        int bestY = 0;
+        for (int d = 0; d < limit; d++) {
+            for (int k1 = -d + k1Start; k1 <= d - k1End; k1 += 2) {
+                int k1Offset = offset + k1;
+                int x1 = k1 == -d || (k1 != d && forward[k1Offset - 1] < forward[k1Offset + 1])
+                    ? forward[k1Offset + 1] : forward[k1Offset - 1] + 1;
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && a[aFrom + x1] == b[bFrom + y1]) {
+                    x1++;
+                    y1++;
+                }
+                forward[k1Offset] = x1;
+                if (x1 > n) {
+                    k1End += 2;
+                } else if (y1 > m) {
+                    k1Start += 2;
+                } else {
+                    if (x1 + y1 > bestX + bestY) {
+                        bestX = x1;
+                        bestY = y1;
+                    }
+                    int k2Offset = offset + delta - k1;
+                    if (odd && k2Offset >= 0 && k2Offset < reverse.length && reverse[k2Offset] != -1
+                        && x1 >= n - reverse[k2Offset]) {
+                        split(aFrom, aTo, bFrom, bTo, x1, y1, anchored);
+                        return;
+                    }
+                }
+            }
+            for (int k2 = -d + k2Start; k2 <= d - k2End; k2 += 2) {
+                int k2Offset = offset + k2;
+                int x2 = k2 == -d || (k2 != d && reverse[k2Offset - 1] < reverse[k2Offset + 1])
+                    ? reverse[k2Offset + 1] : reverse[k2Offset - 1] + 1;
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m && a[aTo - 1 - x2] == b[bTo - 1 - y2]) {
+                    x2++;
+                    y2++;
+                }
+                reverse[k2Offset] = x2;
+                if (x2 > n) {
+                    k2End += 2;
+                } else if (y2 > m) {
+                    k2Start += 2;
+                } else if (!odd) {
+                    int k1Offset = offset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < forward.length && forward[k1Offset] != -1) {
+                        int x1 = forward[k1Offset];
+                        int y1 = offset + x1 - k1Offset;
+                        if (x1 >= n - x2) {
+                            split(aFrom, aTo, bFrom, bTo, x1, y1, anchored);
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+        // Too costly. Each edit moves the search one line on and each
+        // matched line two, so a range where few lines matched on the way
+        // is left as one change. Otherwise it is split where the forward
+        // search got furthest, without looking for unique lines again,
+        // which would scan most of the range once per split
+        int matched = (bestX + bestY - limit) / 2;
+        if (limit < (n + m + 1) / 2 && matched >= limit / MIN_MATCH_RATIO && (bestX < n || bestY < m)) {
+            split(aFrom, aTo, bFrom, bTo, bestX, bestY, false);
+        }
+    }
+
+    private void split(int aFrom, int aTo, int bFrom, int bTo, int x, int y, boolean anchored) {
+        pushRange(aFrom, aFrom + x, bFrom, bFrom + y, anchored);
+        pushRange(aFrom + x, aTo, bFrom + y, bTo, anchored);
+    }
+
+    private void pushRange(int aFrom, int aTo, int bFrom, int bTo, boolean anchored) {
+        if (aFrom == aTo && bFrom == bTo) {
+            return;
+        }
+        if (rangeCount * 5 == ranges.length) {
+            ranges = Arrays.copyOf(ranges, ranges.length * 2);
+        }
+        int at = rangeCount * 5;
+        ranges[at] = aFrom;
+        ranges[at + 1] = aTo;
+        ranges[at + 2] = bFrom;
+        ranges[at + 3] = bTo;
+        ranges[at + 4] = anchored ? 1 : 0;
+        rangeCount++;
+    }
+
+    private void addRun(int aStart, int bStart, int length) {
+        if (length == 0) {
+            return;
+        }
+        if (runCount * 3 == runs.length) {
+            runs = Arrays.copyOf(runs, runs.length * 2);
+        }
+        int at = runCount * 3;
+        runs[at] = aStart;
+        runs[at + 1] = bStart;
+        runs[at + 2] = length;
+        runCount++;
+    }
+
+    /**
+     * Sort the runs by position, which is the same order on both sides,
+     * and merge the ones that touch.
+     *
+     * @return the runs, as aStart, bStart, length
+     */
+    private int[] sortedRuns() {
+        long[] order = new long[runCount];
+        for (int i = 0; i < runCount; i++) {
+            order[i] = (long) runs[i * 3] << 32 | i;
+        }
+        Arrays.sort(order);
+        int[] sorted = new int[runCount * 3];
+        int count = 0;
+        for (long entry : order) {
+            int at = (int) entry * 3;
+            int last = (count - 1) * 3;
+            if (count > 0 && sorted[last] + sorted[last + 2] == runs[at]
+                && sorted[last + 1] + sorted[last + 2] == runs[at + 1]) {
+                sorted[last + 2] += runs[at + 2];
+            } else {
+                System.arraycopy(runs, at, sorted, count * 3, 3);
+                count++;
+            }
+        }
+        return Arrays.copyOf(sorted, count * 3);
+    }
+}
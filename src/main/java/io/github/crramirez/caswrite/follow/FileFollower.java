@@ -0,0 +1,181 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.follow;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * Watches a file that grows, such as a live log, and hands its target the
+ * bytes appended since the last check.
+ *
+ * The file's size and identity are polled on a virtual thread; a stat call
+ * every half second costs nothing noticeable and, unlike a WatchService,
+ * behaves the same on every file system. Growth is prepared on that thread
+ * with {@link Target#extend(long)}, so only the cheap
+ * {@link Target#appended(long)} runs on the application thread. A file that
+ * shrinks, or that is replaced by another file of the same name as log
+ * rotation does, is reported once and following stops.
+ */
+public final class FileFollower implements Closeable {
+
+    // How often the file is checked (override with -Dcaswrite.followInterval=<millis>)
+    private static final long POLL_MILLIS = Long.getLong("caswrite.followInterval", 500);
+
+    /**
+     * The view that shows a followed file.
+     */
+    public interface Target {
+
+        /**
+         * Map and index the file up to a new size. Runs on the follower
+         * thread.
+         *
+         * @param size the new size of the file
+         * @throws IOException if the new bytes cannot be read
+         */
+        void extend(long size) throws IOException;
+
+        /**
+         * Show the bytes prepared by {@link #extend(long)}. Runs on the
+         * application thread.
+         *
+         * @param size the new size of the file
+         */
+        void appended(long size);
+
+        /**
+         * The file was truncated or replaced; following has stopped. Runs
+         * on the application thread.
+         */
+        void replaced();
+
+        /**
+         * The file could not be read; following has stopped. Runs on the
+         * application thread.
+         *
+         * @param e the error
+         */
+        void failed(IOException e);
+    }
+
+    private final Path path;
+    private final Executor uiExecutor;
+    private final Target target;
+    private final Object identity;
+    private long size;
+    private volatile boolean closed;
+
+    private FileFollower(Path path, long size, Object identity, Executor uiExecutor, Target target) {
+        this.path = path;
+        this.size = size;
+        this.identity = identity;
+        this.uiExecutor = uiExecutor;
+        this.target = target;
+    }
+
+    /**
+     * Start following a file.
+     *
+     * @param path the file
+     * @param size the number of bytes the target already shows
+     * @param uiExecutor runs code on the application thread
+     * @param target receives appended bytes and changes of file
+     * @return the follower, to close when following should stop
+     * @throws IOException if the file cannot be read
+     */
+    public static FileFollower start(Path path, long size, Executor uiExecutor, Target target)
+            throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        FileFollower follower = new FileFollower(path, size, identity(attributes), uiExecutor, target);
+        Thread.ofVirtual().name("CasWrite-Follow").start(follower::poll);
+        return follower;
+    }
+
+    /**
+     * Get the file being followed.
+     *
+     * @return the path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Stop following. Nothing more is passed to the target afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    private void poll() {
+        try {
+            while (!closed) {
+                Thread.sleep(POLL_MILLIS);
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    // Rotated away and not created again yet
+                    continue;
+                }
+                long current = attributes.size();
+                if (!Objects.equals(identity(attributes), identity) || current < size) {
+                    post(target::replaced);
+                    return;
+                }
+                if (current > size) {
+                    target.extend(current);
+                    size = current;
+                    post(() -> target.appended(current));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            post(() -> target.failed(e));
+        }
+    }
+
+    private void post(Runnable action) {
+        uiExecutor.execute(() -> {
+            if (!closed) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Identify a file independently of its name: the inode where the file
+     * system has one, otherwise its creation time.
+     *
+     * @param attributes the attributes of the file
+     * @return a value that changes when the file is replaced
+     */
+    private static Object identity(BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return key != null ? key : attributes.creationTime();
+    }
+}
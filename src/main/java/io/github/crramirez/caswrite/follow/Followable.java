@@ -0,0 +1,45 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.follow;
+
+/**
+ * A window that can follow its file as it grows, like tail -f.
+ */
+public interface Followable {
+
+    /**
+     * Check whether the window's content can be followed.
+     *
+     * @return true if {@link #setFollowing(boolean)} can turn following on
+     */
+    boolean canFollow();
+
+    /**
+     * Check whether the window is following its file.
+     *
+     * @return true while following
+     */
+    boolean isFollowing();
+
+    /**
+     * Start or stop following the file.
+     *
+     * @param following true to show appended bytes as they arrive
+     */
+    void setFollowing(boolean following);
+}
@@ -0,0 +1,190 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.highlight;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+/**
+ * Incremental syntax highlighting for a document read one line at a time.
+ *
+ * The lexer state at the start of each line is cached, so highlighting a
+ * visible line only tokenizes that line. An edit marks the states after
+ * the edited line as stale but keeps them, shifted by the number of lines
+ * added or removed; the next request re-tokenizes from the edited line
+ * and stops as soon as a computed state matches the stale one, since every
+ * line after that point lexes exactly as before. Typing inside a line of
+ * a 100,000-line file therefore costs one or two lines of work, and only
+ * opening a block comment re-tokenizes up to the visible lines.
+ *
+ * States are computed only as far as the lines asked for. A line far
+ * beyond the cached range is highlighted from {@value #MARGIN} lines above
+ * it, assuming plain code there, instead of tokenizing everything in
+ * between; this rarely shows and keeps jumps through huge files instant.
+ *
+ * This class is not thread-safe; it is meant for the application thread.
+ */
+public final class Highlighter {
+
+    /** Lines tokenized above a line that is far from any cached state. */
+    public static final int MARGIN = 500;
+
+    // Cached states beyond this many lines are dropped and rebuilt around
+    // the lines asked for
+    private static final int MAX_CACHED_LINES = 1 << 20;
+
+    private final Lexer lexer;
+    private final LongFunction<String> lines;
+
+    // states[i] is the lexer state at the start of line base + i
+    private long base;
+    private byte[] states = new byte[1024];
+    // states[0, valid) are exact; states[valid, known) predate an edit
+    private int valid = 1;
+    private int known = 1;
+    // Stale states before this index may still differ even if one matches,
+    // because they were derived from a state or line that has since changed
+    private int edited;
+
+    /**
+     * Create a highlighter.
+     *
+     * @param language the language of the document
+     * @param lines reads a line of the document without its terminator,
+     * returning null past the end
+     */
+    public Highlighter(Language language, LongFunction<String> lines) {
+        this.lexer = new Lexer(language);
+        this.lines = lines;
+    }
+
+    /**
+     * Get the language being highlighted.
+     *
+     * @return the language
+     */
+    public Language getLanguage() {
+        return lexer.getLanguage();
+    }
+
+    /**
+     * Tokenize a line.
+     *
+     * @param line zero-based line number
+     * @param text the text of the line
+     * @return the {@link TokenType} ordinal of every char of the text
+     */
+    public byte[] highlight(long line, String text) {
+        byte[] types = new byte[text.length()];
+        lexer.tokenize(text, stateAt(line), types);
+        return types;
+    }
+
+    /**
+     * Record an edit. Call it after the document has changed.
+     *
+     * @param line the line the edit started on
+     * @param removed number of line terminators the edit removed
+     * @param added number of line terminators the edit added
+     */
+    public void linesChanged(long line, int removed, int added) {
+        long first = line + 1 - base;
+        if (first < 1) {
+            clear();
+            return;
+        }
+        if (first >= known) {
+            return;
+        }
+        int at = (int) first;
+        int tail = Math.max(0, known - at - removed);
+        int grown = at + added + tail;
+        if (grown > states.length) {
+            states = Arrays.copyOf(states, Math.max(grown, states.length * 2));
+        }
+        if (tail > 0) {
+            System.arraycopy(states, at + removed, states, at + added, tail);
+        }
+        if (edited >= at + removed) {
+            edited += added - removed;
+        }
+        edited = Math.max(edited, at + added);
+        // New lines are recomputed before the stale ones are trusted
+        Arrays.fill(states, at, at + added, (byte) -1);
+        known = grown;
+        valid = Math.min(valid, at);
+    }
+
+    /**
+     * Forget every cached state, after the whole document changed.
+     */
+    public void clear() {
+        rebase(0);
+    }
+
+    /**
+     * Get the lexer state at the start of a line, computing it from the
+     * nearest exact state before it.
+     *
+     * @param line zero-based line number
+     * @return the state
+     */
+    int stateAt(long line) {
+        long offset = line - base;
+        if (offset < 0 || offset >= MAX_CACHED_LINES || (offset >= known && offset - known > MARGIN)) {
+            rebase(Math.max(0, line - MARGIN));
+        }
+        catchUp(line);
+        return states[(int) (line - base)];
+    }
+
+    private void catchUp(long line) {
+        int target = (int) (line - base);
+        while (valid <= target) {
+            String text = lines.apply(base + valid - 1);
+            int state = text == null ? Lexer.NORMAL : lexer.tokenize(text, states[valid - 1], null);
+            if (valid < known && valid >= edited && states[valid] == state) {
+                // Converged: the rest of the stale states still hold
+                valid = known;
+                edited = 0;
+                continue;
+            }
+            if (valid == states.length) {
+                states = Arrays.copyOf(states, states.length * 2);
+            }
+            if (valid < known && states[valid] != state) {
+                // The stale state after this one was derived from the old value
+                edited = Math.max(edited, valid + 1);
+            }
+            states[valid] = (byte) state;
+            valid++;
+            if (valid >= known) {
+                known = valid;
+                edited = 0;
+            }
+        }
+    }
+
+    private void rebase(long line) {
+        base = line;
+        states[0] = Lexer.NORMAL;
+        valid = 1;
+        known = 1;
+        edited = 0;
+    }
+}
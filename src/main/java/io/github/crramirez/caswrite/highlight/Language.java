@@ -0,0 +1,103 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.highlight;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Languages that can be highlighted, with the syntax the {@link Lexer}
+ * needs: keywords, comments and string delimiters. Only constructs that
+ * change the color of the following text are described; anything else is
+ * plain.
+ */
+public enum Language {
+
+    /** Java, including text blocks */
+    JAVA(new String[] {".java"}, "//", "/*", "*/", new String[] {"\"\"\""},
+        "abstract assert boolean break byte case catch char class const continue default do double "
+            + "else enum extends final finally float for goto if implements import instanceof int "
+            + "interface long native new package private protected public record return sealed short "
+            + "static strictfp super switch synchronized this throw throws transient try var void "
+            + "volatile while yield true false null"),
+
+    /** Kotlin */
+    KOTLIN(new String[] {".kt", ".kts"}, "//", "/*", "*/", new String[] {"\"\"\""},
+        "as break class continue do else false for fun if in interface is null object package "
+            + "return super this throw true try typealias typeof val var when while by catch "
+            + "constructor companion data enum finally import init internal open override private "
+            + "protected public sealed suspend"),
+
+    /** C and C++ */
+    C(new String[] {".c", ".h", ".cpp", ".cc", ".cxx", ".hpp"}, "//", "/*", "*/", new String[0],
+        "auto bool break case char class const constexpr continue default delete do double else "
+            + "enum explicit extern false float for friend goto if inline int long namespace new "
+            + "nullptr operator private protected public register return short signed sizeof static "
+            + "struct switch template this throw true try typedef typename union unsigned using "
+            + "virtual void volatile while"),
+
+    /** JavaScript and TypeScript, including template literals */
+    JAVASCRIPT(new String[] {".js", ".mjs", ".ts"}, "//", "/*", "*/", new String[] {"`"},
+        "async await break case catch class const continue debugger default delete do else export "
+            + "extends false finally for function if import in instanceof interface let new null "
+            + "return super switch this throw true try type typeof undefined var void while with yield"),
+
+    /** Python, including triple-quoted strings */
+    PYTHON(new String[] {".py"}, "#", null, null, new String[] {"\"\"\"", "'''"},
+        "False None True and as assert async await break class continue def del elif else except "
+            + "finally for from global if import in is lambda nonlocal not or pass raise return try "
+            + "while with yield");
+
+    private final String[] extensions;
+    final String lineComment;
+    final String blockStart;
+    final String blockEnd;
+    final String[] multiline;
+    final Set<String> keywords;
+
+    Language(String[] extensions, String lineComment, String blockStart, String blockEnd,
+             String[] multiline, String keywords) {
+        this.extensions = extensions;
+        this.lineComment = lineComment;
+        this.blockStart = blockStart;
+        this.blockEnd = blockEnd;
+        this.multiline = multiline;
+        this.keywords = Set.of(keywords.split(" "));
+    }
+
+    /**
+     * Find the language of a file from its extension.
+     *
+     * @param filename the file name, may be null
+     * @return the language, or null if the file is not source code
+     */
+    public static Language forFileName(String filename) {
+        if (filename == null) {
+            return null;
+        }
+        String lower = filename.toLowerCase(Locale.ROOT);
+        for (Language language : values()) {
+            for (String extension : language.extensions) {
+                if (lower.endsWith(extension)) {
+                    return language;
+                }
+            }
+        }
+        return null;
+    }
+}
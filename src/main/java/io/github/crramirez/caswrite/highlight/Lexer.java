@@ -0,0 +1,215 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.highlight;
+
+import java.util.Arrays;
+
+/**
+ * Line-at-a-time tokenizer for a {@link Language}.
+ *
+ * The only thing carried from one line to the next is a small state: plain
+ * code, inside a block comment, or inside a multi-line string. A line can
+ * therefore be tokenized on its own once the state at its start is known,
+ * which is what lets the {@link Highlighter} cache states per line and
+ * redo only the lines an edit affects.
+ */
+public final class Lexer {
+
+    /** State outside any comment or multi-line string. */
+    public static final int NORMAL = 0;
+
+    /** State inside a block comment. */
+    public static final int BLOCK_COMMENT = 1;
+
+    // States from here on are inside the multi-line string whose delimiter
+    // has index state - MULTILINE_STRING in Language.multiline
+    private static final int MULTILINE_STRING = 2;
+
+    private final Language language;
+
+    /**
+     * Create a lexer.
+     *
+     * @param language the language to tokenize
+     */
+    public Lexer(Language language) {
+        this.language = language;
+    }
+
+    /**
+     * Get the language this lexer tokenizes.
+     *
+     * @return the language
+     */
+    public Language getLanguage() {
+        return language;
+    }
+
+    /**
+     * Tokenize one line.
+     *
+     * @param line the line, without its terminator
+     * @param state the state at the start of the line
+     * @param types receives the {@link TokenType} ordinal of every char of
+     * the line, or null to only compute the state at the end
+     * @return the state at the start of the next line
+     */
+    public int tokenize(CharSequence line, int state, byte[] types) {
+        int length = line.length();
+        if (types != null) {
+            Arrays.fill(types, 0, length, (byte) TokenType.PLAIN.ordinal());
+        }
+        int i = 0;
+        if (state == BLOCK_COMMENT) {
+            int end = indexOf(line, language.blockEnd, 0);
+            if (end < 0) {
+                fill(types, 0, length, TokenType.COMMENT);
+                return state;
+            }
+            i = end + language.blockEnd.length();
+            fill(types, 0, i, TokenType.COMMENT);
+        } else if (state >= MULTILINE_STRING) {
+            String delimiter = language.multiline[state - MULTILINE_STRING];
+            int end = closing(line, 0, delimiter);
+            if (end < 0) {
+                fill(types, 0, length, TokenType.STRING);
+                return state;
+            }
+            i = end + delimiter.length();
+            fill(types, 0, i, TokenType.STRING);
+        }
+
+        while (i < length) {
+            char ch = line.charAt(i);
+            if (language.lineComment != null && startsWith(line, language.lineComment, i)) {
+                fill(types, i, length, TokenType.COMMENT);
+                return NORMAL;
+            }
+            if (language.blockStart != null && startsWith(line, language.blockStart, i)) {
+                int end = indexOf(line, language.blockEnd, i + language.blockStart.length());
+                if (end < 0) {
+                    fill(types, i, length, TokenType.COMMENT);
+                    return BLOCK_COMMENT;
+                }
+                int next = end + language.blockEnd.length();
+                fill(types, i, next, TokenType.COMMENT);
+                i = next;
+                continue;
+            }
+            int multiline = multilineAt(line, i);
+            if (multiline >= 0) {
+                String delimiter = language.multiline[multiline];
+                int end = closing(line, i + delimiter.length(), delimiter);
+                if (end < 0) {
+                    fill(types, i, length, TokenType.STRING);
+                    return MULTILINE_STRING + multiline;
+                }
+                int next = end + delimiter.length();
+                fill(types, i, next, TokenType.STRING);
+                i = next;
+                continue;
+            }
+            if (ch == '"' || ch == '\'') {
+                int end = closing(line, i + 1, ch == '"' ? "\"" : "'");
+                // An unterminated literal ends with the line
+                int next = end < 0 ? length : end + 1;
+                fill(types, i, next, TokenType.STRING);
+                i = next;
+                continue;
+            }
+            if (Character.isJavaIdentifierStart(ch)) {
+                int next = i + 1;
+                while (next < length && Character.isJavaIdentifierPart(line.charAt(next))) {
+                    next++;
+                }
+                if (types != null && language.keywords.contains(line.subSequence(i, next).toString())) {
+                    fill(types, i, next, TokenType.KEYWORD);
+                }
+                i = next;
+                continue;
+            }
+            if (ch >= '0' && ch <= '9') {
+                int next = i + 1;
+                while (next < length && (Character.isLetterOrDigit(line.charAt(next))
+                    || line.charAt(next) == '.' || line.charAt(next) == '_')) {
+                    next++;
+                }
+                fill(types, i, next, TokenType.NUMBER);
+                i = next;
+                continue;
+            }
+            i++;
+        }
+        return NORMAL;
+    }
+
+    private int multilineAt(CharSequence line, int position) {
+        for (int k = 0; k < language.multiline.length; k++) {
+            if (startsWith(line, language.multiline[k], position)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the delimiter closing a string, skipping backslash escapes.
+     *
+     * @return the index of the delimiter, or -1 if the string goes on
+     * past the end of the line
+     */
+    private static int closing(CharSequence line, int from, String delimiter) {
+        int length = line.length();
+        for (int i = from; i < length; i++) {
+            if (line.charAt(i) == '\\') {
+                i++;
+            } else if (startsWith(line, delimiter, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(CharSequence line, String text, int from) {
+        int last = line.length() - text.length();
+        for (int i = from; i <= last; i++) {
+            if (startsWith(line, text, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(CharSequence line, String prefix, int position) {
+        if (position + prefix.length() > line.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (line.charAt(position + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void fill(byte[] types, int from, int to, TokenType type) {
+        if (types != null) {
+            Arrays.fill(types, from, to, (byte) type.ordinal());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.highlight;
+
+/**
+ * Kind of text a character belongs to, which decides its color.
+ */
+public enum TokenType {
+    /** Anything not covered below */
+    PLAIN,
+    /** Reserved word of the language */
+    KEYWORD,
+    /** String or character literal */
+    STRING,
+    /** Line or block comment */
+    COMMENT,
+    /** Numeric literal */
+    NUMBER;
+
+    private static final TokenType[] VALUES = values();
+
+    /**
+     * Get a token type from its ordinal, as stored by the {@link Lexer}.
+     *
+     * @param ordinal the ordinal
+     * @return the token type
+     */
+    public static TokenType of(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
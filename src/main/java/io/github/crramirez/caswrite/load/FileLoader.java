@@ -0,0 +1,291 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.load;
+
+import io.github.crramirez.caswrite.metrics.FileOperationEvent;
+import io.github.crramirez.caswrite.metrics.Metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Runs file loads on virtual threads and hands the results to the
+ * application thread.
+ *
+ * A load has two halves: a {@link Task} that does the I/O and parsing on a
+ * virtual thread, and an {@link Installer} that creates the window from
+ * the result on the application thread. Failures from either half are
+ * reported to an error handler on the application thread; cancelled loads
+ * are dropped silently. A load is only done once its result has been
+ * installed, so a progress window stays up while the window is created.
+ *
+ * Every load gets its own virtual thread, but at most a fixed number of
+ * them read and parse at the same time, so opening hundreds of files
+ * neither thrashes the disk nor fills the heap with half-loaded models.
+ */
+public final class FileLoader implements AutoCloseable {
+
+    /**
+     * Background half of a load.
+     *
+     * @param <T> the type of the loaded model
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+        /**
+         * Read and parse the file.
+         *
+         * @param progress progress to update and check for cancellation
+         * @return the loaded model
+         * @throws IOException if reading fails
+         */
+        T load(LoadProgress progress) throws IOException;
+    }
+
+    /**
+     * Application-thread half of a load.
+     *
+     * @param <T> the type of the loaded model
+     */
+    @FunctionalInterface
+    public interface Installer<T> {
+        /**
+         * Show the loaded model.
+         *
+         * @param model the result of the task
+         * @throws IOException if the window cannot be created
+         */
+        void install(T model) throws IOException;
+    }
+
+    // Chunk size for read-ahead
+    private static final int READ_AHEAD_CHUNK = 256 * 1024;
+
+    private final Executor uiExecutor;
+    private final Semaphore permits;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Create a loader.
+     *
+     * @param uiExecutor runs code on the application thread
+     * @param maxConcurrentLoads the number of loads that may read at once
+     */
+    public FileLoader(Executor uiExecutor, int maxConcurrentLoads) {
+        this.uiExecutor = uiExecutor;
+        this.permits = new Semaphore(Math.max(1, maxConcurrentLoads));
+    }
+
+    /**
+     * Start loading a file.
+     *
+     * @param path the file to load
+     * @param size the size of the file, for progress reporting
+     * @param task reads and parses the file on a virtual thread
+     * @param installer shows the result on the application thread
+     * @param onError reports failures on the application thread
+     * @param <T> the type of the loaded model
+     * @return the progress of the load, which can also cancel it
+     */
+    public <T> LoadProgress load(Path path, long size, Task<T> task, Installer<T> installer,
+                                 Consumer<Exception> onError) {
+        return load(path, size, task, installer, onError, () -> { });
+    }
+
+    /**
+     * Start loading a file and be told when it has settled.
+     *
+     * @param path the file to load
+     * @param size the size of the file, for progress reporting
+     * @param task reads and parses the file on a virtual thread
+     * @param installer shows the result on the application thread
+     * @param onError reports failures on the application thread
+     * @param onSettled runs on the application thread after the result was
+     * installed, the error reported, or the load cancelled
+     * @param <T> the type of the loaded model
+     * @return the progress of the load, which can also cancel it
+     */
+    public <T> LoadProgress load(Path path, long size, Task<T> task, Installer<T> installer,
+                                 Consumer<Exception> onError, Runnable onSettled) {
+        return submit(new LoadProgress(path, size), task, installer, onError, onSettled);
+    }
+
+    /**
+     * Start a task that reports to an existing progress, such as an
+     * operation over the rows of an open table.
+     *
+     * @param progress progress to report to, which can also cancel the task
+     * @param task does the work on a virtual thread
+     * @param installer shows the result on the application thread
+     * @param onError reports failures on the application thread
+     * @param onSettled runs on the application thread once the task has
+     * settled either way
+     * @param <T> the type of the result
+     * @return the progress passed in
+     */
+    public <T> LoadProgress submit(LoadProgress progress, Task<T> task, Installer<T> installer,
+                                   Consumer<Exception> onError, Runnable onSettled) {
+        executor.execute(() -> {
+            // Set once the outcome is handed to the application thread,
+            // which then settles the load itself
+            boolean handedOver = false;
+            // Set once the application thread has the model to install,
+            // which then finishes the progress itself
+            boolean installing = false;
+            try {
+                T model = loadWithPermit(task, progress);
+                uiExecutor.execute(() -> {
+                    try {
+                        if (progress.isCancelled()) {
+                            discard(model);
+                            return;
+                        }
+                        installer.install(model);
+                    } catch (IOException | RuntimeException e) {
+                        discard(model);
+                        onError.accept(e);
+                    } finally {
+                        progress.finish();
+                        onSettled.run();
+                    }
+                });
+                handedOver = true;
+                installing = true;
+            } catch (CancellationException e) {
+                // Cancelled from the UI, nothing to report
+            } catch (IOException | RuntimeException e) {
+                reportFailure(progress, e, onError, onSettled);
+                handedOver = true;
+            } catch (Error e) {
+                // Such as running out of heap on a huge file: the load is
+                // abandoned and reported, the application keeps running
+                reportFailure(progress, new IOException(e.toString(), e), onError, onSettled);
+                handedOver = true;
+            } finally {
+                if (!installing) {
+                    progress.finish();
+                }
+                if (!handedOver) {
+                    uiExecutor.execute(onSettled);
+                }
+            }
+        });
+        return progress;
+    }
+
+    private void reportFailure(LoadProgress progress, Exception failure,
+                               Consumer<Exception> onError, Runnable onSettled) {
+        uiExecutor.execute(() -> {
+            try {
+                if (!progress.isCancelled()) {
+                    onError.accept(failure);
+                }
+            } finally {
+                onSettled.run();
+            }
+        });
+    }
+
+    private <T> T loadWithPermit(Task<T> task, LoadProgress progress) throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting to load " + progress.getPath());
+        }
+        try {
+            progress.checkCancelled();
+            if (progress.isRowBased()) {
+                return task.load(progress);
+            }
+            FileOperationEvent event = FileOperationEvent.start(Metrics.FILE_LOAD, progress.getPath());
+            T model = task.load(progress);
+            event.finish(progress.getTotalBytes());
+            return model;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Run background work, such as building an index, on a virtual thread.
+     *
+     * @param work the work to run
+     */
+    public void execute(Runnable work) {
+        executor.execute(work);
+    }
+
+    /**
+     * Read a whole file through a direct buffer, counting lines, so that a
+     * window created from it afterwards reads from the page cache instead
+     * of the disk.
+     *
+     * @param progress progress to update and check for cancellation
+     * @return the path that was read
+     * @throws IOException if reading fails
+     */
+    public static Path readAhead(LoadProgress progress) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(READ_AHEAD_CHUNK);
+        try (FileChannel channel = FileChannel.open(progress.getPath(), StandardOpenOption.READ)) {
+            int read;
+            while ((read = channel.read(buffer)) >= 0) {
+                progress.checkCancelled();
+                buffer.flip();
+                long lines = 0;
+                while (buffer.hasRemaining()) {
+                    if (buffer.get() == '\n') {
+                        lines++;
+                    }
+                }
+                buffer.clear();
+                progress.advance(read, lines);
+            }
+        }
+        return progress.getPath();
+    }
+
+    /**
+     * Stop accepting loads. Loads in progress keep running on their
+     * virtual threads until they finish.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private static void discard(Object model) {
+        if (model instanceof Closeable) {
+            try {
+                ((Closeable) model).close();
+            } catch (IOException e) {
+                // The model was never shown, nothing else to clean up
+            }
+        }
+    }
+}
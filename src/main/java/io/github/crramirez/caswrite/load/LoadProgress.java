@@ -0,0 +1,199 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.load;
+
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a single file load, shared between the loading thread and
+ * the application thread.
+ *
+ * The same class follows other long operations on a file, such as sorting
+ * a table; those count rows instead of bytes.
+ */
+public final class LoadProgress {
+
+    private final Path path;
+    private final String action;
+    private final long totalBytes;
+    // Rows expected by an operation that counts rows, -1 for file loads
+    private final long totalRows;
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private volatile boolean cancelled;
+    private volatile boolean done;
+
+    /**
+     * Create the progress of a load.
+     *
+     * @param path the file being loaded
+     * @param totalBytes the size of the file
+     */
+    public LoadProgress(Path path, long totalBytes) {
+        this(path, "Loading", totalBytes, -1);
+    }
+
+    private LoadProgress(Path path, String action, long totalBytes, long totalRows) {
+        this.path = path;
+        this.action = action;
+        this.totalBytes = totalBytes;
+        this.totalRows = totalRows;
+    }
+
+    /**
+     * Create the progress of an operation that works through the rows of
+     * a file already open.
+     *
+     * @param path the file being worked on
+     * @param action what is being done, such as "Sorting"
+     * @param totalRows the number of rows to process
+     * @return the progress
+     */
+    public static LoadProgress forRows(Path path, String action, long totalRows) {
+        return new LoadProgress(path, action, 0, totalRows);
+    }
+
+    /**
+     * Get what is being done to the file.
+     *
+     * @return the action, "Loading" for file loads
+     */
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * Check whether progress is measured in rows rather than bytes.
+     *
+     * @return true for operations created with {@link #forRows}
+     */
+    public boolean isRowBased() {
+        return totalRows >= 0;
+    }
+
+    /**
+     * Get the number of rows an operation will process.
+     *
+     * @return the row total, or -1 for file loads
+     */
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * Get the file being loaded.
+     *
+     * @return the path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Get the size of the file being loaded.
+     *
+     * @return the size in bytes
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Get the number of bytes processed so far.
+     *
+     * @return the bytes read
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Get the number of rows or lines found so far.
+     *
+     * @return the rows read
+     */
+    public long getRows() {
+        return rows.get();
+    }
+
+    /**
+     * Get the fraction of the file processed so far.
+     *
+     * @return a value between 0 and 1
+     */
+    public double getFraction() {
+        if (isRowBased()) {
+            return totalRows == 0 ? 1.0 : Math.min(1.0, (double) getRows() / totalRows);
+        }
+        return totalBytes <= 0 ? 1.0 : Math.min(1.0, (double) getBytes() / totalBytes);
+    }
+
+    /**
+     * Record processed bytes and rows.
+     *
+     * @param byteCount bytes processed since the last call
+     * @param rowCount rows found since the last call
+     */
+    public void advance(long byteCount, long rowCount) {
+        bytes.addAndGet(byteCount);
+        rows.addAndGet(rowCount);
+    }
+
+    /**
+     * Ask the load to stop. The loading thread notices at its next
+     * {@link #checkCancelled()} and the result, if any, is discarded.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Check whether the load was cancelled.
+     *
+     * @return true if {@link #cancel()} was called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stop the loading thread if the load was cancelled.
+     *
+     * @throws CancellationException if {@link #cancel()} was called
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException(action + " " + path.getFileName() + " was cancelled");
+        }
+    }
+
+    /**
+     * Check whether the load has finished, successfully or not.
+     *
+     * @return true once the loading thread is done
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    void finish() {
+        done = true;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.load;
+
+import casciian.TAction;
+import casciian.TApplication;
+import casciian.TLabel;
+import casciian.TProgressBar;
+import casciian.TTimer;
+import casciian.TWindow;
+
+/**
+ * Small non-modal window showing the progress of a file load or another
+ * long operation on a file, with a button to cancel it.
+ *
+ * The window polls the shared {@link LoadProgress} on a timer, so the
+ * loading thread never touches the UI, and closes itself once the load
+ * is done, which includes creating the window for the file.
+ */
+public class LoadProgressWindow extends TWindow {
+
+    // Loads finishing faster than this never show a progress window
+    private static final long SHOW_DELAY_MILLIS = 200;
+
+    private static final long REFRESH_MILLIS = 100;
+
+    private static final int WIDTH = 52;
+    private static final int HEIGHT = 8;
+
+    private final LoadProgress progress;
+    private final TProgressBar progressBar;
+    private final TLabel statusLabel;
+    private TTimer refreshTimer;
+
+    /**
+     * Create a progress window for a load.
+     *
+     * @param application the application
+     * @param progress the load to follow
+     */
+    public LoadProgressWindow(TApplication application, LoadProgress progress) {
+        super(application, progress.getAction(), WIDTH, HEIGHT, CENTERED);
+        this.progress = progress;
+
+        addLabel(fit(progress.getPath().getFileName().toString(), WIDTH - 6), 1, 1);
+        progressBar = addProgressBar(1, 2, WIDTH - 4, 0);
+        statusLabel = addLabel("", 1, 3);
+        addButton("&Cancel", (WIDTH - 12) / 2, 4, new TAction() {
+            @Override
+            public void DO() {
+                progress.cancel();
+                finish();
+            }
+        });
+
+        refreshTimer = application.addTimer(REFRESH_MILLIS, true, new TAction() {
+            @Override
+            public void DO() {
+                refresh();
+            }
+        });
+    }
+
+    /**
+     * Show a progress window for a load if it is still running after a
+     * short delay.
+     *
+     * @param application the application
+     * @param progress the load to follow
+     */
+    public static void showIfSlow(TApplication application, LoadProgress progress) {
+        application.addTimer(SHOW_DELAY_MILLIS, false, new TAction() {
+            @Override
+            public void DO() {
+                if (!progress.isDone() && !progress.isCancelled()) {
+                    new LoadProgressWindow(application, progress);
+                }
+            }
+        });
+    }
+
+    private void refresh() {
+        if (progress.isDone()) {
+            finish();
+            return;
+        }
+        progressBar.setValue((int) (progress.getFraction() * 100));
+        if (progress.isRowBased()) {
+            statusLabel.setLabel(String.format("%,d of %,d rows",
+                progress.getRows(), progress.getTotalRows()));
+        } else if (progress.getBytes() >= progress.getTotalBytes()) {
+            // Read; the window for the file is being created
+            statusLabel.setLabel("Opening...");
+        } else {
+            statusLabel.setLabel(String.format("%s of %s, %,d lines",
+                formatBytes(progress.getBytes()), formatBytes(progress.getTotalBytes()),
+                progress.getRows()));
+        }
+        getApplication().doRepaint();
+    }
+
+    private void finish() {
+        if (refreshTimer != null) {
+            getApplication().removeTimer(refreshTimer);
+            refreshTimer = null;
+            getApplication().closeWindow(this);
+        }
+    }
+
+    /**
+     * Cancel the load when the window is closed from its close box.
+     */
+    @Override
+    public void onClose() {
+        if (refreshTimer != null) {
+            progress.cancel();
+            getApplication().removeTimer(refreshTimer);
+            refreshTimer = null;
+        }
+        super.onClose();
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        String[] units = {"KB", "MB", "GB", "TB"};
+        double value = bytes;
+        int unit = -1;
+        while (value >= 1024 && unit < units.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return String.format("%.1f %s", value, units[unit]);
+    }
+
+    private static String fit(String text, int width) {
+        return text.length() <= width ? text : "..." + text.substring(text.length() - width + 3);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Collects the outcome of opening several files at once, so that failures
+ * can be reported together when the last file has settled.
+ *
+ * All methods are called on the application thread.
+ */
+public final class OpenBatch {
+
+    private final int expected;
+    private final Consumer<List<String>> onFinished;
+    private final List<String> failures = new ArrayList<>();
+    private int settled;
+
+    /**
+     * Create a batch.
+     *
+     * @param expected the number of files being opened
+     * @param onFinished receives one message per failed file once every
+     * file has settled; the list is empty if all files opened
+     */
+    public OpenBatch(int expected, Consumer<List<String>> onFinished) {
+        this.expected = expected;
+        this.onFinished = onFinished;
+        if (expected == 0) {
+            onFinished.accept(Collections.emptyList());
+        }
+    }
+
+    /**
+     * Record that a file failed to open. The file must still be settled
+     * with {@link #settle()}.
+     *
+     * @param name the name of the file
+     * @param error the failure
+     */
+    public void failed(String name, Exception error) {
+        failures.add(name + ": " + error.getMessage());
+    }
+
+    /**
+     * Record that a file has been opened, has failed or was cancelled.
+     */
+    public void settle() {
+        settled++;
+        if (settled == expected) {
+            onFinished.accept(Collections.unmodifiableList(failures));
+        }
+    }
+}
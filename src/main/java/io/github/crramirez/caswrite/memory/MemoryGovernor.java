@@ -0,0 +1,165 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.memory;
+
+import io.github.crramirez.caswrite.metrics.HeapUsage;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Keeps the heap held by open windows under a budget by spilling the
+ * content of the windows activated least recently.
+ *
+ * The application reports every change of the active window. The
+ * governor then adds up the footprint of the open windows that can
+ * {@linkplain HeapUsage estimate it}, and while the total is over the
+ * budget it spills the least recently activated {@link Spillable} windows
+ * other than the active one. Spilling runs on a background thread, so
+ * switching windows never waits for a spill file to be written; the
+ * content comes back when the window is activated again.
+ *
+ * All methods are meant for the application thread.
+ */
+public final class MemoryGovernor implements AutoCloseable {
+
+    private final long budget;
+    // Spillable windows, least recently activated first
+    private final LinkedHashSet<Spillable> windows = new LinkedHashSet<>();
+    // Spilled windows, with the spill that may still be running
+    private final Map<Spillable, Future<?>> spilled = new HashMap<>();
+    private final ExecutorService spiller =
+        Executors.newSingleThreadExecutor(Thread.ofVirtual().name("CasWrite-Spill").factory());
+
+    /**
+     * Create a governor.
+     *
+     * @param budget the heap the open windows may hold, in bytes
+     */
+    public MemoryGovernor(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Get the budget.
+     *
+     * @return the heap the open windows may hold, in bytes
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Check whether the content of a window is spilled.
+     *
+     * @param window the window
+     * @return true if the window was spilled and not activated since
+     */
+    public boolean isSpilled(Object window) {
+        return spilled.containsKey(window);
+    }
+
+    /**
+     * Take a newly activated window into account: restore its content if
+     * it was spilled, forget windows that were closed, and spill others
+     * if the open windows hold more than the budget.
+     *
+     * @param active the active window, or null
+     * @param open every open window, including the active one
+     * @throws IOException if the content of the active window cannot be
+     * read back
+     */
+    public void activated(Object active, Collection<?> open) throws IOException {
+        windows.retainAll(open);
+        spilled.entrySet().removeIf(entry -> {
+            if (open.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().cancel(false);
+            return true;
+        });
+        if (active instanceof Spillable window) {
+            windows.remove(window);
+            windows.add(window);
+            Future<?> spill = spilled.remove(window);
+            if (spill != null) {
+                if (!spill.cancel(false)) {
+                    await(spill);
+                }
+                window.restore();
+            }
+        }
+        enforce(active, open);
+    }
+
+    /**
+     * Spill the least recently activated windows until the open windows
+     * fit the budget or only the active one is left.
+     */
+    private void enforce(Object active, Collection<?> open) {
+        long total = 0;
+        for (Object window : open) {
+            Future<?> spill = spilled.get(window);
+            // A window still being spilled is counted as spilled already
+            if (window instanceof HeapUsage usage && (spill == null || spill.isDone())) {
+                total += usage.estimateHeapBytes();
+            }
+        }
+        Iterator<Spillable> leastRecent = windows.iterator();
+        while (total > budget && leastRecent.hasNext()) {
+            Spillable window = leastRecent.next();
+            if (window == active || spilled.containsKey(window)) {
+                continue;
+            }
+            total -= window.estimateHeapBytes();
+            spilled.put(window, spiller.submit(() -> {
+                try {
+                    window.spill();
+                } catch (IOException e) {
+                    // The content stays on the heap until the window is activated again
+                }
+            }));
+        }
+    }
+
+    private static void await(Future<?> spill) {
+        try {
+            spill.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // The spill failed, so the content is still there
+        }
+    }
+
+    /**
+     * Stop spilling. Spills already running finish.
+     */
+    @Override
+    public void close() {
+        spiller.shutdown();
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.memory;
+
+import io.github.crramirez.caswrite.metrics.HeapUsage;
+
+import java.io.IOException;
+
+/**
+ * A window whose content can be moved off the heap while it is not in
+ * use, for the {@link MemoryGovernor}.
+ */
+public interface Spillable extends HeapUsage {
+
+    /**
+     * Release the heap held by the content, writing to disk whatever
+     * cannot be read again from the file. Called on a background thread,
+     * possibly while the window draws itself, so content asked for during
+     * or after the spill must still be found.
+     *
+     * @throws IOException if the content cannot be written out; it is
+     * then kept
+     */
+    void spill() throws IOException;
+
+    /**
+     * Get back the content released by {@link #spill()}. Called on the
+     * application thread when the window is activated again.
+     *
+     * @throws IOException if the content cannot be read back
+     */
+    void restore() throws IOException;
+}
@@ -0,0 +1,149 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.metrics;
+
+import casciian.TAction;
+import casciian.TApplication;
+import casciian.TLabel;
+import casciian.TWindow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-modal window with live runtime metrics: frame and pre-draw times,
+ * how long work waits for the application thread, file load and save
+ * times, and heap use overall and per open window.
+ *
+ * While open, the window posts a probe to the application thread every
+ * refresh; the time the probe waits is the queue delay, and running it
+ * redraws the numbers.
+ */
+public class DiagnosticsWindow extends TWindow {
+
+    private static final long REFRESH_MILLIS = 1000;
+
+    private static final int WIDTH = 66;
+    private static final int HEIGHT = 22;
+
+    // Width of the metric and window names in the first column
+    private static final int NAME_WIDTH = 20;
+
+    private static final double MILLIS = 1e6;
+    private static final double MEGABYTES = 1024.0 * 1024.0;
+
+    private final TLabel[] lines = new TLabel[HEIGHT - 6];
+    private final AtomicBoolean probePending = new AtomicBoolean();
+    private final TimingMetric queueDelay = Metrics.timing(Metrics.QUEUE_DELAY);
+    private volatile boolean closed;
+
+    /**
+     * Open the window and start refreshing it.
+     *
+     * @param application the application
+     */
+    public DiagnosticsWindow(TApplication application) {
+        super(application, "Diagnostics", WIDTH, HEIGHT, CENTERED);
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = addLabel("", 1, i + 1);
+        }
+        addButton("&Reset", 1, HEIGHT - 4, new TAction() {
+            @Override
+            public void DO() {
+                Metrics.reset();
+                refresh();
+            }
+        });
+        refresh();
+
+        Thread.ofVirtual().name("CasWrite-Diagnostics").start(() -> {
+            try {
+                while (!closed) {
+                    Thread.sleep(REFRESH_MILLIS);
+                    probe(application);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * Post a probe unless the previous one is still waiting, so a stuck
+     * application thread does not pile them up.
+     *
+     * @param application the application
+     */
+    private void probe(TApplication application) {
+        if (!probePending.compareAndSet(false, true)) {
+            return;
+        }
+        long posted = System.nanoTime();
+        application.invokeLater(() -> {
+            queueDelay.record(System.nanoTime() - posted);
+            probePending.set(false);
+            if (!closed) {
+                refresh();
+            }
+        });
+    }
+
+    private void refresh() {
+        List<String> text = new ArrayList<>();
+        text.add(String.format("%-" + NAME_WIDTH + "s %7s %7s %7s %7s %7s", "Time (ms)",
+            "count", "last", "p50", "p99", "max"));
+        for (TimingMetric metric : Metrics.timings()) {
+            text.add(String.format("%-" + NAME_WIDTH + "s %7d %7.1f %7.1f %7.1f %7.1f",
+                fit(metric.getName(), NAME_WIDTH), metric.getCount(), metric.getLast() / MILLIS,
+                metric.percentile(50) / MILLIS, metric.percentile(99) / MILLIS, metric.getMax() / MILLIS));
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        text.add("");
+        text.add(String.format("Heap used: %,.1f MB of %,.1f MB", used / MEGABYTES,
+            runtime.maxMemory() / MEGABYTES));
+        for (TWindow window : getApplication().getAllWindows()) {
+            if (window == this) {
+                continue;
+            }
+            String estimate = window instanceof HeapUsage usage
+                ? String.format("%,.1f MB", usage.estimateHeapBytes() / MEGABYTES) : "-";
+            text.add(String.format("  %-" + (WIDTH - 20) + "s %12s", fit(window.getTitle(), WIDTH - 20), estimate));
+        }
+
+        for (int i = 0; i < lines.length; i++) {
+            lines[i].setLabel(i < text.size() ? fit(text.get(i), WIDTH - 4) : "");
+        }
+        getApplication().doRepaint();
+    }
+
+    /**
+     * Stop refreshing when the window is closed.
+     */
+    @Override
+    public void onClose() {
+        closed = true;
+        super.onClose();
+    }
+
+    private static String fit(String text, int width) {
+        return text.length() <= width ? text : text.substring(0, width - 3) + "...";
+    }
+}
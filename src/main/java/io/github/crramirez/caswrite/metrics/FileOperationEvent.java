@@ -0,0 +1,75 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.nio.file.Path;
+
+/**
+ * JFR event for loading or saving one file, which also feeds the timing
+ * metric of the same operation.
+ */
+@Name("io.github.crramirez.caswrite.FileOperation")
+@Label("File Operation")
+@Category("CasWrite")
+@Description("Loading a file into a window or saving one to disk")
+public final class FileOperationEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    private final long start = System.nanoTime();
+
+    /**
+     * Start timing an operation.
+     *
+     * @param operation the metric name, such as {@link Metrics#FILE_SAVE}
+     * @param path the file
+     * @return the started event
+     */
+    public static FileOperationEvent start(String operation, Path path) {
+        FileOperationEvent event = new FileOperationEvent();
+        event.operation = operation;
+        event.path = path.toString();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Record the operation as finished successfully.
+     *
+     * @param size the number of bytes read or written
+     */
+    public void finish(long size) {
+        Metrics.timing(operation).record(System.nanoTime() - start);
+        bytes = size;
+        commit();
+    }
+}
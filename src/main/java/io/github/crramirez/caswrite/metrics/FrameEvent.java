@@ -0,0 +1,41 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one frame drawn by the application.
+ */
+@Name("io.github.crramirez.caswrite.Frame")
+@Label("Frame")
+@Category("CasWrite")
+@Description("Drawing of one frame, from onPreDraw to onPostDraw")
+public final class FrameEvent extends jdk.jfr.Event {
+
+    @Label("Pre-draw Time")
+    @Timespan
+    public long preDrawTime;
+
+    @Label("Windows")
+    public int windows;
+}
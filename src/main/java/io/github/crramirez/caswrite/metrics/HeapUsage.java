@@ -0,0 +1,33 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.metrics;
+
+/**
+ * A window that can tell roughly how much heap its content holds, for the
+ * diagnostics window.
+ */
+public interface HeapUsage {
+
+    /**
+     * Estimate the heap held by the content: buffers, indexes and caches,
+     * but not memory-mapped files, which live outside the heap.
+     *
+     * @return the estimate in bytes
+     */
+    long estimateHeapBytes();
+}
@@ -0,0 +1,85 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process registry of timing metrics, shown by the diagnostics window.
+ *
+ * Metrics are created on first use and live for the whole session. The
+ * same measurements are also emitted as JFR events, so a recording taken
+ * with -XX:StartFlightRecording holds them alongside the JVM's own.
+ */
+public final class Metrics {
+
+    /** Time from the start of onPreDraw to the end of onPostDraw. */
+    public static final String FRAME = "Frame";
+
+    /** Time spent updating application state before each frame. */
+    public static final String PRE_DRAW = "Pre-draw";
+
+    /** Time to write a frame to the terminal when frames are paced. */
+    public static final String OUTPUT = "Output";
+
+    /** Delay before work posted to the application thread starts to run. */
+    public static final String QUEUE_DELAY = "Queue delay";
+
+    /** Time to read a file into a window. */
+    public static final String FILE_LOAD = "File load";
+
+    /** Time to write a file safely to disk. */
+    public static final String FILE_SAVE = "File save";
+
+    private static final Map<String, TimingMetric> TIMINGS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Get a timing metric, creating it if needed.
+     *
+     * @param name the name
+     * @return the metric
+     */
+    public static TimingMetric timing(String name) {
+        return TIMINGS.computeIfAbsent(name, TimingMetric::new);
+    }
+
+    /**
+     * Get all timing metrics.
+     *
+     * @return the metrics, ordered by name
+     */
+    public static List<TimingMetric> timings() {
+        List<TimingMetric> all = new ArrayList<>(TIMINGS.values());
+        all.sort(Comparator.comparing(TimingMetric::getName));
+        return all;
+    }
+
+    /**
+     * Forget everything recorded so far.
+     */
+    public static void reset() {
+        TIMINGS.values().forEach(TimingMetric::reset);
+    }
+}
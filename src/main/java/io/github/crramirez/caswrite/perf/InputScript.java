@@ -0,0 +1,125 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.perf;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A recorded or hand-written session to replay against the application.
+ *
+ * Each line holds one command and its arguments, optionally followed by
+ * xN to repeat it N times. Blank lines and lines starting with # are
+ * ignored. The commands are:
+ * <pre>
+ * generate NAME SIZE   create a text file of SIZE (e.g. 1GB) as $NAME
+ * open PATH            open a file, waiting for its window
+ * key NAME             press a key named after TKeypress, e.g. Down, PgDn, CtrlEnd
+ * type TEXT            type each character of TEXT
+ * wheel up|down        turn the mouse wheel over the active window
+ * click X Y            click at a screen position
+ * menu ITEM            choose find, replace, again, save, saveas or a menu id
+ * sleep MILLIS         wait without measuring
+ * </pre>
+ */
+public final class InputScript {
+
+    /**
+     * One command of a script.
+     *
+     * @param command the command name
+     * @param arguments the arguments; for type, the rest of the line
+     * @param repeat how many times to run the command
+     * @param line the line number in the script, for error messages
+     */
+    public record Step(String command, List<String> arguments, int repeat, int line) {
+    }
+
+    private final List<Step> steps;
+
+    private InputScript(List<Step> steps) {
+        this.steps = steps;
+    }
+
+    /**
+     * Read a script from a file.
+     *
+     * @param path the script
+     * @return the parsed script
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line is malformed
+     */
+    public static InputScript read(Path path) throws IOException {
+        return parse(Files.readAllLines(path));
+    }
+
+    /**
+     * Parse the lines of a script.
+     *
+     * @param lines the lines
+     * @return the parsed script
+     * @throws IllegalArgumentException if a line is malformed
+     */
+    public static InputScript parse(List<String> lines) {
+        List<Step> steps = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int space = line.indexOf(' ');
+            String command = space < 0 ? line : line.substring(0, space);
+            String rest = space < 0 ? "" : line.substring(space + 1);
+            if (command.equals("type")) {
+                steps.add(new Step(command, List.of(rest), 1, i + 1));
+                continue;
+            }
+            List<String> arguments = new ArrayList<>(Arrays.asList(rest.isBlank()
+                ? new String[0] : rest.strip().split("\\s+")));
+            int repeat = 1;
+            if (!arguments.isEmpty() && arguments.get(arguments.size() - 1).matches("x\\d+")) {
+                repeat = Integer.parseInt(arguments.remove(arguments.size() - 1).substring(1));
+            }
+            int expected = switch (command) {
+                case "generate", "click" -> 2;
+                case "open", "key", "wheel", "menu", "sleep" -> 1;
+                default -> throw new IllegalArgumentException("Line " + (i + 1)
+                    + ": unknown command '" + command + "'");
+            };
+            if (arguments.size() != expected) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": " + command
+                    + " takes " + expected + " argument" + (expected == 1 ? "" : "s"));
+            }
+            steps.add(new Step(command, List.copyOf(arguments), repeat, i + 1));
+        }
+        return new InputScript(List.copyOf(steps));
+    }
+
+    /**
+     * Get the commands of the script in order.
+     *
+     * @return the steps
+     */
+    public List<Step> getSteps() {
+        return steps;
+    }
+}
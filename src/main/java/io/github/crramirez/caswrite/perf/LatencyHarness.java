@@ -0,0 +1,368 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.perf;
+
+import casciian.TKeypress;
+import casciian.event.TInputEvent;
+import casciian.event.TKeypressEvent;
+import casciian.event.TMenuEvent;
+import casciian.event.TMouseEvent;
+import casciian.menu.TMenu;
+import io.github.crramirez.caswrite.CasWrite;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Replays an {@link InputScript} against CasWrite on a headless backend and
+ * reports how long each event takes to reach the screen.
+ *
+ * The latency of an event runs from posting it to the application until
+ * the first frame flushed after the application thread has run a marker
+ * queued behind the event. It therefore includes queueing, handling and
+ * drawing: the delay a user at the keyboard would see. Opening a file is
+ * measured until its window has appeared and been drawn.
+ *
+ * Usage: java io.github.crramirez.caswrite.perf.LatencyHarness SCRIPT
+ */
+public final class LatencyHarness {
+
+    // How long one event may take before it is counted as timed out
+    // (override with -Dcaswrite.harness.eventTimeout=<millis>)
+    private static final long EVENT_TIMEOUT_MILLIS =
+        Long.getLong("caswrite.harness.eventTimeout", 30_000);
+
+    // How long opening a file may take
+    private static final long OPEN_TIMEOUT_MILLIS = 10 * 60_000;
+
+    // Size of the block of random lines repeated to fill generated files
+    private static final int GENERATED_BLOCK = 1 << 20;
+
+    private static final String[] WORDS = {
+        "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel",
+        "india", "juliett", "kilo", "lima", "mike", "november", "oscar", "papa"
+    };
+
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+    private final Map<String, Path> generated = new HashMap<>();
+    private ScriptedBackend backend;
+    private CasWrite app;
+    private long firstFrameNanos = -1;
+    private int timeouts;
+
+    /**
+     * Run a script and print the latency report.
+     *
+     * @param args the path of the script
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: LatencyHarness SCRIPT");
+            System.exit(2);
+        }
+        LatencyHarness harness = new LatencyHarness();
+        try {
+            harness.run(InputScript.read(Path.of(args[0])));
+        } catch (Exception e) {
+            System.err.println("Script failed: " + e.getMessage());
+            System.out.print(harness.report());
+            System.exit(1);
+        }
+        System.out.print(harness.report());
+        System.exit(0);
+    }
+
+    /**
+     * Start the application on a headless backend and replay a script.
+     *
+     * @param script the script
+     * @throws Exception if the application cannot start or a step fails
+     */
+    public void run(InputScript script) throws Exception {
+        long start = System.nanoTime();
+        backend = new ScriptedBackend();
+        app = new CasWrite(backend);
+        Thread thread = new Thread(app, "CasWrite-Main");
+        thread.setDaemon(true);
+        thread.start();
+        long firstFrame = backend.awaitFlush(0, TimeUnit.MILLISECONDS.toNanos(EVENT_TIMEOUT_MILLIS));
+        if (firstFrame < 0) {
+            throw new IllegalStateException("No frame was drawn within " + EVENT_TIMEOUT_MILLIS + " ms");
+        }
+        firstFrameNanos = firstFrame - start;
+
+        try {
+            for (InputScript.Step step : script.getSteps()) {
+                for (int i = 0; i < step.repeat(); i++) {
+                    execute(step);
+                }
+            }
+        } finally {
+            app.invokeLater(app::exit);
+        }
+    }
+
+    private void execute(InputScript.Step step) throws Exception {
+        String argument = step.arguments().isEmpty() ? "" : step.arguments().get(0);
+        switch (step.command()) {
+            case "generate" -> generated.put(argument, generate(parseSize(step.arguments().get(1))));
+            case "open" -> open(resolve(argument, step));
+            case "key" -> measure("key", new TKeypressEvent(backend, key(argument, step)));
+            case "type" -> argument.codePoints().forEach(ch ->
+                measure("type", new TKeypressEvent(backend, new TKeypress(false, 0, ch, false, false, false))));
+            case "wheel" -> {
+                int x = app.getScreen().getWidth() / 2;
+                int y = app.getScreen().getHeight() / 2;
+                boolean up = argument.equals("up");
+                measure("wheel", new TMouseEvent(backend, TMouseEvent.Type.MOUSE_DOWN,
+                    x, y, x, y, false, false, false, up, !up));
+            }
+            case "click" -> {
+                int x = Integer.parseInt(argument);
+                int y = Integer.parseInt(step.arguments().get(1));
+                measure("click",
+                    new TMouseEvent(backend, TMouseEvent.Type.MOUSE_DOWN, x, y, x, y, true, false, false, false, false),
+                    new TMouseEvent(backend, TMouseEvent.Type.MOUSE_UP, x, y, x, y, true, false, false, false, false));
+            }
+            case "menu" -> measure("menu", new TMenuEvent(backend, menuId(argument, step)));
+            case "sleep" -> Thread.sleep(Long.parseLong(argument));
+            default -> throw new IllegalArgumentException("Line " + step.line()
+                + ": unknown command '" + step.command() + "'");
+        }
+    }
+
+    /**
+     * Open a file and measure until its window has been drawn.
+     *
+     * @param path the file to open
+     * @throws Exception if the window does not appear in time
+     */
+    private void open(Path path) throws Exception {
+        int before = onApplicationThread(app::windowCount);
+        long start = System.nanoTime();
+        app.invokeLater(() -> app.openFiles(new String[] {path.toString()}));
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(OPEN_TIMEOUT_MILLIS);
+        while (onApplicationThread(app::windowCount) <= before) {
+            if (System.nanoTime() > deadline) {
+                throw new TimeoutException("Opening " + path + " took longer than "
+                    + OPEN_TIMEOUT_MILLIS + " ms");
+            }
+            Thread.sleep(5);
+        }
+        recordNextFrame("open", start);
+    }
+
+    /**
+     * Post events and record the time until they are on screen.
+     *
+     * @param kind the histogram to record into
+     * @param events the events, posted back to back
+     */
+    private void measure(String kind, TInputEvent... events) {
+        long start = System.nanoTime();
+        for (TInputEvent event : events) {
+            app.postMenuEvent(event);
+        }
+        try {
+            recordNextFrame(kind, start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a frame", e);
+        }
+    }
+
+    /**
+     * Wait until the application thread has caught up and a frame has been
+     * flushed, then record the time since start.
+     *
+     * @param kind the histogram to record into
+     * @param start when the measured action began
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void recordNextFrame(String kind, long start) throws InterruptedException {
+        long timeout = TimeUnit.MILLISECONDS.toNanos(EVENT_TIMEOUT_MILLIS);
+        long flushes;
+        try {
+            flushes = onApplicationThread(() -> {
+                app.doRepaint();
+                return backend.getFlushCount();
+            });
+        } catch (TimeoutException e) {
+            timeouts++;
+            return;
+        }
+        long frame = backend.awaitFlush(flushes, timeout - (System.nanoTime() - start));
+        if (frame < 0) {
+            timeouts++;
+            return;
+        }
+        histograms.computeIfAbsent(kind, k -> new LatencyHistogram()).record(frame - start);
+    }
+
+    private <T> T onApplicationThread(Supplier<T> work) throws InterruptedException, TimeoutException {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        app.invokeLater(() -> result.complete(work.get()));
+        try {
+            return result.get(EVENT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Path resolve(String argument, InputScript.Step step) {
+        if (!argument.startsWith("$")) {
+            return Path.of(argument);
+        }
+        Path path = generated.get(argument.substring(1));
+        if (path == null) {
+            throw new IllegalArgumentException("Line " + step.line() + ": " + argument
+                + " was not generated");
+        }
+        return path;
+    }
+
+    private static TKeypress key(String name, InputScript.Step step) {
+        try {
+            return (TKeypress) TKeypress.class.getField("kb" + name).get(null);
+        } catch (NoSuchFieldException | IllegalAccessException | ClassCastException e) {
+            throw new IllegalArgumentException("Line " + step.line() + ": unknown key '" + name + "'");
+        }
+    }
+
+    private static int menuId(String name, InputScript.Step step) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "find" -> TMenu.MID_FIND;
+            case "replace" -> TMenu.MID_REPLACE;
+            case "again" -> TMenu.MID_SEARCH_AGAIN;
+            case "save" -> TMenu.MID_SAVE_FILE;
+            case "saveas" -> TMenu.MID_SAVE_AS_FILE;
+            default -> {
+                try {
+                    yield Integer.parseInt(name);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Line " + step.line()
+                        + ": unknown menu item '" + name + "'");
+                }
+            }
+        };
+    }
+
+    /**
+     * Parse a size such as 512KB, 1MB or 2GB.
+     *
+     * @param size the size with a KB, MB or GB suffix, or a number of bytes
+     * @return the size in bytes
+     */
+    static long parseSize(String size) {
+        String upper = size.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        if (upper.endsWith("KB")) {
+            unit = 1L << 10;
+        } else if (upper.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (upper.endsWith("GB")) {
+            unit = 1L << 30;
+        }
+        String digits = unit == 1 ? upper : upper.substring(0, upper.length() - 2);
+        return Long.parseLong(digits.trim()) * unit;
+    }
+
+    /**
+     * Create a text file of lines of words, or reuse one from an earlier
+     * run.
+     *
+     * @param size the size in bytes
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    private static Path generate(long size) throws IOException {
+        Path directory = Path.of(System.getProperty("java.io.tmpdir"), "caswrite-harness");
+        Path file = directory.resolve("text-" + size + ".txt");
+        if (Files.exists(file) && Files.size(file) == size) {
+            return file;
+        }
+        Files.createDirectories(directory);
+
+        Random random = new Random(42);
+        StringBuilder block = new StringBuilder(GENERATED_BLOCK + 128);
+        while (block.length() < GENERATED_BLOCK) {
+            int words = 4 + random.nextInt(12);
+            for (int i = 0; i < words; i++) {
+                block.append(i == 0 ? "" : " ").append(random.nextInt(500) == 0
+                    ? "needle" : WORDS[random.nextInt(WORDS.length)]);
+            }
+            block.append('\n');
+        }
+        byte[] bytes = block.toString().getBytes(StandardCharsets.US_ASCII);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long written = 0;
+            while (written < size) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, (int) Math.min(bytes.length, size - written));
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer);
+                }
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Format the time to first frame and a latency summary per kind of
+     * event.
+     *
+     * @return the report
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        if (firstFrameNanos >= 0) {
+            report.append(String.format("Time to first frame: %.1f ms%n%n", firstFrameNanos / 1e6));
+        }
+        report.append(String.format("%-8s %8s %10s %10s %10s%n", "event", "count", "p50 ms", "p99 ms", "max ms"));
+        LatencyHistogram all = new LatencyHistogram();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            appendRow(report, entry.getKey(), entry.getValue());
+            all.addAll(entry.getValue());
+        }
+        appendRow(report, "all", all);
+        if (timeouts > 0) {
+            report.append(String.format("%n%d events timed out after %d ms%n", timeouts, EVENT_TIMEOUT_MILLIS));
+        }
+        return report.toString();
+    }
+
+    private static void appendRow(StringBuilder report, String kind, LatencyHistogram histogram) {
+        report.append(String.format("%-8s %8d %10.2f %10.2f %10.2f%n", kind, histogram.getCount(),
+            histogram.percentile(50) / 1e6, histogram.percentile(99) / 1e6, histogram.getMax() / 1e6));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.perf;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of one kind of event, kept exactly.
+ *
+ * A scripted session produces thousands of samples, not millions, so every
+ * sample is stored and percentiles are read from the sorted values instead
+ * of from approximate buckets.
+ */
+public final class LatencyHistogram {
+
+    private long[] samples = new long[64];
+    private int count;
+    private boolean sorted = true;
+
+    /**
+     * Record one latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+        sorted = false;
+    }
+
+    /**
+     * Get the number of latencies recorded.
+     *
+     * @return the number of samples
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get a percentile using the nearest-rank method.
+     *
+     * @param percent the percentile, between 0 and 100
+     * @return the latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public long percentile(double percent) {
+        if (count == 0) {
+            return 0;
+        }
+        sort();
+        int rank = (int) Math.ceil(percent / 100.0 * count);
+        return samples[Math.max(0, Math.min(count, rank) - 1)];
+    }
+
+    /**
+     * Get the highest latency.
+     *
+     * @return the latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        if (count == 0) {
+            return 0;
+        }
+        sort();
+        return samples[count - 1];
+    }
+
+    /**
+     * Add every sample of another histogram to this one.
+     *
+     * @param other the histogram to add
+     */
+    public void addAll(LatencyHistogram other) {
+        for (int i = 0; i < other.count; i++) {
+            record(other.samples[i]);
+        }
+    }
+
+    private void sort() {
+        if (!sorted) {
+            Arrays.sort(samples, 0, count);
+            sorted = true;
+        }
+    }
+}
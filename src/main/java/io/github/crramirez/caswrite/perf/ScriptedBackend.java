@@ -0,0 +1,81 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.perf;
+
+import casciian.backend.HeadlessBackend;
+
+/**
+ * Headless backend that lets a driver wait for frames.
+ *
+ * Nothing is written to a terminal; the application draws to the
+ * in-memory screen as usual, and every flush of that screen counts as one
+ * frame presented to the user.
+ */
+final class ScriptedBackend extends HeadlessBackend {
+
+    private final Object lock = new Object();
+    private long flushes;
+    private long lastFlushNanos;
+
+    /**
+     * Count a frame and wake any waiting driver.
+     */
+    @Override
+    public void flushScreen() {
+        super.flushScreen();
+        synchronized (lock) {
+            flushes++;
+            lastFlushNanos = System.nanoTime();
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Get the number of frames flushed so far.
+     *
+     * @return the frame count
+     */
+    long getFlushCount() {
+        synchronized (lock) {
+            return flushes;
+        }
+    }
+
+    /**
+     * Wait for a frame after a given one.
+     *
+     * @param after the frame count already seen
+     * @param timeoutNanos how long to wait
+     * @return the System.nanoTime() of the first later frame to complete,
+     * or -1 if none completed in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    long awaitFlush(long after, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        synchronized (lock) {
+            while (flushes <= after) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return -1;
+                }
+                lock.wait(Math.max(1, remaining / 1_000_000));
+            }
+            return lastFlushNanos;
+        }
+    }
+}
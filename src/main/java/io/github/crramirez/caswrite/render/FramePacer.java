@@ -0,0 +1,197 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.render;
+
+import io.github.crramirez.caswrite.metrics.Metrics;
+import io.github.crramirez.caswrite.metrics.TimingMetric;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Output stream in front of the terminal that paces the frames written to
+ * it.
+ *
+ * The terminal flushes once per frame. Each frame is passed on at once.
+ * Over a link too slow to carry the maximum frame rate, the flush then
+ * holds the drawing thread until the time the frame would take at half the
+ * measured speed of the terminal has passed, so frames use at most half of
+ * the link and it never falls behind. Input keeps arriving in the backend
+ * meanwhile and is all handled before the next frame is drawn, so a burst
+ * of key repeats or a pasted block becomes one frame instead of one per
+ * event. Frames the link carries within the interval of the maximum frame
+ * rate are never held.
+ *
+ * The speed is only measured from writes that block long enough to show
+ * it; quicker ones merely filled a buffer, and only prove a speed at least
+ * as high.
+ *
+ * Not thread-safe; the terminal writes from one thread at a time.
+ */
+public final class FramePacer extends OutputStream {
+
+    // Share of the measured speed of the terminal that frames may take
+    private static final double OUTPUT_SHARE = 0.5;
+
+    // Longest a frame is held back, so a very slow terminal still follows
+    private static final long MAX_INTERVAL = TimeUnit.MILLISECONDS.toNanos(250);
+
+    // Writes quicker than this say nothing about the speed of the terminal
+    private static final long MIN_MEASURED = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // Weight of the latest frame in the measured speed
+    private static final double SMOOTHING = 0.25;
+
+    // Time spent writing each frame, shown in the diagnostics window
+    private static final TimingMetric OUTPUT_TIME = Metrics.timing(Metrics.OUTPUT);
+
+    private final OutputStream out;
+    private final long minInterval;
+    private final LongSupplier clock;
+    private final LongConsumer sleeper;
+
+    // Bytes of the frame being written, and the time spent writing them
+    private long frameBytes;
+    private long frameNanos;
+    private long frameStart;
+    private boolean inFrame;
+
+    // Measured speed in bytes per second; 0 until a write has shown it
+    private double bytesPerSecond;
+
+    /**
+     * Create a pacer.
+     *
+     * @param out the terminal output
+     * @param maxFps the frame rate below which the link counts as slow
+     */
+    public FramePacer(OutputStream out, int maxFps) {
+        this(out, maxFps, System::nanoTime, LockSupport::parkNanos);
+    }
+
+    /**
+     * Create a pacer with its own clock, for tests.
+     *
+     * @param out the terminal output
+     * @param maxFps the frame rate below which the link counts as slow
+     * @param clock the time in nanoseconds
+     * @param sleeper holds the calling thread for a number of nanoseconds;
+     * it may return early
+     */
+    FramePacer(OutputStream out, int maxFps, LongSupplier clock, LongConsumer sleeper) {
+        if (maxFps <= 0) {
+            throw new IllegalArgumentException("Frame rate must be positive: " + maxFps);
+        }
+        this.out = out;
+        this.minInterval = TimeUnit.SECONDS.toNanos(1) / maxFps;
+        this.clock = clock;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * Get the measured speed of the terminal.
+     *
+     * @return bytes per second, or 0 if no write has been slow enough to
+     * measure it
+     */
+    public double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        long start = begin();
+        out.write(b);
+        frameNanos += clock.getAsLong() - start;
+        frameBytes++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        long start = begin();
+        out.write(b, off, len);
+        frameNanos += clock.getAsLong() - start;
+        frameBytes += len;
+    }
+
+    /**
+     * Pass the frame on, then hold the calling thread until the next frame
+     * is due if the link is slow.
+     *
+     * @throws IOException if writing to the terminal fails
+     */
+    @Override
+    public void flush() throws IOException {
+        long start = begin();
+        out.flush();
+        long now = clock.getAsLong();
+        frameNanos += now - start;
+        OUTPUT_TIME.record(frameNanos);
+        measure();
+
+        long interval = 0;
+        if (bytesPerSecond > 0) {
+            interval = (long) (frameBytes * 1e9 / (bytesPerSecond * OUTPUT_SHARE));
+        }
+        // Only frames the link cannot carry at the maximum frame rate are held
+        long due = interval > minInterval ? frameStart + Math.min(interval, Math.max(minInterval, MAX_INTERVAL)) : now;
+        frameBytes = 0;
+        frameNanos = 0;
+        inFrame = false;
+        for (long hold = due - now; hold > 0; hold = due - clock.getAsLong()) {
+            sleeper.accept(hold);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Note the start of a write, which starts the frame if it is the first.
+     */
+    private long begin() {
+        long now = clock.getAsLong();
+        if (!inFrame) {
+            inFrame = true;
+            frameStart = now;
+        }
+        return now;
+    }
+
+    /**
+     * Update the measured speed with the frame just written.
+     */
+    private void measure() {
+        if (frameBytes == 0) {
+            return;
+        }
+        double speed = frameBytes * 1e9 / Math.max(frameNanos, MIN_MEASURED);
+        if (frameNanos >= MIN_MEASURED) {
+            bytesPerSecond = bytesPerSecond == 0 ? speed : bytesPerSecond + SMOOTHING * (speed - bytesPerSecond);
+        } else if (bytesPerSecond > 0 && speed > bytesPerSecond) {
+            // The terminal took this frame faster than measured so far
+            bytesPerSecond = speed;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.render;
+
+import java.util.Locale;
+
+/**
+ * How frames are written to the terminal.
+ */
+public enum RenderMode {
+
+    /** Every frame is written as soon as it is drawn. */
+    IMMEDIATE,
+
+    /**
+     * Frames are held back to the measured speed of a slow terminal, so
+     * input arriving meanwhile is drawn in one frame; see {@link FramePacer}.
+     */
+    ADAPTIVE;
+
+    /**
+     * Get the mode with a name, ignoring case.
+     *
+     * @param name the name, may be null
+     * @param fallback the mode returned for a missing or unknown name
+     * @return the mode
+     */
+    public static RenderMode of(String name, RenderMode fallback) {
+        if (name != null) {
+            for (RenderMode mode : values()) {
+                if (mode.name().equals(name.trim().toUpperCase(Locale.ROOT))) {
+                    return mode;
+                }
+            }
+        }
+        return fallback;
+    }
+}
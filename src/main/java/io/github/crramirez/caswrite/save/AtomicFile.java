@@ -0,0 +1,126 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.save;
+
+import io.github.crramirez.caswrite.metrics.FileOperationEvent;
+import io.github.crramirez.caswrite.metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Crash-safe replacement of a file's content.
+ *
+ * The new content is written to a temporary file in the same directory,
+ * forced to disk, and then renamed over the target. A crash or a full disk
+ * at any point leaves either the old file or the new one, never a
+ * truncated mix. The directory is forced after the rename so that the
+ * rename itself survives a power loss.
+ */
+public final class AtomicFile {
+
+    /**
+     * Writes the content of a file.
+     */
+    @FunctionalInterface
+    public interface Content {
+        /**
+         * Write the whole content to a channel positioned at its start.
+         *
+         * @param channel the channel of the temporary file
+         * @throws IOException if writing fails
+         */
+        void writeTo(FileChannel channel) throws IOException;
+    }
+
+    private AtomicFile() {
+    }
+
+    /**
+     * Replace the content of a file, creating it if needed.
+     *
+     * @param target the file to write
+     * @param content writes the new content
+     * @throws IOException if the content could not be written; the target
+     * is left unchanged
+     */
+    public static void write(Path target, Content content) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        Path directory = absolute.getParent();
+        FileOperationEvent event = FileOperationEvent.start(Metrics.FILE_SAVE, absolute);
+        Path temp = Files.createTempFile(directory, "." + absolute.getFileName(), ".tmp");
+        try {
+            copyPermissions(absolute, temp);
+            long size;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                content.writeTo(channel);
+                channel.force(true);
+                size = channel.size();
+            }
+            try {
+                Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+            forceDirectory(directory);
+            event.finish(size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Give the temporary file the permissions of the file it replaces;
+     * temporary files are created readable by the owner only.
+     *
+     * @param target the file being replaced
+     * @param temp the temporary file
+     * @throws IOException if the permissions cannot be read or set
+     */
+    private static void copyPermissions(Path target, Path temp) throws IOException {
+        if (!Files.exists(target)) {
+            return;
+        }
+        try {
+            Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system; the defaults will do
+        }
+    }
+
+    /**
+     * Flush a directory entry change to disk where the platform allows
+     * opening a directory.
+     *
+     * @param directory the directory holding the renamed file
+     */
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened on every platform; the rename
+            // has still happened
+        }
+    }
+}
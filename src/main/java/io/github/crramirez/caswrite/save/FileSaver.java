@@ -0,0 +1,67 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.save;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Runs atomic saves on virtual threads and reports the outcome on the
+ * application thread.
+ *
+ * The caller captures the content to save on the application thread, for
+ * example as a snapshot of a text buffer, so that editing can continue
+ * while the file is written.
+ */
+public final class FileSaver {
+
+    private final Executor uiExecutor;
+
+    /**
+     * Create a saver.
+     *
+     * @param uiExecutor runs code on the application thread
+     */
+    public FileSaver(Executor uiExecutor) {
+        this.uiExecutor = uiExecutor;
+    }
+
+    /**
+     * Start saving a file.
+     *
+     * @param target the file to write
+     * @param content writes the content on a virtual thread
+     * @param onSaved runs on the application thread once the file is
+     * safely on disk
+     * @param onFailed runs on the application thread if the file could not
+     * be saved; the target is then unchanged
+     */
+    public void save(Path target, AtomicFile.Content content, Runnable onSaved,
+                     Consumer<Exception> onFailed) {
+        Thread.ofVirtual().name("CasWrite-Save").start(() -> {
+            try {
+                AtomicFile.write(target, content);
+                uiExecutor.execute(onSaved);
+            } catch (IOException | RuntimeException e) {
+                uiExecutor.execute(() -> onFailed.accept(e));
+            }
+        });
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.save;
+
+import java.util.function.Consumer;
+
+/**
+ * A window whose content is saved in the background.
+ */
+public interface Saveable {
+
+    /**
+     * Check whether there are unsaved changes.
+     *
+     * @return true if the content changed since it was last saved
+     */
+    boolean isDirty();
+
+    /**
+     * Start saving the content to its file. Exactly one of the callbacks
+     * runs, on the application thread, once the outcome is known.
+     *
+     * @param onSaved runs once the file is safely on disk
+     * @param onFailed runs with the error if the file could not be saved
+     */
+    void save(Runnable onSaved, Consumer<Exception> onFailed);
+}
@@ -0,0 +1,97 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.session;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * What a file looked like when an index was kept for it: its size, its
+ * modification time and a checksum of samples of its content.
+ *
+ * The checksum covers the start and the end of the file and a few blocks
+ * spread between them, so it costs the same few reads whatever the size of
+ * the file. It catches a file rewritten within the resolution of the
+ * modification time, not every change of a single byte.
+ *
+ * @param size the size in bytes
+ * @param modified the modification time in milliseconds
+ * @param checksum CRC-32C of the sampled content
+ */
+record FileStamp(long size, long modified, int checksum) {
+
+    // Bytes read at each end of the file
+    private static final int EDGE_BYTES = 64 * 1024;
+
+    // Blocks sampled between the ends, and their size
+    private static final int SAMPLES = 16;
+    private static final int SAMPLE_BYTES = 4096;
+
+    /**
+     * Stamp a file as it is now.
+     *
+     * @param path the file
+     * @return the stamp
+     * @throws IOException if the file cannot be read
+     */
+    static FileStamp of(Path path) throws IOException {
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            CRC32C crc = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocate(EDGE_BYTES);
+            sample(channel, 0, EDGE_BYTES, buffer, crc);
+            if (size > 2L * EDGE_BYTES) {
+                long stride = (size - 2L * EDGE_BYTES) / (SAMPLES + 1);
+                for (int i = 1; stride >= SAMPLE_BYTES && i <= SAMPLES; i++) {
+                    sample(channel, EDGE_BYTES + i * stride, SAMPLE_BYTES, buffer, crc);
+                }
+            }
+            sample(channel, Math.max(0, size - EDGE_BYTES), EDGE_BYTES, buffer, crc);
+            return new FileStamp(size, modified, (int) crc.getValue());
+        }
+    }
+
+    private static void sample(FileChannel channel, long position, int length, ByteBuffer buffer,
+                               CRC32C crc) throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        crc.update(buffer.flip());
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(size);
+        out.writeLong(modified);
+        out.writeInt(checksum);
+    }
+
+    static FileStamp readFrom(DataInput in) throws IOException {
+        return new FileStamp(in.readLong(), in.readLong(), in.readInt());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.session;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * An index over a file that can be kept between sessions, so reopening a
+ * large file does not scan it again.
+ *
+ * The {@link SessionStore} only keeps complete indexes, and only gives one
+ * back for a file whose size, modification time and sampled content have
+ * not changed since.
+ */
+public interface PersistentIndex {
+
+    /**
+     * Describe what the index depends on besides the bytes of the file,
+     * such as its encoding. An index is only given back to an index with
+     * the same signature.
+     *
+     * @return the signature
+     */
+    String signature();
+
+    /**
+     * Check whether the whole file has been indexed.
+     *
+     * @return true once the build has finished
+     */
+    boolean isComplete();
+
+    /**
+     * Get the number of bytes indexed so far.
+     *
+     * @return the offset up to which the file has been scanned
+     */
+    long getIndexedLimit();
+
+    /**
+     * Write the state of the index.
+     *
+     * @param out where to write it
+     * @throws IOException if writing fails
+     */
+    void writeTo(DataOutput out) throws IOException;
+
+    /**
+     * Take over a state written by {@link #writeTo(DataOutput)} for the
+     * same file, before the index is first run. Running it afterwards
+     * only scans bytes beyond the restored part.
+     *
+     * @param in where to read it
+     * @throws IOException if reading fails or the state is inconsistent;
+     * the index is then left empty
+     */
+    void readFrom(DataInput in) throws IOException;
+}
@@ -0,0 +1,40 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.session;
+
+/**
+ * A window that can show the same part of its document again in a later
+ * session.
+ */
+public interface Resumable {
+
+    /**
+     * Get the part of the document shown now.
+     *
+     * @return the viewport
+     */
+    Viewport getViewport();
+
+    /**
+     * Show a part of the document that was shown before. Lines or rows
+     * that no longer exist are clamped to the end of the document.
+     *
+     * @param viewport the viewport to show
+     */
+    void setViewport(Viewport viewport);
+}
@@ -0,0 +1,250 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.session;
+
+import io.github.crramirez.caswrite.save.AtomicFile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps the open windows and the indexes of their files between runs.
+ *
+ * The windows go to one session file. Each complete index goes to a file
+ * of its own, named after the file it indexes and headed by a
+ * {@link FileStamp}; it is only given back while the file still matches
+ * the stamp, and is rewritten only when the stamp changed. Indexes of
+ * files no longer open are deleted when the session is saved.
+ *
+ * Every file is replaced atomically, so a crash while saving leaves the
+ * previous session.
+ */
+public final class SessionStore {
+
+    // Where sessions are kept (override with -Dcaswrite.sessionDir=<directory>)
+    private static final String SESSION_DIR = System.getProperty("caswrite.sessionDir",
+        Path.of(System.getProperty("user.home"), ".caswrite", "session").toString());
+
+    private static final String SESSION_FILE = "session.bin";
+    private static final String INDEX_SUFFIX = ".index";
+
+    // First bytes of the session and index files, changed with their layout
+    private static final int SESSION_MAGIC = 0x43575331;
+    private static final int INDEX_MAGIC = 0x43574931;
+
+    private final Path directory;
+
+    /**
+     * Create a store.
+     *
+     * @param directory the directory holding the session, created when
+     * the session is first saved
+     */
+    public SessionStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Create a store in the default directory, {@code ~/.caswrite/session}
+     * unless {@code -Dcaswrite.sessionDir} names another.
+     *
+     * @return the store
+     */
+    public static SessionStore defaultStore() {
+        return new SessionStore(Path.of(SESSION_DIR));
+    }
+
+    /**
+     * Read the windows of the last session.
+     *
+     * @return the windows, in the order they were saved; empty if no
+     * session was saved
+     * @throws IOException if the session file cannot be read
+     */
+    public List<WindowState> load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(directory.resolve(SESSION_FILE))))) {
+            if (in.readInt() != SESSION_MAGIC) {
+                throw new IOException("Not a session file of this version");
+            }
+            int count = in.readInt();
+            List<WindowState> windows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Path path = Path.of(in.readUTF());
+                boolean table = in.readBoolean();
+                boolean following = in.readBoolean();
+                boolean active = in.readBoolean();
+                int x = in.readInt();
+                int y = in.readInt();
+                int width = in.readInt();
+                int height = in.readInt();
+                Viewport viewport = in.readBoolean()
+                    ? new Viewport(in.readLong(), in.readLong(), in.readInt()) : null;
+                windows.add(new WindowState(path, table, following, active, x, y, width, height, viewport));
+            }
+            return windows;
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Save the open windows and the complete indexes of their files.
+     * Indexes that cannot be written are left out.
+     *
+     * @param windows the open windows
+     * @param indexes the index of each file that has one
+     * @throws IOException if the session file cannot be written
+     */
+    public void save(List<WindowState> windows, Map<Path, PersistentIndex> indexes) throws IOException {
+        Files.createDirectories(directory);
+        Set<Path> kept = new HashSet<>();
+        for (Map.Entry<Path, PersistentIndex> entry : indexes.entrySet()) {
+            Path path = entry.getKey().toAbsolutePath();
+            try {
+                if (saveIndex(path, entry.getValue())) {
+                    kept.add(indexFile(path));
+                }
+            } catch (IOException e) {
+                // The file is scanned again next time
+            }
+        }
+        deleteIndexesExcept(kept);
+        AtomicFile.write(directory.resolve(SESSION_FILE), channel -> {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(SESSION_MAGIC);
+            out.writeInt(windows.size());
+            for (WindowState window : windows) {
+                out.writeUTF(window.path().toAbsolutePath().toString());
+                out.writeBoolean(window.table());
+                out.writeBoolean(window.following());
+                out.writeBoolean(window.active());
+                out.writeInt(window.x());
+                out.writeInt(window.y());
+                out.writeInt(window.width());
+                out.writeInt(window.height());
+                Viewport viewport = window.viewport();
+                out.writeBoolean(viewport != null);
+                if (viewport != null) {
+                    out.writeLong(viewport.top());
+                    out.writeLong(viewport.row());
+                    out.writeInt(viewport.column());
+                }
+            }
+            out.flush();
+        });
+    }
+
+    /**
+     * Give an index the state kept for a file, if the file has not changed
+     * since. Called off the application thread, before the index is run.
+     *
+     * @param path the file
+     * @param index the new, empty index of the file
+     * @return true if the index was restored; false leaves it empty
+     */
+    public boolean loadIndex(Path path, PersistentIndex index) {
+        Path absolute = path.toAbsolutePath();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(indexFile(absolute))))) {
+            if (!readHeader(in, absolute, index.signature()).equals(FileStamp.of(absolute))) {
+                return false;
+            }
+            index.readFrom(in);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Write the index of a file unless the one already kept is still
+     * current.
+     *
+     * @return false if the index does not cover the file as it is now
+     */
+    private boolean saveIndex(Path path, PersistentIndex index) throws IOException {
+        if (!index.isComplete()) {
+            return false;
+        }
+        FileStamp stamp = FileStamp.of(path);
+        if (stamp.size() != index.getIndexedLimit()) {
+            return false;
+        }
+        Path file = indexFile(path);
+        if (stamp.equals(keptStamp(file, path, index.signature()))) {
+            return true;
+        }
+        AtomicFile.write(file, channel -> {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(INDEX_MAGIC);
+            out.writeUTF(path.toString());
+            out.writeUTF(index.signature());
+            stamp.writeTo(out);
+            index.writeTo(out);
+            out.flush();
+        });
+        return true;
+    }
+
+    private static FileStamp keptStamp(Path file, Path path, String signature) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return readHeader(in, path, signature);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static FileStamp readHeader(DataInputStream in, Path path, String signature) throws IOException {
+        if (in.readInt() != INDEX_MAGIC || !in.readUTF().equals(path.toString())
+            || !in.readUTF().equals(signature)) {
+            throw new IOException("Index was kept for another file or format");
+        }
+        return FileStamp.readFrom(in);
+    }
+
+    private void deleteIndexesExcept(Set<Path> kept) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + INDEX_SUFFIX)) {
+            for (Path file : files) {
+                if (!kept.contains(file)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private Path indexFile(Path path) {
+        String name = UUID.nameUUIDFromBytes(path.toString().getBytes(StandardCharsets.UTF_8)).toString();
+        return directory.resolve(name + INDEX_SUFFIX);
+    }
+}
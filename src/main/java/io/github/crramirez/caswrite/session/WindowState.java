@@ -0,0 +1,38 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.session;
+
+import java.nio.file.Path;
+
+/**
+ * A window of a saved session.
+ *
+ * @param path the file shown in the window
+ * @param table true if the file was shown as a table
+ * @param following true if the file was followed as it grew
+ * @param active true for the window that was active
+ * @param x column of the left edge
+ * @param y row of the top edge
+ * @param width width in columns
+ * @param height height in rows
+ * @param viewport the part of the file shown, or null if the window
+ * cannot show it again
+ */
+public record WindowState(Path path, boolean table, boolean following, boolean active,
+                          int x, int y, int width, int height, Viewport viewport) {
+}
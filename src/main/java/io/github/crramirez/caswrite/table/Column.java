@@ -0,0 +1,457 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * One column of a {@link ColumnarTableModel}, stored as a primitive array
+ * of its inferred type. Values are formatted to text only when a cell is
+ * shown. Empty cells are recorded as nulls.
+ */
+public abstract class Column {
+
+    /**
+     * Type inferred for the values of a column.
+     */
+    public enum Type {
+        /** Integers that fit in a long */
+        LONG,
+        /** Decimal numbers */
+        DOUBLE,
+        /** true/false values */
+        BOOLEAN,
+        /** ISO-8601 dates (yyyy-MM-dd) */
+        DATE,
+        /** Any other text, dictionary-encoded */
+        STRING
+    }
+
+    // Approximate heap taken by a String besides its characters
+    static final int STRING_OVERHEAD = 40;
+
+    private final String name;
+    private final int size;
+    private final BitSet nulls;
+
+    private Column(String name, int size, BitSet nulls) {
+        this.name = name;
+        this.size = size;
+        this.nulls = nulls;
+    }
+
+    /**
+     * Get the name of the column from the header record.
+     *
+     * @return the column name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of values in the column.
+     *
+     * @return the row count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check whether a cell is empty.
+     *
+     * @param row zero-based row number
+     * @return true if the cell has no value
+     */
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    /**
+     * Get the type of the values.
+     *
+     * @return the column type
+     */
+    public abstract Type getType();
+
+    /**
+     * Estimate the heap held by the values of the column.
+     *
+     * @return the estimate in bytes
+     */
+    public long estimateHeapBytes() {
+        return nulls.size() / 8;
+    }
+
+    /**
+     * Estimate the heap held by a string of Latin-1 text.
+     *
+     * @param text the string
+     * @return the estimate in bytes
+     */
+    static long estimateHeapBytes(String text) {
+        return STRING_OVERHEAD + text.length();
+    }
+
+    /**
+     * Format a cell for display.
+     *
+     * @param row zero-based row number
+     * @return the cell text, empty for nulls
+     */
+    public String format(int row) {
+        return isNull(row) ? "" : formatValue(row);
+    }
+
+    /**
+     * Format a cell that is known not to be null.
+     *
+     * @param row zero-based row number
+     * @return the cell text
+     */
+    abstract String formatValue(int row);
+
+    /**
+     * Write the column to a spill file.
+     *
+     * @param out the spill file
+     * @throws IOException if writing fails
+     */
+    void writeTo(ColumnSpill.Output out) throws IOException {
+        out.writeInt(getType().ordinal());
+        out.writeString(name);
+        out.writeInt(size);
+        out.writeLongs(nulls.toLongArray());
+        writeValues(out);
+    }
+
+    /**
+     * Write what is specific to the type of the column.
+     *
+     * @param out the spill file
+     * @throws IOException if writing fails
+     */
+    abstract void writeValues(ColumnSpill.Output out) throws IOException;
+
+    /**
+     * Read a column written by {@link #writeTo}.
+     *
+     * @param in the spill file
+     * @return the column
+     * @throws IOException if reading fails
+     */
+    static Column readFrom(ColumnSpill.Input in) throws IOException {
+        Type type = Type.values()[in.readInt()];
+        String name = in.readString();
+        int size = in.readInt();
+        BitSet nulls = BitSet.valueOf(in.readLongs());
+        return switch (type) {
+            case LONG -> new LongColumn(name, in.readLongs(), nulls);
+            case DOUBLE -> {
+                int scale = in.readInt();
+                yield new DoubleColumn(name, in.readDoubles(), nulls, scale);
+            }
+            case BOOLEAN -> {
+                boolean upperCase = in.readInt() != 0;
+                yield new BooleanColumn(name, size, BitSet.valueOf(in.readLongs()), nulls, upperCase);
+            }
+            case DATE -> new DateColumn(name, in.readInts(), nulls);
+            case STRING -> {
+                String[] dictionary = new String[in.readInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = in.readString();
+                }
+                yield new StringColumn(name, in.readInts(), nulls, Arrays.asList(dictionary));
+            }
+        };
+    }
+
+    /**
+     * Integer column.
+     */
+    public static final class LongColumn extends Column {
+        private final long[] values;
+
+        LongColumn(String name, long[] values, BitSet nulls) {
+            super(name, values.length, nulls);
+            this.values = values;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.LONG;
+        }
+
+        @Override
+        public long estimateHeapBytes() {
+            return super.estimateHeapBytes() + values.length * 8L;
+        }
+
+        /**
+         * Get a value.
+         *
+         * @param row zero-based row number
+         * @return the value, 0 for nulls
+         */
+        public long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        String formatValue(int row) {
+            return Long.toString(values[row]);
+        }
+
+        @Override
+        void writeValues(ColumnSpill.Output out) throws IOException {
+            out.writeLongs(values);
+        }
+    }
+
+    /**
+     * Decimal column. Values are shown with the largest number of
+     * fraction digits found in the file, or in Java's default notation if
+     * any value used an exponent.
+     */
+    public static final class DoubleColumn extends Column {
+        private final double[] values;
+        private final int scale;
+
+        DoubleColumn(String name, double[] values, BitSet nulls, int scale) {
+            super(name, values.length, nulls);
+            this.values = values;
+            this.scale = scale;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.DOUBLE;
+        }
+
+        @Override
+        public long estimateHeapBytes() {
+            return super.estimateHeapBytes() + values.length * 8L;
+        }
+
+        /**
+         * Get a value.
+         *
+         * @param row zero-based row number
+         * @return the value, 0 for nulls
+         */
+        public double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        String formatValue(int row) {
+            double value = values[row];
+            if (scale < 0 || Double.isNaN(value) || Double.isInfinite(value)) {
+                return Double.toString(value);
+            }
+            return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_EVEN).toPlainString();
+        }
+
+        @Override
+        void writeValues(ColumnSpill.Output out) throws IOException {
+            out.writeInt(scale);
+            out.writeDoubles(values);
+        }
+    }
+
+    /**
+     * Boolean column, kept as a bit set.
+     */
+    public static final class BooleanColumn extends Column {
+        private final BitSet values;
+        private final boolean upperCase;
+
+        BooleanColumn(String name, int size, BitSet values, BitSet nulls, boolean upperCase) {
+            super(name, size, nulls);
+            this.values = values;
+            this.upperCase = upperCase;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.BOOLEAN;
+        }
+
+        @Override
+        public long estimateHeapBytes() {
+            return super.estimateHeapBytes() + values.size() / 8;
+        }
+
+        /**
+         * Get a value.
+         *
+         * @param row zero-based row number
+         * @return the value, false for nulls
+         */
+        public boolean getBoolean(int row) {
+            return values.get(row);
+        }
+
+        @Override
+        String formatValue(int row) {
+            if (upperCase) {
+                return values.get(row) ? "TRUE" : "FALSE";
+            }
+            return values.get(row) ? "true" : "false";
+        }
+
+        @Override
+        void writeValues(ColumnSpill.Output out) throws IOException {
+            out.writeInt(upperCase ? 1 : 0);
+            out.writeLongs(values.toLongArray());
+        }
+    }
+
+    /**
+     * Date column, kept as days since the epoch.
+     */
+    public static final class DateColumn extends Column {
+        private final int[] days;
+
+        DateColumn(String name, int[] days, BitSet nulls) {
+            super(name, days.length, nulls);
+            this.days = days;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.DATE;
+        }
+
+        @Override
+        public long estimateHeapBytes() {
+            return super.estimateHeapBytes() + days.length * 4L;
+        }
+
+        /**
+         * Get a value as days since 1970-01-01.
+         *
+         * @param row zero-based row number
+         * @return the epoch day, 0 for nulls
+         */
+        public int getEpochDay(int row) {
+            return days[row];
+        }
+
+        @Override
+        String formatValue(int row) {
+            return LocalDate.ofEpochDay(days[row]).toString();
+        }
+
+        @Override
+        void writeValues(ColumnSpill.Output out) throws IOException {
+            out.writeInts(days);
+        }
+    }
+
+    /**
+     * Text column. Each distinct value is stored once and rows refer to it
+     * by code, so repeated categories cost four bytes per row.
+     */
+    public static final class StringColumn extends Column {
+        private final int[] codes;
+        private final String[] dictionary;
+        private final long dictionaryBytes;
+
+        StringColumn(String name, int[] codes, BitSet nulls, List<String> dictionary) {
+            super(name, codes.length, nulls);
+            this.codes = codes;
+            this.dictionary = dictionary.toArray(new String[0]);
+            long bytes = this.dictionary.length * 4L;
+            for (String value : this.dictionary) {
+                bytes += value == null ? 0 : estimateHeapBytes(value);
+            }
+            this.dictionaryBytes = bytes;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.STRING;
+        }
+
+        @Override
+        public long estimateHeapBytes() {
+            return super.estimateHeapBytes() + codes.length * 4L + dictionaryBytes;
+        }
+
+        /**
+         * Get the dictionary code of a value. Equal values have equal codes.
+         *
+         * @param row zero-based row number
+         * @return the code, 0 for nulls
+         */
+        public int getCode(int row) {
+            return codes[row];
+        }
+
+        /**
+         * Get the number of distinct values.
+         *
+         * @return the dictionary size
+         */
+        public int getDistinctCount() {
+            return dictionary.length;
+        }
+
+        /**
+         * Get the value a dictionary code stands for.
+         *
+         * @param code a code between 0 and {@link #getDistinctCount()}
+         * @return the value
+         */
+        public String getDictionaryValue(int code) {
+            return dictionary[code];
+        }
+
+        /**
+         * Get a value.
+         *
+         * @param row zero-based row number
+         * @return the value, null for nulls
+         */
+        public String getString(int row) {
+            return isNull(row) ? null : dictionary[codes[row]];
+        }
+
+        @Override
+        String formatValue(int row) {
+            return dictionary[codes[row]];
+        }
+
+        @Override
+        void writeValues(ColumnSpill.Output out) throws IOException {
+            out.writeInt(dictionary.length);
+            for (String value : dictionary) {
+                out.writeString(value);
+            }
+            out.writeInts(codes);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds one {@link Column} in two passes over the data. The first pass
+ * sees every value and narrows down the types they all fit; the second
+ * pass, knowing the type and the row count, stores each value in a
+ * primitive array of exactly the right size.
+ *
+ * Numbers with leading zeros or more digits than a double holds exactly
+ * are kept as text, so postal codes and long identifiers are shown exactly
+ * as written.
+ */
+final class ColumnBuilder {
+
+    // Longest run of digits that always fits in a long
+    private static final int MAX_LONG_DIGITS = 18;
+
+    // Significant digits a double always reproduces exactly
+    private static final int MAX_DOUBLE_DIGITS = 15;
+
+    private final String name;
+
+    private boolean seenValue;
+    private boolean canLong = true;
+    private boolean canDouble = true;
+    private boolean canBoolean = true;
+    private boolean canDate = true;
+    // Largest number of fraction digits, or -1 once a value used an exponent
+    private int scale;
+    // 0 until a boolean is seen, then 1 for lower case or 2 for upper case
+    private int booleanCase;
+
+    private Column.Type type;
+    private int rows;
+    private BitSet nulls;
+    private long[] longs;
+    private double[] doubles;
+    private BitSet booleans;
+    private int[] ints;
+    private Map<String, Integer> codes;
+    private List<String> dictionary;
+
+    /**
+     * Create a builder.
+     *
+     * @param name the column name
+     */
+    ColumnBuilder(String name) {
+        this.name = name;
+    }
+
+    /**
+     * First pass: take a value into account for type inference.
+     *
+     * @param value the cell text
+     */
+    void observe(String value) {
+        if (value.isEmpty()) {
+            return;
+        }
+        seenValue = true;
+        if (canLong && !isLong(value)) {
+            canLong = false;
+        }
+        if (canDouble) {
+            int digits = decimalScale(value);
+            if (digits == Integer.MIN_VALUE) {
+                canDouble = false;
+            } else if (scale >= 0) {
+                scale = digits < 0 ? -1 : Math.max(scale, digits);
+            }
+        }
+        if (canBoolean) {
+            int valueCase = booleanCase(value);
+            if (valueCase == 0 || (booleanCase != 0 && valueCase != booleanCase)) {
+                canBoolean = false;
+            } else {
+                booleanCase = valueCase;
+            }
+        }
+        if (canDate && parseDate(value) == null) {
+            canDate = false;
+        }
+    }
+
+    /**
+     * Start the second pass: fix the type and allocate storage.
+     *
+     * @param rowCount the number of rows seen in the first pass
+     */
+    void allocate(int rowCount) {
+        rows = rowCount;
+        nulls = new BitSet();
+        if (!seenValue) {
+            type = Column.Type.STRING;
+        } else if (canLong) {
+            type = Column.Type.LONG;
+        } else if (canDouble) {
+            type = Column.Type.DOUBLE;
+        } else if (canBoolean) {
+            type = Column.Type.BOOLEAN;
+        } else if (canDate) {
+            type = Column.Type.DATE;
+        } else {
+            type = Column.Type.STRING;
+        }
+        switch (type) {
+            case LONG -> longs = new long[rowCount];
+            case DOUBLE -> doubles = new double[rowCount];
+            case BOOLEAN -> booleans = new BitSet(rowCount);
+            case DATE -> ints = new int[rowCount];
+            case STRING -> {
+                ints = new int[rowCount];
+                codes = new HashMap<>();
+                dictionary = new ArrayList<>();
+            }
+        }
+    }
+
+    /**
+     * Second pass: store a value. Rows that are never set are null.
+     *
+     * @param row zero-based row number
+     * @param value the cell text
+     */
+    void set(int row, String value) {
+        if (value.isEmpty()) {
+            nulls.set(row);
+            return;
+        }
+        switch (type) {
+            case LONG -> longs[row] = Long.parseLong(value);
+            case DOUBLE -> doubles[row] = Double.parseDouble(value);
+            case BOOLEAN -> booleans.set(row, value.equalsIgnoreCase("true"));
+            case DATE -> ints[row] = (int) parseDate(value).toEpochDay();
+            case STRING -> {
+                Integer code = codes.get(value);
+                if (code == null) {
+                    code = dictionary.size();
+                    codes.put(value, code);
+                    dictionary.add(value);
+                }
+                ints[row] = code;
+            }
+        }
+    }
+
+    /**
+     * Mark a row as null, for records with fewer fields than the header.
+     *
+     * @param row zero-based row number
+     */
+    void setNull(int row) {
+        nulls.set(row);
+    }
+
+    /**
+     * Finish the column.
+     *
+     * @return the column
+     */
+    Column build() {
+        return switch (type) {
+            case LONG -> new Column.LongColumn(name, longs, nulls);
+            case DOUBLE -> new Column.DoubleColumn(name, doubles, nulls, scale);
+            case BOOLEAN -> new Column.BooleanColumn(name, rows, booleans, nulls, booleanCase == 2);
+            case DATE -> new Column.DateColumn(name, ints, nulls);
+            case STRING -> new Column.StringColumn(name, ints, nulls, dictionary);
+        };
+    }
+
+    private static boolean isLong(String value) {
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        int digits = value.length() - start;
+        if (digits < 1 || digits > MAX_LONG_DIGITS) {
+            return false;
+        }
+        if (value.charAt(start) == '0' && (digits > 1 || start == 1)) {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check a decimal number of the form -12.345 or 1.5e-3.
+     *
+     * @return the number of fraction digits, -1 if the value has an
+     * exponent, or Integer.MIN_VALUE if it is not a decimal number
+     */
+    private static int decimalScale(String value) {
+        int i = value.charAt(0) == '-' ? 1 : 0;
+        int length = value.length();
+        int integerStart = i;
+        while (i < length && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+            i++;
+        }
+        int integerDigits = i - integerStart;
+        if (integerDigits == 0 || (integerDigits > 1 && value.charAt(integerStart) == '0')) {
+            return Integer.MIN_VALUE;
+        }
+        int fraction = 0;
+        if (i < length && value.charAt(i) == '.') {
+            i++;
+            int fractionStart = i;
+            while (i < length && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+                i++;
+            }
+            fraction = i - fractionStart;
+            if (fraction == 0) {
+                return Integer.MIN_VALUE;
+            }
+        }
+        if (integerDigits + fraction > MAX_DOUBLE_DIGITS) {
+            return Integer.MIN_VALUE;
+        }
+        if (i == length) {
+            return fraction;
+        }
+        if (value.charAt(i) != 'e' && value.charAt(i) != 'E') {
+            return Integer.MIN_VALUE;
+        }
+        i++;
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        int exponentStart = i;
+        while (i < length && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+            i++;
+        }
+        return i == length && i > exponentStart ? -1 : Integer.MIN_VALUE;
+    }
+
+    private static int booleanCase(String value) {
+        if (value.equals("true") || value.equals("false")) {
+            return 1;
+        }
+        if (value.equals("TRUE") || value.equals("FALSE")) {
+            return 2;
+        }
+        return 0;
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+}
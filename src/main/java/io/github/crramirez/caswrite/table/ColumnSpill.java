@@ -0,0 +1,264 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import io.github.crramirez.caswrite.compress.SpillFile;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact on-disk copy of the columns of a {@link ColumnarTableModel}, so
+ * they can be dropped from the heap and read back later.
+ *
+ * Each column is written as its primitive arrays, in native byte order and
+ * through a direct buffer, so both directions are bulk copies: reading a
+ * column back costs about as much as reading its bytes from disk, far less
+ * than parsing the file again.
+ */
+final class ColumnSpill {
+
+    // Size of the buffer between the arrays and the file
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private ColumnSpill() {
+    }
+
+    /**
+     * Write columns to a new spill file.
+     *
+     * @param columns the columns
+     * @return the spill file, which the caller must discard
+     * @throws IOException if the file cannot be written; no file is left
+     * behind
+     */
+    static Path write(Column[] columns) throws IOException {
+        Path spill = SpillFile.create("columns.bin");
+        boolean written = false;
+        try (Output out = new Output(FileChannel.open(spill, StandardOpenOption.WRITE))) {
+            for (Column column : columns) {
+                column.writeTo(out);
+            }
+            written = true;
+        } finally {
+            if (!written) {
+                SpillFile.discard(spill);
+            }
+        }
+        return spill;
+    }
+
+    /**
+     * Read columns back from a spill file.
+     *
+     * @param spill the file written by {@link #write(Column[])}
+     * @param count the number of columns written
+     * @return the columns
+     * @throws IOException if the file cannot be read
+     */
+    static Column[] read(Path spill, int count) throws IOException {
+        try (Input in = new Input(FileChannel.open(spill, StandardOpenOption.READ))) {
+            Column[] columns = new Column[count];
+            for (int i = 0; i < count; i++) {
+                columns[i] = Column.readFrom(in);
+            }
+            return columns;
+        }
+    }
+
+    /**
+     * Buffered writer of primitives and primitive arrays.
+     */
+    static final class Output implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.nativeOrder());
+
+        private Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeInt(int value) throws IOException {
+            room(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            for (int offset = 0; offset < bytes.length; ) {
+                room(1);
+                int count = Math.min(bytes.length - offset, buffer.remaining());
+                buffer.put(bytes, offset, count);
+                offset += count;
+            }
+        }
+
+        void writeLongs(long[] values) throws IOException {
+            writeInt(values.length);
+            for (int offset = 0; offset < values.length; ) {
+                room(Long.BYTES);
+                int count = Math.min(values.length - offset, buffer.remaining() / Long.BYTES);
+                buffer.asLongBuffer().put(values, offset, count);
+                buffer.position(buffer.position() + count * Long.BYTES);
+                offset += count;
+            }
+        }
+
+        void writeDoubles(double[] values) throws IOException {
+            writeInt(values.length);
+            for (int offset = 0; offset < values.length; ) {
+                room(Double.BYTES);
+                int count = Math.min(values.length - offset, buffer.remaining() / Double.BYTES);
+                buffer.asDoubleBuffer().put(values, offset, count);
+                buffer.position(buffer.position() + count * Double.BYTES);
+                offset += count;
+            }
+        }
+
+        void writeInts(int[] values) throws IOException {
+            writeInt(values.length);
+            for (int offset = 0; offset < values.length; ) {
+                room(Integer.BYTES);
+                int count = Math.min(values.length - offset, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().put(values, offset, count);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                offset += count;
+            }
+        }
+
+        private void room(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (channel) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Buffered reader of what an {@link Output} wrote.
+     */
+    static final class Input implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.nativeOrder());
+
+        private Input(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        int readInt() throws IOException {
+            fill(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        String readString() throws IOException {
+            int length = readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            for (int offset = 0; offset < length; ) {
+                fill(1);
+                int count = Math.min(length - offset, buffer.remaining());
+                buffer.get(bytes, offset, count);
+                offset += count;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        long[] readLongs() throws IOException {
+            long[] values = new long[readInt()];
+            for (int offset = 0; offset < values.length; ) {
+                fill(Long.BYTES);
+                int count = Math.min(values.length - offset, buffer.remaining() / Long.BYTES);
+                buffer.asLongBuffer().get(values, offset, count);
+                buffer.position(buffer.position() + count * Long.BYTES);
+                offset += count;
+            }
+            return values;
+        }
+
+        double[] readDoubles() throws IOException {
+            double[] values = new double[readInt()];
+            for (int offset = 0; offset < values.length; ) {
+                fill(Double.BYTES);
+                int count = Math.min(values.length - offset, buffer.remaining() / Double.BYTES);
+                buffer.asDoubleBuffer().get(values, offset, count);
+                buffer.position(buffer.position() + count * Double.BYTES);
+                offset += count;
+            }
+            return values;
+        }
+
+        int[] readInts() throws IOException {
+            int[] values = new int[readInt()];
+            for (int offset = 0; offset < values.length; ) {
+                fill(Integer.BYTES);
+                int count = Math.min(values.length - offset, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().get(values, offset, count);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                offset += count;
+            }
+            return values;
+        }
+
+        // Make at least this many bytes available in the buffer
+        private void fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Spill file is truncated");
+                }
+            }
+            buffer.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+/**
+ * Summary statistics of the cells of one column: count, nulls, sum, min,
+ * max, mean and an approximate distinct count.
+ *
+ * Numeric cells feed the sum, mean and numeric range; other cells feed a
+ * text range, which for ISO dates is also chronological. Statistics over
+ * parts of a column can be merged, which is how they are computed in
+ * parallel. Rows added or removed later update them with {@link #add} and
+ * {@link #remove}, and edited cells with {@link #replace(String, String)},
+ * instead of a full recomputation.
+ *
+ * Adding values is not thread-safe. {@link #merge} and {@link #copy} are
+ * synchronized, so a computation merging partial results can be watched
+ * while it runs.
+ */
+public final class ColumnStatistics {
+
+    private long nulls;
+    private long numbers;
+    private long texts;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private String minText;
+    private String maxText;
+    private boolean rangeStale;
+    private HyperLogLog distinct = new HyperLogLog();
+
+    /**
+     * Add a cell.
+     *
+     * @param value the cell text, empty for a missing value
+     */
+    public void add(String value) {
+        if (value.isEmpty()) {
+            addNull();
+            return;
+        }
+        double number = RowFilter.parseNumber(value);
+        accept(value, number, Double.isNaN(number) ? HyperLogLog.hash(value) : HyperLogLog.hash(number));
+    }
+
+    /**
+     * Add a missing value.
+     */
+    public void addNull() {
+        nulls++;
+    }
+
+    /**
+     * Add a numeric cell.
+     *
+     * @param value the number
+     */
+    public void addNumber(double value) {
+        numbers++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        distinct.add(HyperLogLog.hash(value));
+    }
+
+    /**
+     * Add a cell whose number and hash are already known.
+     *
+     * @param text the cell text
+     * @param number the cell as a number, NaN if it is not one
+     * @param hash the hash of the value
+     */
+    void accept(String text, double number, long hash) {
+        if (Double.isNaN(number)) {
+            texts++;
+            if (minText == null || text.compareTo(minText) < 0) {
+                minText = text;
+            }
+            if (maxText == null || text.compareTo(maxText) > 0) {
+                maxText = text;
+            }
+            distinct.add(hash);
+        } else {
+            addNumber(number);
+        }
+    }
+
+    /**
+     * Update the statistics after a cell was edited. Counts, sum and mean
+     * stay exact. If the old value was the minimum or maximum, the range
+     * can no longer be trusted and {@link #isRangeStale()} turns true. The
+     * distinct count only grows, since the old value may still occur
+     * elsewhere.
+     *
+     * @param oldValue the previous cell text
+     * @param newValue the new cell text
+     */
+    public void replace(String oldValue, String newValue) {
+        remove(oldValue);
+        add(newValue);
+    }
+
+    /**
+     * Remove a cell counted before, such as that of a deleted row. Counts,
+     * sum and mean stay exact; the range and distinct count behave as in
+     * {@link #replace(String, String)}.
+     *
+     * @param value the cell text, empty for a missing value
+     */
+    public void remove(String value) {
+        if (value.isEmpty()) {
+            nulls--;
+            return;
+        }
+        double number = RowFilter.parseNumber(value);
+        if (Double.isNaN(number)) {
+            texts--;
+            if (value.equals(minText) || value.equals(maxText)) {
+                rangeStale = true;
+            }
+        } else {
+            numbers--;
+            sum -= number;
+            if (number == min || number == max) {
+                rangeStale = true;
+            }
+        }
+    }
+
+    /**
+     * Add the statistics of another part of the column.
+     *
+     * @param other statistics over rows not counted here yet
+     */
+    public synchronized void merge(ColumnStatistics other) {
+        nulls += other.nulls;
+        numbers += other.numbers;
+        texts += other.texts;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        if (other.minText != null && (minText == null || other.minText.compareTo(minText) < 0)) {
+            minText = other.minText;
+        }
+        if (other.maxText != null && (maxText == null || other.maxText.compareTo(maxText) > 0)) {
+            maxText = other.maxText;
+        }
+        rangeStale |= other.rangeStale;
+        distinct.merge(other.distinct);
+    }
+
+    /**
+     * Take a consistent copy.
+     *
+     * @return an independent copy of the statistics
+     */
+    public synchronized ColumnStatistics copy() {
+        ColumnStatistics copy = new ColumnStatistics();
+        copy.merge(this);
+        return copy;
+    }
+
+    /**
+     * Get the number of cells counted, including missing values.
+     *
+     * @return the row count
+     */
+    public long getCount() {
+        return nulls + numbers + texts;
+    }
+
+    /**
+     * Get the number of missing values.
+     *
+     * @return the null count
+     */
+    public long getNullCount() {
+        return nulls;
+    }
+
+    /**
+     * Get the number of numeric cells.
+     *
+     * @return the count of numbers
+     */
+    public long getNumericCount() {
+        return numbers;
+    }
+
+    /**
+     * Get the sum of the numeric cells.
+     *
+     * @return the sum, 0 if there are none
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Get the mean of the numeric cells.
+     *
+     * @return the mean, NaN if there are none
+     */
+    public double getMean() {
+        return numbers == 0 ? Double.NaN : sum / numbers;
+    }
+
+    /**
+     * Get the smallest numeric cell.
+     *
+     * @return the minimum, NaN if there are no numbers
+     */
+    public double getMin() {
+        return numbers == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * Get the largest numeric cell.
+     *
+     * @return the maximum, NaN if there are no numbers
+     */
+    public double getMax() {
+        return numbers == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Get the first non-numeric cell in text order.
+     *
+     * @return the smallest text, or null if every cell is a number or null
+     */
+    public String getMinText() {
+        return minText;
+    }
+
+    /**
+     * Get the last non-numeric cell in text order.
+     *
+     * @return the largest text, or null if every cell is a number or null
+     */
+    public String getMaxText() {
+        return maxText;
+    }
+
+    /**
+     * Check whether an edit removed the minimum or maximum, so the range
+     * shown may be wider than the actual one until it is recomputed.
+     *
+     * @return true if the range is out of date
+     */
+    public boolean isRangeStale() {
+        return rangeStale;
+    }
+
+    /**
+     * Estimate the number of distinct non-null values.
+     *
+     * @return the approximate distinct count
+     */
+    public long getDistinctEstimate() {
+        return getCount() == nulls ? 0 : distinct.estimate();
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import casciian.TAction;
+import casciian.TApplication;
+import casciian.TLabel;
+import casciian.TTimer;
+import casciian.TWindow;
+import io.github.crramirez.caswrite.load.LoadProgress;
+
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Non-modal panel with statistics of one column of a table window.
+ *
+ * The statistics are computed in parallel on a background thread; the
+ * panel shows the rows counted so far while that runs, and the final
+ * values once it is done. Closing the panel cancels the computation.
+ *
+ * While the table follows its file, records appended afterwards are added
+ * to the statistics as they arrive, unless the table is sorted or filtered
+ * and does not show them.
+ */
+public class ColumnStatisticsWindow extends TWindow {
+
+    private static final long REFRESH_MILLIS = 200;
+
+    private static final int WIDTH = 44;
+    private static final int HEIGHT = 13;
+
+    // Width of the captions in front of each value
+    private static final int CAPTION_WIDTH = 10;
+
+    private final LargeTableWindow table;
+    private final TableModel source;
+    private final int column;
+    private final LoadProgress progress;
+    private final ColumnStatistics total = new ColumnStatistics();
+    private final TLabel[] lines = new TLabel[8];
+    private final Runnable rowsListener = this::rowsChanged;
+    // Adds appended rows once the computation is done; null when they are not shown
+    private RowTracker tracker;
+    private boolean replaced;
+    private volatile boolean finished;
+    private volatile String error;
+    private TTimer refreshTimer;
+
+    /**
+     * Open the panel for the selected column of a table window and start
+     * computing.
+     *
+     * @param application the application
+     * @param table the table window
+     */
+    public ColumnStatisticsWindow(TApplication application, LargeTableWindow table) {
+        super(application, "Statistics", WIDTH, HEIGHT, CENTERED);
+        TableView view = table.getView().snapshot();
+        this.table = table;
+        this.source = view.getSource();
+        this.column = table.getSelectedColumn();
+        this.progress = LoadProgress.forRows(Path.of(table.getTitle()), "Statistics", view.getRowCount());
+
+        String name = source.getColumnName(column);
+        addLabel(fit((name.isEmpty() ? "Column " + (column + 1) : name)
+            + (view.isFiltered() ? " (filtered)" : ""), WIDTH - 4), 1, 1);
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = addLabel("", 1, i + 3);
+        }
+        if (!view.isSorted() && !view.isFiltered()) {
+            tracker = new RowTracker(source, column, total, view.getRowCount());
+        }
+        table.addRowsListener(rowsListener);
+
+        Thread.ofVirtual().name("CasWrite-Statistics").start(() -> {
+            try {
+                TableOperations.statistics(view, column, progress, total);
+            } catch (CancellationException e) {
+                // Closed before the computation finished
+            } catch (RuntimeException e) {
+                error = e.getMessage();
+            } finally {
+                finished = true;
+            }
+        });
+        refreshTimer = application.addTimer(REFRESH_MILLIS, true, new TAction() {
+            @Override
+            public void DO() {
+                refresh();
+            }
+        });
+    }
+
+    /**
+     * Take in records appended to the followed file, or stop updating if
+     * the file was replaced.
+     */
+    private void rowsChanged() {
+        if (table.getView().getSource() != source) {
+            replaced = true;
+            tracker = null;
+            table.removeRowsListener(rowsListener);
+        }
+        refresh();
+    }
+
+    private void refresh() {
+        boolean done = finished;
+        if (done && error == null && tracker != null) {
+            tracker.update();
+        }
+        ColumnStatistics stats = total.copy();
+        boolean numeric = stats.getNumericCount() > 0;
+        set(0, "Rows", String.format("%,d", stats.getCount()));
+        set(1, "Nulls", String.format("%,d", stats.getNullCount()));
+        set(2, "Sum", numeric ? formatNumber(stats.getSum()) : "-");
+        set(3, "Mean", numeric ? formatNumber(stats.getMean()) : "-");
+        set(4, "Min", numeric ? formatNumber(stats.getMin()) : orDash(stats.getMinText()));
+        set(5, "Max", numeric ? formatNumber(stats.getMax()) : orDash(stats.getMaxText()));
+        set(6, "Distinct", String.format("~%,d", stats.getDistinctEstimate()));
+        if (error != null) {
+            lines[7].setLabel(fit(error, WIDTH - 4));
+        } else if (!done) {
+            lines[7].setLabel(String.format("Computing... %d%%", (int) (progress.getFraction() * 100)));
+        } else if (replaced) {
+            lines[7].setLabel("The file was replaced");
+        } else {
+            lines[7].setLabel(stats.isRangeStale() ? "Min/max may be out of date" : "");
+        }
+        if (done) {
+            stopTimer();
+        }
+        getApplication().doRepaint();
+    }
+
+    private void set(int line, String caption, String value) {
+        String text = caption + ":" + " ".repeat(CAPTION_WIDTH - caption.length() - 1) + value;
+        lines[line].setLabel(fit(text, WIDTH - 4));
+    }
+
+    private void stopTimer() {
+        if (refreshTimer != null) {
+            getApplication().removeTimer(refreshTimer);
+            refreshTimer = null;
+        }
+    }
+
+    /**
+     * Stop the computation when the panel is closed.
+     */
+    @Override
+    public void onClose() {
+        progress.cancel();
+        stopTimer();
+        table.removeRowsListener(rowsListener);
+        super.onClose();
+    }
+
+    /**
+     * Keeps the statistics of a column of a followed table up to date. The
+     * last row counted may have been incomplete and completed since, so
+     * its cell is replaced if it changed; rows after it are added.
+     */
+    static final class RowTracker {
+
+        private final TableModel source;
+        private final int column;
+        private final ColumnStatistics total;
+        private long rows;
+        // The cell of the last row counted, as it was counted
+        private String last;
+
+        /**
+         * Start tracking after the rows counted so far.
+         *
+         * @param source the table
+         * @param column zero-based column number
+         * @param total the statistics of the rows counted so far
+         * @param rows the number of rows counted
+         */
+        RowTracker(TableModel source, int column, ColumnStatistics total, long rows) {
+            this.source = source;
+            this.column = column;
+            this.total = total;
+            this.rows = rows;
+            this.last = rows == 0 ? null : source.getCell(rows - 1, column);
+        }
+
+        /**
+         * Count the changes to the table since the last update.
+         */
+        void update() {
+            if (last != null) {
+                String cell = source.getCell(rows - 1, column);
+                if (!cell.equals(last)) {
+                    total.replace(last, cell);
+                    last = cell;
+                }
+            }
+            for (long count = source.getRowCount(); rows < count; rows++) {
+                last = source.getCell(rows, column);
+                total.add(last);
+            }
+        }
+    }
+
+    /**
+     * Format a statistic: whole numbers with grouping, others with six
+     * significant digits.
+     *
+     * @param value the number
+     * @return the text
+     */
+    static String formatNumber(double value) {
+        if (Double.isNaN(value)) {
+            return "-";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.format("%,d", (long) value);
+        }
+        return String.format("%.6g", value);
+    }
+
+    private static String orDash(String text) {
+        return text == null ? "-" : text;
+    }
+
+    private static String fit(String text, int width) {
+        return text.length() <= width ? text : text.substring(0, width - 3) + "...";
+    }
+}
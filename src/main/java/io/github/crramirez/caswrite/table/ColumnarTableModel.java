@@ -0,0 +1,272 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import io.github.crramirez.caswrite.compress.SpillFile;
+import io.github.crramirez.caswrite.load.LoadProgress;
+import io.github.crramirez.caswrite.text.MappedFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table model holding a whole delimited file in memory, one typed column
+ * at a time.
+ *
+ * Each column is stored as a primitive array of the type inferred for it,
+ * so a numeric cell costs eight bytes instead of a String object, and text
+ * columns store each distinct value once. Cells are formatted to text only
+ * when they are shown.
+ *
+ * The first record of the file provides the column names.
+ *
+ * The columns can be {@linkplain #spill() spilled}: written once to a
+ * compact spill file and dropped from the heap, then read back in bulk the
+ * next time a cell or column is asked for.
+ */
+public final class ColumnarTableModel implements TableModel, Closeable {
+
+    // Records parsed between progress updates and cancellation checks
+    private static final int PROGRESS_INTERVAL = 4096;
+
+    private final Path path;
+    private final String[] names;
+    private final int rowCount;
+    // The values, or null while they are spilled
+    private volatile Column[] columns;
+    // Copy of the columns on disk, written the first time they are spilled
+    private Path spillFile;
+    private boolean closed;
+
+    private ColumnarTableModel(Path path, Column[] columns, int rowCount) {
+        this.path = path;
+        this.columns = columns;
+        this.rowCount = rowCount;
+        this.names = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            names[i] = columns[i].getName();
+        }
+    }
+
+    /**
+     * Read a delimited file into columns. The file is parsed twice: once to
+     * infer the column types and count the rows, then again to fill arrays
+     * of exactly the right type and size. Progress is reported as half of
+     * the file size per pass.
+     *
+     * @param path the file to read
+     * @param format delimiter and quote character
+     * @param progress receives progress and cancellation requests
+     * @return the model
+     * @throws IOException if the file cannot be read or has more rows than
+     * an array can hold
+     */
+    public static ColumnarTableModel load(Path path, CsvFormat format,
+                                          LoadProgress progress) throws IOException {
+        try (MappedFile file = MappedFile.open(path)) {
+            CsvParser parser = new CsvParser(format);
+            List<String> fields = new ArrayList<>();
+            long dataStart = parser.parseRecord(file, CsvParser.bomLength(file), fields);
+            ColumnBuilder[] builders = new ColumnBuilder[fields.size()];
+            for (int i = 0; i < builders.length; i++) {
+                builders[i] = new ColumnBuilder(fields.get(i));
+            }
+            progress.advance(dataStart, 0);
+
+            // First pass: infer types and count rows
+            long size = file.size();
+            long position = dataStart;
+            long reported = dataStart;
+            int rows = 0;
+            while (position < size) {
+                position = parser.parseRecord(file, position, fields);
+                int count = Math.min(fields.size(), builders.length);
+                for (int i = 0; i < count; i++) {
+                    builders[i].observe(fields.get(i));
+                }
+                if (++rows == Integer.MAX_VALUE) {
+                    throw new IOException("Too many rows to hold in memory: " + path);
+                }
+                if (rows % PROGRESS_INTERVAL == 0) {
+                    progress.checkCancelled();
+                    progress.advance((position - reported) / 2, 0);
+                    reported = position;
+                }
+            }
+            progress.advance((size - reported) / 2, 0);
+
+            // Second pass: store the values
+            for (ColumnBuilder builder : builders) {
+                builder.allocate(rows);
+            }
+            position = dataStart;
+            reported = dataStart;
+            for (int row = 0; row < rows; row++) {
+                position = parser.parseRecord(file, position, fields);
+                int count = Math.min(fields.size(), builders.length);
+                for (int i = 0; i < count; i++) {
+                    builders[i].set(row, fields.get(i));
+                }
+                for (int i = count; i < builders.length; i++) {
+                    builders[i].setNull(row);
+                }
+                if ((row + 1) % PROGRESS_INTERVAL == 0) {
+                    progress.checkCancelled();
+                    progress.advance((position - reported) / 2, PROGRESS_INTERVAL);
+                    reported = position;
+                }
+            }
+            progress.advance((size - reported) / 2, rows % PROGRESS_INTERVAL);
+
+            Column[] columns = new Column[builders.length];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = builders[i].build();
+            }
+            return new ColumnarTableModel(path, columns, rows);
+        }
+    }
+
+    /**
+     * Get the file this model was read from.
+     *
+     * @return the path of the file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Get a column with its typed values.
+     *
+     * @param column zero-based column number
+     * @return the column
+     */
+    public Column getColumn(int column) {
+        return columns()[column];
+    }
+
+    @Override
+    public long estimateHeapBytes() {
+        Column[] resident = columns;
+        long bytes = 0;
+        if (resident != null) {
+            for (Column column : resident) {
+                bytes += column.estimateHeapBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Drop the columns from the heap, writing them to a spill file first
+     * unless an earlier spill already did. Columns obtained before stay
+     * usable.
+     *
+     * @throws IOException if the spill file cannot be written; the
+     * columns are kept
+     */
+    @Override
+    public synchronized void spill() throws IOException {
+        if (columns == null || closed) {
+            return;
+        }
+        if (spillFile == null) {
+            spillFile = ColumnSpill.write(columns);
+        }
+        columns = null;
+    }
+
+    /**
+     * Read spilled columns back.
+     *
+     * @throws IOException if the spill file cannot be read
+     */
+    @Override
+    public void restore() throws IOException {
+        if (columns == null) {
+            readBack();
+        }
+    }
+
+    /**
+     * Check whether the columns are spilled.
+     *
+     * @return true if the columns are not on the heap
+     */
+    public boolean isSpilled() {
+        return columns == null;
+    }
+
+    /**
+     * Delete the spill file, if any, and stop spilling.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (spillFile != null) {
+            SpillFile.discard(spillFile);
+            spillFile = null;
+        }
+    }
+
+    private Column[] columns() {
+        Column[] resident = columns;
+        if (resident != null) {
+            return resident;
+        }
+        try {
+            return readBack();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read back the columns of " + path, e);
+        }
+    }
+
+    private synchronized Column[] readBack() throws IOException {
+        if (columns == null) {
+            columns = ColumnSpill.read(spillFile, names.length);
+        }
+        return columns;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return names.length;
+    }
+
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return column < names.length ? names[column] : "";
+    }
+
+    @Override
+    public String getCell(long row, int column) {
+        if (row < 0 || row >= rowCount || column >= names.length) {
+            return "";
+        }
+        return columns()[column].format((int) row);
+    }
+}
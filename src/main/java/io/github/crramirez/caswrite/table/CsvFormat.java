@@ -0,0 +1,76 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Delimiter, quote character and charset of a delimited text file.
+ *
+ * Fields are split on bytes, so the charset must encode ASCII as single
+ * bytes: UTF-8, Latin-1 or Windows-1252 are fine, UTF-16 is not.
+ *
+ * @param delimiter the byte separating fields
+ * @param quote the byte enclosing fields that contain delimiters or newlines
+ * @param charset the charset fields are decoded and encoded with
+ */
+public record CsvFormat(byte delimiter, byte quote, Charset charset) {
+
+    /** Comma-separated values. */
+    public static final CsvFormat CSV = new CsvFormat((byte) ',', (byte) '"');
+
+    /** Tab-separated values. */
+    public static final CsvFormat TSV = new CsvFormat((byte) '\t', (byte) '"');
+
+    /**
+     * Create a UTF-8 format.
+     *
+     * @param delimiter the byte separating fields
+     * @param quote the byte enclosing fields that contain delimiters or
+     * newlines
+     */
+    public CsvFormat(byte delimiter, byte quote) {
+        this(delimiter, quote, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the same format in another charset.
+     *
+     * @param charset the charset
+     * @return the format
+     */
+    public CsvFormat withCharset(Charset charset) {
+        return new CsvFormat(delimiter, quote, charset);
+    }
+
+    /**
+     * Choose a format from a file name: TSV for names ending in .tsv, CSV
+     * otherwise.
+     *
+     * @param filename the file name, may be null
+     * @return the format, never null
+     */
+    public static CsvFormat forFileName(String filename) {
+        if (filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".tsv")) {
+            return TSV;
+        }
+        return CSV;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import io.github.crramirez.caswrite.text.ByteSource;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parser for single records of a delimited text file.
+ *
+ * Fields may be quoted, in which case they can contain delimiters,
+ * newlines and doubled quotes. Records end at a newline outside quotes;
+ * a carriage return before the newline is dropped. A quote only opens a
+ * quoted field at the start of a field; elsewhere it is an ordinary
+ * character. Instances keep a scratch buffer between calls and must not be
+ * shared between threads.
+ *
+ * Scans that only look for the ends of records follow the same rules one
+ * byte at a time with {@link #scan(int, byte, byte, byte)}.
+ */
+public final class CsvParser {
+
+    /** Scan state at the start of a field. */
+    public static final int FIELD_START = 0;
+
+    /** Scan state inside an unquoted field. */
+    public static final int UNQUOTED = 1;
+
+    /** Scan state inside a quoted field. */
+    public static final int QUOTED = 2;
+
+    /** Scan state after a quote inside a quoted field, which either closes it or is doubled. */
+    public static final int QUOTE_IN_QUOTED = 3;
+
+    // UTF-8 byte order mark, which is not part of the first field
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final CsvFormat format;
+    private byte[] field = new byte[256];
+    private int fieldLength;
+
+    /**
+     * Create a parser.
+     *
+     * @param format delimiter and quote character
+     */
+    public CsvParser(CsvFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Parse the record starting at a position.
+     *
+     * @param source the bytes to parse
+     * @param start position of the first byte of the record
+     * @param fields receives the decoded fields; cleared first
+     * @return the position of the next record
+     */
+    public long parseRecord(ByteSource source, long start, List<String> fields) {
+        fields.clear();
+        long size = source.size();
+        long position = start;
+        byte delimiter = format.delimiter();
+        byte quote = format.quote();
+        fieldLength = 0;
+        boolean quoted = false;
+        boolean fieldStart = true;
+
+        while (position < size) {
+            byte b = source.get(position++);
+            if (quoted) {
+                if (b == quote) {
+                    if (position < size && source.get(position) == quote) {
+                        append(quote);
+                        position++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    append(b);
+                }
+            } else if (b == quote && fieldStart) {
+                quoted = true;
+                fieldStart = false;
+            } else if (b == delimiter) {
+                fields.add(takeField(false));
+                fieldStart = true;
+            } else if (b == '\n') {
+                fields.add(takeField(true));
+                return position;
+            } else {
+                append(b);
+                fieldStart = false;
+            }
+        }
+        if (position > start) {
+            fields.add(takeField(true));
+        }
+        return position;
+    }
+
+    /**
+     * Find the end of the record starting at a position without decoding
+     * its fields.
+     *
+     * @param source the bytes to scan
+     * @param start position of the first byte of the record
+     * @param delimiter the delimiter byte
+     * @param quote the quote byte
+     * @return the position of the next record
+     */
+    static long skipRecord(ByteSource source, long start, byte delimiter, byte quote) {
+        long size = source.size();
+        int state = FIELD_START;
+        for (long position = start; position < size; position++) {
+            byte b = source.get(position);
+            state = scan(state, b, delimiter, quote);
+            if (b == '\n' && state == FIELD_START) {
+                return position + 1;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Follow one byte of a record. A newline ends the record exactly when
+     * the state after it is {@link #FIELD_START}.
+     *
+     * @param state the state before the byte, {@link #FIELD_START} at the
+     * start of a record
+     * @param b the byte
+     * @param delimiter the delimiter byte
+     * @param quote the quote byte
+     * @return the state after the byte
+     */
+    public static int scan(int state, byte b, byte delimiter, byte quote) {
+        if (state == QUOTED) {
+            return b == quote ? QUOTE_IN_QUOTED : QUOTED;
+        }
+        if (b == quote && state != UNQUOTED) {
+            // Opens a field, or is the second of a doubled quote
+            return QUOTED;
+        }
+        return b == delimiter || b == '\n' ? FIELD_START : UNQUOTED;
+    }
+
+    /**
+     * Get the length of a UTF-8 byte order mark at the start of a file.
+     *
+     * @param source the file
+     * @return 3 if the file starts with a byte order mark, 0 otherwise
+     */
+    public static int bomLength(ByteSource source) {
+        if (source.size() < BOM.length) {
+            return 0;
+        }
+        for (int i = 0; i < BOM.length; i++) {
+            if (source.get(i) != BOM[i]) {
+                return 0;
+            }
+        }
+        return BOM.length;
+    }
+
+    private void append(byte b) {
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, fieldLength * 2);
+        }
+        field[fieldLength++] = b;
+    }
+
+    private String takeField(boolean endOfRecord) {
+        int length = fieldLength;
+        if (endOfRecord && length > 0 && field[length - 1] == '\r') {
+            length--;
+        }
+        fieldLength = 0;
+        return new String(field, 0, length, format.charset());
+    }
+}
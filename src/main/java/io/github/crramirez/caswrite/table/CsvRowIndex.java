@@ -0,0 +1,265 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import io.github.crramirez.caswrite.session.PersistentIndex;
+import io.github.crramirez.caswrite.text.ByteSource;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sparse record-offset index over a delimited text file.
+ *
+ * The start offset of every {@value #STRIDE}th record is stored, one long
+ * per stride, so seeking to any record costs a lookup plus a scan over at
+ * most {@value #STRIDE} records regardless of the size of the file.
+ * Newlines inside quoted fields do not end a record; fields are quoted
+ * by the rules of {@link CsvParser}. A byte order mark before the first
+ * record is skipped.
+ *
+ * The index is built by {@link #run()}, normally on a background thread,
+ * and can be queried while the build is in progress. When the file grows,
+ * running the index again scans only the new bytes.
+ *
+ * A complete index can be kept with the session and restored before the
+ * index is first run, so reopening the file does not scan it again.
+ */
+public final class CsvRowIndex implements Runnable, PersistentIndex {
+
+    /** Number of records between stored checkpoints. */
+    public static final int STRIDE = 128;
+
+    // Publish progress every this many bytes
+    private static final int PUBLISH_INTERVAL = 1 << 20;
+
+    private final ByteSource source;
+    private final byte delimiter;
+    private final byte quote;
+    // Start of the first record, after any byte order mark
+    private final long start;
+
+    // checkpoints[i] is the start offset of record i * STRIDE
+    private long[] checkpoints = new long[1024];
+
+    // Written only by the building thread, published through the volatiles below
+    private volatile int checkpointCount = 1;
+    private volatile long indexedLimit;
+    private volatile long indexedRecords;
+    private volatile boolean complete;
+    private volatile boolean cancelled;
+
+    // Scan state at indexedLimit, kept so a later run can resume there
+    private long terminatedRecords;
+    private int state = CsvParser.FIELD_START;
+
+    /**
+     * Create an index. Nothing is scanned until {@link #run()} is called.
+     *
+     * @param source the bytes to index
+     * @param format the format of the file
+     */
+    public CsvRowIndex(ByteSource source, CsvFormat format) {
+        this.source = source;
+        this.delimiter = format.delimiter();
+        this.quote = format.quote();
+        this.start = CsvParser.bomLength(source);
+        this.checkpoints[0] = start;
+        this.indexedLimit = start;
+        this.complete = source.size() == start;
+    }
+
+    /**
+     * Scan the part of the file not indexed yet. Returns early if
+     * {@link #cancel()} is called.
+     */
+    @Override
+    public synchronized void run() {
+        long size = source.size();
+        long records = terminatedRecords;
+        long position = indexedLimit;
+        int scanState = state;
+        if (position < size) {
+            complete = false;
+        }
+        while (position < size && !cancelled) {
+            long end = Math.min(size, position + PUBLISH_INTERVAL);
+            for (long i = position; i < end; i++) {
+                byte b = source.get(i);
+                scanState = CsvParser.scan(scanState, b, delimiter, quote);
+                if (b == '\n' && scanState == CsvParser.FIELD_START) {
+                    records++;
+                    if (records % STRIDE == 0) {
+                        addCheckpoint(i + 1);
+                    }
+                }
+            }
+            position = end;
+            state = scanState;
+            terminatedRecords = records;
+            indexedRecords = records;
+            indexedLimit = position;
+        }
+        if (cancelled) {
+            return;
+        }
+        // A last record without a trailing newline, or with an open quote, still counts
+        if (size > start && (state != CsvParser.FIELD_START || source.get(size - 1) != '\n')) {
+            indexedRecords = records + 1;
+        }
+        complete = true;
+    }
+
+    /**
+     * Stop a build in progress.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public String signature() {
+        // The quote and the delimiter decide where records end
+        return "records/" + STRIDE + "/" + (quote & 0xff) + "/" + (delimiter & 0xff);
+    }
+
+    @Override
+    public synchronized void writeTo(DataOutput out) throws IOException {
+        int count = checkpointCount;
+        out.writeLong(indexedLimit);
+        out.writeLong(terminatedRecords);
+        out.writeLong(indexedRecords);
+        out.writeByte(state);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeLong(checkpoints[i]);
+        }
+    }
+
+    @Override
+    public synchronized void readFrom(DataInput in) throws IOException {
+        long limit = in.readLong();
+        long terminated = in.readLong();
+        long records = in.readLong();
+        int scanState = in.readByte();
+        int count = in.readInt();
+        if (limit < start || limit > source.size() || terminated < 0 || records < terminated
+            || records > terminated + 1 || count != terminated / STRIDE + 1
+            || scanState < CsvParser.FIELD_START || scanState > CsvParser.QUOTE_IN_QUOTED) {
+            throw new IOException("Row index does not match the file");
+        }
+        long[] points = new long[Math.max(count, 1024)];
+        for (int i = 0; i < count; i++) {
+            points[i] = in.readLong();
+            if (points[i] > limit || (i == 0 ? points[i] != start : points[i] <= points[i - 1])) {
+                throw new IOException("Row index is corrupt");
+            }
+        }
+        checkpoints = points;
+        checkpointCount = count;
+        state = scanState;
+        terminatedRecords = terminated;
+        indexedRecords = records;
+        indexedLimit = limit;
+        complete = limit == source.size();
+    }
+
+    /**
+     * Estimate the heap held by the checkpoints.
+     *
+     * @return the estimate in bytes
+     */
+    long estimateHeapBytes() {
+        return checkpoints.length * 8L;
+    }
+
+    /**
+     * Check whether the whole file has been indexed.
+     *
+     * @return true once the build has finished
+     */
+    @Override
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Get the fraction of the file indexed so far.
+     *
+     * @return a value between 0 and 1
+     */
+    public double getProgress() {
+        long size = source.size();
+        return size == 0 ? 1.0 : (double) indexedLimit / size;
+    }
+
+    /**
+     * Get the number of bytes indexed so far.
+     *
+     * @return the offset up to which the file has been scanned
+     */
+    @Override
+    public long getIndexedLimit() {
+        return indexedLimit;
+    }
+
+    /**
+     * Get the number of records found so far. Once the index is complete
+     * this is the total number of records in the file.
+     *
+     * @return the number of complete records scanned
+     */
+    public long getRecordCount() {
+        return indexedRecords;
+    }
+
+    /**
+     * Find the start of a record.
+     *
+     * @param record zero-based record number
+     * @return the offset of the first byte of the record, or -1 if the
+     * record has not been indexed yet
+     */
+    public long recordStart(long record) {
+        boolean done = complete;
+        long records = indexedRecords;
+        if (record > records || (done && record == records)) {
+            return -1;
+        }
+        // Read the volatile count first so the array reference is current
+        int count = checkpointCount;
+        long[] points = checkpoints;
+        int index = (int) Math.min(record / STRIDE, count - 1);
+        long position = points[index];
+        for (long i = (long) index * STRIDE; i < record; i++) {
+            position = CsvParser.skipRecord(source, position, delimiter, quote);
+        }
+        return position;
+    }
+
+    private void addCheckpoint(long offset) {
+        int count = checkpointCount;
+        if (count == checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, count * 2);
+        }
+        checkpoints[count] = offset;
+        checkpointCount = count + 1;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import io.github.crramirez.caswrite.text.MappedFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Table model that reads a delimited file directly from a memory mapping.
+ *
+ * Rows are grouped in pages of {@value #PAGE_ROWS}. A page is parsed the
+ * first time one of its rows is requested, found through a sparse
+ * {@link CsvRowIndex}, and kept in a bounded LRU cache. Pages around the
+ * viewport are parsed ahead of time on a background thread. No cell is
+ * materialized unless it is close to what is on screen, so the heap used
+ * does not depend on the size of the file.
+ *
+ * The first record of the file provides the column names. Rows appended
+ * to the file can be taken in with {@link #extend(long)}.
+ */
+public final class CsvTableModel implements TableModel, Closeable {
+
+    /** Number of rows parsed together. */
+    static final int PAGE_ROWS = 256;
+
+    // Pages kept in memory
+    private static final int CACHE_PAGES = 64;
+
+    // Rows parsed ahead of and behind the viewport
+    private static final int PREFETCH_MARGIN = PAGE_ROWS * 2;
+
+    private static final String[][] EMPTY_PAGE = new String[0][];
+
+    private final MappedFile file;
+    private final CsvFormat format;
+    private final CsvRowIndex rowIndex;
+    private final String[] header;
+    private final PageCache cache = new PageCache(CACHE_PAGES);
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "CasWrite-CsvPrefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private CsvTableModel(MappedFile file, CsvFormat format) {
+        this.file = file;
+        this.format = format;
+        this.rowIndex = new CsvRowIndex(file, format);
+        List<String> fields = new ArrayList<>();
+        new CsvParser(format).parseRecord(file, CsvParser.bomLength(file), fields);
+        this.header = fields.toArray(new String[0]);
+    }
+
+    /**
+     * Map a delimited file. The row index is not built; run
+     * {@link #getRowIndex()} on a background thread to populate it.
+     *
+     * @param path the file to open
+     * @param format delimiter and quote character
+     * @return the model
+     * @throws IOException if the file cannot be mapped
+     */
+    public static CsvTableModel open(Path path, CsvFormat format) throws IOException {
+        return new CsvTableModel(MappedFile.open(path), format);
+    }
+
+    /**
+     * Get the file this model reads.
+     *
+     * @return the path of the file
+     */
+    public Path getPath() {
+        return file.getPath();
+    }
+
+    /**
+     * Get the delimiter and quote character of the file.
+     *
+     * @return the format
+     */
+    public CsvFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Map and index rows appended to the file. The last row known before
+     * may have been incomplete, so its page is parsed again when next
+     * shown. Safe to call on a background thread.
+     *
+     * @param size the new size of the file
+     * @throws IOException if the new bytes cannot be mapped
+     */
+    public void extend(long size) throws IOException {
+        long lastRow = Math.max(0, getRowCount() - 1);
+        file.extendTo(size);
+        rowIndex.run();
+        cache.invalidateFrom(lastRow / PAGE_ROWS);
+    }
+
+    /**
+     * Get the record index of the file.
+     *
+     * @return the row index
+     */
+    public CsvRowIndex getRowIndex() {
+        return rowIndex;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return header.length;
+    }
+
+    @Override
+    public long getRowCount() {
+        // The header is record 0
+        return Math.max(0, rowIndex.getRecordCount() - 1);
+    }
+
+    @Override
+    public boolean isRowCountKnown() {
+        return rowIndex.isComplete();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return column < header.length ? header[column] : "";
+    }
+
+    @Override
+    public String getCell(long row, int column) {
+        String[][] page = page(row / PAGE_ROWS);
+        int index = (int) (row % PAGE_ROWS);
+        if (index >= page.length || column >= page[index].length) {
+            return "";
+        }
+        return page[index][column];
+    }
+
+    @Override
+    public long estimateHeapBytes() {
+        return rowIndex.estimateHeapBytes() + cache.estimateHeapBytes();
+    }
+
+    /**
+     * Drop the parsed pages; they are parsed again from the mapped file
+     * when next shown. The row index stays in memory.
+     */
+    @Override
+    public void spill() {
+        cache.invalidateFrom(0);
+    }
+
+    @Override
+    public void prefetch(long firstRow, long lastRow) {
+        long firstPage = Math.max(0, firstRow - PREFETCH_MARGIN) / PAGE_ROWS;
+        long lastPage = (lastRow + PREFETCH_MARGIN) / PAGE_ROWS;
+        for (long page = firstPage; page <= lastPage; page++) {
+            if (!cache.contains(page) && pending.add(page)) {
+                long target = page;
+                prefetcher.execute(() -> {
+                    try {
+                        page(target);
+                    } finally {
+                        pending.remove(target);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Stop indexing and prefetching and release the mapped file.
+     *
+     * @throws IOException if closing the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        rowIndex.cancel();
+        prefetcher.shutdownNow();
+        cache.clear();
+        file.close();
+    }
+
+    /**
+     * Get a page of rows, parsing it if it is not cached.
+     *
+     * @param page zero-based page number
+     * @return the rows of the page, empty if not indexed yet
+     */
+    private String[][] page(long page) {
+        String[][] rows = cache.get(page);
+        if (rows != null) {
+            return rows;
+        }
+        int generation = cache.generation();
+        // Data rows start at record 1, after the header
+        long position = rowIndex.recordStart(1 + page * PAGE_ROWS);
+        if (position < 0) {
+            return EMPTY_PAGE;
+        }
+        CsvParser parser = new CsvParser(format);
+        List<String> fields = new ArrayList<>();
+        List<String[]> parsed = new ArrayList<>(PAGE_ROWS);
+        long size = file.size();
+        while (parsed.size() < PAGE_ROWS && position < size) {
+            position = parser.parseRecord(file, position, fields);
+            parsed.add(fields.toArray(new String[0]));
+        }
+        rows = parsed.toArray(new String[0][]);
+        cache.put(page, rows, generation);
+        return rows;
+    }
+}
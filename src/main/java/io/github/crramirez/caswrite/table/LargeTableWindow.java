@@ -0,0 +1,601 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import casciian.TAction;
+import casciian.TApplication;
+import casciian.TTimer;
+import casciian.TWindow;
+import casciian.bits.CellAttributes;
+import casciian.event.TKeypressEvent;
+import casciian.event.TMouseEvent;
+import io.github.crramirez.caswrite.follow.FileFollower;
+import io.github.crramirez.caswrite.follow.Followable;
+import io.github.crramirez.caswrite.memory.Spillable;
+import io.github.crramirez.caswrite.session.Resumable;
+import io.github.crramirez.caswrite.session.Viewport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static casciian.TKeypress.kbCtrlEnd;
+import static casciian.TKeypress.kbCtrlHome;
+import static casciian.TKeypress.kbDown;
+import static casciian.TKeypress.kbEnd;
+import static casciian.TKeypress.kbHome;
+import static casciian.TKeypress.kbLeft;
+import static casciian.TKeypress.kbPgDn;
+import static casciian.TKeypress.kbPgUp;
+import static casciian.TKeypress.kbRight;
+import static casciian.TKeypress.kbUp;
+
+/**
+ * Read-only table window for files too large to load as cells.
+ *
+ * Only the rows on screen are requested from the {@link TableModel}, so
+ * drawing a frame and jumping to any row cost the same whatever the number
+ * of rows. While the model is still indexing in the background, the
+ * window repaints periodically to show the growing row count.
+ *
+ * Rows are shown through a {@link TableView}, so sorting and filtering
+ * only replace an index; the row numbers on the left stay those of the
+ * file.
+ *
+ * Mapped CSV files can be followed: records appended to the file are
+ * indexed as they arrive and the selection keeps to the last row if it
+ * was there.
+ */
+public class LargeTableWindow extends TWindow implements Spillable, Followable, Resumable {
+
+    // Column widths are fitted to the visible cells within these bounds
+    private static final int MIN_COLUMN_WIDTH = 3;
+    private static final int MAX_COLUMN_WIDTH = 24;
+
+    // Box-drawing vertical line between columns
+    private static final String SEPARATOR = "\u2502";
+
+    // How often to repaint while the row index is being built
+    private static final long INDEX_REFRESH_MILLIS = 250;
+
+    private TableModel model;
+    private TableView view;
+    private TTimer indexTimer;
+    private boolean following;
+    private FileFollower follower;
+    // Row count when last drawn, to tell whether the last row was selected
+    private long lastSeenRows;
+    // Told when followed records are appended or the file is replaced
+    private final List<Runnable> rowsListeners = new ArrayList<>();
+
+    private long topRow;
+    private int leftColumn;
+    private long selectedRow;
+    private int selectedColumn;
+
+    /**
+     * Create a window showing a table model.
+     *
+     * @param application the application
+     * @param title the window title
+     * @param model the rows to show, owned by the window from now on
+     */
+    public LargeTableWindow(TApplication application, String title, TableModel model) {
+        super(application, title, 0, 0,
+            application.getScreen().getWidth(),
+            application.getDesktopBottom() - application.getDesktopTop(), RESIZABLE);
+        this.model = model;
+        this.view = new TableView(model);
+        startIndexTimer();
+    }
+
+    /**
+     * Create a window for a mapped CSV model and start indexing its rows.
+     *
+     * @param application the application
+     * @param model the rows to show, owned by the window from now on
+     */
+    public LargeTableWindow(TApplication application, CsvTableModel model) {
+        this(application, model.getPath().getFileName().toString(), model);
+    }
+
+    /**
+     * Create a window for a mapped CSV model under another name, such as
+     * that of the compressed file it was decompressed from, and start
+     * indexing its rows.
+     *
+     * @param application the application
+     * @param title the window title
+     * @param model the rows to show, owned by the window from now on
+     */
+    public LargeTableWindow(TApplication application, String title, CsvTableModel model) {
+        this(application, title, (TableModel) startIndexing(model));
+    }
+
+    private static CsvTableModel startIndexing(CsvTableModel model) {
+        Thread.ofVirtual().name("CasWrite-CsvIndex").start(model.getRowIndex());
+        return model;
+    }
+
+    /**
+     * Get the model shown in this window.
+     *
+     * @return the table model
+     */
+    public TableModel getModel() {
+        return model;
+    }
+
+    /**
+     * Get the sorted and filtered view of the model shown in this window.
+     *
+     * @return the view
+     */
+    public TableView getView() {
+        return view;
+    }
+
+    /**
+     * Estimate the heap held by the view and its model.
+     *
+     * @return the estimate in bytes
+     */
+    @Override
+    public long estimateHeapBytes() {
+        return view.estimateHeapBytes();
+    }
+
+    /**
+     * Release the rows of the model; the sort order and filter stay.
+     *
+     * @throws IOException if the rows cannot be written out
+     */
+    @Override
+    public void spill() throws IOException {
+        view.spill();
+    }
+
+    @Override
+    public void restore() throws IOException {
+        view.restore();
+    }
+
+    /**
+     * Get the column holding the selected cell.
+     *
+     * @return zero-based column number
+     */
+    public int getSelectedColumn() {
+        return selectedColumn;
+    }
+
+    /**
+     * Get the rows shown and the selected cell. Rows are counted in the
+     * view, which is neither sorted nor filtered in a new session.
+     *
+     * @return the viewport
+     */
+    @Override
+    public Viewport getViewport() {
+        return new Viewport(topRow, selectedRow, selectedColumn);
+    }
+
+    @Override
+    public void setViewport(Viewport viewport) {
+        topRow = Math.max(0, Math.min(viewport.top(), view.getRowCount() - 1));
+        selectRow(viewport.row());
+        selectColumn(viewport.column());
+        getApplication().doRepaint();
+    }
+
+    /**
+     * Show the view again after its sort or filter changed, keeping the
+     * selected column and moving to the first row.
+     */
+    public void viewChanged() {
+        topRow = 0;
+        selectedRow = 0;
+        getApplication().doRepaint();
+    }
+
+    /**
+     * Only mapped CSV files can be followed; other models hold their
+     * rows in memory, and decompressed copies are deleted once mapped.
+     *
+     * @return true if the model maps a file that still exists
+     */
+    @Override
+    public boolean canFollow() {
+        return model instanceof CsvTableModel csv && Files.exists(csv.getPath());
+    }
+
+    /**
+     * Check whether appended records are shown as they arrive.
+     *
+     * @return true while following
+     */
+    @Override
+    public boolean isFollowing() {
+        return following;
+    }
+
+    /**
+     * Start or stop showing records appended to the file. New rows are
+     * indexed on the follower thread; rows hidden by a sort or filter
+     * show up when it is applied again.
+     *
+     * @param following true to follow the file
+     */
+    @Override
+    public void setFollowing(boolean following) {
+        this.following = following && canFollow();
+        stopFollower();
+        if (this.following) {
+            startFollower();
+        }
+        getApplication().doRepaint();
+    }
+
+    /**
+     * Be told, on the UI thread, when records are appended to the followed
+     * file or the file is replaced and the model with it.
+     *
+     * @param listener called after each change
+     */
+    public void addRowsListener(Runnable listener) {
+        rowsListeners.add(listener);
+    }
+
+    /**
+     * Stop telling a listener about changes to the rows.
+     *
+     * @param listener a listener added before
+     */
+    public void removeRowsListener(Runnable listener) {
+        rowsListeners.remove(listener);
+    }
+
+    private void rowsChanged() {
+        List.copyOf(rowsListeners).forEach(Runnable::run);
+    }
+
+    private void startFollower() {
+        CsvTableModel followed = (CsvTableModel) model;
+        try {
+            follower = FileFollower.start(followed.getPath(), followed.getRowIndex().getIndexedLimit(),
+                getApplication()::invokeLater, new FileFollower.Target() {
+                    @Override
+                    public void extend(long size) throws IOException {
+                        followed.extend(size);
+                    }
+
+                    @Override
+                    public void appended(long size) {
+                        showAppended(followed);
+                    }
+
+                    @Override
+                    public void replaced() {
+                        fileReplaced(followed);
+                    }
+
+                    @Override
+                    public void failed(IOException e) {
+                        stopFollowing("Stopped following: " + e.getMessage());
+                    }
+                });
+        } catch (IOException e) {
+            stopFollowing("Cannot follow the file: " + e.getMessage());
+        }
+    }
+
+    private void stopFollower() {
+        if (follower != null) {
+            follower.close();
+            follower = null;
+        }
+    }
+
+    private void stopFollowing(String message) {
+        following = false;
+        stopFollower();
+        getApplication().messageBox("Follow", message);
+    }
+
+    /**
+     * Show records appended to the file, keeping the selection on the
+     * last row if it was there.
+     *
+     * @param followed the model the records were indexed into
+     */
+    private void showAppended(CsvTableModel followed) {
+        if (followed != model) {
+            return;
+        }
+        long rows = view.getRowCount();
+        if (!view.isSorted() && !view.isFiltered() && selectedRow >= lastSeenRows - 1) {
+            selectRow(rows - 1);
+        }
+        lastSeenRows = rows;
+        rowsChanged();
+        getApplication().doRepaint();
+    }
+
+    /**
+     * Map the file again after it was truncated or rotated. The table is
+     * read-only, so nothing can be lost.
+     *
+     * @param followed the model of the replaced file
+     */
+    private void fileReplaced(CsvTableModel followed) {
+        follower = null;
+        CsvTableModel reopened;
+        try {
+            reopened = CsvTableModel.open(followed.getPath(), followed.getFormat());
+        } catch (IOException e) {
+            stopFollowing("'" + getTitle() + "' was replaced and could not be opened again: "
+                + e.getMessage());
+            return;
+        }
+        stopIndexTimer();
+        closeModel();
+        model = startIndexing(reopened);
+        view = new TableView(model);
+        lastSeenRows = 0;
+        topRow = 0;
+        selectedRow = 0;
+        selectColumn(selectedColumn);
+        startIndexTimer();
+        startFollower();
+        rowsChanged();
+        getApplication().doRepaint();
+    }
+
+    private void startIndexTimer() {
+        if (model.isRowCountKnown()) {
+            return;
+        }
+        TableModel indexed = model;
+        indexTimer = getApplication().addTimer(INDEX_REFRESH_MILLIS, true, new TAction() {
+            @Override
+            public void DO() {
+                if (indexed.isRowCountKnown()) {
+                    stopIndexTimer();
+                }
+                getApplication().doRepaint();
+            }
+        });
+    }
+
+    private void stopIndexTimer() {
+        if (indexTimer != null) {
+            getApplication().removeTimer(indexTimer);
+            indexTimer = null;
+        }
+    }
+
+    /**
+     * Release the model when the window closes.
+     */
+    @Override
+    public void onClose() {
+        stopFollower();
+        stopIndexTimer();
+        closeModel();
+        super.onClose();
+    }
+
+    private void closeModel() {
+        if (model instanceof Closeable) {
+            try {
+                ((Closeable) model).close();
+            } catch (IOException e) {
+                // Nothing useful to do while closing
+            }
+        }
+    }
+
+    /**
+     * Handle keystrokes for moving the selected cell.
+     *
+     * @param keypress keystroke event
+     */
+    @Override
+    public void onKeypress(TKeypressEvent keypress) {
+        int pageSize = Math.max(1, visibleRows() - 1);
+        if (keypress.equals(kbUp)) {
+            selectRow(selectedRow - 1);
+        } else if (keypress.equals(kbDown)) {
+            selectRow(selectedRow + 1);
+        } else if (keypress.equals(kbPgUp)) {
+            selectRow(selectedRow - pageSize);
+        } else if (keypress.equals(kbPgDn)) {
+            selectRow(selectedRow + pageSize);
+        } else if (keypress.equals(kbCtrlHome)) {
+            selectRow(0);
+        } else if (keypress.equals(kbCtrlEnd)) {
+            selectRow(view.getRowCount() - 1);
+        } else if (keypress.equals(kbLeft)) {
+            selectColumn(selectedColumn - 1);
+        } else if (keypress.equals(kbRight)) {
+            selectColumn(selectedColumn + 1);
+        } else if (keypress.equals(kbHome)) {
+            selectColumn(0);
+        } else if (keypress.equals(kbEnd)) {
+            selectColumn(view.getColumnCount() - 1);
+        } else {
+            super.onKeypress(keypress);
+        }
+    }
+
+    /**
+     * Handle mouse wheel scrolling.
+     *
+     * @param mouse mouse button event
+     */
+    @Override
+    public void onMouseDown(TMouseEvent mouse) {
+        super.onMouseDown(mouse);
+        if (mouse.isMouseWheelUp()) {
+            selectRow(selectedRow - 3);
+        } else if (mouse.isMouseWheelDown()) {
+            selectRow(selectedRow + 3);
+        }
+    }
+
+    /**
+     * Draw the header and the visible rows.
+     */
+    @Override
+    public void draw() {
+        super.draw();
+
+        int rows = visibleRows();
+        long rowCount = view.getRowCount();
+        lastSeenRows = rowCount;
+        long lastRow = Math.min(rowCount, topRow + rows) - 1;
+        view.prefetch(topRow, topRow + rows);
+
+        CellAttributes cellColor = getTheme().getColor("tlist");
+        CellAttributes selectedColor = getTheme().getColor("tlist.selected");
+        CellAttributes headerColor = getTheme().getColor("tlabel");
+
+        int gutter = gutterWidth(lastRow);
+        int right = getWidth() - 1;
+
+        // Row numbers
+        getScreen().putStringXY(1, 1, " ".repeat(gutter), headerColor);
+        for (int i = 0; i < rows; i++) {
+            long row = topRow + i;
+            String label = row <= lastRow ? Long.toString(view.sourceRow(row) + 1) : "";
+            getScreen().putStringXY(1, i + 2, pad(label, gutter), headerColor);
+        }
+
+        // Columns, left to right until the window is full
+        int x = 1 + gutter;
+        for (int column = leftColumn; column < view.getColumnCount() && x < right; column++) {
+            int width = Math.min(columnWidth(column, lastRow), right - x - 1);
+            if (width <= 0) {
+                break;
+            }
+            getScreen().putStringXY(x, 1, SEPARATOR + fit(view.getColumnName(column), width), headerColor);
+            for (int i = 0; i < rows; i++) {
+                long row = topRow + i;
+                String text = row <= lastRow ? view.getCell(row, column) : "";
+                CellAttributes color = row == selectedRow && column == selectedColumn
+                    ? selectedColor : cellColor;
+                getScreen().putStringXY(x, i + 2, SEPARATOR, cellColor);
+                getScreen().putStringXY(x + 1, i + 2, fit(text, width), color);
+            }
+            x += width + 1;
+        }
+        for (int i = 0; i <= rows && x < right; i++) {
+            getScreen().putStringXY(x, i + 1, " ".repeat(right - x), cellColor);
+        }
+
+        String status = String.format(" %d/%d%s:%d %s%s", selectedRow + 1, rowCount,
+            view.isRowCountKnown() ? "" : "+", selectedColumn + 1,
+            view.isSorted() ? "sorted " : "", view.isFiltered() ? "filtered " : "");
+        if (following) {
+            status += "following ";
+        }
+        if (status.length() < getWidth() - 4) {
+            getScreen().putStringXY(2, getHeight() - 1, status,
+                getTheme().getColor("twindow.border"));
+        }
+    }
+
+    /**
+     * Get the width of the row number column. Sorted and filtered views
+     * show source row numbers, which can be as large as the source row count.
+     *
+     * @param lastRow last visible row
+     * @return the width in characters, including a space
+     */
+    private int gutterWidth(long lastRow) {
+        long largest = view.isSorted() || view.isFiltered() ? model.getRowCount() : lastRow + 1;
+        return Long.toString(Math.max(1, largest)).length() + 1;
+    }
+
+    private int visibleRows() {
+        // One line for the header, two for the border
+        return Math.max(1, getHeight() - 3);
+    }
+
+    private void selectRow(long row) {
+        selectedRow = Math.max(0, Math.min(row, view.getRowCount() - 1));
+        int rows = visibleRows();
+        if (selectedRow < topRow) {
+            topRow = selectedRow;
+        } else if (selectedRow >= topRow + rows) {
+            topRow = selectedRow - rows + 1;
+        }
+    }
+
+    private void selectColumn(int column) {
+        selectedColumn = Math.max(0, Math.min(column, view.getColumnCount() - 1));
+        if (selectedColumn < leftColumn) {
+            leftColumn = selectedColumn;
+        } else {
+            // Scroll right until the selected column fits
+            long lastRow = Math.min(view.getRowCount(), topRow + visibleRows()) - 1;
+            int available = getWidth() - 2 - gutterWidth(lastRow);
+            while (leftColumn < selectedColumn) {
+                int used = 0;
+                for (int c = leftColumn; c <= selectedColumn; c++) {
+                    used += columnWidth(c, lastRow) + 1;
+                }
+                if (used <= available) {
+                    break;
+                }
+                leftColumn++;
+            }
+        }
+    }
+
+    /**
+     * Fit a column to its name and the visible cells.
+     *
+     * @param column the column
+     * @param lastRow last visible row
+     * @return the width in characters, excluding the separator
+     */
+    private int columnWidth(int column, long lastRow) {
+        int width = Math.max(MIN_COLUMN_WIDTH, view.getColumnName(column).length());
+        for (long row = topRow; row <= lastRow && width < MAX_COLUMN_WIDTH; row++) {
+            width = Math.max(width, view.getCell(row, column).length());
+        }
+        return Math.min(width, MAX_COLUMN_WIDTH);
+    }
+
+    private static String fit(String text, int width) {
+        if (text.length() > width) {
+            return text.substring(0, width);
+        }
+        return pad(text, width);
+    }
+
+    private static String pad(String text, int width) {
+        if (text.length() >= width) {
+            return text;
+        }
+        return text + " ".repeat(width - text.length());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded least-recently-used cache of parsed row pages.
+ *
+ * Access is synchronized so pages can be filled by a prefetch thread
+ * while the application thread reads them.
+ */
+final class PageCache {
+
+    private final LinkedHashMap<Long, String[][]> pages;
+    // Incremented whenever cached pages may have become stale
+    private int generation;
+
+    /**
+     * Create a cache.
+     *
+     * @param capacity maximum number of pages to keep
+     */
+    PageCache(int capacity) {
+        this.pages = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String[][]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    synchronized String[][] get(long page) {
+        return pages.get(page);
+    }
+
+    synchronized boolean contains(long page) {
+        return pages.containsKey(page);
+    }
+
+    /**
+     * Get the current generation, to pass to {@link #put} once a page
+     * has been parsed.
+     *
+     * @return the generation
+     */
+    synchronized int generation() {
+        return generation;
+    }
+
+    /**
+     * Cache a page, unless the cache was invalidated since parsing started.
+     *
+     * @param page the page number
+     * @param rows the parsed rows
+     * @param parsedIn the generation read before parsing
+     */
+    synchronized void put(long page, String[][] rows, int parsedIn) {
+        if (parsedIn == generation) {
+            pages.put(page, rows);
+        }
+    }
+
+    /**
+     * Drop a page and every page after it, and any page still being
+     * parsed.
+     *
+     * @param firstPage the first page to drop
+     */
+    synchronized void invalidateFrom(long firstPage) {
+        generation++;
+        pages.keySet().removeIf(page -> page >= firstPage);
+    }
+
+    synchronized void clear() {
+        pages.clear();
+    }
+
+    /**
+     * Estimate the heap held by the cached cells.
+     *
+     * @return the estimate in bytes
+     */
+    synchronized long estimateHeapBytes() {
+        long bytes = 0;
+        for (String[][] page : pages.values()) {
+            for (String[] row : page) {
+                bytes += row.length * 4L;
+                for (String cell : row) {
+                    bytes += Column.estimateHeapBytes(cell);
+                }
+            }
+        }
+        return bytes;
+    }
+}
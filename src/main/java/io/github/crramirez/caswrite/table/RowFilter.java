@@ -0,0 +1,230 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.function.IntPredicate;
+
+/**
+ * Condition on the value of one column, such as {@code price > 10} or
+ * {@code city ~ par}.
+ *
+ * Numbers are compared numerically when both the cell and the operand are
+ * numbers, and as text otherwise. The {@code ~} operator matches cells
+ * containing the operand, ignoring case.
+ */
+public final class RowFilter {
+
+    /**
+     * Comparison applied to each cell.
+     */
+    public enum Operator {
+        /** Cell equals the operand */
+        EQUAL("="),
+        /** Cell differs from the operand */
+        NOT_EQUAL("!="),
+        /** Cell sorts before the operand */
+        LESS("<"),
+        /** Cell sorts before or equals the operand */
+        LESS_OR_EQUAL("<="),
+        /** Cell sorts after the operand */
+        GREATER(">"),
+        /** Cell sorts after or equals the operand */
+        GREATER_OR_EQUAL(">="),
+        /** Cell contains the operand, ignoring case */
+        CONTAINS("~");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * Get the symbol used to write this operator.
+         *
+         * @return the symbol
+         */
+        public String getSymbol() {
+            return symbol;
+        }
+
+        private boolean accept(int comparison) {
+            return switch (this) {
+                case EQUAL -> comparison == 0;
+                case NOT_EQUAL -> comparison != 0;
+                case LESS -> comparison < 0;
+                case LESS_OR_EQUAL -> comparison <= 0;
+                case GREATER -> comparison > 0;
+                case GREATER_OR_EQUAL -> comparison >= 0;
+                case CONTAINS -> throw new IllegalStateException("contains is not a comparison");
+            };
+        }
+    }
+
+    // Two-character operators come first so "<=" is not read as "<"
+    private static final Operator[] PARSE_ORDER = {
+        Operator.NOT_EQUAL, Operator.LESS_OR_EQUAL, Operator.GREATER_OR_EQUAL,
+        Operator.EQUAL, Operator.LESS, Operator.GREATER, Operator.CONTAINS
+    };
+
+    private final int column;
+    private final Operator operator;
+    private final String operand;
+    private final String lowerOperand;
+    // The operand as a number, NaN if it is not one
+    private final double number;
+
+    /**
+     * Create a filter.
+     *
+     * @param column zero-based column number
+     * @param operator the comparison
+     * @param operand the value to compare cells with
+     */
+    public RowFilter(int column, Operator operator, String operand) {
+        this.column = column;
+        this.operator = operator;
+        this.operand = operand;
+        this.lowerOperand = operand.toLowerCase(Locale.ROOT);
+        this.number = parseNumber(operand);
+    }
+
+    /**
+     * Parse a condition of the form {@code column operator value}. The
+     * column is given by name or by one-based number; the value may be
+     * enclosed in double quotes.
+     *
+     * @param text the condition
+     * @param model the table whose columns are named
+     * @return the filter
+     * @throws IllegalArgumentException if the condition cannot be parsed
+     */
+    public static RowFilter parse(String text, TableModel model) {
+        int best = -1;
+        Operator found = null;
+        for (Operator candidate : PARSE_ORDER) {
+            int index = text.indexOf(candidate.getSymbol());
+            if (index > 0 && (best < 0 || index < best)) {
+                best = index;
+                found = candidate;
+            }
+        }
+        if (found == null) {
+            throw new IllegalArgumentException(
+                "Expected a condition such as 'price > 10' or 'city ~ par'");
+        }
+        int column = SortKey.findColumn(text.substring(0, best).trim(), model);
+        String operand = text.substring(best + found.getSymbol().length()).trim();
+        if (operand.length() >= 2 && operand.startsWith("\"") && operand.endsWith("\"")) {
+            operand = operand.substring(1, operand.length() - 1);
+        }
+        return new RowFilter(column, found, operand);
+    }
+
+    /**
+     * Get the column the condition applies to.
+     *
+     * @return zero-based column number
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Check a cell value.
+     *
+     * @param text the cell text, empty for missing values
+     * @return true if the row passes the filter
+     */
+    public boolean test(String text) {
+        if (operator == Operator.CONTAINS) {
+            return text.toLowerCase(Locale.ROOT).contains(lowerOperand);
+        }
+        double value = Double.isNaN(number) ? Double.NaN : parseNumber(text);
+        if (!Double.isNaN(value)) {
+            return operator.accept(Double.compare(value, number));
+        }
+        return operator.accept(text.compareTo(operand));
+    }
+
+    /**
+     * Bind the filter to a table, producing a test by row number. Typed
+     * columns are tested without formatting their values; text columns
+     * test each distinct value once.
+     *
+     * @param model the table
+     * @return a thread-safe test of rows
+     */
+    public IntPredicate bind(TableModel model) {
+        if (model instanceof ColumnarTableModel columnar) {
+            Column values = columnar.getColumn(column);
+            boolean nullMatches = test("");
+            boolean numeric = !Double.isNaN(number) && operator != Operator.CONTAINS;
+            if (values instanceof Column.LongColumn longs && numeric) {
+                return row -> longs.isNull(row) ? nullMatches
+                    : operator.accept(Double.compare(longs.getLong(row), number));
+            }
+            if (values instanceof Column.DoubleColumn doubles && numeric) {
+                return row -> doubles.isNull(row) ? nullMatches
+                    : operator.accept(Double.compare(doubles.getDouble(row), number));
+            }
+            if (values instanceof Column.StringColumn strings) {
+                BitSet matches = new BitSet(strings.getDistinctCount());
+                for (int code = 0; code < strings.getDistinctCount(); code++) {
+                    matches.set(code, test(strings.getDictionaryValue(code)));
+                }
+                return row -> strings.isNull(row) ? nullMatches : matches.get(strings.getCode(row));
+            }
+            return row -> test(values.format(row));
+        }
+        return row -> test(model.getCell(row, column));
+    }
+
+    /**
+     * Get the condition as it would be typed, for status displays.
+     *
+     * @param model the table whose columns are named
+     * @return the condition text
+     */
+    public String describe(TableModel model) {
+        return model.getColumnName(column) + " " + operator.getSymbol() + " " + operand;
+    }
+
+    /**
+     * Parse a cell as a number.
+     *
+     * @param text the cell text
+     * @return the number, or NaN if the text is not a number
+     */
+    static double parseNumber(String text) {
+        if (text.isEmpty()) {
+            return Double.NaN;
+        }
+        char first = text.charAt(0);
+        if (first != '-' && first != '+' && first != '.' && (first < '0' || first > '9')) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One column of a multi-column sort.
+ *
+ * @param column zero-based column number
+ * @param descending true to sort from largest to smallest
+ */
+public record SortKey(int column, boolean descending) {
+
+    /**
+     * Parse a list of sort keys such as {@code "price desc, name"}. Columns
+     * are given by name or by one-based number and sort ascending unless
+     * followed by {@code desc}.
+     *
+     * @param text the keys, separated by commas
+     * @param model the table whose columns are named
+     * @return the keys, most significant first
+     * @throws IllegalArgumentException if a column does not exist
+     */
+    public static List<SortKey> parse(String text, TableModel model) {
+        List<SortKey> keys = new ArrayList<>();
+        for (String part : text.split(",")) {
+            String spec = part.trim();
+            if (spec.isEmpty()) {
+                continue;
+            }
+            boolean descending = false;
+            String lower = spec.toLowerCase(Locale.ROOT);
+            if (lower.endsWith(" desc")) {
+                descending = true;
+                spec = spec.substring(0, spec.length() - 5).trim();
+            } else if (lower.endsWith(" asc")) {
+                spec = spec.substring(0, spec.length() - 4).trim();
+            }
+            keys.add(new SortKey(findColumn(spec, model), descending));
+        }
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("No column to sort by");
+        }
+        return keys;
+    }
+
+    /**
+     * Find a column by name, ignoring case, or by one-based number.
+     *
+     * @param name the column name or number
+     * @param model the table
+     * @return the zero-based column number
+     * @throws IllegalArgumentException if there is no such column
+     */
+    public static int findColumn(String name, TableModel model) {
+        for (int column = 0; column < model.getColumnCount(); column++) {
+            if (model.getColumnName(column).trim().equalsIgnoreCase(name)) {
+                return column;
+            }
+        }
+        try {
+            int number = Integer.parseInt(name);
+            if (number >= 1 && number <= model.getColumnCount()) {
+                return number - 1;
+            }
+        } catch (NumberFormatException e) {
+            // Not a number either
+        }
+        throw new IllegalArgumentException("No column named '" + name + "'");
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import java.io.IOException;
+
+/**
+ * Read access to tabular data for the table views.
+ *
+ * Implementations may produce rows lazily; callers only ask for the rows
+ * they are about to show.
+ */
+public interface TableModel {
+
+    /**
+     * Get the number of columns.
+     *
+     * @return the column count
+     */
+    int getColumnCount();
+
+    /**
+     * Get the number of data rows known so far.
+     *
+     * @return the row count
+     */
+    long getRowCount();
+
+    /**
+     * Check whether {@link #getRowCount()} is final. Models that index
+     * their data in the background return false until indexing finishes.
+     *
+     * @return true if the row count will not grow
+     */
+    default boolean isRowCountKnown() {
+        return true;
+    }
+
+    /**
+     * Get the name of a column.
+     *
+     * @param column zero-based column number
+     * @return the column name, never null
+     */
+    String getColumnName(int column);
+
+    /**
+     * Get the text of a cell.
+     *
+     * @param row zero-based row number
+     * @param column zero-based column number
+     * @return the cell text, empty if the row has no such field
+     */
+    String getCell(long row, int column);
+
+    /**
+     * Hint that a range of rows is about to be shown, so it can be loaded
+     * ahead of time.
+     *
+     * @param firstRow first visible row
+     * @param lastRow last visible row
+     */
+    default void prefetch(long firstRow, long lastRow) {
+        // Nothing to prefetch by default
+    }
+
+    /**
+     * Estimate the heap held by the model, not counting memory-mapped
+     * files.
+     *
+     * @return the estimate in bytes
+     */
+    default long estimateHeapBytes() {
+        return 0;
+    }
+
+    /**
+     * Release the heap held by the rows, keeping only what is needed to
+     * get them back. Rows asked for afterwards are read back first.
+     *
+     * @throws IOException if the rows cannot be written out
+     */
+    default void spill() throws IOException {
+        // Nothing to release by default
+    }
+
+    /**
+     * Get back the rows released by {@link #spill()} ahead of time.
+     *
+     * @throws IOException if the rows cannot be read back
+     */
+    default void restore() throws IOException {
+        // Nothing to read back by default
+    }
+}
@@ -0,0 +1,473 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import io.github.crramirez.caswrite.load.LoadProgress;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntPredicate;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Parallel sort, filter and statistics over the rows of a table model.
+ *
+ * The operations work on row numbers only and never copy rows: a sort
+ * produces a permutation of the rows and a filter a set of the rows to
+ * keep, which a {@link TableView} applies. The work is split into
+ * fork-join tasks on the common pool; each task checks the progress for
+ * cancellation before it starts.
+ */
+public final class TableOperations {
+
+    // Rows handled by a single task; a multiple of 64 so filter tasks
+    // never write to the same word of the result
+    static final int GRAIN = 8192;
+
+    // Ranges this small are sorted by insertion
+    private static final int INSERTION_LIMIT = 32;
+
+    // Largest row count an index array can hold
+    private static final int MAX_ROWS = Integer.MAX_VALUE - 8;
+
+    private TableOperations() {
+    }
+
+    /**
+     * Comparison of two source rows.
+     */
+    @FunctionalInterface
+    interface RowComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Sort the rows of a table. The sort is stable, so rows with equal
+     * keys keep their order, and empty cells sort first.
+     *
+     * @param model the table, whose row count must be known
+     * @param keys the sort keys, most significant first
+     * @param progress receives progress in rows and cancellation requests
+     * @return every row number of the table, in sorted order
+     * @throws IllegalArgumentException if the table is still being indexed
+     * or has too many rows
+     */
+    public static int[] sort(TableModel model, List<SortKey> keys, LoadProgress progress) {
+        int rows = rowCount(model);
+        RowComparator comparator = null;
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            RowComparator key = comparator(model, rows, keys.get(i), progress);
+            RowComparator next = comparator;
+            comparator = next == null ? key : (a, b) -> {
+                int result = key.compare(a, b);
+                return result != 0 ? result : next.compare(a, b);
+            };
+        }
+
+        int[] order = new int[rows];
+        Arrays.parallelSetAll(order, row -> row);
+        if (comparator != null) {
+            ForkJoinPool.commonPool().invoke(
+                new SortTask(order, new int[rows], 0, rows, comparator, progress));
+        }
+        return order;
+    }
+
+    /**
+     * Find the rows of a table that pass a filter.
+     *
+     * @param model the table, whose row count must be known
+     * @param filter the condition
+     * @param progress receives progress in rows and cancellation requests
+     * @return the row numbers passing the filter
+     * @throws IllegalArgumentException if the table is still being indexed
+     * or has too many rows
+     */
+    public static BitSet filter(TableModel model, RowFilter filter, LoadProgress progress) {
+        int rows = rowCount(model);
+        long[] words = new long[(rows + 63) / 64];
+        ForkJoinPool.commonPool().invoke(
+            new FilterTask(filter.bind(model), words, 0, rows, progress));
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Compute statistics of a column. Parts of the column are summarized in
+     * parallel and merged into {@code total} as each one finishes, so a
+     * copy of {@code total} taken while this runs shows the rows counted
+     * so far. Through a {@link TableView}, only the visible rows count.
+     *
+     * @param model the table, whose row count must be known
+     * @param column zero-based column number
+     * @param progress receives progress in rows and cancellation requests
+     * @param total receives the statistics; normally empty at the start
+     * @return {@code total}
+     * @throws IllegalArgumentException if the table is still being indexed
+     * or has too many rows
+     */
+    public static ColumnStatistics statistics(TableModel model, int column, LoadProgress progress,
+                                              ColumnStatistics total) {
+        int rows = rowCount(model);
+        TableView view = model instanceof TableView tableView ? tableView : new TableView(model);
+        ObjIntConsumer<ColumnStatistics> reader = cellReader(view.getSource(), column);
+        ForkJoinPool.commonPool().invoke(new StatisticsTask(view, reader, 0, rows, progress, total));
+        return total;
+    }
+
+    /**
+     * Build the step adding one source row to statistics. Typed columns add
+     * their primitive values; text columns parse and hash each distinct
+     * value once.
+     */
+    private static ObjIntConsumer<ColumnStatistics> cellReader(TableModel source, int column) {
+        if (!(source instanceof ColumnarTableModel columnar)) {
+            return (stats, row) -> stats.add(source.getCell(row, column));
+        }
+        Column values = columnar.getColumn(column);
+        if (values instanceof Column.LongColumn longs) {
+            return (stats, row) -> {
+                if (longs.isNull(row)) {
+                    stats.addNull();
+                } else {
+                    stats.addNumber(longs.getLong(row));
+                }
+            };
+        }
+        if (values instanceof Column.DoubleColumn doubles) {
+            return (stats, row) -> {
+                if (doubles.isNull(row)) {
+                    stats.addNull();
+                } else {
+                    stats.addNumber(doubles.getDouble(row));
+                }
+            };
+        }
+        if (values instanceof Column.StringColumn strings) {
+            int count = strings.getDistinctCount();
+            double[] numbers = new double[count];
+            long[] hashes = new long[count];
+            for (int code = 0; code < count; code++) {
+                String value = strings.getDictionaryValue(code);
+                numbers[code] = RowFilter.parseNumber(value);
+                hashes[code] = Double.isNaN(numbers[code])
+                    ? HyperLogLog.hash(value) : HyperLogLog.hash(numbers[code]);
+            }
+            return (stats, row) -> {
+                if (strings.isNull(row)) {
+                    stats.addNull();
+                } else {
+                    int code = strings.getCode(row);
+                    stats.accept(strings.getDictionaryValue(code), numbers[code], hashes[code]);
+                }
+            };
+        }
+        return (stats, row) -> stats.add(values.format(row));
+    }
+
+    private static int rowCount(TableModel model) {
+        if (!model.isRowCountKnown()) {
+            throw new IllegalArgumentException("The table is still being indexed");
+        }
+        long rows = model.getRowCount();
+        if (rows > MAX_ROWS) {
+            throw new IllegalArgumentException("Too many rows to sort or filter: " + rows);
+        }
+        return (int) rows;
+    }
+
+    /**
+     * Build the comparison for one sort key. Typed columns compare their
+     * primitive values; text columns compare precomputed ranks of their
+     * distinct values. Other models have the column read once, in
+     * parallel, and compared as numbers if every value is one.
+     */
+    private static RowComparator comparator(TableModel model, int rows, SortKey key,
+                                            LoadProgress progress) {
+        RowComparator ascending;
+        if (model instanceof ColumnarTableModel columnar) {
+            ascending = columnComparator(columnar.getColumn(key.column()));
+        } else {
+            String[] values = new String[rows];
+            ForkJoinPool.commonPool().invoke(new ReadTask(model, key.column(), values, 0, rows, progress));
+            ascending = textComparator(values);
+        }
+        return key.descending() ? (a, b) -> ascending.compare(b, a) : ascending;
+    }
+
+    private static RowComparator columnComparator(Column column) {
+        RowComparator values;
+        if (column instanceof Column.LongColumn longs) {
+            values = (a, b) -> Long.compare(longs.getLong(a), longs.getLong(b));
+        } else if (column instanceof Column.DoubleColumn doubles) {
+            values = (a, b) -> Double.compare(doubles.getDouble(a), doubles.getDouble(b));
+        } else if (column instanceof Column.BooleanColumn booleans) {
+            values = (a, b) -> Boolean.compare(booleans.getBoolean(a), booleans.getBoolean(b));
+        } else if (column instanceof Column.DateColumn dates) {
+            values = (a, b) -> Integer.compare(dates.getEpochDay(a), dates.getEpochDay(b));
+        } else {
+            Column.StringColumn strings = (Column.StringColumn) column;
+            int[] rank = dictionaryRanks(strings);
+            values = (a, b) -> Integer.compare(rank[strings.getCode(a)], rank[strings.getCode(b)]);
+        }
+        return (a, b) -> {
+            boolean nullA = column.isNull(a);
+            boolean nullB = column.isNull(b);
+            if (nullA || nullB) {
+                return Boolean.compare(!nullA, !nullB);
+            }
+            return values.compare(a, b);
+        };
+    }
+
+    /**
+     * Rank the distinct values of a text column in sort order, so rows can
+     * be compared by integer instead of by string.
+     */
+    private static int[] dictionaryRanks(Column.StringColumn strings) {
+        int count = strings.getDistinctCount();
+        Integer[] codes = new Integer[count];
+        Arrays.setAll(codes, code -> code);
+        Arrays.parallelSort(codes, (a, b) ->
+            strings.getDictionaryValue(a).compareTo(strings.getDictionaryValue(b)));
+        int[] rank = new int[count];
+        for (int i = 0; i < count; i++) {
+            rank[codes[i]] = i;
+        }
+        return rank;
+    }
+
+    private static RowComparator textComparator(String[] values) {
+        double[] numbers = new double[values.length];
+        for (int row = 0; row < values.length; row++) {
+            String value = values[row];
+            if (value.isEmpty()) {
+                numbers[row] = Double.NEGATIVE_INFINITY;
+                continue;
+            }
+            try {
+                numbers[row] = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return (a, b) -> values[a].compareTo(values[b]);
+            }
+        }
+        return (a, b) -> {
+            if (values[a].isEmpty() || values[b].isEmpty()) {
+                return Boolean.compare(!values[a].isEmpty(), !values[b].isEmpty());
+            }
+            return Double.compare(numbers[a], numbers[b]);
+        };
+    }
+
+    /**
+     * Stable merge sort of a range of row numbers. Halves are sorted in
+     * parallel down to {@link #GRAIN} rows and then merged.
+     */
+    private static final class SortTask extends RecursiveAction {
+        private final int[] rows;
+        private final int[] scratch;
+        private final int from;
+        private final int to;
+        private final RowComparator comparator;
+        private final LoadProgress progress;
+
+        SortTask(int[] rows, int[] scratch, int from, int to,
+                 RowComparator comparator, LoadProgress progress) {
+            this.rows = rows;
+            this.scratch = scratch;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            progress.checkCancelled();
+            if (to - from <= GRAIN) {
+                mergeSort(rows, scratch, from, to, comparator);
+                progress.advance(0, to - from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SortTask(rows, scratch, from, middle, comparator, progress),
+                new SortTask(rows, scratch, middle, to, comparator, progress));
+            progress.checkCancelled();
+            merge(rows, scratch, from, middle, to, comparator);
+        }
+    }
+
+    private static void mergeSort(int[] rows, int[] scratch, int from, int to,
+                                  RowComparator comparator) {
+        if (to - from <= INSERTION_LIMIT) {
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(rows[j], row) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(rows, scratch, from, middle, comparator);
+        mergeSort(rows, scratch, middle, to, comparator);
+        merge(rows, scratch, from, middle, to, comparator);
+    }
+
+    /**
+     * Merge two sorted, adjacent ranges, taking from the left range on
+     * ties to keep the sort stable.
+     */
+    private static void merge(int[] rows, int[] scratch, int from, int middle, int to,
+                              RowComparator comparator) {
+        if (comparator.compare(rows[middle - 1], rows[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(rows, from, scratch, from, middle - from);
+        int left = from;
+        int right = middle;
+        int out = from;
+        while (left < middle && right < to) {
+            if (comparator.compare(scratch[left], rows[right]) <= 0) {
+                rows[out++] = scratch[left++];
+            } else {
+                rows[out++] = rows[right++];
+            }
+        }
+        System.arraycopy(scratch, left, rows, out, middle - left);
+    }
+
+    /**
+     * Test a range of rows against a filter, setting bits for the rows
+     * that pass.
+     */
+    private static final class FilterTask extends RecursiveAction {
+        private final IntPredicate test;
+        private final long[] words;
+        private final int from;
+        private final int to;
+        private final LoadProgress progress;
+
+        FilterTask(IntPredicate test, long[] words, int from, int to, LoadProgress progress) {
+            this.test = test;
+            this.words = words;
+            this.from = from;
+            this.to = to;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            progress.checkCancelled();
+            if (to - from <= GRAIN) {
+                for (int row = from; row < to; row++) {
+                    if (test.test(row)) {
+                        words[row >>> 6] |= 1L << row;
+                    }
+                }
+                progress.advance(0, to - from);
+                return;
+            }
+            // Split on a multiple of the grain, so each word has one writer
+            int middle = from + Math.max(1, (to - from) / 2 / GRAIN) * GRAIN;
+            invokeAll(new FilterTask(test, words, from, middle, progress),
+                new FilterTask(test, words, middle, to, progress));
+        }
+    }
+
+    /**
+     * Summarize a range of visible rows and merge the result into the
+     * shared total.
+     */
+    private static final class StatisticsTask extends RecursiveAction {
+        private final TableView view;
+        private final ObjIntConsumer<ColumnStatistics> reader;
+        private final int from;
+        private final int to;
+        private final LoadProgress progress;
+        private final ColumnStatistics total;
+
+        StatisticsTask(TableView view, ObjIntConsumer<ColumnStatistics> reader, int from, int to,
+                       LoadProgress progress, ColumnStatistics total) {
+            this.view = view;
+            this.reader = reader;
+            this.from = from;
+            this.to = to;
+            this.progress = progress;
+            this.total = total;
+        }
+
+        @Override
+        protected void compute() {
+            progress.checkCancelled();
+            if (to - from <= GRAIN) {
+                ColumnStatistics part = new ColumnStatistics();
+                for (int row = from; row < to; row++) {
+                    reader.accept(part, (int) view.sourceRow(row));
+                }
+                total.merge(part);
+                progress.advance(0, to - from);
+                return;
+            }
+            int middle = from + Math.max(1, (to - from) / 2 / GRAIN) * GRAIN;
+            invokeAll(new StatisticsTask(view, reader, from, middle, progress, total),
+                new StatisticsTask(view, reader, middle, to, progress, total));
+        }
+    }
+
+    /**
+     * Read the cells of one column of a range of rows.
+     */
+    private static final class ReadTask extends RecursiveAction {
+        private final TableModel model;
+        private final int column;
+        private final String[] values;
+        private final int from;
+        private final int to;
+        private final LoadProgress progress;
+
+        ReadTask(TableModel model, int column, String[] values, int from, int to,
+                 LoadProgress progress) {
+            this.model = model;
+            this.column = column;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            progress.checkCancelled();
+            if (to - from <= GRAIN) {
+                for (int row = from; row < to; row++) {
+                    values[row] = model.getCell(row, column);
+                }
+                return;
+            }
+            int middle = from + Math.max(1, (to - from) / 2 / GRAIN) * GRAIN;
+            invokeAll(new ReadTask(model, column, values, from, middle, progress),
+                new ReadTask(model, column, values, middle, to, progress));
+        }
+    }
+}
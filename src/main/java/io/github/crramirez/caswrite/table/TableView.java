@@ -0,0 +1,252 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Sorted and filtered view of a table model.
+ *
+ * Rows are never copied: the view keeps the sort order and the filter
+ * result as arrays of row numbers of the source model and maps each
+ * visible row through them. Sort and filter are kept separately over all
+ * source rows, so removing either one only rebuilds the visible index from
+ * the other.
+ */
+public final class TableView implements TableModel {
+
+    private final TableModel source;
+    private List<SortKey> sortKeys = List.of();
+    // Source rows in sort order, null for the source order
+    private int[] order;
+    private RowFilter filter;
+    // Source rows passing the filter, null when there is no filter
+    private BitSet kept;
+    // Source row of each visible row, null when the view shows the source as is
+    private int[] rows;
+
+    /**
+     * Create an unsorted, unfiltered view.
+     *
+     * @param source the model to show
+     */
+    public TableView(TableModel source) {
+        this.source = source;
+    }
+
+    /**
+     * Get the model this view shows.
+     *
+     * @return the source model
+     */
+    public TableModel getSource() {
+        return source;
+    }
+
+    /**
+     * Check whether a sort is applied.
+     *
+     * @return true if rows are sorted
+     */
+    public boolean isSorted() {
+        return order != null;
+    }
+
+    /**
+     * Estimate the heap held by the sort order and filter of the view and
+     * by its source.
+     *
+     * @return the estimate in bytes
+     */
+    public long estimateHeapBytes() {
+        long bytes = source.estimateHeapBytes();
+        bytes += order == null ? 0 : order.length * 4L;
+        bytes += kept == null ? 0 : kept.size() / 8;
+        bytes += rows == null || rows == order ? 0 : rows.length * 4L;
+        return bytes;
+    }
+
+    /**
+     * Release the heap held by the source; the sort order and filter of
+     * the view stay in memory.
+     *
+     * @throws IOException if the source cannot be written out
+     */
+    @Override
+    public void spill() throws IOException {
+        source.spill();
+    }
+
+    @Override
+    public void restore() throws IOException {
+        source.restore();
+    }
+
+    /**
+     * Check whether a filter is applied.
+     *
+     * @return true if rows are filtered
+     */
+    public boolean isFiltered() {
+        return kept != null;
+    }
+
+    /**
+     * Get the keys of the current sort.
+     *
+     * @return the sort keys, empty if unsorted
+     */
+    public List<SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    /**
+     * Get the current filter.
+     *
+     * @return the filter, or null if unfiltered
+     */
+    public RowFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Apply a sort computed by {@link TableOperations#sort}.
+     *
+     * @param keys the keys the order was computed from
+     * @param order every source row, in sorted order
+     */
+    public void setSort(List<SortKey> keys, int[] order) {
+        this.sortKeys = List.copyOf(keys);
+        this.order = order;
+        rebuild();
+    }
+
+    /**
+     * Go back to the source order, keeping any filter.
+     */
+    public void clearSort() {
+        sortKeys = List.of();
+        order = null;
+        rebuild();
+    }
+
+    /**
+     * Apply a filter computed by {@link TableOperations#filter}.
+     *
+     * @param filter the filter the rows were selected by
+     * @param kept the source rows passing the filter
+     */
+    public void setFilter(RowFilter filter, BitSet kept) {
+        this.filter = filter;
+        this.kept = kept;
+        rebuild();
+    }
+
+    /**
+     * Show all rows again, keeping any sort.
+     */
+    public void clearFilter() {
+        filter = null;
+        kept = null;
+        rebuild();
+    }
+
+    /**
+     * Take a copy of the view as it is now, for background work that must
+     * not see later changes. Index arrays are never modified once built,
+     * so the copy shares them.
+     *
+     * @return a view with the same sort and filter
+     */
+    public TableView snapshot() {
+        TableView copy = new TableView(source);
+        copy.sortKeys = sortKeys;
+        copy.order = order;
+        copy.filter = filter;
+        copy.kept = kept;
+        copy.rows = rows;
+        return copy;
+    }
+
+    /**
+     * Map a visible row to the row of the source model.
+     *
+     * @param row zero-based visible row
+     * @return zero-based source row
+     */
+    public long sourceRow(long row) {
+        return rows == null ? row : rows[(int) row];
+    }
+
+    @Override
+    public int getColumnCount() {
+        return source.getColumnCount();
+    }
+
+    @Override
+    public long getRowCount() {
+        return rows == null ? source.getRowCount() : rows.length;
+    }
+
+    @Override
+    public boolean isRowCountKnown() {
+        return rows != null || source.isRowCountKnown();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return source.getColumnName(column);
+    }
+
+    @Override
+    public String getCell(long row, int column) {
+        if (row < 0 || row >= getRowCount()) {
+            return "";
+        }
+        return source.getCell(sourceRow(row), column);
+    }
+
+    @Override
+    public void prefetch(long firstRow, long lastRow) {
+        // Visible rows of a sorted or filtered view are scattered over the source
+        if (rows == null) {
+            source.prefetch(firstRow, lastRow);
+        }
+    }
+
+    private void rebuild() {
+        if (order == null && kept == null) {
+            rows = null;
+        } else if (order == null) {
+            rows = kept.stream().toArray();
+        } else if (kept == null) {
+            rows = order;
+        } else {
+            int[] visible = new int[kept.cardinality()];
+            int count = 0;
+            for (int row : order) {
+                if (kept.get(row)) {
+                    visible[count++] = row;
+                }
+            }
+            rows = visible;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Append-only buffer holding every byte inserted into a {@link TextBuffer}.
+ *
+ * Bytes are never removed, so pieces can keep referring to them after a
+ * delete. The position of every newline is recorded as it is appended,
+ * which keeps line lookups inside edited text as cheap as in the original
+ * file. Text is appended whole code units at a time, so in UTF-16 a
+ * newline never straddles two appends.
+ */
+final class AddBuffer {
+
+    private final TextEncoding encoding;
+
+    private byte[] data = new byte[4096];
+    private int size;
+
+    private long[] newlines = new long[64];
+    private int newlineCount;
+
+    AddBuffer(TextEncoding encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Append bytes to the buffer.
+     *
+     * @param bytes the bytes to append
+     * @return the offset at which the bytes were stored
+     */
+    int append(byte[] bytes) {
+        int start = size;
+        if (size + bytes.length > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + bytes.length));
+        }
+        System.arraycopy(bytes, 0, data, size, bytes.length);
+        byte newline = encoding.newlineByte();
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == newline && encoding.endsLine(start + i, i > 0 ? bytes[i - 1] : 0)) {
+                if (newlineCount == newlines.length) {
+                    newlines = Arrays.copyOf(newlines, newlineCount * 2);
+                }
+                newlines[newlineCount++] = start + i;
+            }
+        }
+        size += bytes.length;
+        return start;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the heap held by the buffer and its newline positions.
+     *
+     * @return the size in bytes
+     */
+    long heapBytes() {
+        return data.length + newlines.length * 8L;
+    }
+
+    /**
+     * Get the backing array. Bytes below {@link #size()} never change, so
+     * the array can be read from another thread as long as the reader stays
+     * below the size observed when the array was obtained.
+     *
+     * @return the current backing array
+     */
+    byte[] array() {
+        return data;
+    }
+
+    byte get(long position) {
+        return data[(int) position];
+    }
+
+    void get(long position, byte[] dst, int offset, int length) {
+        System.arraycopy(data, (int) position, dst, offset, length);
+    }
+
+    ByteBuffer slice(long position, int length) {
+        return ByteBuffer.wrap(data, (int) position, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Count the newlines before a position.
+     *
+     * @param offset position in the buffer
+     * @return the number of newlines in [0, offset)
+     */
+    long rank(long offset) {
+        int index = Arrays.binarySearch(newlines, 0, newlineCount, offset);
+        return index < 0 ? -index - 1 : index;
+    }
+
+    /**
+     * Find the position just after a newline.
+     *
+     * @param line one-based newline number
+     * @return the position following the line-th newline in the buffer
+     */
+    long select(long line) {
+        return newlines[(int) line - 1] + 1;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import java.util.Arrays;
+
+/**
+ * Boyer-Moore-Horspool search for a byte pattern.
+ *
+ * After a mismatch the pattern is shifted by a distance looked up from the
+ * last byte of the current window, so long patterns skip most of the text
+ * without looking at it. Case-insensitive search folds ASCII letters only;
+ * other characters must match exactly.
+ */
+final class ByteSearch {
+
+    // ASCII lower-case folding, identity for every other byte
+    private static final byte[] FOLD = new byte[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            FOLD[i] = (byte) (i >= 'A' && i <= 'Z' ? i + ('a' - 'A') : i);
+        }
+    }
+
+    private final byte[] pattern;
+    private final boolean ignoreCase;
+    private final int[] shift = new int[256];
+
+    /**
+     * Prepare a search.
+     *
+     * @param pattern the bytes to find, not empty
+     * @param ignoreCase true to treat ASCII letters of either case as equal
+     */
+    ByteSearch(byte[] pattern, boolean ignoreCase) {
+        if (pattern.length == 0) {
+            throw new IllegalArgumentException("Empty search pattern");
+        }
+        this.ignoreCase = ignoreCase;
+        this.pattern = pattern.clone();
+        if (ignoreCase) {
+            for (int i = 0; i < pattern.length; i++) {
+                this.pattern[i] = FOLD[pattern[i] & 0xFF];
+            }
+        }
+        int last = pattern.length - 1;
+        Arrays.fill(shift, pattern.length);
+        for (int i = 0; i < last; i++) {
+            shift[this.pattern[i] & 0xFF] = last - i;
+        }
+    }
+
+    /**
+     * Get the length of the pattern.
+     *
+     * @return the number of bytes in the pattern
+     */
+    int length() {
+        return pattern.length;
+    }
+
+    /**
+     * Find the first occurrence of the pattern in part of an array.
+     *
+     * @param text the array to search
+     * @param from index at which to start
+     * @param end index after the last byte a match may use
+     * @return the index of the first match, or -1 if there is none
+     */
+    int indexOf(byte[] text, int from, int end) {
+        int last = pattern.length - 1;
+        byte lastByte = pattern[last];
+        int i = from;
+        if (ignoreCase) {
+            while (i + last < end) {
+                byte b = FOLD[text[i + last] & 0xFF];
+                if (b == lastByte) {
+                    int j = last - 1;
+                    while (j >= 0 && FOLD[text[i + j] & 0xFF] == pattern[j]) {
+                        j--;
+                    }
+                    if (j < 0) {
+                        return i;
+                    }
+                }
+                i += shift[b & 0xFF];
+            }
+        } else {
+            while (i + last < end) {
+                byte b = text[i + last];
+                if (b == lastByte) {
+                    int j = last - 1;
+                    while (j >= 0 && text[i + j] == pattern[j]) {
+                        j--;
+                    }
+                    if (j < 0) {
+                        return i;
+                    }
+                }
+                i += shift[b & 0xFF];
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+/**
+ * Random-access sequence of bytes, such as a mapped file.
+ */
+public interface ByteSource {
+
+    /**
+     * Get the number of bytes available.
+     *
+     * @return the size in bytes
+     */
+    long size();
+
+    /**
+     * Read a single byte.
+     *
+     * @param position position of the byte, between 0 and size() - 1
+     * @return the byte at that position
+     */
+    byte get(long position);
+
+    /**
+     * Copy a range of bytes into an array.
+     *
+     * @param position position of the first byte
+     * @param dst destination array
+     * @param offset offset in the destination array
+     * @param length number of bytes to copy
+     */
+    default void get(long position, byte[] dst, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[offset + i] = get(position + i);
+        }
+    }
+}
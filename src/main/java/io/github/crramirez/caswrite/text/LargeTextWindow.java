@@ -0,0 +1,1010 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import casciian.TAction;
+import casciian.TApplication;
+import casciian.TCommand;
+import casciian.TInputBox;
+import casciian.TMessageBox;
+import casciian.TTimer;
+import casciian.TWindow;
+import casciian.bits.CellAttributes;
+import casciian.bits.Color;
+import casciian.event.TCommandEvent;
+import casciian.event.TKeypressEvent;
+import casciian.event.TMouseEvent;
+import io.github.crramirez.caswrite.compress.Compression;
+import io.github.crramirez.caswrite.follow.FileFollower;
+import io.github.crramirez.caswrite.follow.Followable;
+import io.github.crramirez.caswrite.highlight.Highlighter;
+import io.github.crramirez.caswrite.highlight.Language;
+import io.github.crramirez.caswrite.highlight.TokenType;
+import io.github.crramirez.caswrite.metrics.HeapUsage;
+import io.github.crramirez.caswrite.save.AtomicFile;
+import io.github.crramirez.caswrite.save.FileSaver;
+import io.github.crramirez.caswrite.save.Saveable;
+import io.github.crramirez.caswrite.session.Resumable;
+import io.github.crramirez.caswrite.session.Viewport;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static casciian.TKeypress.kbBackspace;
+import static casciian.TKeypress.kbBackspaceDel;
+import static casciian.TKeypress.kbCtrlEnd;
+import static casciian.TKeypress.kbCtrlHome;
+import static casciian.TKeypress.kbCtrlY;
+import static casciian.TKeypress.kbCtrlZ;
+import static casciian.TKeypress.kbDel;
+import static casciian.TKeypress.kbDown;
+import static casciian.TKeypress.kbEnd;
+import static casciian.TKeypress.kbEnter;
+import static casciian.TKeypress.kbHome;
+import static casciian.TKeypress.kbLeft;
+import static casciian.TKeypress.kbPgDn;
+import static casciian.TKeypress.kbPgUp;
+import static casciian.TKeypress.kbRight;
+import static casciian.TKeypress.kbTab;
+import static casciian.TKeypress.kbUp;
+
+/**
+ * Editor window for files too large to load onto the heap.
+ *
+ * The window renders only the visible lines of a {@link TextBuffer}, so the
+ * cost of a frame does not depend on the size of the file. The line index
+ * is built on a background thread; until it finishes, the lines scanned so
+ * far can already be viewed and edited. Saving writes a snapshot of the
+ * buffer on a background thread too, so editing can go on meanwhile.
+ *
+ * A compressed file is shown from a decompressed copy and saved
+ * compressed again; the entry of a zip archive can only be saved
+ * elsewhere.
+ *
+ * Files keep their charset and line endings: only the visible lines are
+ * decoded, typed text is encoded in the file's charset and new lines get
+ * the terminator the file already uses.
+ *
+ * Source code is highlighted incrementally by a {@link Highlighter}: each
+ * frame tokenizes only the visible lines, and an edit re-tokenizes from the
+ * edited line just until the lexer state matches what it was before.
+ *
+ * Ctrl+Z and Ctrl+Y undo and redo changes. The history belongs to the
+ * buffer, so it starts over when a saved file is mapped again.
+ */
+public class LargeTextWindow extends TWindow implements Saveable, HeapUsage, Followable, Resumable {
+
+    // Lines longer than this are truncated on screen
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+
+    private static final int TAB_WIDTH = 8;
+
+    // How often to repaint while the line index is being built
+    private static final long INDEX_REFRESH_MILLIS = 250;
+
+    private final FileSaver saver;
+    private TextBuffer buffer;
+    private Path path;
+    private Compression compression;
+    private TTimer indexTimer;
+    private boolean saving;
+    private boolean closed;
+    private boolean following;
+    private FileFollower follower;
+    private Highlighter highlighter;
+
+    private long topLine;
+    private int leftColumn;
+    private long cursorLine;
+    private int cursorColumn;
+
+    private String lastFind;
+    private String lastReplacement;
+    private TextSearch lastSearch;
+
+    /**
+     * Create a window showing a buffer and start indexing its lines.
+     *
+     * @param application the application
+     * @param buffer the buffer to show, owned by the window from now on
+     */
+    public LargeTextWindow(TApplication application, TextBuffer buffer) {
+        this(application, buffer, buffer.getPath(), null);
+    }
+
+    /**
+     * Create a window showing the decompressed content of a file.
+     *
+     * @param application the application
+     * @param buffer the decompressed content, owned by the window from now on
+     * @param path the compressed file, which is what gets saved
+     * @param compression the format of the file, null if it is not compressed
+     */
+    public LargeTextWindow(TApplication application, TextBuffer buffer, Path path,
+                           Compression compression) {
+        super(application, path.getFileName().toString(), 0, 0,
+            application.getScreen().getWidth(),
+            application.getDesktopBottom() - application.getDesktopTop(), RESIZABLE);
+        this.buffer = buffer;
+        this.path = path;
+        this.compression = compression;
+        this.saver = new FileSaver(application::invokeLater);
+        startIndexing();
+    }
+
+    /**
+     * Highlight the text as source code.
+     *
+     * @param language the language of the file, or null for plain text
+     */
+    public void setLanguage(Language language) {
+        highlighter = language == null ? null
+            : new Highlighter(language, line -> buffer.lineText(line, MAX_LINE_BYTES));
+    }
+
+    /**
+     * Get the buffer shown in this window.
+     *
+     * @return the text buffer
+     */
+    public TextBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Get the file this window saves to.
+     *
+     * @return the file, compressed if the window shows the content of a
+     * compressed file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public Viewport getViewport() {
+        return new Viewport(topLine, cursorLine, cursorColumn);
+    }
+
+    @Override
+    public void setViewport(Viewport viewport) {
+        topLine = Math.max(0, Math.min(viewport.top(), buffer.lineCount() - 1));
+        cursorColumn = Math.max(0, viewport.column());
+        moveToLine(viewport.row());
+        ensureCursorVisible();
+    }
+
+    /**
+     * Estimate the heap held by the buffer.
+     *
+     * @return the estimate in bytes
+     */
+    @Override
+    public long estimateHeapBytes() {
+        return buffer.estimateHeapBytes();
+    }
+
+    /**
+     * Check whether the buffer has unsaved changes.
+     *
+     * @return true if the buffer has been edited since it was opened or saved
+     */
+    @Override
+    public boolean isDirty() {
+        return buffer.isDirty();
+    }
+
+    /**
+     * Any file can be followed unless it is compressed.
+     *
+     * @return true if the buffer maps the file itself
+     */
+    @Override
+    public boolean canFollow() {
+        return compression == null;
+    }
+
+    /**
+     * Check whether appended bytes are shown as they arrive.
+     *
+     * @return true while following
+     */
+    @Override
+    public boolean isFollowing() {
+        return following;
+    }
+
+    /**
+     * Start or stop showing bytes appended to the file. While following,
+     * the view keeps to the end of the file as long as the cursor is on the
+     * last line, like tail -f; moving the cursor up pauses the scrolling
+     * and Ctrl+End resumes it.
+     *
+     * @param following true to follow the file
+     */
+    @Override
+    public void setFollowing(boolean following) {
+        this.following = following;
+        stopFollower();
+        if (following) {
+            startFollower();
+        }
+        getApplication().doRepaint();
+    }
+
+    private void startFollower() {
+        TextBuffer followed = buffer;
+        try {
+            follower = FileFollower.start(followed.getPath(), followed.getOriginalSize(),
+                getApplication()::invokeLater, new FileFollower.Target() {
+                    @Override
+                    public void extend(long size) throws IOException {
+                        followed.extendOriginal(size);
+                    }
+
+                    @Override
+                    public void appended(long size) {
+                        showAppended(followed, size);
+                    }
+
+                    @Override
+                    public void replaced() {
+                        fileReplaced();
+                    }
+
+                    @Override
+                    public void failed(IOException e) {
+                        stopFollowing("Stopped following: " + e.getMessage());
+                    }
+                });
+        } catch (IOException e) {
+            stopFollowing("Cannot follow the file: " + e.getMessage());
+        }
+    }
+
+    private void stopFollower() {
+        if (follower != null) {
+            follower.close();
+            follower = null;
+        }
+    }
+
+    private void stopFollowing(String message) {
+        following = false;
+        stopFollower();
+        getApplication().messageBox("Follow", message);
+    }
+
+    /**
+     * Add bytes appended to the file to the end of the document, scrolling
+     * along if the cursor was on the last line.
+     *
+     * @param followed the buffer the bytes were prepared for
+     * @param size the new size of the file
+     */
+    private void showAppended(TextBuffer followed, long size) {
+        if (followed != buffer) {
+            return;
+        }
+        long lastLine = buffer.lineCount() - 1;
+        boolean atEnd = cursorLine >= lastLine;
+        buffer.appendOriginal(size);
+        linesChanged(lastLine, 0, 0);
+        if (atEnd) {
+            moveToLine(buffer.lineCount() - 1);
+            ensureCursorVisible();
+        }
+        getApplication().doRepaint();
+    }
+
+    /**
+     * Open the file again after it was truncated or rotated, unless that
+     * would lose edits.
+     */
+    private void fileReplaced() {
+        follower = null;
+        if (buffer.isDirty()) {
+            stopFollowing("'" + getTitle() + "' was truncated or replaced. Following has"
+                + " stopped; your edits are kept.");
+            return;
+        }
+        try {
+            reopen(buffer.getPath());
+        } catch (IOException e) {
+            stopFollowing("'" + getTitle() + "' was replaced and could not be opened again: "
+                + e.getMessage());
+            return;
+        }
+        moveToLine(buffer.lineCount() - 1);
+        ensureCursorVisible();
+        startFollower();
+    }
+
+    /**
+     * Build the line index on a virtual thread and repaint while it
+     * progresses.
+     */
+    private void startIndexing() {
+        LineIndex index = buffer.getLineIndex();
+        if (index.isComplete()) {
+            return;
+        }
+        Thread.ofVirtual().name("CasWrite-LineIndex").start(index);
+
+        indexTimer = getApplication().addTimer(INDEX_REFRESH_MILLIS, true, new TAction() {
+            @Override
+            public void DO() {
+                if (index.isComplete()) {
+                    stopIndexTimer();
+                }
+                getApplication().doRepaint();
+            }
+        });
+    }
+
+    private void stopIndexTimer() {
+        if (indexTimer != null) {
+            getApplication().removeTimer(indexTimer);
+            indexTimer = null;
+        }
+    }
+
+    /**
+     * Save the buffer to its file in the background.
+     *
+     * @param onSaved runs once the file is safely on disk
+     * @param onFailed runs with the error if the file could not be saved
+     */
+    @Override
+    public void save(Runnable onSaved, Consumer<Exception> onFailed) {
+        save(path, onSaved, onFailed);
+    }
+
+    /**
+     * Write a snapshot of the buffer to a file on a background thread.
+     * If the buffer was not edited meanwhile, the saved file is mapped
+     * again so that the edits no longer need the add buffer. Files named
+     * .gz are written compressed and not mapped again.
+     *
+     * @param target the file to write
+     * @param onSaved runs once the file is safely on disk
+     * @param onFailed runs with the error if the file could not be saved
+     */
+    private void save(Path target, Runnable onSaved, Consumer<Exception> onFailed) {
+        if (saving) {
+            onFailed.accept(new IOException("The file is already being saved"));
+            return;
+        }
+        Compression written = Compression.forFileName(target.getFileName().toString());
+        if (written == Compression.ZIP) {
+            onFailed.accept(new IOException("Zip archives cannot be written; save to a plain or .gz file"));
+            return;
+        }
+        saving = true;
+        // Saving replaces the file, which must not look like log rotation
+        stopFollower();
+        TextBuffer saved = buffer;
+        TextBuffer.Snapshot snapshot = saved.snapshot();
+        AtomicFile.Content content = written == Compression.GZIP
+            ? Compression.gzip(snapshot::writeTo) : snapshot::writeTo;
+        saver.save(target, content, () -> {
+            saving = false;
+            if (!closed) {
+                path = target;
+                compression = written;
+                setTitle(target.getFileName().toString());
+                boolean reopened = false;
+                if (buffer == saved && saved.getModCount() == snapshot.getModCount()) {
+                    if (written != null) {
+                        saved.markSaved();
+                    } else {
+                        try {
+                            reopen(target);
+                            reopened = true;
+                        } catch (IOException e) {
+                            getApplication().messageBox("Error Opening File",
+                                "The file was saved but could not be opened again: " + e.getMessage());
+                        }
+                    }
+                }
+                // The buffer only matches the new file if it was reopened
+                following = following && reopened;
+                if (following) {
+                    startFollower();
+                }
+            }
+            onSaved.run();
+        }, e -> {
+            saving = false;
+            if (following && !closed) {
+                startFollower();
+            }
+            onFailed.accept(e);
+        });
+    }
+
+    /**
+     * Map a file in place of the current buffer, after saving it or after
+     * a followed file was replaced.
+     *
+     * @param target the file
+     * @throws IOException if the file cannot be mapped; the current buffer
+     * is then kept
+     */
+    private void reopen(Path target) throws IOException {
+        TextBuffer reopened = TextBuffer.open(target, buffer.getEncoding().charset());
+        stopIndexTimer();
+        buffer.close();
+        buffer = reopened;
+        if (highlighter != null) {
+            highlighter.clear();
+        }
+        moveToLine(cursorLine);
+        startIndexing();
+    }
+
+    private void reportSaveError(Exception e) {
+        getApplication().messageBox("Error Saving File",
+            "Error saving file: " + e.getMessage());
+    }
+
+    /**
+     * Handle save commands.
+     *
+     * @param command command event
+     */
+    @Override
+    public void onCommand(TCommandEvent command) {
+        if (command.getCmd().equals(TCommand.cmSave) && compression != Compression.ZIP) {
+            save(() -> { }, this::reportSaveError);
+            return;
+        }
+        if (command.getCmd().equals(TCommand.cmSave) || command.getCmd().equals(TCommand.cmSaveAs)) {
+            try {
+                // An entry of a zip archive is saved beside the archive
+                Path suggested = compression == Compression.ZIP
+                    ? path.resolveSibling(compression.innerName(path)) : path;
+                String filename = getApplication().fileSaveBox(suggested.toString());
+                if (filename != null) {
+                    save(Path.of(filename), () -> { }, this::reportSaveError);
+                }
+            } catch (IOException e) {
+                reportSaveError(e);
+            }
+            return;
+        }
+        super.onCommand(command);
+    }
+
+    /**
+     * Ask for text to find and list the matches in a new window.
+     */
+    public void find() {
+        TInputBox input = getApplication().inputBox("Find",
+            "Text to find, or /regex/ (/regex/i to ignore case):",
+            lastFind == null ? "" : lastFind, TInputBox.Type.OKCANCEL);
+        if (input.getResult() != TMessageBox.Result.OK) {
+            return;
+        }
+        startSearch("Find", input.getText(), null);
+    }
+
+    /**
+     * Ask for text to find and its replacement, and list the matches in a
+     * window offering to replace them all.
+     */
+    public void replace() {
+        TInputBox find = getApplication().inputBox("Replace",
+            "Text to find, or /regex/ (/regex/i to ignore case):",
+            lastFind == null ? "" : lastFind, TInputBox.Type.OKCANCEL);
+        if (find.getResult() != TMessageBox.Result.OK) {
+            return;
+        }
+        TInputBox replacement = getApplication().inputBox("Replace",
+            "Replace with ($1 refers to a regex group):",
+            lastReplacement == null ? "" : lastReplacement, TInputBox.Type.OKCANCEL);
+        if (replacement.getResult() != TMessageBox.Result.OK) {
+            return;
+        }
+        lastReplacement = replacement.getText();
+        startSearch("Replace", find.getText(), lastReplacement);
+    }
+
+    /**
+     * Move to the next match of the last search after the cursor, wrapping
+     * around at the end of the document.
+     */
+    public void findNext() {
+        if (lastSearch == null || !lastSearch.isValidFor(buffer)) {
+            if (lastFind == null) {
+                find();
+            } else {
+                startSearch("Find", lastFind, null);
+            }
+            return;
+        }
+        if (lastSearch.getHitCount() == 0) {
+            getApplication().messageBox("Find", lastSearch.isComplete()
+                ? "No matches found." : "No matches found yet.");
+            return;
+        }
+        int next = lastSearch.nextHit(cursorOffset() + 1);
+        goToOffset(lastSearch.getOffset(next < 0 ? 0 : next));
+    }
+
+    private void startSearch(String title, String text, String replacement) {
+        TextSearch.Query query;
+        try {
+            query = TextSearch.Query.parse(text);
+        } catch (IllegalArgumentException e) {
+            getApplication().messageBox(title, e.getMessage());
+            return;
+        }
+        lastFind = text;
+        lastSearch = new TextSearch(buffer, query, replacement);
+        new SearchResultsWindow(getApplication(), this, lastSearch);
+    }
+
+    /**
+     * Move the cursor to a document offset.
+     *
+     * @param offset document offset
+     * @return false if the offset lies beyond the indexed part of the file
+     */
+    public boolean goToOffset(long offset) {
+        long line = buffer.lineOf(offset);
+        if (line < 0) {
+            return false;
+        }
+        long lineStart = buffer.textStart(line);
+        int count = (int) Math.max(0, Math.min(offset - lineStart, MAX_LINE_BYTES));
+        byte[] prefix = new byte[count];
+        buffer.read(lineStart, prefix, 0, count);
+        cursorLine = line;
+        cursorColumn = Math.min(buffer.getEncoding().decode(prefix, 0, count).length(),
+            currentLine().length());
+        ensureCursorVisible();
+        return true;
+    }
+
+    /**
+     * Keep the cursor inside the document after a replace changed it.
+     */
+    public void contentReplaced() {
+        if (highlighter != null) {
+            highlighter.clear();
+        }
+        moveToLine(cursorLine);
+        ensureCursorVisible();
+    }
+
+    /**
+     * Undo the last change and move the cursor to it.
+     */
+    public void undo() {
+        long offset;
+        try {
+            offset = buffer.undo();
+        } catch (IOException e) {
+            getApplication().messageBox("Undo", "Could not read the undo journal: " + e.getMessage());
+            return;
+        }
+        showChange(offset);
+    }
+
+    /**
+     * Redo the change undone last and move the cursor to it.
+     */
+    public void redo() {
+        showChange(buffer.redo());
+    }
+
+    private void showChange(long offset) {
+        if (offset >= 0) {
+            contentReplaced();
+            goToOffset(offset);
+        }
+    }
+
+    /**
+     * Release the mapped file when the window closes.
+     */
+    @Override
+    public void onClose() {
+        closed = true;
+        stopFollower();
+        stopIndexTimer();
+        try {
+            buffer.close();
+        } catch (IOException e) {
+            // Nothing useful to do while closing
+        }
+        super.onClose();
+    }
+
+    /**
+     * Handle keystrokes for navigation and editing.
+     *
+     * @param keypress keystroke event
+     */
+    @Override
+    public void onKeypress(TKeypressEvent keypress) {
+        int pageSize = Math.max(1, getHeight() - 3);
+        if (keypress.equals(kbUp)) {
+            moveToLine(cursorLine - 1);
+        } else if (keypress.equals(kbDown)) {
+            moveToLine(cursorLine + 1);
+        } else if (keypress.equals(kbPgUp)) {
+            moveToLine(cursorLine - pageSize);
+        } else if (keypress.equals(kbPgDn)) {
+            moveToLine(cursorLine + pageSize);
+        } else if (keypress.equals(kbCtrlHome)) {
+            moveToLine(0);
+            cursorColumn = 0;
+        } else if (keypress.equals(kbCtrlEnd)) {
+            moveToLine(buffer.lineCount() - 1);
+            cursorColumn = currentLine().length();
+        } else if (keypress.equals(kbHome)) {
+            cursorColumn = 0;
+        } else if (keypress.equals(kbEnd)) {
+            cursorColumn = currentLine().length();
+        } else if (keypress.equals(kbLeft)) {
+            moveLeft();
+        } else if (keypress.equals(kbRight)) {
+            moveRight();
+        } else if (keypress.equals(kbEnter)) {
+            insertText(lineSeparator());
+            buffer.sealChange();
+            cursorLine++;
+            cursorColumn = 0;
+        } else if (keypress.equals(kbCtrlZ)) {
+            undo();
+        } else if (keypress.equals(kbCtrlY)) {
+            redo();
+        } else if (keypress.equals(kbTab)) {
+            insertText("\t");
+            cursorColumn++;
+        } else if (keypress.equals(kbBackspace) || keypress.equals(kbBackspaceDel)) {
+            backspace();
+        } else if (keypress.equals(kbDel)) {
+            deleteForward();
+        } else if (!keypress.getKey().isFnKey()
+            && !keypress.getKey().isAlt()
+            && !keypress.getKey().isCtrl()) {
+            String text = new String(Character.toChars(keypress.getKey().getChar()));
+            insertText(text);
+            cursorColumn += text.length();
+        } else {
+            super.onKeypress(keypress);
+            return;
+        }
+        ensureCursorVisible();
+    }
+
+    /**
+     * Handle mouse wheel scrolling and cursor placement.
+     *
+     * @param mouse mouse button event
+     */
+    @Override
+    public void onMouseDown(TMouseEvent mouse) {
+        super.onMouseDown(mouse);
+        if (mouse.isMouseWheelUp()) {
+            topLine = Math.max(0, topLine - 3);
+        } else if (mouse.isMouseWheelDown()) {
+            topLine = Math.min(Math.max(0, buffer.lineCount() - 1), topLine + 3);
+        } else if (mouse.getX() > 0 && mouse.getX() < getWidth() - 1
+            && mouse.getY() > 0 && mouse.getY() < getHeight() - 1) {
+            moveToLine(topLine + mouse.getY() - 1);
+            cursorColumn = columnForScreen(currentLine(), leftColumn + mouse.getX() - 1);
+        }
+    }
+
+    /**
+     * Draw the visible lines and the cursor position.
+     */
+    @Override
+    public void draw() {
+        super.draw();
+
+        CellAttributes color = getTheme().getColor("teditor");
+        int rows = getHeight() - 2;
+        int columns = getWidth() - 2;
+        CellAttributes[] tokenColors = highlighter == null ? null : tokenColors(color);
+        for (int row = 0; row < rows; row++) {
+            long line = topLine + row;
+            if (tokenColors != null && line < buffer.lineCount()) {
+                drawHighlighted(row, line, columns, color, tokenColors);
+                continue;
+            }
+            String text = expandTabs(lineText(line));
+            String visible = text.length() > leftColumn
+                ? text.substring(leftColumn, Math.min(text.length(), leftColumn + columns))
+                : "";
+            getScreen().putStringXY(1, row + 1, pad(visible, columns), color);
+        }
+
+        LineIndex index = buffer.getLineIndex();
+        String status = String.format(" %s%d:%d ", buffer.isDirty() ? "* " : "",
+            cursorLine + 1, cursorColumn + 1);
+        if (buffer.getEncoding() != TextEncoding.UTF_8) {
+            status += buffer.getEncoding() + " ";
+        }
+        if (saving) {
+            status += "saving ";
+        }
+        if (following) {
+            status += "following ";
+        }
+        if (!index.isComplete()) {
+            status += String.format("indexing %d%% ", (int) (index.getProgress() * 100));
+        }
+        if (status.length() < getWidth() - 4) {
+            getScreen().putStringXY(2, getHeight() - 1, status,
+                getTheme().getColor("twindow.border"));
+        }
+
+        setCursorVisible(true);
+        setCursorX(1 + screenColumn(currentLine(), cursorColumn) - leftColumn);
+        setCursorY(1 + (int) (cursorLine - topLine));
+    }
+
+    /**
+     * Derive a color for each token type from the editor color.
+     */
+    private static CellAttributes[] tokenColors(CellAttributes base) {
+        CellAttributes[] colors = new CellAttributes[TokenType.values().length];
+        colors[TokenType.PLAIN.ordinal()] = base;
+        colors[TokenType.KEYWORD.ordinal()] = tokenColor(base, Color.YELLOW, true);
+        colors[TokenType.STRING.ordinal()] = tokenColor(base, Color.CYAN, false);
+        colors[TokenType.COMMENT.ordinal()] = tokenColor(base, Color.GREEN, false);
+        colors[TokenType.NUMBER.ordinal()] = tokenColor(base, Color.MAGENTA, true);
+        return colors;
+    }
+
+    private static CellAttributes tokenColor(CellAttributes base, Color fore, boolean bold) {
+        CellAttributes color = new CellAttributes(base);
+        color.setForeColor(fore);
+        color.setBold(bold);
+        return color;
+    }
+
+    /**
+     * Draw one line in runs of the same token type.
+     */
+    private void drawHighlighted(int row, long line, int columns, CellAttributes plain,
+                                 CellAttributes[] tokenColors) {
+        String raw = lineText(line);
+        byte[] rawTypes = highlighter.highlight(line, raw);
+        StringBuilder text = new StringBuilder(raw.length());
+        byte[] types = new byte[raw.length() + TAB_WIDTH];
+        for (int i = 0; i < raw.length(); i++) {
+            char ch = raw.charAt(i);
+            int width = ch == '\t' ? TAB_WIDTH - text.length() % TAB_WIDTH : 1;
+            if (text.length() + width > types.length) {
+                types = Arrays.copyOf(types, Math.max(types.length * 2, text.length() + width));
+            }
+            for (int k = 0; k < width; k++) {
+                types[text.length()] = rawTypes[i];
+                text.append(ch == '\t' ? ' ' : ch);
+            }
+        }
+        int end = Math.min(text.length(), leftColumn + columns);
+        int x = 1;
+        int runStart = leftColumn;
+        while (runStart < end) {
+            int runEnd = runStart + 1;
+            while (runEnd < end && types[runEnd] == types[runStart]) {
+                runEnd++;
+            }
+            getScreen().putStringXY(x, row + 1, text.substring(runStart, runEnd), tokenColors[types[runStart]]);
+            x += runEnd - runStart;
+            runStart = runEnd;
+        }
+        if (x <= columns) {
+            getScreen().putStringXY(x, row + 1, " ".repeat(columns - x + 1), plain);
+        }
+    }
+
+    private void moveToLine(long line) {
+        buffer.sealChange();
+        long last = Math.max(0, buffer.lineCount() - 1);
+        cursorLine = Math.max(0, Math.min(line, last));
+        cursorColumn = Math.min(cursorColumn, currentLine().length());
+    }
+
+    private void moveLeft() {
+        buffer.sealChange();
+        if (cursorColumn > 0) {
+            cursorColumn--;
+        } else if (cursorLine > 0) {
+            cursorLine--;
+            cursorColumn = currentLine().length();
+        }
+    }
+
+    private void moveRight() {
+        buffer.sealChange();
+        if (cursorColumn < currentLine().length()) {
+            cursorColumn++;
+        } else if (cursorLine < buffer.lineCount() - 1) {
+            cursorLine++;
+            cursorColumn = 0;
+        }
+    }
+
+    private void insertText(String text) {
+        buffer.insert(cursorOffset(), buffer.getEncoding().encode(text));
+        linesChanged(cursorLine, 0, (int) text.chars().filter(ch -> ch == '\n').count());
+    }
+
+    private void linesChanged(long line, int removed, int added) {
+        if (highlighter != null) {
+            highlighter.linesChanged(line, removed, added);
+        }
+    }
+
+    /**
+     * Get the line terminator for new lines: CRLF if the first line ends
+     * with one, LF otherwise.
+     */
+    private String lineSeparator() {
+        long second = buffer.lineStart(1);
+        if (second > 0 && buffer.terminatorLength(second) == 2 * buffer.getEncoding().unitSize()) {
+            return "\r\n";
+        }
+        return "\n";
+    }
+
+    private void backspace() {
+        if (cursorColumn > 0) {
+            String line = currentLine();
+            long end = cursorOffset();
+            cursorColumn--;
+            long start = cursorOffset();
+            if (Character.isLowSurrogate(line.charAt(cursorColumn)) && cursorColumn > 0) {
+                cursorColumn--;
+                start = cursorOffset();
+            }
+            buffer.delete(start, end - start);
+            linesChanged(cursorLine, 0, 0);
+        } else if (cursorLine > 0) {
+            long lineStart = buffer.lineStart(cursorLine);
+            cursorLine--;
+            cursorColumn = currentLine().length();
+            int terminator = buffer.terminatorLength(lineStart);
+            buffer.delete(lineStart - terminator, terminator);
+            linesChanged(cursorLine, 1, 0);
+        }
+    }
+
+    private void deleteForward() {
+        String line = currentLine();
+        if (cursorColumn < line.length()) {
+            int next = line.offsetByCodePoints(cursorColumn, 1);
+            long start = cursorOffset();
+            long length = buffer.getEncoding().encodedLength(line, cursorColumn, next);
+            buffer.delete(start, length);
+            linesChanged(cursorLine, 0, 0);
+        } else {
+            long nextStart = buffer.lineStart(cursorLine + 1);
+            if (nextStart > 0) {
+                int terminator = buffer.terminatorLength(nextStart);
+                buffer.delete(nextStart - terminator, terminator);
+                linesChanged(cursorLine, 1, 0);
+            }
+        }
+    }
+
+    private long cursorOffset() {
+        String line = currentLine();
+        return buffer.textStart(cursorLine) + buffer.getEncoding().encodedLength(line, 0, cursorColumn);
+    }
+
+    private void ensureCursorVisible() {
+        int rows = Math.max(1, getHeight() - 2);
+        int columns = Math.max(1, getWidth() - 2);
+        if (cursorLine < topLine) {
+            topLine = cursorLine;
+        } else if (cursorLine >= topLine + rows) {
+            topLine = cursorLine - rows + 1;
+        }
+        int screenColumn = screenColumn(currentLine(), cursorColumn);
+        if (screenColumn < leftColumn) {
+            leftColumn = screenColumn;
+        } else if (screenColumn >= leftColumn + columns) {
+            leftColumn = screenColumn - columns + 1;
+        }
+    }
+
+    private String currentLine() {
+        return lineText(cursorLine);
+    }
+
+    private String lineText(long line) {
+        String text = buffer.lineText(line, MAX_LINE_BYTES);
+        return text == null ? "" : text;
+    }
+
+    /**
+     * Get the screen column of a character, taking tabs into account.
+     *
+     * @param line the line text
+     * @param column character index in the line
+     * @return the column on screen
+     */
+    static int screenColumn(String line, int column) {
+        int screen = 0;
+        for (int i = 0; i < column && i < line.length(); i++) {
+            screen = line.charAt(i) == '\t' ? (screen / TAB_WIDTH + 1) * TAB_WIDTH : screen + 1;
+        }
+        return screen;
+    }
+
+    /**
+     * Get the character index shown at a screen column.
+     *
+     * @param line the line text
+     * @param screen the column on screen
+     * @return the character index, clamped to the line length
+     */
+    static int columnForScreen(String line, int screen) {
+        int current = 0;
+        for (int i = 0; i < line.length(); i++) {
+            int next = line.charAt(i) == '\t' ? (current / TAB_WIDTH + 1) * TAB_WIDTH : current + 1;
+            if (next > screen) {
+                return i;
+            }
+            current = next;
+        }
+        return line.length();
+    }
+
+    /**
+     * Replace the tabs of a line with spaces up to the next tab stop.
+     *
+     * @param line the line text
+     * @return the text as shown on screen
+     */
+    public static String expandTabs(String line) {
+        if (line.indexOf('\t') < 0) {
+            return line;
+        }
+        StringBuilder expanded = new StringBuilder(line.length() + TAB_WIDTH);
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (ch == '\t') {
+                do {
+                    expanded.append(' ');
+                } while (expanded.length() % TAB_WIDTH != 0);
+            } else {
+                expanded.append(ch);
+            }
+        }
+        return expanded.toString();
+    }
+
+    private static String pad(String text, int width) {
+        if (text.length() >= width) {
+            return text;
+        }
+        return text + " ".repeat(width - text.length());
+    }
+}
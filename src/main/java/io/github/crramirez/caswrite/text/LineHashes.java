@@ -0,0 +1,193 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import io.github.crramirez.caswrite.load.LoadProgress;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Hashes of the lines of a file, for comparing files line by line.
+ *
+ * A line is hashed without its terminator, the carriage return before it
+ * and, on the first line, the byte order mark, so files differing only in
+ * line endings have the same hashes. Code units are hashed, UTF-16 ones
+ * by their value, so ASCII text hashes the same in every charset but
+ * other text only between files in the same charset. The file is hashed
+ * as it is on disk, whatever edits the buffer holds.
+ *
+ * The lines are hashed in parallel: the work is split into fork-join tasks
+ * on the common pool over ranges of lines starting at {@link LineIndex}
+ * checkpoints, and each task checks the progress for cancellation before
+ * it starts.
+ */
+public final class LineHashes {
+
+    // Lines hashed by a single task; a multiple of the index stride, so
+    // that every task starts at a checkpoint
+    static final int GRAIN = 64 * LineIndex.STRIDE;
+
+    // Largest line count a hash array can hold
+    private static final int MAX_LINES = Integer.MAX_VALUE - 8;
+
+    // Bytes copied out of the mapped file at a time
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private LineHashes() {
+    }
+
+    /**
+     * Hash every line of the file of a buffer. Builds the line index first
+     * if it is not complete yet.
+     *
+     * @param buffer the buffer
+     * @param progress receives progress in bytes and cancellation requests
+     * @return one hash per line
+     * @throws IllegalArgumentException if the file has too many lines
+     */
+    public static long[] of(TextBuffer buffer, LoadProgress progress) {
+        LineIndex index = buffer.getLineIndex();
+        index.run();
+        progress.checkCancelled();
+        long lines = index.getIndexedNewlines() + 1;
+        if (lines > MAX_LINES) {
+            throw new IllegalArgumentException("Too many lines to compare: " + lines);
+        }
+        long[] hashes = new long[(int) lines];
+        ForkJoinPool.commonPool().invoke(new HashTask(buffer.getOriginal(), index, buffer.getEncoding(),
+            hashes, 0, hashes.length, progress));
+        return hashes;
+    }
+
+    /**
+     * Hashes the lines of a range, or splits it in two.
+     */
+    private static final class HashTask extends RecursiveAction {
+        private final MappedFile file;
+        private final LineIndex index;
+        private final TextEncoding encoding;
+        private final long[] hashes;
+        private final int from;
+        private final int to;
+        private final LoadProgress progress;
+
+        HashTask(MappedFile file, LineIndex index, TextEncoding encoding, long[] hashes, int from, int to,
+                 LoadProgress progress) {
+            this.file = file;
+            this.index = index;
+            this.encoding = encoding;
+            this.hashes = hashes;
+            this.from = from;
+            this.to = to;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            progress.checkCancelled();
+            if (to - from <= GRAIN) {
+                hashLines();
+                return;
+            }
+            int middle = from + Math.max(1, (to - from) / 2 / GRAIN) * GRAIN;
+            invokeAll(new HashTask(file, index, encoding, hashes, from, middle, progress),
+                new HashTask(file, index, encoding, hashes, middle, to, progress));
+        }
+
+        /**
+         * Hash the lines one code unit at a time, UTF-16 units by their char
+         * value. A carriage return is only hashed once the unit after it
+         * shows it does not end the line.
+         */
+        private void hashLines() {
+            int unit = encoding.unitSize();
+            // In UTF-16 the newline byte is the second one of the unit
+            boolean littleEndian = unit == 2 && encoding.newlineByte() == 0;
+            long size = file.size();
+            long first = index.select(from);
+            long end = to == hashes.length ? size : index.select(to);
+            byte[] block = new byte[(int) Math.min(BLOCK_SIZE, Math.max(unit, end - first))];
+            long start = first;
+            if (from == 0) {
+                int head = (int) Math.min(block.length, size);
+                file.get(0, block, 0, head);
+                start = encoding.bomLength(block, head);
+            }
+
+            int line = from;
+            long hash = FNV_OFFSET;
+            boolean pendingReturn = false;
+            long position = start;
+            while (line < to && position < size) {
+                int count = (int) Math.min(block.length, size - position);
+                count -= count % unit;
+                if (count == 0) {
+                    break;
+                }
+                file.get(position, block, 0, count);
+                for (int i = 0; i < count && line < to; i += unit) {
+                    int value;
+                    if (unit == 1) {
+                        value = block[i] & 0xFF;
+                    } else if (littleEndian) {
+                        value = (block[i + 1] & 0xFF) << 8 | block[i] & 0xFF;
+                    } else {
+                        value = (block[i] & 0xFF) << 8 | block[i + 1] & 0xFF;
+                    }
+                    if (value == '\n') {
+                        hashes[line++] = finish(hash);
+                        hash = FNV_OFFSET;
+                        pendingReturn = false;
+                        continue;
+                    }
+                    if (pendingReturn) {
+                        hash = (hash ^ '\r') * FNV_PRIME;
+                    }
+                    pendingReturn = value == '\r';
+                    if (!pendingReturn) {
+                        hash = (hash ^ value) * FNV_PRIME;
+                    }
+                }
+                position += count;
+            }
+            if (line < to) {
+                // The last line of the file has no terminator
+                if (pendingReturn) {
+                    hash = (hash ^ '\r') * FNV_PRIME;
+                }
+                hashes[line] = finish(hash);
+            }
+            progress.advance(end - first, 0);
+        }
+
+        /**
+         * Mix the bits of a hash, so that its low bits alone spread well.
+         */
+        private static long finish(long hash) {
+            hash ^= hash >>> 33;
+            hash *= 0xFF51AFD7ED558CCDL;
+            hash ^= hash >>> 33;
+            hash *= 0xC4CEB9FE1A85EC53L;
+            return hash ^ hash >>> 33;
+        }
+    }
+}
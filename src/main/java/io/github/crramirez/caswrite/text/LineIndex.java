@@ -0,0 +1,359 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import io.github.crramirez.caswrite.session.PersistentIndex;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sparse line-offset index over a {@link MappedFile}.
+ *
+ * Only the start offset of every {@value #STRIDE}th line is stored, so the
+ * index costs a few megabytes even for files with hundreds of millions of
+ * lines. The number of newlines before every {@value #BYTE_STRIDE}th byte
+ * is stored as well, so that files with very long lines, or none at all,
+ * need no more checkpoints than bytes allow. Exact positions are resolved
+ * by scanning from the nearest checkpoint of either kind, at most
+ * {@value #STRIDE} lines and {@value #BYTE_STRIDE} bytes.
+ *
+ * The index is built by {@link #run()}, normally on a background thread.
+ * Queries are safe from other threads while the build is in progress; they
+ * only answer for the part of the file scanned so far. When the mapped file
+ * grows, running the index again scans only the new bytes.
+ *
+ * A newline is counted at its last byte, so in UTF-16 files, where it
+ * takes two bytes, line starts are still one past the counted position.
+ *
+ * A complete index can be kept with the session and restored before the
+ * index is first run, so reopening the file does not scan it again.
+ */
+public final class LineIndex implements Runnable, PersistentIndex {
+
+    /** Number of lines between stored checkpoints. */
+    public static final int STRIDE = 64;
+
+    /** Number of bytes between stored newline counts. */
+    static final int BYTE_STRIDE = 64 * 1024;
+
+    // Publish progress every this many bytes
+    private static final int PUBLISH_INTERVAL = 1 << 20;
+
+    private final MappedFile file;
+    private final TextEncoding encoding;
+    private final byte newline;
+
+    // checkpoints[i] is the start offset of line i * STRIDE
+    private long[] checkpoints = new long[1024];
+
+    // byteRanks[i] is the number of newlines before offset i * BYTE_STRIDE
+    private long[] byteRanks = new long[1024];
+
+    // Written only by the building thread, published through the volatiles below
+    private volatile int checkpointCount = 1;
+    private volatile int byteRankCount = 1;
+    private volatile long indexedLimit;
+    private volatile long indexedNewlines;
+    private volatile boolean complete;
+    private volatile boolean cancelled;
+
+    /**
+     * Create an index for a mapped UTF-8 file. Nothing is scanned until
+     * {@link #run()} is called.
+     *
+     * @param file the file to index
+     */
+    public LineIndex(MappedFile file) {
+        this(file, TextEncoding.UTF_8);
+    }
+
+    /**
+     * Create an index for a mapped file. Nothing is scanned until
+     * {@link #run()} is called.
+     *
+     * @param file the file to index
+     * @param encoding the encoding of the file, which decides what a
+     * newline looks like
+     */
+    public LineIndex(MappedFile file, TextEncoding encoding) {
+        this.file = file;
+        this.encoding = encoding;
+        this.newline = encoding.newlineByte();
+        this.complete = file.size() == 0;
+    }
+
+    /**
+     * Scan the part of the file not indexed yet. Returns early if
+     * {@link #cancel()} is called.
+     */
+    @Override
+    public synchronized void run() {
+        long size = file.size();
+        long newlines = indexedNewlines;
+        long position = indexedLimit;
+        if (position < size) {
+            complete = false;
+        }
+        while (position < size && !cancelled) {
+            long end = Math.min(size, position + PUBLISH_INTERVAL);
+            while (position < end) {
+                long boundary = (long) byteRankCount * BYTE_STRIDE;
+                long stop = Math.min(end, boundary);
+                for (long i = position; i < stop; i++) {
+                    if (file.get(i) == newline && isNewline(i)) {
+                        newlines++;
+                        if (newlines % STRIDE == 0) {
+                            addCheckpoint(i + 1);
+                        }
+                    }
+                }
+                position = stop;
+                if (position == boundary) {
+                    addByteRank(newlines);
+                }
+            }
+            indexedNewlines = newlines;
+            indexedLimit = position;
+        }
+        if (!cancelled) {
+            complete = true;
+        }
+    }
+
+    /**
+     * Stop a build in progress.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public String signature() {
+        return "lines/" + STRIDE + "/" + BYTE_STRIDE + "/" + encoding.charset().name();
+    }
+
+    @Override
+    public synchronized void writeTo(DataOutput out) throws IOException {
+        int count = checkpointCount;
+        out.writeLong(indexedLimit);
+        out.writeLong(indexedNewlines);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeLong(checkpoints[i]);
+        }
+        int ranks = byteRankCount;
+        for (int i = 0; i < ranks; i++) {
+            out.writeLong(byteRanks[i]);
+        }
+    }
+
+    @Override
+    public synchronized void readFrom(DataInput in) throws IOException {
+        long limit = in.readLong();
+        long newlines = in.readLong();
+        int count = in.readInt();
+        if (limit < 0 || limit > file.size() || newlines < 0 || count != newlines / STRIDE + 1) {
+            throw new IOException("Line index does not match the file");
+        }
+        long[] points = new long[Math.max(count, 1024)];
+        for (int i = 0; i < count; i++) {
+            points[i] = in.readLong();
+            if (points[i] > limit || (i == 0 ? points[i] != 0 : points[i] <= points[i - 1])) {
+                throw new IOException("Line index is corrupt");
+            }
+        }
+        long[] ranks = new long[(int) Math.max(limit / BYTE_STRIDE + 1, 1024)];
+        for (int i = 0; i <= limit / BYTE_STRIDE; i++) {
+            ranks[i] = in.readLong();
+            if (ranks[i] > newlines || (i == 0 ? ranks[i] != 0 : ranks[i] < ranks[i - 1])) {
+                throw new IOException("Line index is corrupt");
+            }
+        }
+        checkpoints = points;
+        checkpointCount = count;
+        byteRanks = ranks;
+        byteRankCount = (int) (limit / BYTE_STRIDE + 1);
+        indexedNewlines = newlines;
+        indexedLimit = limit;
+        complete = limit == file.size();
+    }
+
+    /**
+     * Estimate the heap held by the checkpoints.
+     *
+     * @return the estimate in bytes
+     */
+    long estimateHeapBytes() {
+        return (checkpoints.length + byteRanks.length) * 8L;
+    }
+
+    /**
+     * Check whether the whole file has been indexed.
+     *
+     * @return true once the build has finished
+     */
+    @Override
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Get the number of bytes indexed so far.
+     *
+     * @return the offset up to which queries can be answered
+     */
+    @Override
+    public long getIndexedLimit() {
+        return indexedLimit;
+    }
+
+    /**
+     * Get the number of newlines found so far.
+     *
+     * @return the number of newlines before {@link #getIndexedLimit()}
+     */
+    public long getIndexedNewlines() {
+        return indexedNewlines;
+    }
+
+    /**
+     * Get the fraction of the file indexed so far.
+     *
+     * @return a value between 0 and 1
+     */
+    public double getProgress() {
+        long size = file.size();
+        return size == 0 ? 1.0 : (double) getIndexedLimit() / size;
+    }
+
+    /**
+     * Count the newlines before a position.
+     *
+     * @param offset absolute position in the file
+     * @return the number of newlines in [0, offset), or -1 if that part
+     * of the file has not been indexed yet
+     */
+    public long rank(long offset) {
+        if (offset > getIndexedLimit()) {
+            return -1;
+        }
+        // Read the volatile counts first so the array references are current
+        int count = checkpointCount;
+        long[] points = checkpoints;
+        int ranks = byteRankCount;
+        long[] counts = byteRanks;
+        int index = Arrays.binarySearch(points, 0, count, offset);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        long start = points[index];
+        long newlines = (long) index * STRIDE;
+        int block = (int) Math.min(offset / BYTE_STRIDE, ranks - 1);
+        if ((long) block * BYTE_STRIDE > start) {
+            start = (long) block * BYTE_STRIDE;
+            newlines = counts[block];
+        }
+        for (long i = start; i < offset; i++) {
+            if (file.get(i) == newline && isNewline(i)) {
+                newlines++;
+            }
+        }
+        return newlines;
+    }
+
+    /**
+     * Find the start of a line.
+     *
+     * @param line zero-based line number
+     * @return the offset just after the line-th newline, or -1 if that line
+     * has not been indexed yet
+     */
+    public long select(long line) {
+        if (line == 0) {
+            return 0;
+        }
+        if (line > indexedNewlines) {
+            return -1;
+        }
+        int count = checkpointCount;
+        long[] points = checkpoints;
+        int ranks = byteRankCount;
+        long[] counts = byteRanks;
+        int index = (int) (line / STRIDE);
+        if (index >= count) {
+            return -1;
+        }
+        long position = points[index];
+        long remaining = line - (long) index * STRIDE;
+        // The last block starting before the line-th newline
+        int block = lastBlockBefore(counts, ranks, line);
+        if ((long) block * BYTE_STRIDE > position) {
+            position = (long) block * BYTE_STRIDE;
+            remaining = line - counts[block];
+        }
+        while (remaining > 0) {
+            if (file.get(position) == newline && isNewline(position)) {
+                remaining--;
+            }
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Find the last byte stride with fewer newlines before it than a count.
+     */
+    private static int lastBlockBefore(long[] counts, int size, long newlines) {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (counts[middle] < newlines) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private boolean isNewline(long position) {
+        return encoding.endsLine(position, position > 0 ? file.get(position - 1) : 0);
+    }
+
+    private void addByteRank(long newlines) {
+        int count = byteRankCount;
+        if (count == byteRanks.length) {
+            byteRanks = Arrays.copyOf(byteRanks, count * 2);
+        }
+        byteRanks[count] = newlines;
+        byteRankCount = count + 1;
+    }
+
+    private void addCheckpoint(long offset) {
+        int count = checkpointCount;
+        if (count == checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, count * 2);
+        }
+        checkpoints[count] = offset;
+        checkpointCount = count + 1;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read-only, memory-mapped view of a file of any size.
+ *
+ * A single MappedByteBuffer is limited to 2 GiB, so the file is mapped
+ * as a sequence of fixed-size segments. Mapping only reserves address
+ * space; pages are faulted in by the OS as they are read, so opening a
+ * file costs the same regardless of its size.
+ *
+ * A file that grows can be mapped further with {@link #extendTo(long)}.
+ * Bytes already mapped never move, so readers can keep using positions
+ * below the size they last saw while the mapping grows.
+ */
+public final class MappedFile implements ByteSource, Closeable {
+
+    // Size of each mapped segment (1 GiB)
+    static final int SEGMENT_SHIFT = 30;
+    static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final Path path;
+    private final FileChannel channel;
+    // The segments are replaced before the size, so a reader that sees a
+    // new size also sees the segments covering it
+    private volatile long size;
+    private MappedByteBuffer[] segments;
+
+    private MappedFile(Path path, FileChannel channel, long size,
+                       MappedByteBuffer[] segments) {
+        this.path = path;
+        this.channel = channel;
+        this.size = size;
+        this.segments = segments;
+    }
+
+    /**
+     * Map a file for reading.
+     *
+     * @param path the file to map
+     * @return the mapped file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static MappedFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            MappedByteBuffer[] segments = map(channel, new MappedByteBuffer[0], 0, size);
+            return new MappedFile(path, channel, size, segments);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Map bytes appended to the file since it was opened. Readers on other
+     * threads may keep reading while this runs.
+     *
+     * @param newSize the size to map up to; ignored unless larger than the
+     * current size, and limited to the size of the file itself
+     * @throws IOException if the new region cannot be mapped
+     */
+    public synchronized void extendTo(long newSize) throws IOException {
+        // Mapping past the end of the file would fault on access
+        long target = Math.min(newSize, channel.size());
+        if (target <= size) {
+            return;
+        }
+        segments = map(channel, segments, size, target);
+        size = target;
+    }
+
+    /**
+     * Map the segments needed to cover a file, remapping the last one if it
+     * was only partly mapped.
+     *
+     * @param channel the file
+     * @param mapped the segments mapped so far
+     * @param oldSize the size they cover
+     * @param newSize the size to cover
+     * @return the segments covering newSize bytes
+     * @throws IOException if mapping fails
+     */
+    private static MappedByteBuffer[] map(FileChannel channel, MappedByteBuffer[] mapped,
+                                          long oldSize, long newSize) throws IOException {
+        int count = (int) ((newSize + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] segments = Arrays.copyOf(mapped, count);
+        for (int i = (int) (oldSize >>> SEGMENT_SHIFT); i < count; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            long length = Math.min(SEGMENT_SIZE, newSize - start);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        }
+        return segments;
+    }
+
+    /**
+     * Get the path of the mapped file.
+     *
+     * @return the path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Get the size of the mapped region in bytes. It grows when the file
+     * is extended.
+     *
+     * @return the size in bytes
+     */
+    @Override
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Read a single byte.
+     *
+     * @param position absolute position in the file
+     * @return the byte at that position
+     */
+    @Override
+    public byte get(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * Copy a range of bytes into an array. The range may span segments.
+     *
+     * @param position absolute position in the file
+     * @param dst destination array
+     * @param offset offset in the destination array
+     * @param length number of bytes to copy
+     */
+    @Override
+    public void get(long position, byte[] dst, int offset, int length) {
+        while (length > 0) {
+            int segment = (int) (position >>> SEGMENT_SHIFT);
+            int segmentOffset = (int) (position & SEGMENT_MASK);
+            int chunk = Math.min(length, segments[segment].limit() - segmentOffset);
+            segments[segment].get(segmentOffset, dst, offset, chunk);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Get a read-only view of a range that lies within a single segment.
+     * Callers that need arbitrary ranges should split them with
+     * {@link #contiguousLength(long, long)} first.
+     *
+     * @param position absolute position in the file
+     * @param length number of bytes, must not cross a segment boundary
+     * @return a buffer positioned at zero with the requested limit
+     */
+    public ByteBuffer slice(long position, int length) {
+        int segment = (int) (position >>> SEGMENT_SHIFT);
+        int segmentOffset = (int) (position & SEGMENT_MASK);
+        return segments[segment].slice(segmentOffset, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * Get how many bytes of a range can be read from the segment holding
+     * its first byte.
+     *
+     * @param position absolute position in the file
+     * @param length the length of the whole range
+     * @return the number of bytes available before the next segment boundary
+     */
+    public int contiguousLength(long position, long length) {
+        long toBoundary = SEGMENT_SIZE - (position & SEGMENT_MASK);
+        return (int) Math.min(length, toBoundary);
+    }
+
+    /**
+     * Close the underlying channel. The mapped pages are released when the
+     * buffers are garbage collected.
+     *
+     * @throws IOException if closing the channel fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import casciian.TAction;
+import casciian.TApplication;
+import casciian.TButton;
+import casciian.TLabel;
+import casciian.TList;
+import casciian.TTimer;
+import casciian.TWindow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Non-modal list of the matches of a {@link TextSearch}.
+ *
+ * Matches appear while the search is still running. Selecting one moves
+ * the cursor of the editor window to it; for a replace, the Replace All
+ * button becomes available once the whole document has been searched.
+ * Closing the window cancels the search.
+ */
+public class SearchResultsWindow extends TWindow {
+
+    private static final long REFRESH_MILLIS = 200;
+
+    private static final int WIDTH = 72;
+    private static final int HEIGHT = 18;
+
+    // Matches listed at most; the count in the status line covers all
+    static final int MAX_LISTED = 10_000;
+
+    // Characters of the line shown before each match
+    private static final int CONTEXT_BEFORE = 20;
+
+    // Matches further into a line than this are listed without context
+    private static final int MAX_CONTEXT_SCAN = 64 * 1024;
+
+    private final LargeTextWindow editor;
+    private final TextSearch search;
+    private final List<String> entries = new ArrayList<>();
+    private final TLabel status;
+    private final TList list;
+    private TButton replaceButton;
+    private TTimer refreshTimer;
+
+    /**
+     * Open the window for a search and start it.
+     *
+     * @param application the application
+     * @param editor the window whose buffer is searched
+     * @param search the search, not started yet
+     */
+    public SearchResultsWindow(TApplication application, LargeTextWindow editor, TextSearch search) {
+        super(application, (search.isReplacing() ? "Replace: " : "Find: ") + search.getQuery(),
+            WIDTH, HEIGHT, CENTERED);
+        this.editor = editor;
+        this.search = search;
+
+        status = addLabel("", 1, 1);
+        list = addList(entries, 1, 3, WIDTH - 4, HEIGHT - 8, new TAction() {
+            @Override
+            public void DO() {
+                goToSelected();
+            }
+        });
+        if (search.isReplacing()) {
+            replaceButton = addButton("Replace &All", 1, HEIGHT - 4, new TAction() {
+                @Override
+                public void DO() {
+                    replaceAll();
+                }
+            });
+            replaceButton.setEnabled(false);
+        }
+
+        Thread.ofVirtual().name("CasWrite-Search").start(search);
+        refreshTimer = application.addTimer(REFRESH_MILLIS, true, new TAction() {
+            @Override
+            public void DO() {
+                refresh();
+            }
+        });
+    }
+
+    /**
+     * Get the search shown in this window.
+     *
+     * @return the search
+     */
+    public TextSearch getSearch() {
+        return search;
+    }
+
+    private void refresh() {
+        boolean done = search.isComplete();
+        int count = search.getHitCount();
+        boolean valid = search.isValidFor(editor.getBuffer());
+        if (valid && entries.size() < Math.min(count, MAX_LISTED)) {
+            int selected = list.getSelectedIndex();
+            while (entries.size() < Math.min(count, MAX_LISTED)) {
+                entries.add(describe(search.getOffset(entries.size())));
+            }
+            list.setList(entries);
+            if (selected >= 0) {
+                list.setSelectedIndex(selected);
+            }
+        }
+
+        String text = String.format("%,d match%s", count, count == 1 ? "" : "es");
+        if (!valid) {
+            text += " - document changed, search again";
+        } else if (search.getError() != null) {
+            text += " - " + search.getError();
+        } else if (search.isTruncated()) {
+            text += " - too many matches, stopped";
+        } else if (!done) {
+            text += String.format(" - searching %d%%", (int) (search.getProgress() * 100));
+        } else if (count > MAX_LISTED) {
+            text += String.format(", first %,d listed", MAX_LISTED);
+        }
+        status.setLabel(fit(text, WIDTH - 4));
+        if (replaceButton != null) {
+            replaceButton.setEnabled(valid && done && count > 0 && !search.isCancelled()
+                && !search.isTruncated() && search.getError() == null);
+        }
+        if (!valid || (done && entries.size() == Math.min(count, MAX_LISTED))) {
+            stopTimer();
+        }
+        getApplication().doRepaint();
+    }
+
+    /**
+     * Describe a match as line:column followed by the text around it.
+     *
+     * @param offset document offset of the match
+     * @return the list entry
+     */
+    private String describe(long offset) {
+        TextBuffer buffer = editor.getBuffer();
+        long line = buffer.lineOf(offset);
+        if (line < 0) {
+            return String.format("@%,d", offset);
+        }
+        long lineStart = buffer.lineStart(line);
+        if (offset - lineStart > MAX_CONTEXT_SCAN) {
+            return String.format("%d:@%,d", line + 1, offset - lineStart);
+        }
+        byte[] bytes = buffer.lineBytes(line, (int) (offset - lineStart) + WIDTH * 4);
+        if (bytes == null) {
+            return String.format("@%,d", offset);
+        }
+        int before = (int) Math.min(bytes.length, offset - lineStart);
+        TextEncoding encoding = buffer.getEncoding();
+        String prefix = encoding.decode(bytes, 0, before);
+        String rest = encoding.decode(bytes, before, bytes.length - before);
+        if (line == 0 && prefix.startsWith("\uFEFF")) {
+            prefix = prefix.substring(1);
+        }
+        String context = prefix.length() > CONTEXT_BEFORE
+            ? "..." + prefix.substring(prefix.length() - CONTEXT_BEFORE) : prefix;
+        String entry = String.format("%d:%d: ", line + 1, prefix.length() + 1)
+            + (context + rest).replace('\t', ' ');
+        return fit(entry, WIDTH - 6);
+    }
+
+    private void goToSelected() {
+        int selected = list.getSelectedIndex();
+        if (selected < 0 || selected >= entries.size()) {
+            return;
+        }
+        if (!search.isValidFor(editor.getBuffer())) {
+            getApplication().messageBox("Find", "The document changed since the search; search again.");
+            return;
+        }
+        editor.goToOffset(search.getOffset(selected));
+        getApplication().activateWindow(editor);
+    }
+
+    private void replaceAll() {
+        if (!search.isValidFor(editor.getBuffer())) {
+            getApplication().messageBox("Replace", "The document changed since the search; search again.");
+            return;
+        }
+        int replaced = search.replaceAll();
+        editor.contentReplaced();
+        close();
+        getApplication().activateWindow(editor);
+        getApplication().messageBox("Replace", String.format("Replaced %,d match%s.",
+            replaced, replaced == 1 ? "" : "es"));
+    }
+
+    private void stopTimer() {
+        if (refreshTimer != null) {
+            getApplication().removeTimer(refreshTimer);
+            refreshTimer = null;
+        }
+    }
+
+    /**
+     * Stop the search when the window is closed.
+     */
+    @Override
+    public void onClose() {
+        search.cancel();
+        stopTimer();
+        super.onClose();
+    }
+
+    private static String fit(String text, int width) {
+        return text.length() <= width ? text : text.substring(0, width - 3) + "...";
+    }
+}
@@ -0,0 +1,1349 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import io.github.crramirez.caswrite.save.AtomicFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Piece-table text buffer over a memory-mapped file.
+ *
+ * The document is described by a sequence of pieces, each pointing either
+ * into the original file or into an append-only {@link AddBuffer} holding
+ * typed text. Opening a file only maps it; memory grows with the number of
+ * edits, not with the size of the file. The pieces are kept in a treap
+ * whose nodes also hold the length and newline count of their subtree, so
+ * finding an offset or a line takes logarithmic time however many pieces a
+ * replace-all has left. Line positions come from a
+ * {@link LineIndex} over the original file, which the caller builds in the
+ * background, and from newline positions recorded in the add buffer.
+ *
+ * The document keeps the charset of the file. Nothing is transcoded on
+ * open or save; lines are decoded with the file's {@link TextEncoding}
+ * only when they are shown, and typed text is encoded with it before it
+ * is inserted.
+ *
+ * Edits can be undone and redone. The {@link UndoHistory} records the
+ * pieces an edit removed and inserted rather than any text, and moves its
+ * oldest changes to a journal file past {@code -Dcaswrite.undoMemory}
+ * bytes of heap.
+ *
+ * This class is not thread-safe; edits and queries are expected to happen
+ * on the application thread. Only the line index is built concurrently.
+ */
+public final class TextBuffer implements Closeable {
+
+    /**
+     * A contiguous run of bytes from one of the two sources, and a node of
+     * the piece tree: in document order, and with the highest priority at
+     * the root of each subtree.
+     */
+    private static final class Piece {
+        final boolean original;
+        final long start;
+        final long length;
+        // Number of newlines in this piece, -1 until known
+        long newlines = -1;
+
+        Piece left;
+        Piece right;
+        int priority = ThreadLocalRandom.current().nextInt();
+        // Totals of the subtree rooted here; lines is -1 while the
+        // newlines of one of its pieces are not known
+        long bytes;
+        long lines;
+        int count;
+
+        Piece(boolean original, long start, long length) {
+            this.original = original;
+            this.start = start;
+            this.length = length;
+        }
+
+        long end() {
+            return start + length;
+        }
+    }
+
+    /**
+     * Immutable view of the document at one point in time, safe to read
+     * from a background thread while the buffer keeps being edited. Taking
+     * a snapshot copies the piece list but none of the text: the original
+     * file is mapped read-only and the add buffer is append-only.
+     */
+    public static final class Snapshot {
+        private final MappedFile original;
+        private final byte[] added;
+        private final boolean[] fromOriginal;
+        private final long[] sourceStarts;
+        private final long[] documentStarts;
+        private final long[] lengths;
+        private final long size;
+        private final long modCount;
+
+        private Snapshot(TextBuffer buffer) {
+            List<Piece> pieces = buffer.pieces();
+            int count = pieces.size();
+            this.original = buffer.original;
+            this.added = buffer.added.array();
+            this.fromOriginal = new boolean[count];
+            this.sourceStarts = new long[count];
+            this.documentStarts = new long[count];
+            this.lengths = new long[count];
+            long position = 0;
+            for (int i = 0; i < count; i++) {
+                Piece piece = pieces.get(i);
+                fromOriginal[i] = piece.original;
+                sourceStarts[i] = piece.start;
+                documentStarts[i] = position;
+                lengths[i] = piece.length;
+                position += piece.length;
+            }
+            this.size = position;
+            this.modCount = buffer.modCount;
+        }
+
+        /**
+         * Get the length of the document when the snapshot was taken.
+         *
+         * @return the length in bytes
+         */
+        public long size() {
+            return size;
+        }
+
+        /**
+         * Get the modification count of the buffer when the snapshot was
+         * taken.
+         *
+         * @return the modification count
+         * @see TextBuffer#getModCount()
+         */
+        public long getModCount() {
+            return modCount;
+        }
+
+        /**
+         * Copy a range of the document into an array.
+         *
+         * @param offset document offset
+         * @param dst destination array
+         * @param dstOffset offset in the destination array
+         * @param count number of bytes to copy
+         */
+        public void read(long offset, byte[] dst, int dstOffset, int count) {
+            int index = Arrays.binarySearch(documentStarts, offset);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            while (count > 0) {
+                long skip = offset - documentStarts[index];
+                int chunk = (int) Math.min(count, lengths[index] - skip);
+                if (fromOriginal[index]) {
+                    original.get(sourceStarts[index] + skip, dst, dstOffset, chunk);
+                } else {
+                    System.arraycopy(added, (int) (sourceStarts[index] + skip), dst, dstOffset, chunk);
+                }
+                offset += chunk;
+                dstOffset += chunk;
+                count -= chunk;
+                index++;
+            }
+        }
+
+        /**
+         * Write the whole document to a channel. Unchanged and edited
+         * segments are handed to the channel straight from the mapped file
+         * and the add buffer, as one gathering write per batch if the
+         * channel supports it.
+         *
+         * @param channel the destination
+         * @throws IOException if writing fails
+         */
+        public void writeTo(WritableByteChannel channel) throws IOException {
+            ByteBuffer[] batch = new ByteBuffer[GATHER_BATCH];
+            int count = 0;
+            for (int i = 0; i < lengths.length; i++) {
+                long position = sourceStarts[i];
+                long remaining = lengths[i];
+                while (remaining > 0) {
+                    ByteBuffer segment;
+                    if (fromOriginal[i]) {
+                        segment = original.slice(position, original.contiguousLength(position, remaining));
+                    } else {
+                        segment = ByteBuffer.wrap(added, (int) position, (int) remaining);
+                    }
+                    position += segment.remaining();
+                    remaining -= segment.remaining();
+                    batch[count++] = segment;
+                    if (count == batch.length) {
+                        drain(channel, batch, count);
+                        count = 0;
+                    }
+                }
+            }
+            drain(channel, batch, count);
+        }
+
+        private static void drain(WritableByteChannel channel, ByteBuffer[] batch, int count)
+                throws IOException {
+            int first = 0;
+            while (first < count) {
+                if (channel instanceof GatheringByteChannel gathering) {
+                    gathering.write(batch, first, count - first);
+                } else {
+                    channel.write(batch[first]);
+                }
+                while (first < count && !batch[first].hasRemaining()) {
+                    first++;
+                }
+            }
+        }
+    }
+
+    // Approximate heap taken by one piece of the tree
+    private static final int PIECE_BYTES = 72;
+
+    // Segments passed to one gathering write, within the usual IOV_MAX
+    private static final int GATHER_BATCH = 1024;
+
+    // Unchanged text shorter than this between two replacements is copied
+    // into the replacement piece instead of getting a piece of its own
+    private static final int COALESCE_GAP = 256;
+
+    // Heap the undo history may take before older changes go to its journal
+    // (override with -Dcaswrite.undoMemory=<bytes>)
+    private static final long UNDO_MEMORY = Long.getLong("caswrite.undoMemory", 4L * 1024 * 1024);
+
+    private final MappedFile original;
+    private final TextEncoding encoding;
+    private final LineIndex lineIndex;
+    private final AddBuffer added;
+    // Root of the piece tree, null for an empty document
+    private Piece root;
+    // Indexed limit of the original file when unknown newline counts in
+    // the tree were last looked up again
+    private long refreshedLimit = -1;
+    private final UndoHistory history = new UndoHistory(UNDO_MEMORY);
+    private long length;
+    private long modCount;
+    // Bytes of the original file that are part of the document
+    private long originalSize;
+
+    private TextBuffer(MappedFile original, TextEncoding encoding) {
+        this.original = original;
+        this.encoding = encoding;
+        this.lineIndex = new LineIndex(original, encoding);
+        this.added = new AddBuffer(encoding);
+        this.length = original.size();
+        this.originalSize = length;
+        if (length > 0) {
+            root = node(new Piece(true, 0, length));
+        }
+    }
+
+    /**
+     * Open a file as a text buffer. The line index is not built; run
+     * {@link #getLineIndex()} on a background thread to populate it.
+     *
+     * @param path the file to open
+     * @return the buffer
+     * @throws IOException if the file cannot be mapped
+     */
+    public static TextBuffer open(Path path) throws IOException {
+        return open(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Open a file in a given charset as a text buffer. The line index is
+     * not built; run {@link #getLineIndex()} on a background thread to
+     * populate it.
+     *
+     * @param path the file to open
+     * @param charset the charset of the file
+     * @return the buffer
+     * @throws IOException if the file cannot be mapped
+     * @throws IllegalArgumentException if the charset is not supported by
+     * {@link TextEncoding}
+     */
+    public static TextBuffer open(Path path, Charset charset) throws IOException {
+        TextEncoding encoding = TextEncoding.of(charset);
+        return new TextBuffer(MappedFile.open(path), encoding);
+    }
+
+    /**
+     * Get the file this buffer was opened from.
+     *
+     * @return the path of the original file
+     */
+    public Path getPath() {
+        return original.getPath();
+    }
+
+    /**
+     * Get the encoding of the document.
+     *
+     * @return the encoding of the original file
+     */
+    public TextEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Get how much of the original file the document takes in, which grows
+     * as appended bytes are added with {@link #appendOriginal(long)}.
+     *
+     * @return the size in bytes
+     */
+    public long getOriginalSize() {
+        return originalSize;
+    }
+
+    /**
+     * Map and index bytes appended to the original file, so that
+     * {@link #appendOriginal(long)} can add them without scanning. This
+     * does not change the document and may run on a background thread.
+     *
+     * @param size the new size of the file
+     * @throws IOException if the new bytes cannot be mapped
+     */
+    public void extendOriginal(long size) throws IOException {
+        original.extendTo(size);
+        lineIndex.run();
+    }
+
+    /**
+     * Add bytes appended to the original file to the end of the document,
+     * as when following a growing log. They come from the file rather than
+     * from an edit, so the buffer does not become dirty.
+     *
+     * @param size the new size of the file, already passed to
+     * {@link #extendOriginal(long)}
+     */
+    public void appendOriginal(long size) {
+        long grown = Math.min(size, original.size()) - originalSize;
+        if (grown <= 0) {
+            return;
+        }
+        Piece last = root;
+        while (last != null && last.right != null) {
+            last = last.right;
+        }
+        if (last != null && last.original && last.end() == originalSize) {
+            Piece rest = split(root, length - last.length)[0];
+            root = merge(rest, node(new Piece(true, last.start, last.length + grown)));
+        } else {
+            root = merge(root, node(new Piece(true, originalSize, grown)));
+        }
+        originalSize += grown;
+        length += grown;
+        modCount++;
+    }
+
+    /**
+     * Mark the document as saved without mapping the saved file, for files
+     * that cannot be mapped such as compressed ones.
+     */
+    public void markSaved() {
+        history.markSaved();
+    }
+
+    /**
+     * Get the line index of the original file.
+     *
+     * @return the line index
+     */
+    public LineIndex getLineIndex() {
+        return lineIndex;
+    }
+
+    /**
+     * Get the mapped original file, without the edits made since.
+     *
+     * @return the original file
+     */
+    MappedFile getOriginal() {
+        return original;
+    }
+
+    /**
+     * Get the length of the document in bytes.
+     *
+     * @return the current length
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Check whether the document differs from the state it was opened or
+     * last saved in. Undoing every edit since makes it clean again.
+     *
+     * @return true if there are unsaved edits
+     */
+    public boolean isDirty() {
+        return !history.isAtSavedState();
+    }
+
+    /**
+     * Estimate the heap held by the edits and the line index; the original
+     * file is memory-mapped and not counted.
+     *
+     * @return the estimate in bytes
+     */
+    public long estimateHeapBytes() {
+        return added.heapBytes() + lineIndex.estimateHeapBytes() + count(root) * (long) PIECE_BYTES
+            + history.heapBytes();
+    }
+
+    /**
+     * Get the number of edits made to the buffer. Offsets computed against
+     * a {@link Snapshot} are only valid while this value matches the
+     * snapshot's.
+     *
+     * @return the modification count
+     */
+    public long getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Take an immutable snapshot of the document for background readers.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Check whether {@link #lineCount()} is final, which is the case once
+     * every piece of the original file in use has been indexed.
+     *
+     * @return true if the line count is exact
+     */
+    public boolean isLineCountKnown() {
+        refreshLines();
+        return root == null || root.lines >= 0;
+    }
+
+    /**
+     * Get the number of lines whose start is known. While the index is
+     * still being built, this is a lower bound that grows over time.
+     *
+     * @return the number of lines
+     */
+    public long lineCount() {
+        refreshLines();
+        long total = 0;
+        Piece node = root;
+        // Down to the first piece whose newlines are not known, if any
+        while (node != null && node.lines < 0) {
+            if (node.left != null && node.left.lines < 0) {
+                node = node.left;
+                continue;
+            }
+            total += lines(node.left);
+            if (newlines(node) < 0) {
+                long limit = lineIndex.getIndexedLimit();
+                if (node.start < limit) {
+                    total += lineIndex.rank(limit) - lineIndex.rank(node.start);
+                }
+                return total + 1;
+            }
+            total += node.newlines;
+            node = node.right;
+        }
+        return total + lines(node) + 1;
+    }
+
+    /**
+     * Find the offset at which a line starts.
+     *
+     * @param line zero-based line number
+     * @return the byte offset of the line, or -1 if the line does not exist
+     * or has not been indexed yet
+     */
+    public long lineStart(long line) {
+        if (line == 0) {
+            return 0;
+        }
+        refreshLines();
+        long seen = 0;
+        long offset = 0;
+        Piece piece = root;
+        while (piece != null) {
+            Piece left = piece.left;
+            // A piece of unknown count on the left hides where the line is
+            if (left != null && (left.lines < 0 || seen + left.lines >= line)) {
+                piece = left;
+                continue;
+            }
+            seen += lines(left);
+            offset += bytes(left);
+            long count = newlines(piece);
+            if (count < 0) {
+                return -1;
+            }
+            if (seen + count >= line) {
+                long target = line - seen;
+                long after;
+                if (piece.original) {
+                    after = lineIndex.select(lineIndex.rank(piece.start) + target);
+                } else {
+                    after = added.select(added.rank(piece.start) + target);
+                }
+                return offset + (after - piece.start);
+            }
+            seen += count;
+            offset += piece.length;
+            piece = piece.right;
+        }
+        return -1;
+    }
+
+    /**
+     * Find the line holding a document offset.
+     *
+     * @param offset document offset
+     * @return the zero-based line number, or -1 if the offset lies beyond
+     * the part of the file indexed so far
+     */
+    public long lineOf(long offset) {
+        if (offset < 0 || offset > length) {
+            return -1;
+        }
+        refreshLines();
+        long seen = 0;
+        long position = 0;
+        Piece piece = root;
+        while (piece != null) {
+            Piece left = piece.left;
+            if (offset < position + bytes(left)) {
+                piece = left;
+                continue;
+            }
+            if (left != null) {
+                if (left.lines < 0) {
+                    return -1;
+                }
+                seen += left.lines;
+                position += left.bytes;
+            }
+            if (offset < position + piece.length) {
+                long end = piece.start + (offset - position);
+                if (piece.original) {
+                    if (end > lineIndex.getIndexedLimit()) {
+                        return -1;
+                    }
+                    return seen + lineIndex.rank(end) - lineIndex.rank(piece.start);
+                }
+                return seen + added.rank(end) - added.rank(piece.start);
+            }
+            long count = newlines(piece);
+            if (count < 0) {
+                return -1;
+            }
+            seen += count;
+            position += piece.length;
+            piece = piece.right;
+        }
+        return seen;
+    }
+
+    /**
+     * Read the content of a line without its terminator.
+     *
+     * @param line zero-based line number
+     * @param maxBytes maximum number of bytes to return
+     * @return the bytes of the line, truncated to maxBytes, or null if the
+     * line is not available
+     */
+    public byte[] lineBytes(long line, int maxBytes) {
+        long start = lineStart(line);
+        if (start < 0) {
+            return null;
+        }
+        int available = (int) Math.min(maxBytes, length - start);
+        byte[] bytes = new byte[available];
+        read(start, bytes, 0, available);
+        int end = encoding.lineLength(bytes, available);
+        return end == available ? bytes : Arrays.copyOf(bytes, end);
+    }
+
+    /**
+     * Find where the text of a line starts, which is after the byte order
+     * mark on the first line.
+     *
+     * @param line zero-based line number
+     * @return the byte offset of the first character, or -1 if the line
+     * does not exist or has not been indexed yet
+     */
+    public long textStart(long line) {
+        if (line > 0) {
+            return lineStart(line);
+        }
+        byte[] head = new byte[(int) Math.min(3, length)];
+        read(0, head, 0, head.length);
+        return encoding.bomLength(head, head.length);
+    }
+
+    /**
+     * Decode the text of a line without its terminator. A line that lies in
+     * one unedited stretch of the file is decoded straight from the mapped
+     * pages; only lines touched by edits are copied first.
+     *
+     * @param line zero-based line number
+     * @param maxBytes maximum number of bytes to decode
+     * @return the text of the line, or null if the line is not available
+     */
+    public String lineText(long line, int maxBytes) {
+        long start = textStart(line);
+        if (start < 0) {
+            return null;
+        }
+        long end = Math.min(length, start + maxBytes);
+        long next = lineStart(line + 1);
+        if (next >= start && next < end) {
+            end = next;
+        }
+        int count = (int) (end - start);
+        ByteBuffer bytes = mappedRange(start, count);
+        if (bytes == null) {
+            byte[] copy = new byte[count];
+            read(start, copy, 0, count);
+            bytes = ByteBuffer.wrap(copy);
+        }
+        String text = encoding.decode(bytes);
+        int newline = text.indexOf('\n');
+        if (newline < 0) {
+            return text;
+        }
+        return text.substring(0, newline > 0 && text.charAt(newline - 1) == '\r' ? newline - 1 : newline);
+    }
+
+    /**
+     * Get a view of the mapped file for a document range that lies in one
+     * original piece and one mapped segment.
+     *
+     * @return the view, or null if the range is edited or crosses a boundary
+     */
+    private ByteBuffer mappedRange(long offset, int count) {
+        if (offset >= length) {
+            return null;
+        }
+        PieceWalk walk = new PieceWalk(offset);
+        Piece piece = walk.next();
+        long pieceEnd = walk.start() + piece.length;
+        if (!piece.original || offset + count > pieceEnd) {
+            return null;
+        }
+        long from = piece.start + (offset - walk.start());
+        return original.contiguousLength(from, count) == count ? original.slice(from, count) : null;
+    }
+
+    /**
+     * Get the length of the line terminator ending just before a line
+     * start.
+     *
+     * @param lineStart offset of the line following the terminator
+     * @return the length of a CRLF or of a lone LF in this encoding
+     */
+    public int terminatorLength(long lineStart) {
+        int unit = encoding.unitSize();
+        if (lineStart < 2L * unit) {
+            return unit;
+        }
+        byte[] previous = new byte[unit];
+        read(lineStart - 2L * unit, previous, 0, unit);
+        return encoding.isCarriageReturn(previous, 0) ? 2 * unit : unit;
+    }
+
+    /**
+     * Copy a range of the document into an array.
+     *
+     * @param offset document offset
+     * @param dst destination array
+     * @param dstOffset offset in the destination array
+     * @param count number of bytes to copy
+     */
+    public void read(long offset, byte[] dst, int dstOffset, int count) {
+        if (count == 0) {
+            return;
+        }
+        PieceWalk walk = new PieceWalk(offset);
+        Piece piece = walk.next();
+        long position = walk.start();
+        while (count > 0 && piece != null) {
+            long pieceEnd = position + piece.length;
+            long from = piece.start + (offset - position);
+            int chunk = (int) Math.min(count, pieceEnd - offset);
+            if (piece.original) {
+                original.get(from, dst, dstOffset, chunk);
+            } else {
+                added.get(from, dst, dstOffset, chunk);
+            }
+            offset += chunk;
+            dstOffset += chunk;
+            count -= chunk;
+            position = pieceEnd;
+            piece = walk.next();
+        }
+    }
+
+    /**
+     * Insert bytes into the document.
+     *
+     * @param offset document offset at which to insert
+     * @param bytes the bytes to insert
+     */
+    public void insert(long offset, byte[] bytes) {
+        if (offset < 0 || offset > length) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " outside 0.." + length);
+        }
+        if (bytes.length == 0) {
+            return;
+        }
+        int start = added.append(bytes);
+        Piece[] parts = split(root, offset);
+        Piece before = parts[0];
+        Piece previous = before;
+        while (previous != null && previous.right != null) {
+            previous = previous.right;
+        }
+
+        // Typing appends to the add buffer right after the previous insert,
+        // so extend that piece instead of creating one piece per keystroke
+        Piece inserted;
+        if (previous != null && !previous.original && previous.end() == start) {
+            before = split(before, offset - previous.length)[0];
+            inserted = new Piece(false, previous.start, previous.length + bytes.length);
+        } else {
+            inserted = new Piece(false, start, bytes.length);
+        }
+        root = merge(merge(before, node(inserted)), parts[1]);
+        length += bytes.length;
+        modCount++;
+        history.recordInsert(offset, start, bytes.length);
+    }
+
+    /**
+     * Delete a range of the document.
+     *
+     * @param offset document offset of the first byte to delete
+     * @param count number of bytes to delete
+     */
+    public void delete(long offset, long count) {
+        if (offset < 0 || count < 0 || offset + count > length) {
+            throw new IndexOutOfBoundsException("Range " + offset + "+" + count + " outside 0.." + length);
+        }
+        if (count == 0) {
+            return;
+        }
+        Piece[] head = split(root, offset);
+        Piece[] tail = split(head[1], count);
+        long[] spans = spans(collect(tail[0], new ArrayList<>()));
+        root = merge(head[0], tail[1]);
+        length -= count;
+        modCount++;
+        history.recordDelete(offset, spans);
+    }
+
+    /**
+     * Replace many ranges of the document in a single pass. The piece tree
+     * is rebuilt once, so the cost grows with the number of ranges rather
+     * than with the number of ranges times the number of pieces, and the
+     * unchanged text between ranges is never copied unless it is short.
+     *
+     * @param offsets document offsets of the ranges, in ascending order
+     * @param lengths lengths of the ranges, which must not overlap
+     * @param replacements the bytes replacing each range
+     * @param count number of ranges to use from the arrays
+     */
+    public void replaceAll(long[] offsets, long[] lengths, byte[][] replacements, int count) {
+        long previousEnd = 0;
+        for (int i = 0; i < count; i++) {
+            if (offsets[i] < previousEnd || lengths[i] < 0 || offsets[i] + lengths[i] > length) {
+                throw new IndexOutOfBoundsException("Range " + offsets[i] + "+" + lengths[i]
+                    + " overlaps a previous range or lies outside 0.." + length);
+            }
+            previousEnd = offsets[i] + lengths[i];
+        }
+        if (count == 0) {
+            return;
+        }
+
+        List<Piece> result = new ArrayList<>();
+        List<UndoHistory.Edit> edits = new ArrayList<>();
+        PieceCursor cursor = new PieceCursor();
+        // Walks the replaced ranges again, for the undo history
+        PieceCursor replaced = new PieceCursor();
+        ByteArrayOutputStream run = new ByteArrayOutputStream();
+        boolean inRun = false;
+        long runStart = 0;
+        long position = 0;
+        long newLength = length;
+        for (int i = 0; i < count; i++) {
+            if (inRun && offsets[i] - position <= COALESCE_GAP) {
+                cursor.copyBytes(position, offsets[i], run);
+            } else {
+                if (inRun) {
+                    edits.add(flushRun(run, result, replaced, runStart, position));
+                }
+                cursor.copyPieces(position, offsets[i], result);
+                runStart = offsets[i];
+            }
+            run.writeBytes(replacements[i]);
+            inRun = true;
+            position = offsets[i] + lengths[i];
+            newLength += replacements[i].length - lengths[i];
+        }
+        edits.add(flushRun(run, result, replaced, runStart, position));
+        cursor.copyPieces(position, length, result);
+
+        root = build(result);
+        length = newLength;
+        modCount++;
+        edits.removeIf(edit -> edit.removed().length == 0 && edit.inserted().length == 0);
+        history.recordChange(edits.toArray(new UndoHistory.Edit[0]));
+    }
+
+    /**
+     * Move accumulated replacement text into the add buffer as one piece.
+     *
+     * @param run the pending bytes, emptied by this call
+     * @param result the piece list being built
+     * @param replaced walks the current pieces of the replaced ranges
+     * @param from document offset of the first replaced byte
+     * @param to document offset after the last replaced byte
+     * @return the replacement, for the undo history
+     */
+    private UndoHistory.Edit flushRun(ByteArrayOutputStream run, List<Piece> result,
+                                      PieceCursor replaced, long from, long to) {
+        List<Piece> removed = new ArrayList<>();
+        replaced.copyPieces(from, to, removed);
+        List<Piece> inserted = new ArrayList<>(1);
+        if (run.size() > 0) {
+            byte[] bytes = run.toByteArray();
+            inserted.add(new Piece(false, added.append(bytes), bytes.length));
+            result.addAll(inserted);
+            run.reset();
+        }
+        return new UndoHistory.Edit(from, spans(removed), spans(inserted));
+    }
+
+    /**
+     * Check whether there is an edit to undo.
+     *
+     * @return true if {@link #undo()} would change the document
+     */
+    public boolean canUndo() {
+        return history.canUndo();
+    }
+
+    /**
+     * Check whether there is an undone edit to redo.
+     *
+     * @return true if {@link #redo()} would change the document
+     */
+    public boolean canRedo() {
+        return history.canRedo();
+    }
+
+    /**
+     * Undo the last change. Typing and deleting characters one after the
+     * other count as one change, as does a replace-all.
+     *
+     * @return the document offset where the change started, or -1 if
+     * there was nothing to undo
+     * @throws IOException if the change cannot be read back from the journal
+     */
+    public long undo() throws IOException {
+        UndoHistory.Change change = history.undo();
+        return change == null ? -1 : apply(change, true);
+    }
+
+    /**
+     * Redo the change undone last.
+     *
+     * @return the document offset where the change started, or -1 if
+     * there was nothing to redo
+     */
+    public long redo() {
+        UndoHistory.Change change = history.redo();
+        return change == null ? -1 : apply(change, false);
+    }
+
+    /**
+     * End the current change, so the next typed character starts a new one.
+     */
+    public void sealChange() {
+        history.seal();
+    }
+
+    /**
+     * Put back the pieces a change removed, or those it inserted, in a
+     * single pass over the piece tree.
+     *
+     * @param change the change
+     * @param undo true to undo the change, false to redo it
+     * @return the document offset of the first edit
+     */
+    private long apply(UndoHistory.Change change, boolean undo) {
+        List<Piece> result = new ArrayList<>(count(root) + change.edits().length * 2);
+        PieceCursor cursor = new PieceCursor();
+        long position = 0;
+        // Growth of the document by the edits before the current one
+        long shift = 0;
+        for (UndoHistory.Edit edit : change.edits()) {
+            long removedLength = edit.removedLength();
+            long insertedLength = edit.insertedLength();
+            long start = undo ? edit.offset() + shift : edit.offset();
+            long end = start + (undo ? insertedLength : removedLength);
+            if (start < position || end > length) {
+                throw new IllegalStateException("The undo history does not match the document");
+            }
+            cursor.copyPieces(position, start, result);
+            long[] spans = undo ? edit.removed() : edit.inserted();
+            for (int i = 0; i < spans.length; i += 2) {
+                boolean fromOriginal = spans[i] >= 0;
+                result.add(new Piece(fromOriginal, fromOriginal ? spans[i] : ~spans[i], spans[i + 1]));
+            }
+            position = end;
+            shift += insertedLength - removedLength;
+        }
+        cursor.copyPieces(position, length, result);
+
+        root = build(result);
+        length += undo ? -shift : shift;
+        modCount++;
+        return change.edits()[0].offset();
+    }
+
+    /**
+     * Describe pieces as spans for the undo history.
+     *
+     * @param list the pieces
+     * @return start and length of each piece, the start negated for the
+     * add buffer
+     */
+    private static long[] spans(List<Piece> list) {
+        long[] spans = new long[list.size() * 2];
+        for (int i = 0; i < list.size(); i++) {
+            Piece piece = list.get(i);
+            spans[2 * i] = piece.original ? piece.start : ~piece.start;
+            spans[2 * i + 1] = piece.length;
+        }
+        return spans;
+    }
+
+    /**
+     * In-order walk over the piece tree from the piece holding a document
+     * offset.
+     */
+    private final class PieceWalk {
+        // Pieces still to visit, each followed by its right subtree
+        private final Deque<Piece> path = new ArrayDeque<>();
+        private long start;
+
+        PieceWalk(long offset) {
+            long base = 0;
+            Piece piece = root;
+            while (piece != null) {
+                long left = bytes(piece.left);
+                if (offset < base + left) {
+                    path.push(piece);
+                    piece = piece.left;
+                } else if (offset < base + left + piece.length) {
+                    path.push(piece);
+                    start = base + left;
+                    return;
+                } else {
+                    base += left + piece.length;
+                    piece = piece.right;
+                }
+            }
+            start = base;
+        }
+
+        /**
+         * Get the document offset of the first piece of the walk.
+         *
+         * @return the offset, or the document length if the walk is empty
+         */
+        long start() {
+            return start;
+        }
+
+        /**
+         * Move to the next piece.
+         *
+         * @return the piece, or null at the end of the document
+         */
+        Piece next() {
+            if (path.isEmpty()) {
+                return null;
+            }
+            Piece piece = path.pop();
+            for (Piece next = piece.right; next != null; next = next.left) {
+                path.push(next);
+            }
+            return piece;
+        }
+    }
+
+    /**
+     * Forward-only walk over the current piece tree, used to rebuild it in
+     * one pass.
+     */
+    private final class PieceCursor {
+        private PieceWalk walk;
+        private Piece piece;
+        private long pieceOffset;
+
+        /**
+         * Advance to the piece holding a document offset.
+         *
+         * @param offset document offset, never lower than in earlier calls
+         * @return the piece
+         */
+        private Piece seek(long offset) {
+            if (walk == null) {
+                walk = new PieceWalk(offset);
+                piece = walk.next();
+                pieceOffset = walk.start();
+            }
+            while (pieceOffset + piece.length <= offset) {
+                pieceOffset += piece.length;
+                piece = walk.next();
+            }
+            return piece;
+        }
+
+        /**
+         * Append pieces covering a document range.
+         *
+         * @param from first document offset
+         * @param to document offset after the range
+         * @param out the list to append to
+         */
+        private void copyPieces(long from, long to, List<Piece> out) {
+            while (from < to) {
+                Piece piece = seek(from);
+                long skip = from - pieceOffset;
+                long chunk = Math.min(to - from, piece.length - skip);
+                Piece copy = new Piece(piece.original, piece.start + skip, chunk);
+                if (chunk == piece.length) {
+                    copy.newlines = piece.newlines;
+                }
+                out.add(copy);
+                from += chunk;
+            }
+        }
+
+        /**
+         * Append the bytes of a short document range.
+         *
+         * @param from first document offset
+         * @param to document offset after the range
+         * @param out the stream to append to
+         */
+        private void copyBytes(long from, long to, ByteArrayOutputStream out) {
+            while (from < to) {
+                Piece piece = seek(from);
+                long skip = from - pieceOffset;
+                int chunk = (int) Math.min(to - from, piece.length - skip);
+                byte[] bytes = new byte[chunk];
+                if (piece.original) {
+                    original.get(piece.start + skip, bytes, 0, chunk);
+                } else {
+                    added.get(piece.start + skip, bytes, 0, chunk);
+                }
+                out.writeBytes(bytes);
+                from += chunk;
+            }
+        }
+    }
+
+    /**
+     * Write the whole document to a channel.
+     *
+     * @param channel the destination
+     * @throws IOException if writing fails
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        for (Piece piece : pieces()) {
+            long position = piece.start;
+            long remaining = piece.length;
+            while (remaining > 0) {
+                ByteBuffer buffer;
+                if (piece.original) {
+                    int chunk = original.contiguousLength(position, remaining);
+                    buffer = original.slice(position, chunk);
+                } else {
+                    buffer = added.slice(position, (int) remaining);
+                }
+                position += buffer.remaining();
+                remaining -= buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Save the document. The content is written to a temporary file next
+     * to the target, forced to disk, and renamed over the target; the
+     * mapped original is never overwritten while it is being read.
+     *
+     * @param target the file to write
+     * @throws IOException if writing fails
+     */
+    public void saveTo(Path target) throws IOException {
+        AtomicFile.write(target, snapshot()::writeTo);
+    }
+
+    /**
+     * Stop indexing and release the mapped file.
+     *
+     * @throws IOException if closing the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        lineIndex.cancel();
+        try {
+            history.close();
+        } finally {
+            original.close();
+        }
+    }
+
+    /**
+     * Get the pieces of the document in order.
+     *
+     * @return a new list of the pieces
+     */
+    private List<Piece> pieces() {
+        return collect(root, new ArrayList<>(count(root)));
+    }
+
+    /**
+     * Append the pieces of a subtree to a list, in order.
+     */
+    private static List<Piece> collect(Piece subtree, List<Piece> out) {
+        Deque<Piece> path = new ArrayDeque<>();
+        Piece piece = subtree;
+        while (piece != null || !path.isEmpty()) {
+            while (piece != null) {
+                path.push(piece);
+                piece = piece.left;
+            }
+            piece = path.pop();
+            out.add(piece);
+            piece = piece.right;
+        }
+        return out;
+    }
+
+    private static long bytes(Piece subtree) {
+        return subtree == null ? 0 : subtree.bytes;
+    }
+
+    private static long lines(Piece subtree) {
+        return subtree == null ? 0 : subtree.lines;
+    }
+
+    private static int count(Piece subtree) {
+        return subtree == null ? 0 : subtree.count;
+    }
+
+    /**
+     * Make a piece a tree of its own.
+     */
+    private Piece node(Piece piece) {
+        piece.left = null;
+        piece.right = null;
+        return update(piece);
+    }
+
+    /**
+     * Recompute the totals of a subtree from its children.
+     */
+    private Piece update(Piece piece) {
+        long count = newlines(piece);
+        Piece left = piece.left;
+        Piece right = piece.right;
+        piece.bytes = bytes(left) + piece.length + bytes(right);
+        piece.count = count(left) + 1 + count(right);
+        piece.lines = count < 0 || (left != null && left.lines < 0) || (right != null && right.lines < 0)
+            ? -1 : lines(left) + count + lines(right);
+        return piece;
+    }
+
+    /**
+     * Split a subtree at a document offset, cutting the piece it falls in.
+     *
+     * @param subtree the subtree
+     * @param offset offset relative to the start of the subtree
+     * @return the subtrees before and from the offset, either may be null
+     */
+    private Piece[] split(Piece subtree, long offset) {
+        if (subtree == null) {
+            return new Piece[2];
+        }
+        long left = bytes(subtree.left);
+        if (offset <= left) {
+            Piece[] parts = split(subtree.left, offset);
+            subtree.left = parts[1];
+            parts[1] = update(subtree);
+            return parts;
+        }
+        long cut = offset - left;
+        if (cut >= subtree.length) {
+            Piece[] parts = split(subtree.right, cut - subtree.length);
+            subtree.right = parts[0];
+            parts[0] = update(subtree);
+            return parts;
+        }
+        Piece head = new Piece(subtree.original, subtree.start, cut);
+        Piece tail = new Piece(subtree.original, subtree.start + cut, subtree.length - cut);
+        if (subtree.newlines >= 0 && newlines(head) >= 0) {
+            tail.newlines = subtree.newlines - head.newlines;
+        }
+        head.priority = subtree.priority;
+        tail.priority = subtree.priority;
+        head.left = subtree.left;
+        tail.right = subtree.right;
+        return new Piece[] {update(head), update(tail)};
+    }
+
+    /**
+     * Join two subtrees, all of the first one coming before the second.
+     *
+     * @return the joined tree
+     */
+    private Piece merge(Piece first, Piece second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            return update(first);
+        }
+        second.left = merge(first, second.left);
+        return update(second);
+    }
+
+    /**
+     * Build a tree from pieces in document order, in linear time: each
+     * piece goes on the right spine of the tree built so far, below the
+     * last piece of higher priority.
+     *
+     * @param list the pieces, which no tree uses any more
+     * @return the root
+     */
+    private Piece build(List<Piece> list) {
+        Deque<Piece> spine = new ArrayDeque<>();
+        for (Piece piece : list) {
+            piece.right = null;
+            Piece last = null;
+            while (!spine.isEmpty() && spine.peek().priority < piece.priority) {
+                last = spine.pop();
+            }
+            piece.left = last;
+            if (!spine.isEmpty()) {
+                spine.peek().right = piece;
+            }
+            spine.push(piece);
+        }
+        Piece top = spine.peekLast();
+        updateAll(top);
+        return top;
+    }
+
+    /**
+     * Recompute the totals of every node of a subtree.
+     */
+    private void updateAll(Piece subtree) {
+        if (subtree != null) {
+            updateAll(subtree.left);
+            updateAll(subtree.right);
+            update(subtree);
+        }
+    }
+
+    /**
+     * Count the newlines of pieces that were not indexed yet when the tree
+     * was last updated, if the index has grown since.
+     */
+    private void refreshLines() {
+        long limit = lineIndex.getIndexedLimit();
+        if (root != null && root.lines < 0 && limit != refreshedLimit) {
+            refreshedLimit = limit;
+            refresh(root);
+        }
+    }
+
+    private void refresh(Piece subtree) {
+        if (subtree != null && subtree.lines < 0) {
+            refresh(subtree.left);
+            refresh(subtree.right);
+            update(subtree);
+        }
+    }
+
+    /**
+     * Count the newlines in a piece, caching the result.
+     *
+     * @param piece the piece
+     * @return the number of newlines, or -1 if the piece is not indexed yet
+     */
+    private long newlines(Piece piece) {
+        if (piece.newlines >= 0) {
+            return piece.newlines;
+        }
+        if (piece.original) {
+            if (piece.end() > lineIndex.getIndexedLimit()) {
+                return -1;
+            }
+            piece.newlines = lineIndex.rank(piece.end()) - lineIndex.rank(piece.start);
+        } else {
+            piece.newlines = added.rank(piece.end()) - added.rank(piece.start);
+        }
+        return piece.newlines;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Character set of the bytes in a {@link TextBuffer}.
+ *
+ * The buffer itself only deals in bytes: the original file is never
+ * transcoded, so unchanged parts are saved exactly as they were read.
+ * This class supplies the rest: where lines end, how the visible bytes
+ * are decoded and how typed text is encoded. Besides UTF-8, any charset
+ * in which a newline is the single byte 0x0A works, as do UTF-16LE and
+ * UTF-16BE, where a newline is a two-byte code unit that always starts at
+ * an even offset.
+ *
+ * Instances are immutable and can be shared between threads.
+ */
+public final class TextEncoding {
+
+    private static final byte[] UTF_8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final byte[] UTF_16LE_BOM = {(byte) 0xFF, (byte) 0xFE};
+    private static final byte[] UTF_16BE_BOM = {(byte) 0xFE, (byte) 0xFF};
+
+    /** UTF-8, the encoding of files without any other hint. */
+    public static final TextEncoding UTF_8 = new TextEncoding(StandardCharsets.UTF_8);
+
+    private final Charset charset;
+    // Bytes per code unit: 2 for UTF-16, 1 otherwise
+    private final int unit;
+    // Bytes per char when every char takes the same number of bytes, 0 otherwise
+    private final int charWidth;
+    // Last byte of an encoded newline; lines are split just after it
+    private final byte newline;
+    // The byte before it in a two-byte newline
+    private final byte newlineLead;
+    private final byte[] bom;
+
+    private TextEncoding(Charset charset) {
+        this.charset = charset;
+        if (charset.equals(StandardCharsets.UTF_16LE) || charset.equals(StandardCharsets.UTF_16BE)) {
+            boolean bigEndian = charset.equals(StandardCharsets.UTF_16BE);
+            unit = 2;
+            charWidth = 2;
+            newline = bigEndian ? (byte) '\n' : 0;
+            newlineLead = bigEndian ? 0 : (byte) '\n';
+            bom = bigEndian ? UTF_16BE_BOM : UTF_16LE_BOM;
+        } else {
+            if (!Arrays.equals("\n".getBytes(charset), new byte[] {'\n'})) {
+                throw new IllegalArgumentException("Unsupported charset: " + charset.name());
+            }
+            unit = 1;
+            charWidth = charset.newEncoder().maxBytesPerChar() == 1.0f ? 1 : 0;
+            newline = '\n';
+            newlineLead = 0;
+            bom = charset.equals(StandardCharsets.UTF_8) ? UTF_8_BOM : new byte[0];
+        }
+    }
+
+    /**
+     * Get the encoding for a charset.
+     *
+     * @param charset UTF-16LE, UTF-16BE or a charset in which a newline is
+     * the byte 0x0A
+     * @return the encoding
+     * @throws IllegalArgumentException if the charset is not supported
+     */
+    public static TextEncoding of(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) ? UTF_8 : new TextEncoding(charset);
+    }
+
+    /**
+     * Get the charset.
+     *
+     * @return the charset
+     */
+    public Charset charset() {
+        return charset;
+    }
+
+    /**
+     * Get the size of a code unit. Offsets that split a unit never start
+     * a character, so search matches and edits always fall on multiples of
+     * this.
+     *
+     * @return 2 for UTF-16, 1 otherwise
+     */
+    public int unitSize() {
+        return unit;
+    }
+
+    /**
+     * Get the number of bytes every char takes, if it is the same for all.
+     *
+     * @return 1 for single-byte charsets, 2 for UTF-16, 0 for UTF-8 and
+     * other variable-width charsets
+     */
+    int charWidth() {
+        return charWidth;
+    }
+
+    /**
+     * Get the byte that ends every newline. For UTF-8 and the single-byte
+     * charsets that is 0x0A itself; in UTF-16 it is the second byte of the
+     * code unit, so a line always starts right after it.
+     *
+     * @return the byte to scan for
+     */
+    byte newlineByte() {
+        return newline;
+    }
+
+    /**
+     * Check whether a byte equal to {@link #newlineByte()} really ends a
+     * newline. Only needed for UTF-16, where the byte must close a code unit
+     * whose other byte completes the newline.
+     *
+     * @param position offset of the byte, counted from an even position
+     * @param previous the byte before it, ignored for single-byte newlines
+     * @return true if a line ends with this byte
+     */
+    boolean endsLine(long position, byte previous) {
+        return unit == 1 || ((position & 1) == 1 && previous == newlineLead);
+    }
+
+    /**
+     * Check whether a code unit is a carriage return.
+     *
+     * @param bytes the bytes
+     * @param index index of the first byte of the unit
+     * @return true for a carriage return
+     */
+    boolean isCarriageReturn(byte[] bytes, int index) {
+        if (unit == 1) {
+            return bytes[index] == '\r';
+        }
+        if (newline == 0) {
+            return bytes[index] == '\r' && bytes[index + 1] == 0;
+        }
+        return bytes[index] == 0 && bytes[index + 1] == '\r';
+    }
+
+    /**
+     * Find where the text of a line ends.
+     *
+     * @param bytes the line, starting at the beginning of a code unit
+     * @param count number of bytes to look at
+     * @return the number of bytes before the first newline and the carriage
+     * return preceding it, or count if there is no newline
+     */
+    int lineLength(byte[] bytes, int count) {
+        for (int i = 0; i < count; i++) {
+            if (bytes[i] == newline && endsLine(i, i > 0 ? bytes[i - 1] : 0)) {
+                int end = i + 1 - unit;
+                return end >= unit && isCarriageReturn(bytes, end - unit) ? end - unit : end;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the length of the byte order mark at the start of some bytes.
+     *
+     * @param bytes the first bytes of a document
+     * @param count number of valid bytes
+     * @return the length of the mark, 0 if there is none
+     */
+    int bomLength(byte[] bytes, int count) {
+        if (bom.length == 0 || count < bom.length) {
+            return 0;
+        }
+        return Arrays.equals(bytes, 0, bom.length, bom, 0, bom.length) ? bom.length : 0;
+    }
+
+    /**
+     * Decode bytes. Malformed input becomes U+FFFD.
+     *
+     * @param bytes the bytes
+     * @param offset index of the first byte
+     * @param length number of bytes
+     * @return the text
+     */
+    public String decode(byte[] bytes, int offset, int length) {
+        return new String(bytes, offset, length, charset);
+    }
+
+    /**
+     * Decode the remaining bytes of a buffer, which may be a direct view of
+     * a mapped file, without copying them to the heap first.
+     *
+     * @param bytes the bytes; the position is moved to the limit
+     * @return the text
+     */
+    public String decode(ByteBuffer bytes) {
+        return charset.decode(bytes).toString();
+    }
+
+    /**
+     * Encode text. Characters the charset cannot represent become its
+     * replacement byte, usually '?'.
+     *
+     * @param text the text
+     * @return the bytes
+     */
+    public byte[] encode(String text) {
+        return text.getBytes(charset);
+    }
+
+    /**
+     * Count the bytes that part of a string takes in this encoding.
+     *
+     * @param text the string
+     * @param from index of the first char
+     * @param to index after the last char
+     * @return the number of bytes
+     */
+    public int encodedLength(CharSequence text, int from, int to) {
+        if (charWidth > 0) {
+            return (to - from) * charWidth;
+        }
+        if (this == UTF_8) {
+            return TextSearch.utf8Length(text, from, to);
+        }
+        return encode(text.subSequence(from, to).toString()).length;
+    }
+
+    /**
+     * Get the name of the charset.
+     *
+     * @return the charset name
+     */
+    @Override
+    public String toString() {
+        return charset.name();
+    }
+}
@@ -0,0 +1,515 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Background search over a snapshot of a {@link TextBuffer}.
+ *
+ * Plain text is searched directly in the bytes of the document with
+ * {@link ByteSearch}, a megabyte at a time, so no part of the document is
+ * ever decoded into a string; the query is encoded in the document's
+ * charset instead. Regular expressions are matched one line at a time.
+ * Matches are published as they are found and can be read from the
+ * application thread while the search is still running; once it has
+ * finished they can all be replaced in a single edit.
+ */
+public final class TextSearch implements Runnable {
+
+    /**
+     * What to search for, parsed from the text typed by the user: either
+     * plain text, or a regular expression written as /pattern/ or
+     * /pattern/i to ignore case.
+     *
+     * @param text the plain text or the regular expression
+     * @param regex true if text is a regular expression
+     * @param ignoreCase true to ignore case
+     */
+    public record Query(String text, boolean regex, boolean ignoreCase) {
+
+        /**
+         * Parse a query.
+         *
+         * @param input the text typed by the user
+         * @return the query
+         * @throws IllegalArgumentException if the input is empty or the
+         * regular expression is invalid
+         */
+        public static Query parse(String input) {
+            if (input == null || input.isEmpty()) {
+                throw new IllegalArgumentException("Nothing to search for");
+            }
+            Query query;
+            if (input.length() > 2 && input.startsWith("/") && input.endsWith("/")) {
+                query = new Query(input.substring(1, input.length() - 1), true, false);
+            } else if (input.length() > 3 && input.startsWith("/") && input.endsWith("/i")) {
+                query = new Query(input.substring(1, input.length() - 2), true, true);
+            } else {
+                query = new Query(input, false, false);
+            }
+            if (query.regex) {
+                query.compile();
+            }
+            return query;
+        }
+
+        private Pattern compile() {
+            return Pattern.compile(text, ignoreCase
+                ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+        }
+
+        /**
+         * Get the query the way the user would type it.
+         *
+         * @return the query text
+         */
+        @Override
+        public String toString() {
+            return regex ? "/" + text + (ignoreCase ? "/i" : "/") : text;
+        }
+    }
+
+    // Bytes read from the document per step
+    static final int CHUNK_SIZE = 1 << 20;
+
+    // Lines longer than this are cut when matching a regular expression;
+    // a match spanning the cut is not found
+    static final int MAX_REGEX_LINE = 1 << 20;
+
+    // Search stops after this many matches to bound memory
+    static final int MAX_HITS = 1 << 22;
+
+    private final TextBuffer buffer;
+    private final TextBuffer.Snapshot source;
+    private final TextEncoding encoding;
+    private final Query query;
+    private final String replacement;
+
+    private long[] offsets = new long[256];
+    private long[] lengths = new long[256];
+    private byte[][] replacements;
+    private volatile int hitCount;
+
+    private volatile long scanned;
+    private volatile boolean cancelled;
+    private volatile boolean complete;
+    private volatile boolean truncated;
+    private volatile String error;
+
+    /**
+     * Prepare a search over the current content of a buffer. Call this on
+     * the application thread, then run the search on a background thread.
+     *
+     * @param buffer the buffer to search
+     * @param query what to search for
+     * @param replacement the replacement text, or null to only find; for
+     * regular expressions it may refer to groups as $1 or ${name}
+     */
+    public TextSearch(TextBuffer buffer, Query query, String replacement) {
+        this.buffer = buffer;
+        this.source = buffer.snapshot();
+        this.encoding = buffer.getEncoding();
+        this.query = query;
+        this.replacement = replacement;
+        if (replacement != null) {
+            replacements = new byte[256][];
+        }
+    }
+
+    /**
+     * Run the search, publishing matches as they are found.
+     */
+    @Override
+    public void run() {
+        try {
+            if (query.regex()) {
+                searchRegex();
+            } else {
+                searchText();
+            }
+        } catch (RuntimeException | StackOverflowError e) {
+            // Deeply nested patterns can overflow the regex engine's stack
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        } finally {
+            complete = true;
+        }
+    }
+
+    private void searchText() {
+        byte[] bytes = encoding.encode(query.text());
+        ByteSearch search = new ByteSearch(bytes, query.ignoreCase());
+        byte[] replaced = replacement == null ? null : encoding.encode(replacement);
+        int length = search.length();
+        int unit = encoding.unitSize();
+        long size = source.size();
+
+        // Consecutive windows overlap by length - 1 bytes so that matches
+        // crossing a window boundary are seen whole
+        byte[] window = new byte[(int) Math.min(CHUNK_SIZE + length - 1L, Math.max(size, 1))];
+        long nextAllowed = 0;
+        for (long base = 0; base < size && !cancelled; base += CHUNK_SIZE) {
+            int count = (int) Math.min(window.length, size - base);
+            source.read(base, window, 0, count);
+            boolean last = base + count == size;
+            int limit = last ? count : CHUNK_SIZE;
+            int from = (int) Math.max(0, nextAllowed - base);
+            int at;
+            while ((at = search.indexOf(window, from, count)) >= 0 && at < limit) {
+                if ((base + at) % unit != 0) {
+                    // Bytes that match across two UTF-16 characters
+                    from = at + 1;
+                    continue;
+                }
+                if (!addHit(base + at, length, replaced)) {
+                    return;
+                }
+                from = at + length;
+                nextAllowed = base + from;
+            }
+            scanned = base + count;
+            if (last) {
+                break;
+            }
+        }
+    }
+
+    private void searchRegex() {
+        Pattern pattern = query.compile();
+        boolean plain = replacement != null
+            && replacement.indexOf('$') < 0 && replacement.indexOf('\\') < 0;
+        byte[] plainBytes = plain ? encoding.encode(replacement) : null;
+        long size = source.size();
+        byte newline = encoding.newlineByte();
+        int unit = encoding.unitSize();
+        byte previous = 0;
+
+        byte[] chunk = new byte[(int) Math.min(CHUNK_SIZE, Math.max(size, 1))];
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        long lineOffset = 0;
+        for (long base = 0; base < size && !cancelled; base += chunk.length) {
+            int count = (int) Math.min(chunk.length, size - base);
+            source.read(base, chunk, 0, count);
+            int start = 0;
+            for (int i = 0; i < count; i++) {
+                byte b = chunk[i];
+                boolean endsLine = b == newline && encoding.endsLine(base + i, previous);
+                previous = b;
+                if (!endsLine) {
+                    continue;
+                }
+                // The terminator is appended with the line, then dropped
+                line = append(line, lineLength, chunk, start, i + 1 - start);
+                lineLength += i + 1 - start - unit;
+                if (!matchLine(pattern, lineOffset, line, lineLength, plainBytes)) {
+                    return;
+                }
+                lineLength = 0;
+                lineOffset = base + i + 1;
+                start = i + 1;
+            }
+            line = append(line, lineLength, chunk, start, count - start);
+            lineLength += count - start;
+            if (lineLength >= MAX_REGEX_LINE && lineLength % unit == 0) {
+                if (!matchLine(pattern, lineOffset, line, lineLength, plainBytes)) {
+                    return;
+                }
+                lineOffset += lineLength;
+                lineLength = 0;
+            }
+            scanned = base + count;
+        }
+        if (lineLength > 0 && !cancelled) {
+            matchLine(pattern, lineOffset, line, lineLength, plainBytes);
+        }
+    }
+
+    /**
+     * Match a regular expression against one line.
+     *
+     * @param pattern the compiled pattern
+     * @param offset document offset of the line
+     * @param bytes the line, without its newline
+     * @param count number of bytes in the line
+     * @param plain replacement bytes when the replacement has no group
+     * references, otherwise null
+     * @return false if the search must stop
+     */
+    private boolean matchLine(Pattern pattern, long offset, byte[] bytes, int count, byte[] plain) {
+        int unit = encoding.unitSize();
+        if (count >= unit && encoding.isCarriageReturn(bytes, count - unit)) {
+            count -= unit;
+        }
+        String text = encoding.decode(bytes, 0, count);
+        // Offsets map straight to bytes in fixed-width charsets and for
+        // ASCII text in UTF-8
+        int width = Math.max(1, encoding.charWidth());
+        boolean direct = encoding.charWidth() > 0 || text.length() == count;
+        Matcher matcher = pattern.matcher(text);
+        StringBuilder expanded = plain == null && replacement != null ? new StringBuilder() : null;
+        int appended = 0;
+        int charPosition = 0;
+        long bytePosition = 0;
+        while (matcher.find()) {
+            long start;
+            long end;
+            if (direct) {
+                start = (long) matcher.start() * width;
+                end = (long) matcher.end() * width;
+            } else {
+                bytePosition += encoding.encodedLength(text, charPosition, matcher.start());
+                start = bytePosition;
+                bytePosition += encoding.encodedLength(text, matcher.start(), matcher.end());
+                end = bytePosition;
+                charPosition = matcher.end();
+            }
+            byte[] replaced = plain;
+            if (expanded != null) {
+                expanded.setLength(0);
+                matcher.appendReplacement(expanded, replacement);
+                replaced = encoding.encode(expanded.substring(matcher.start() - appended));
+                appended = matcher.end();
+            }
+            if (!addHit(offset + start, end - start, replaced)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Count the bytes that part of a string takes in UTF-8.
+     *
+     * @param text the string
+     * @param from index of the first char
+     * @param to index after the last char
+     * @return the number of bytes
+     */
+    static int utf8Length(CharSequence text, int from, int to) {
+        int bytes = 0;
+        for (int i = from; i < to; i++) {
+            char ch = text.charAt(i);
+            if (ch < 0x80) {
+                bytes++;
+            } else if (ch < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(ch) && i + 1 < to
+                && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private static byte[] append(byte[] line, int length, byte[] src, int from, int count) {
+        if (length + count > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, length + count));
+        }
+        System.arraycopy(src, from, line, length, count);
+        return line;
+    }
+
+    /**
+     * Record a match.
+     *
+     * @param offset document offset of the match
+     * @param length length of the match in bytes
+     * @param replaced the bytes replacing the match, or null when only
+     * finding
+     * @return false if the search must stop
+     */
+    private synchronized boolean addHit(long offset, long length, byte[] replaced) {
+        int count = hitCount;
+        if (count == MAX_HITS) {
+            truncated = true;
+            return false;
+        }
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            lengths = Arrays.copyOf(lengths, count * 2);
+            if (replacements != null) {
+                replacements = Arrays.copyOf(replacements, count * 2);
+            }
+        }
+        offsets[count] = offset;
+        lengths[count] = length;
+        if (replacements != null) {
+            replacements[count] = replaced;
+        }
+        hitCount = count + 1;
+        return true;
+    }
+
+    /**
+     * Stop the search. Matches found so far are kept.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Check whether the search has stopped, either because it reached the
+     * end of the document, failed or was cancelled.
+     *
+     * @return true if the search is no longer running
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Check whether the search was cancelled before it reached the end.
+     *
+     * @return true if cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Check whether the search stopped early because there were too many
+     * matches.
+     *
+     * @return true if not every match was recorded
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Get the error that stopped the search.
+     *
+     * @return the error message, or null if there was none
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Get the fraction of the document searched so far.
+     *
+     * @return a value between 0 and 1
+     */
+    public double getProgress() {
+        long size = source.size();
+        return complete || size == 0 ? 1.0 : (double) scanned / size;
+    }
+
+    /**
+     * Get the query being searched for.
+     *
+     * @return the query
+     */
+    public Query getQuery() {
+        return query;
+    }
+
+    /**
+     * Check whether the search collects replacements.
+     *
+     * @return true if a replacement text was given
+     */
+    public boolean isReplacing() {
+        return replacement != null;
+    }
+
+    /**
+     * Get the number of matches found so far.
+     *
+     * @return the number of matches
+     */
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Get the document offset of a match.
+     *
+     * @param hit index of the match, below {@link #getHitCount()}
+     * @return the offset in bytes
+     */
+    public synchronized long getOffset(int hit) {
+        return offsets[hit];
+    }
+
+    /**
+     * Get the length of a match.
+     *
+     * @param hit index of the match, below {@link #getHitCount()}
+     * @return the length in bytes
+     */
+    public synchronized long getLength(int hit) {
+        return lengths[hit];
+    }
+
+    /**
+     * Find the first match starting at or after an offset.
+     *
+     * @param offset document offset
+     * @return the index of the match, or -1 if no match found so far
+     * starts there or later
+     */
+    public synchronized int nextHit(long offset) {
+        int index = Arrays.binarySearch(offsets, 0, hitCount, offset);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        // Zero-length matches can share an offset with the next match
+        while (index > 0 && offsets[index - 1] == offset) {
+            index--;
+        }
+        return index < hitCount ? index : -1;
+    }
+
+    /**
+     * Check whether the matches still describe a buffer, which is the case
+     * until the buffer is edited or replaced.
+     *
+     * @param current the buffer now shown
+     * @return true if the match offsets are valid for that buffer
+     */
+    public boolean isValidFor(TextBuffer current) {
+        return current == buffer && buffer.getModCount() == source.getModCount();
+    }
+
+    /**
+     * Replace every match in the buffer with a single edit.
+     *
+     * @return the number of matches replaced
+     * @throws IllegalStateException if the search is not finished, was
+     * not a replace, or the buffer changed since the search started
+     */
+    public int replaceAll() {
+        if (replacement == null || !complete || cancelled || truncated || error != null) {
+            throw new IllegalStateException("The search did not finish");
+        }
+        if (!isValidFor(buffer)) {
+            throw new IllegalStateException("The document changed since the search started");
+        }
+        synchronized (this) {
+            buffer.replaceAll(offsets, lengths, replacements, hitCount);
+            return hitCount;
+        }
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import io.github.crramirez.caswrite.compress.SpillFile;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Undo and redo history of a {@link TextBuffer}.
+ *
+ * A change never copies text. It records where the document changed and
+ * which spans of the original file and of the add buffer were removed and
+ * inserted there; both sources are never overwritten, so putting the old
+ * spans back restores the old text. A span is a pair of longs: the start,
+ * bitwise negated for the add buffer, and the length.
+ *
+ * Consecutive typed characters and consecutive deletions merge into one
+ * change, until {@link #seal()} is called. The newest changes stay on the
+ * heap up to a byte limit; older ones are appended to a journal file and
+ * read back, newest first, only when undoing reaches them.
+ *
+ * The history also knows whether the document is back in the state it
+ * was last saved in: it counts the changes applied since the document was
+ * opened, and remembers that count when the document is saved.
+ *
+ * This class is not thread-safe; it is used on the application thread.
+ */
+final class UndoHistory implements Closeable {
+
+    // Approximate heap taken by a change and by each of its edits,
+    // besides their span arrays
+    private static final int CHANGE_BYTES = 32;
+    private static final int EDIT_BYTES = 56;
+
+    /**
+     * One replaced range.
+     *
+     * @param offset document offset of the range before the change
+     * @param removed spans the range held before the change
+     * @param inserted spans the range holds after the change
+     */
+    record Edit(long offset, long[] removed, long[] inserted) {
+
+        long removedLength() {
+            return length(removed);
+        }
+
+        long insertedLength() {
+            return length(inserted);
+        }
+
+        private static long length(long[] spans) {
+            long length = 0;
+            for (int i = 1; i < spans.length; i += 2) {
+                length += spans[i];
+            }
+            return length;
+        }
+    }
+
+    /**
+     * One undoable step: ranges replaced together, in ascending order.
+     *
+     * @param edits the ranges, not overlapping
+     */
+    record Change(Edit[] edits) {
+
+        long heapBytes() {
+            long bytes = CHANGE_BYTES;
+            for (Edit edit : edits) {
+                bytes += EDIT_BYTES + (edit.removed().length + edit.inserted().length) * 8L;
+            }
+            return bytes;
+        }
+    }
+
+    private final long memoryLimit;
+    // Changes on the heap, newest last; older ones are in the journal
+    private final Deque<Change> undo = new ArrayDeque<>();
+    private final Deque<Change> redo = new ArrayDeque<>();
+    private long undoBytes;
+    private boolean sealed = true;
+    // Changes applied since the document was opened, and their number when
+    // it was last saved; -1 once that state can no longer be reached
+    private long depth;
+    private long savedDepth;
+
+    private Path journalPath;
+    private FileChannel journal;
+    // End of the last change written to the journal
+    private long journalEnd;
+    private int journaled;
+
+    /**
+     * Create an empty history.
+     *
+     * @param memoryLimit heap the undo changes may take before the oldest
+     * are moved to the journal
+     */
+    UndoHistory(long memoryLimit) {
+        this.memoryLimit = memoryLimit;
+    }
+
+    boolean canUndo() {
+        return !undo.isEmpty() || journaled > 0;
+    }
+
+    boolean canRedo() {
+        return !redo.isEmpty();
+    }
+
+    /**
+     * Check whether the document is in the state it was last saved in, or
+     * opened in if it was never saved.
+     *
+     * @return true if the changes since were all undone, or redone back
+     */
+    boolean isAtSavedState() {
+        return depth == savedDepth;
+    }
+
+    /**
+     * Remember the current state as the saved one. The last change is
+     * sealed, so later edits never merge into the saved state.
+     */
+    void markSaved() {
+        savedDepth = depth;
+        sealed = true;
+    }
+
+    /**
+     * Get the heap held by the history.
+     *
+     * @return the estimate in bytes
+     */
+    long heapBytes() {
+        long bytes = undoBytes;
+        for (Change change : redo) {
+            bytes += change.heapBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Stop merging edits into the last change.
+     */
+    void seal() {
+        sealed = true;
+    }
+
+    /**
+     * Record bytes appended to the add buffer and inserted at an offset.
+     *
+     * @param offset document offset of the insertion
+     * @param start position of the bytes in the add buffer
+     * @param length number of bytes
+     */
+    void recordInsert(long offset, long start, long length) {
+        Edit last = lastEdit();
+        if (last != null && last.removed().length == 0 && last.inserted().length == 2
+            && ~last.inserted()[0] + last.inserted()[1] == start
+            && last.offset() + last.inserted()[1] == offset) {
+            last.inserted()[1] += length;
+            redo.clear();
+            forgetSavedIfLast();
+            return;
+        }
+        record(new Change(new Edit[] {new Edit(offset, new long[0], new long[] {~start, length})}));
+    }
+
+    /**
+     * Record a deletion.
+     *
+     * @param offset document offset of the first deleted byte
+     * @param removed spans of the deleted bytes
+     */
+    void recordDelete(long offset, long[] removed) {
+        Edit last = lastEdit();
+        long length = Edit.length(removed);
+        if (last != null && last.inserted().length == 0) {
+            if (offset + length == last.offset()) {
+                // Backspace: the new bytes come before the earlier ones
+                replaceLast(new Edit(offset, join(removed, last.removed()), last.inserted()));
+                return;
+            }
+            if (offset == last.offset()) {
+                replaceLast(new Edit(offset, join(last.removed(), removed), last.inserted()));
+                return;
+            }
+        }
+        record(new Change(new Edit[] {new Edit(offset, removed, new long[0])}));
+    }
+
+    /**
+     * Record a change of several ranges.
+     *
+     * @param edits the ranges, in ascending order
+     */
+    void recordChange(Edit[] edits) {
+        if (edits.length > 0) {
+            record(new Change(edits));
+        }
+        sealed = true;
+    }
+
+    /**
+     * Take the newest change off the undo history and onto the redo one.
+     *
+     * @return the change, or null if there is none
+     * @throws IOException if the change cannot be read back from the journal
+     */
+    Change undo() throws IOException {
+        sealed = true;
+        Change change;
+        if (!undo.isEmpty()) {
+            change = undo.removeLast();
+            undoBytes -= change.heapBytes();
+        } else if (journaled > 0) {
+            change = readLast();
+        } else {
+            return null;
+        }
+        redo.addLast(change);
+        depth--;
+        return change;
+    }
+
+    /**
+     * Take the change undone last back onto the undo history.
+     *
+     * @return the change, or null if there is none
+     */
+    Change redo() {
+        sealed = true;
+        Change change = redo.pollLast();
+        if (change != null) {
+            push(change);
+            depth++;
+        }
+        return change;
+    }
+
+    /**
+     * Delete the journal.
+     *
+     * @throws IOException if closing the journal fails
+     */
+    @Override
+    public void close() throws IOException {
+        undo.clear();
+        redo.clear();
+        journaled = 0;
+        if (journal != null) {
+            try {
+                journal.close();
+            } finally {
+                SpillFile.discard(journalPath);
+                journal = null;
+            }
+        }
+    }
+
+    private Edit lastEdit() {
+        if (sealed || undo.isEmpty() || undo.peekLast().edits().length != 1) {
+            return null;
+        }
+        return undo.peekLast().edits()[0];
+    }
+
+    private void replaceLast(Edit edit) {
+        undoBytes -= undo.removeLast().heapBytes();
+        Change change = new Change(new Edit[] {edit});
+        undo.addLast(change);
+        undoBytes += change.heapBytes();
+        redo.clear();
+        forgetSavedIfLast();
+    }
+
+    private void record(Change change) {
+        redo.clear();
+        // The saved state was among the undone changes just dropped
+        if (savedDepth > depth) {
+            savedDepth = -1;
+        }
+        push(change);
+        depth++;
+        sealed = false;
+    }
+
+    /**
+     * Forget the saved state if it is the one the last change, which is
+     * being extended, leads to.
+     */
+    private void forgetSavedIfLast() {
+        if (savedDepth == depth) {
+            savedDepth = -1;
+        }
+    }
+
+    private void push(Change change) {
+        undo.addLast(change);
+        undoBytes += change.heapBytes();
+        while (undoBytes > memoryLimit && undo.size() > 1) {
+            Change oldest = undo.removeFirst();
+            undoBytes -= oldest.heapBytes();
+            try {
+                append(oldest);
+            } catch (IOException e) {
+                // Without a journal, the oldest changes are forgotten
+                journaled = 0;
+                journalEnd = 0;
+            }
+        }
+    }
+
+    /**
+     * Concatenate two span lists, merging the spans where they meet if
+     * they are contiguous in the same source.
+     */
+    private static long[] join(long[] first, long[] second) {
+        if (first.length == 0) {
+            return second;
+        }
+        if (second.length == 0) {
+            return first;
+        }
+        int last = first.length - 2;
+        boolean contiguous = (first[last] < 0) == (second[0] < 0)
+            && (first[last] < 0 ? ~first[last] + first[last + 1] == ~second[0]
+                : first[last] + first[last + 1] == second[0]);
+        long[] joined = Arrays.copyOf(first, first.length + second.length - (contiguous ? 2 : 0));
+        if (contiguous) {
+            joined[last + 1] += second[1];
+            System.arraycopy(second, 2, joined, first.length, second.length - 2);
+        } else {
+            System.arraycopy(second, 0, joined, first.length, second.length);
+        }
+        return joined;
+    }
+
+    /**
+     * Append a change to the journal. Each change is followed by its
+     * length, so the journal can be read back from the end.
+     */
+    private void append(Change change) throws IOException {
+        if (journal == null) {
+            journalPath = SpillFile.create("undo.journal");
+            journal = FileChannel.open(journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        int size = Integer.BYTES;
+        for (Edit edit : change.edits()) {
+            size += Long.BYTES + 2 * Integer.BYTES + (edit.removed().length + edit.inserted().length) * Long.BYTES;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size + Integer.BYTES);
+        buffer.putInt(change.edits().length);
+        for (Edit edit : change.edits()) {
+            buffer.putLong(edit.offset());
+            putSpans(buffer, edit.removed());
+            putSpans(buffer, edit.inserted());
+        }
+        buffer.putInt(size);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            journalEnd += journal.write(buffer, journalEnd);
+        }
+        journaled++;
+    }
+
+    private Change readLast() throws IOException {
+        ByteBuffer trailer = read(journalEnd - Integer.BYTES, Integer.BYTES);
+        int size = trailer.getInt();
+        long start = journalEnd - Integer.BYTES - size;
+        ByteBuffer buffer = read(start, size);
+        Edit[] edits = new Edit[buffer.getInt()];
+        for (int i = 0; i < edits.length; i++) {
+            long offset = buffer.getLong();
+            edits[i] = new Edit(offset, getSpans(buffer), getSpans(buffer));
+        }
+        // Later changes are appended over the ones read back
+        journalEnd = start;
+        journaled--;
+        return new Change(edits);
+    }
+
+    private ByteBuffer read(long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (journal.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Undo journal is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void putSpans(ByteBuffer buffer, long[] spans) {
+        buffer.putInt(spans.length);
+        for (long value : spans) {
+            buffer.putLong(value);
+        }
+    }
+
+    private static long[] getSpans(ByteBuffer buffer) {
+        long[] spans = new long[buffer.getInt()];
+        for (int i = 0; i < spans.length; i++) {
+            spans[i] = buffer.getLong();
+        }
+        return spans;
+    }
+}
@@ -1,3 +1,4 @@
 module io.github.crramirez.caswrite {
     requires casciian;
+    requires jdk.jfr;
 }
\ No newline at end of file
@@ -17,13 +17,25 @@
  */
 package io.github.crramirez.caswrite;
 
+import io.github.crramirez.caswrite.compress.Compression;
+import io.github.crramirez.caswrite.table.CsvFormat;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
@@ -164,4 +176,244 @@ class FileHandlingTest {
                     .isEqualTo(FileTypeDetector.FileType.TEXT);
         }
     }
+
+    @Nested
+    @DisplayName("when probing file content")
+    class FileTypeDetectionByContent {
+
+        @TempDir
+        Path tempDir;
+
+        private FileTypeDetector.Detection detect(String name, byte[] content) throws IOException {
+            Path file = tempDir.resolve(name);
+            Files.write(file, content);
+            return fileTypeDetector.detect(file);
+        }
+
+        private FileTypeDetector.Detection detect(String name, String content) throws IOException {
+            return detect(name, content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Test
+        @DisplayName("should open extensionless delimited exports as tables")
+        void shouldRecognizeExtensionlessTables() throws IOException {
+            FileTypeDetector.Detection detection = detect("export", "id;name\n1;alpha\n2;beta\n");
+
+            assertThat(detection.type()).isEqualTo(FileTypeDetector.FileType.TABLE);
+            assertThat(detection.delimiter()).isEqualTo(';');
+        }
+
+        @Test
+        @DisplayName("should find the delimiter of a CSV file outside quoted fields")
+        void shouldSniffDelimiterOutsideQuotes() throws IOException {
+            FileTypeDetector.Detection detection = detect("data.csv", "a|b\n\"x,y\"|2\n3|4\n");
+
+            assertThat(detection.type()).isEqualTo(FileTypeDetector.FileType.TABLE);
+            assertThat(detection.delimiter()).isEqualTo('|');
+        }
+
+        @Test
+        @DisplayName("should ignore empty lines when comparing delimiters")
+        void shouldIgnoreEmptyLines() throws IOException {
+            FileTypeDetector.Detection detection = detect("export", "id;name\r\n\r\n1;alpha\n\n2;beta\n");
+
+            assertThat(detection.type()).isEqualTo(FileTypeDetector.FileType.TABLE);
+            assertThat(detection.delimiter()).isEqualTo(';');
+        }
+
+        @Test
+        @DisplayName("should keep counting lines past a quote inside a field")
+        void shouldIgnoreQuoteInsideField() throws IOException {
+            FileTypeDetector.Detection detection = detect("parts",
+                "id,size,name\n1,2,floppy\n2,3\" disk,floppy\n3,5,drive\n4,8,tape\n");
+
+            assertThat(detection.type()).isEqualTo(FileTypeDetector.FileType.TABLE);
+            assertThat(detection.delimiter()).isEqualTo(',');
+        }
+
+        @Test
+        @DisplayName("should not sniff tables in files with a leading-dot extension")
+        void shouldTreatLeadingDotAsExtension() throws IOException {
+            FileTypeDetector.Detection detection = detect(".env", "KEY;VALUE\nA;1\nB;2\n");
+
+            assertThat(detection.type()).isEqualTo(FileTypeDetector.FileType.TEXT);
+        }
+
+        @Test
+        @DisplayName("should keep prose with commas as text")
+        void shouldKeepProseAsText() throws IOException {
+            FileTypeDetector.Detection detection = detect("notes",
+                "First, we read.\nThen we write, edit, and save.\n");
+
+            assertThat(detection.type()).isEqualTo(FileTypeDetector.FileType.TEXT);
+        }
+
+        @Test
+        @DisplayName("should refuse content containing NUL bytes whatever the name")
+        void shouldDetectBinaryContent() throws IOException {
+            FileTypeDetector.Detection detection = detect("image.txt", new byte[]{(byte) 0x89, 'P', 'N', 'G', 0, 0, 1});
+
+            assertThat(detection.type()).isEqualTo(FileTypeDetector.FileType.BINARY);
+        }
+
+        @Test
+        @DisplayName("should report the byte order mark and line endings")
+        void shouldDetectBomAndLineEndings() throws IOException {
+            byte[] body = "one\r\ntwo\r\n".getBytes(StandardCharsets.UTF_8);
+            byte[] content = new byte[body.length + 3];
+            content[0] = (byte) 0xEF;
+            content[1] = (byte) 0xBB;
+            content[2] = (byte) 0xBF;
+            System.arraycopy(body, 0, content, 3, body.length);
+
+            FileTypeDetector.Detection detection = detect("windows.txt", content);
+
+            assertThat(detection.charset()).isEqualTo(StandardCharsets.UTF_8);
+            assertThat(detection.bomLength()).isEqualTo(3);
+            assertThat(detection.lineEnding()).isEqualTo(FileTypeDetector.LineEnding.CRLF);
+        }
+
+        @Test
+        @DisplayName("should fall back to a legacy charset for invalid UTF-8")
+        void shouldDetectLegacyCharset() throws IOException {
+            FileTypeDetector.Detection detection = detect("latin.txt", new byte[]{'c', 'a', 'f', (byte) 0xE9, '\n'});
+
+            assertThat(detection.charset()).isNotEqualTo(StandardCharsets.UTF_8);
+        }
+
+        @Test
+        @DisplayName("should recognize UTF-16 without a byte order mark from its zero bytes")
+        void shouldDetectUtf16WithoutBom() throws IOException {
+            FileTypeDetector.Detection little = detect("export.txt",
+                "name\r\nZoë\r\n".getBytes(StandardCharsets.UTF_16LE));
+            FileTypeDetector.Detection big = detect("export.csv",
+                "a,b\n1,2\n".getBytes(StandardCharsets.UTF_16BE));
+
+            assertThat(little.charset()).isEqualTo(StandardCharsets.UTF_16LE);
+            assertThat(little.type()).isEqualTo(FileTypeDetector.FileType.TEXT);
+            assertThat(little.lineEnding()).isEqualTo(FileTypeDetector.LineEnding.CRLF);
+            assertThat(big.charset()).isEqualTo(StandardCharsets.UTF_16BE);
+            assertThat(big.isAsciiCompatible()).isFalse();
+        }
+
+        @Test
+        @DisplayName("should keep arrays of small numbers binary rather than UTF-16")
+        void shouldNotMistakeNumbersForUtf16() throws IOException {
+            byte[] numbers = new byte[512];
+            for (int i = 0; i < numbers.length; i += 2) {
+                numbers[i] = (byte) (i % 9);
+            }
+
+            assertThat(detect("samples.dat", numbers).type()).isEqualTo(FileTypeDetector.FileType.BINARY);
+        }
+
+        @Test
+        @DisplayName("should find legacy bytes far beyond an ASCII probe")
+        void shouldSampleBeyondProbe() throws IOException {
+            StringBuilder content = new StringBuilder();
+            while (content.length() < FileTypeDetector.PROBE_SIZE * 4) {
+                content.append("plain ascii line\n");
+            }
+            content.append("Zoë\n");
+
+            FileTypeDetector.Detection detection = detect("late.txt",
+                content.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+            assertThat(detection.charset()).isNotEqualTo(StandardCharsets.UTF_8);
+            assertThat(detection.isAsciiCompatible()).isTrue();
+        }
+
+        @Test
+        @DisplayName("should probe a file again once it changes")
+        void shouldInvalidateCacheOnChange() throws IOException {
+            Path file = tempDir.resolve("changing");
+            Files.writeString(file, "plain text\n");
+            assertThat(fileTypeDetector.detect(file).type()).isEqualTo(FileTypeDetector.FileType.TEXT);
+
+            Files.writeString(file, "a\tb\n1\t2\n3\t4\n");
+
+            assertThat(fileTypeDetector.detect(file).type()).isEqualTo(FileTypeDetector.FileType.TABLE);
+        }
+    }
+
+    @Nested
+    @DisplayName("when choosing the table window")
+    class TableWindowChoice {
+
+        @TempDir
+        Path tempDir;
+
+        private boolean opensEditable(String name, char delimiter) throws IOException {
+            StringBuilder content = new StringBuilder("id" + delimiter + "name\n");
+            // About 800 KB, well past the size of a small file
+            for (int row = 0; row < 50_000; row++) {
+                content.append(row).append(delimiter).append("name ").append(row).append('\n');
+            }
+            Path file = tempDir.resolve(name);
+            Files.writeString(file, content);
+            FileTypeDetector.Detection detection = fileTypeDetector.detect(file);
+            CsvFormat format = new CsvFormat((byte) detection.delimiter(), CsvFormat.CSV.quote(),
+                detection.charset());
+            return CasWrite.opensEditable(name, Files.size(file), format);
+        }
+
+        @Test
+        @DisplayName("should keep mid-size UTF-8 CSV and TSV files editable")
+        void shouldOpenMidSizeTablesEditable() throws IOException {
+            assertThat(opensEditable("data.csv", ',')).isTrue();
+            assertThat(opensEditable("data.tsv", '\t')).isTrue();
+        }
+
+        @Test
+        @DisplayName("should show formats the table widget cannot read in the read-only view")
+        void shouldViewOtherFormatsReadOnly() throws IOException {
+            assertThat(opensEditable("semicolons.csv", ';')).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("when probing compressed files")
+    class CompressedFiles {
+
+        @TempDir
+        Path tempDir;
+
+        @Test
+        @DisplayName("should see through a gzip suffix by name")
+        void shouldStripGzipSuffix() {
+            assertThat(fileTypeDetector.detectFileType("data.csv.gz")).isEqualTo(FileTypeDetector.FileType.TABLE);
+            assertThat(fileTypeDetector.detectFileType("app.log.gz")).isEqualTo(FileTypeDetector.FileType.TEXT);
+        }
+
+        @Test
+        @DisplayName("should probe the decompressed content of gzip files")
+        void shouldProbeGzipContent() throws IOException {
+            Path file = tempDir.resolve("export.tsv.gz");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+                out.write("a\tb\n1\t2\n".getBytes(StandardCharsets.UTF_8));
+            }
+
+            FileTypeDetector.Detection detection = fileTypeDetector.detect(file);
+
+            assertThat(detection.compression()).isEqualTo(Compression.GZIP);
+            assertThat(detection.type()).isEqualTo(FileTypeDetector.FileType.TABLE);
+            assertThat(detection.delimiter()).isEqualTo('\t');
+        }
+
+        @Test
+        @DisplayName("should probe the first file of a zip archive by its own name")
+        void shouldProbeZipEntry() throws IOException {
+            Path file = tempDir.resolve("export.zip");
+            try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file))) {
+                zip.putNextEntry(new ZipEntry("out/"));
+                zip.putNextEntry(new ZipEntry("out/prices.csv"));
+                zip.write("id,price\n1,9.5\n".getBytes(StandardCharsets.UTF_8));
+            }
+
+            FileTypeDetector.Detection detection = fileTypeDetector.detect(file);
+
+            assertThat(detection.compression()).isEqualTo(Compression.ZIP);
+            assertThat(detection.type()).isEqualTo(FileTypeDetector.FileType.TABLE);
+        }
+    }
 }
@@ -0,0 +1,153 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.batch;
+
+import io.github.crramirez.caswrite.table.CsvFormat;
+import io.github.crramirez.caswrite.text.MappedFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the headless batch transformation.
+ */
+@DisplayName("Batch mode")
+class BatchPipelineTest {
+
+    private static final String PEOPLE = "id,name,city\r\n"
+        + "1,Ada,\"London, UK\"\r\n"
+        + "2,\"Gr\nace\",Paris\n"
+        + "3,Ada,\"London, UK\"\n"
+        + "4,Alan,Oslo\n";
+
+    @TempDir
+    Path tempDir;
+
+    private String transform(String content, int chunkSize, String... args) throws IOException {
+        Path input = tempDir.resolve("input.csv");
+        Files.writeString(input, content);
+        String[] all = new String[args.length + 1];
+        all[0] = input.toString();
+        System.arraycopy(args, 0, all, 1, args.length);
+        BatchOptions options = BatchOptions.parse(all);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (MappedFile file = MappedFile.open(input)) {
+            new BatchPipeline(options, CsvFormat.CSV, chunkSize).run(file, 0, Channels.newChannel(output));
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    @Nested
+    @DisplayName("when parsing the command line")
+    class ParsingOptions {
+
+        @Test
+        @DisplayName("should read the input, output and transformations")
+        void shouldParseOptions() {
+            BatchOptions options = BatchOptions.parse(new String[] {
+                "data.csv", "-o", "out.tsv", "--select", "id,name", "--where", "id > 2",
+                "--where", "city ~ par", "--dedupe-on", "name", "--to", "tsv", "--threads", "3"});
+
+            assertThat(options.getInput()).isEqualTo(Path.of("data.csv"));
+            assertThat(options.getOutput()).isEqualTo(Path.of("out.tsv"));
+            assertThat(options.getSelect()).isEqualTo("id,name");
+            assertThat(options.getConditions()).containsExactly("id > 2", "city ~ par");
+            assertThat(options.isDedupe()).isTrue();
+            assertThat(options.getDedupeOn()).isEqualTo("name");
+            assertThat(options.getOutputFormat()).isEqualTo(CsvFormat.TSV);
+            assertThat(options.getThreads()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("should accept a single delimiter character as a format")
+        void shouldParseDelimiterFormat() {
+            assertThat(BatchOptions.parseFormat(";")).isEqualTo(new CsvFormat((byte) ';', (byte) '"'));
+            assertThatThrownBy(() -> BatchOptions.parseFormat("xml"))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        @DisplayName("should reject unknown options and a missing input")
+        void shouldRejectBadCommandLines() {
+            assertThatThrownBy(() -> BatchOptions.parse(new String[] {"data.csv", "--bogus"}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("--bogus");
+            assertThatThrownBy(() -> BatchOptions.parse(new String[] {"--select", "a"}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("No input");
+        }
+    }
+
+    @Nested
+    @DisplayName("when transforming rows")
+    class Transforming {
+
+        @Test
+        @DisplayName("should give the same output whatever the chunk size")
+        void shouldSplitAtRecordBoundaries() throws IOException {
+            String expected = "id,name,city\n1,Ada,\"London, UK\"\n2,\"Gr\nace\",Paris\n"
+                + "3,Ada,\"London, UK\"\n4,Alan,Oslo\n";
+
+            for (int chunkSize : new int[] {1, 5, 17, 1 << 20}) {
+                assertThat(transform(PEOPLE, chunkSize, "--threads", "3")).isEqualTo(expected);
+            }
+        }
+
+        @Test
+        @DisplayName("should select, reorder and convert columns")
+        void shouldProjectAndConvert() throws IOException {
+            assertThat(transform(PEOPLE, 8, "--select", "city,1", "--to", "tsv"))
+                .isEqualTo("city\tid\nLondon, UK\t1\nParis\t2\nLondon, UK\t3\nOslo\t4\n");
+        }
+
+        @Test
+        @DisplayName("should keep only rows meeting every condition")
+        void shouldFilterRows() throws IOException {
+            assertThat(transform(PEOPLE, 8, "--where", "id > 1", "--where", "name ~ a", "--select", "id"))
+                .isEqualTo("id\n2\n3\n4\n");
+        }
+
+        @Test
+        @DisplayName("should drop repeated rows or repeated keys")
+        void shouldDedupe() throws IOException {
+            assertThat(transform(PEOPLE, 8, "--select", "name,city", "--dedupe"))
+                .isEqualTo("name,city\nAda,\"London, UK\"\n\"Gr\nace\",Paris\nAlan,Oslo\n");
+            assertThat(transform("k,v\na,1\nb,2\na,3\nb,4\nc,5\n", 4, "--dedupe-on", "k"))
+                .isEqualTo("k,v\na,1\nb,2\nc,5\n");
+        }
+
+        @Test
+        @DisplayName("should report columns missing from the header")
+        void shouldRejectUnknownColumns() {
+            assertThatThrownBy(() -> transform(PEOPLE, 8, "--select", "country"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("country");
+        }
+    }
+}
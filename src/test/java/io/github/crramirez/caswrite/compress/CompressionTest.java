@@ -0,0 +1,142 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.compress;
+
+import io.github.crramirez.caswrite.load.LoadProgress;
+import io.github.crramirez.caswrite.save.AtomicFile;
+import io.github.crramirez.caswrite.text.TextBuffer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for opening and saving compressed files.
+ */
+@DisplayName("Compressed files")
+class CompressionTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path gzip(String name, String... members) throws IOException {
+        Path file = tempDir.resolve(name);
+        for (String member : members) {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                out.write(member.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return file;
+    }
+
+    @Nested
+    @DisplayName("when recognizing formats")
+    class Recognizing {
+
+        @Test
+        @DisplayName("should recognize gzip and zip by their magic bytes")
+        void shouldSniffMagicBytes() {
+            assertThat(Compression.sniff(ByteBuffer.wrap(new byte[] {0x1F, (byte) 0x8B, 8})))
+                .isEqualTo(Compression.GZIP);
+            assertThat(Compression.sniff(ByteBuffer.wrap(new byte[] {'P', 'K', 3, 4})))
+                .isEqualTo(Compression.ZIP);
+            assertThat(Compression.sniff(ByteBuffer.wrap("PK\n".getBytes(StandardCharsets.UTF_8))))
+                .isNull();
+        }
+
+        @Test
+        @DisplayName("should strip only the gzip suffix from names")
+        void shouldStripGzipSuffix() {
+            assertThat(Compression.stripSuffix("app.log.GZ")).isEqualTo("app.log");
+            assertThat(Compression.stripSuffix("logs.zip")).isEqualTo("logs.zip");
+            assertThat(Compression.stripSuffix(null)).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("when inflating into a spill file")
+    class Inflating {
+
+        @Test
+        @DisplayName("should decompress every member and report compressed bytes")
+        void shouldInflateAllMembers() throws IOException {
+            Path file = gzip("app.log.gz", "one\ntwo\n", "three\n");
+            LoadProgress progress = new LoadProgress(file, Files.size(file));
+
+            Path spill = SpillFile.inflate(file, Compression.GZIP, progress);
+            try {
+                assertThat(Files.readString(spill)).isEqualTo("one\ntwo\nthree\n");
+                assertThat(spill.getFileName().toString()).endsWith("app.log");
+                assertThat(progress.getBytes()).isEqualTo(Files.size(file));
+            } finally {
+                SpillFile.discard(spill);
+            }
+            assertThat(Files.exists(spill)).isFalse();
+        }
+
+        @Test
+        @DisplayName("should fail on corrupt content")
+        void shouldRejectCorruptContent() throws IOException {
+            Path file = tempDir.resolve("broken.gz");
+            Files.write(file, new byte[] {0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, 0, 1, 2, 3});
+
+            assertThatThrownBy(() -> SpillFile.inflate(file, Compression.GZIP, new LoadProgress(file, 13)))
+                .isInstanceOf(IOException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("when saving")
+    class Saving {
+
+        @Test
+        @DisplayName("should write edited text gzip-compressed")
+        void shouldSaveCompressed() throws IOException {
+            Path spill = SpillFile.inflate(gzip("notes.txt.gz", "b\n"), Compression.GZIP,
+                new LoadProgress(tempDir, 1));
+            Path target = tempDir.resolve("saved.txt.gz");
+            try (TextBuffer buffer = TextBuffer.open(spill)) {
+                buffer.insert(0, "a\n".getBytes(StandardCharsets.UTF_8));
+                AtomicFile.write(target, Compression.gzip(buffer.snapshot()::writeTo));
+                buffer.markSaved();
+
+                assertThat(buffer.isDirty()).isFalse();
+            } finally {
+                SpillFile.discard(spill);
+            }
+
+            try (InputStream in = Compression.GZIP.open(target)) {
+                assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("a\nb\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.diff;
+
+import io.github.crramirez.caswrite.load.LoadProgress;
+import io.github.crramirez.caswrite.table.CsvFormat;
+import io.github.crramirez.caswrite.table.CsvTableModel;
+import io.github.crramirez.caswrite.text.TextBuffer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for comparing files.
+ */
+@DisplayName("File comparison")
+class FileComparisonTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path write(String name, String content) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, content);
+        return file;
+    }
+
+    private static LoadProgress progress(Path... files) throws IOException {
+        long size = 0;
+        for (Path file : files) {
+            size += Files.size(file);
+        }
+        return new LoadProgress(files[0], size);
+    }
+
+    /**
+     * Render every row as "old|new", with a star in front of changed rows.
+     */
+    private static List<String> rows(FileComparison comparison) {
+        Alignment alignment = comparison.getAlignment();
+        List<String> rows = new ArrayList<>();
+        for (long row = 0; row < alignment.size(); row++) {
+            rows.add((alignment.isChanged(row) ? "*" : "") + comparison.oldText(row) + "|" + comparison.newText(row));
+        }
+        return rows;
+    }
+
+    @Nested
+    @DisplayName("Text files")
+    class TextFiles {
+
+        private FileComparison compare(Path oldFile, Path newFile) throws IOException {
+            return FileComparison.ofText(TextBuffer.open(oldFile), TextBuffer.open(newFile),
+                progress(oldFile, newFile));
+        }
+
+        @Test
+        @DisplayName("should align equal lines and mark changed ones")
+        void shouldAlignLines() throws IOException {
+            Path oldFile = write("old.txt", "a\nb\nc\nd\ne");
+            Path newFile = write("new.txt", "a\nc\nx\nd\ne\nf");
+
+            try (FileComparison comparison = compare(oldFile, newFile)) {
+                assertThat(rows(comparison)).containsExactly(
+                    "a|a", "*b|null", "c|c", "*null|x", "d|d", "e|e", "*null|f");
+                assertThat(comparison.getAlignment().changeCount()).isEqualTo(3);
+                assertThat(comparison.getAlignment().removedCount()).isEqualTo(1);
+                assertThat(comparison.getAlignment().addedCount()).isEqualTo(2);
+            }
+        }
+
+        @Test
+        @DisplayName("should ignore line endings and byte order marks")
+        void shouldIgnoreLineEndings() throws IOException {
+            Path oldFile = write("old.txt", "one\ntwo\n");
+            Path newFile = write("new.txt", "\uFEFFone\r\ntwo\r\n");
+
+            try (FileComparison comparison = compare(oldFile, newFile)) {
+                assertThat(comparison.getAlignment().changeCount()).isZero();
+            }
+        }
+
+        @Test
+        @DisplayName("should find a changed line among many and jump between changes")
+        void shouldJumpBetweenChanges() throws IOException {
+            StringBuilder before = new StringBuilder();
+            StringBuilder after = new StringBuilder();
+            for (int i = 0; i < 50_000; i++) {
+                before.append("line ").append(i).append('\n');
+                if (i != 10_000) {
+                    after.append("line ").append(i == 30_000 ? "changed" : i).append('\n');
+                }
+            }
+            Path oldFile = write("old.txt", before.toString());
+            Path newFile = write("new.txt", after.toString());
+
+            try (FileComparison comparison = compare(oldFile, newFile)) {
+                Alignment alignment = comparison.getAlignment();
+                long first = alignment.nextChange(-1);
+                long second = alignment.nextChange(first);
+                assertThat(first).isEqualTo(10_000);
+                assertThat(comparison.oldText(first)).isEqualTo("line 10000");
+                assertThat(comparison.newText(second)).isEqualTo("line changed");
+                assertThat(alignment.nextChange(second)).isEqualTo(-1);
+                assertThat(alignment.previousChange(second)).isEqualTo(first);
+            }
+        }
+
+        @Test
+        @DisplayName("should match ASCII lines of files in different charsets")
+        void shouldMatchAcrossCharsets() throws IOException {
+            Path oldFile = write("old.txt", "one\ntwo\n");
+            Path newFile = tempDir.resolve("new.txt");
+            Files.write(newFile, "one\ntwo\n".getBytes(StandardCharsets.UTF_16LE));
+
+            try (FileComparison comparison = FileComparison.ofText(TextBuffer.open(oldFile),
+                TextBuffer.open(newFile, StandardCharsets.UTF_16LE), progress(oldFile, newFile))) {
+                assertThat(comparison.getAlignment().changeCount()).isZero();
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Tables by key")
+    class TablesByKey {
+
+        private FileComparison compare(Path oldFile, Path newFile, String key) throws IOException {
+            return FileComparison.ofTables(CsvTableModel.open(oldFile, CsvFormat.CSV),
+                CsvTableModel.open(newFile, CsvFormat.CSV), key, progress(oldFile, newFile));
+        }
+
+        @Test
+        @DisplayName("should pair records by key wherever they moved")
+        void shouldPairByKey() throws IOException {
+            Path oldFile = write("old.csv", "id,name\n1,apple\n2,pear\n3,plum\n");
+            Path newFile = write("new.csv", "id,name\n3,plum\n1,apricot\n4,fig\n");
+
+            try (FileComparison comparison = compare(oldFile, newFile, "id")) {
+                assertThat(rows(comparison)).containsExactly(
+                    "*2 \u2502 pear|null",
+                    "3 \u2502 plum|3 \u2502 plum",
+                    "*1 \u2502 apple|1 \u2502 apricot",
+                    "*null|4 \u2502 fig");
+                assertThat(comparison.getAlignment().oldIndex(1)).isEqualTo(2);
+                assertThat(comparison.getAlignment().newIndex(2)).isEqualTo(1);
+            }
+        }
+
+        @Test
+        @DisplayName("should reject a key column missing from a table")
+        void shouldRejectMissingKey() throws IOException {
+            Path oldFile = write("old.csv", "id,name\n1,apple\n");
+            Path newFile = write("new.csv", "code,name\n1,apple\n");
+
+            assertThatThrownBy(() -> compare(oldFile, newFile, "id"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("new.csv");
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.highlight;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the lexer and the incremental highlighter.
+ */
+@DisplayName("Syntax highlighting")
+class HighlighterTest {
+
+    private static String types(Language language, String line, int state) {
+        byte[] types = new byte[line.length()];
+        new Lexer(language).tokenize(line, state, types);
+        StringBuilder letters = new StringBuilder();
+        for (byte type : types) {
+            letters.append(TokenType.of(type).name().charAt(0));
+        }
+        return letters.toString();
+    }
+
+    /**
+     * A document that counts how many lines the highlighter reads.
+     */
+    private static final class Document {
+        final List<String> lines = new ArrayList<>();
+        int reads;
+
+        String line(long line) {
+            reads++;
+            return line < lines.size() ? lines.get((int) line) : null;
+        }
+    }
+
+    private static Document javaFile(int lines) {
+        Document document = new Document();
+        for (int i = 0; i < lines; i++) {
+            document.lines.add("int x" + i + " = " + i + "; // note");
+        }
+        return document;
+    }
+
+    @Nested
+    @DisplayName("when tokenizing a line")
+    class Tokenizing {
+
+        @Test
+        @DisplayName("should mark keywords, strings, numbers and comments")
+        void shouldClassifyTokens() {
+            assertThat(types(Language.JAVA, "int a = \"b\" + 1; // c", Lexer.NORMAL))
+                .isEqualTo("KKKPPPPPSSSPPPNPPCCCC");
+        }
+
+        @Test
+        @DisplayName("should carry block comments and text blocks to the next line")
+        void shouldCarryStateAcrossLines() {
+            Lexer lexer = new Lexer(Language.JAVA);
+
+            assertThat(lexer.tokenize("x /* open", Lexer.NORMAL, null)).isEqualTo(Lexer.BLOCK_COMMENT);
+            assertThat(lexer.tokenize("still */ y", Lexer.BLOCK_COMMENT, null)).isEqualTo(Lexer.NORMAL);
+            assertThat(types(Language.JAVA, "a */ if", Lexer.BLOCK_COMMENT)).isEqualTo("CCCCPKK");
+            assertThat(lexer.tokenize("s = \"\"\"", Lexer.NORMAL, null)).isNotEqualTo(Lexer.NORMAL);
+        }
+
+        @Test
+        @DisplayName("should skip escaped quotes inside strings")
+        void shouldSkipEscapes() {
+            assertThat(types(Language.PYTHON, "'a\\'b' # c", Lexer.NORMAL)).isEqualTo("SSSSSSPCCC");
+        }
+    }
+
+    @Nested
+    @DisplayName("when the document is edited")
+    class Editing {
+
+        @Test
+        @DisplayName("should re-tokenize only up to the line where the state converges")
+        void shouldStopAtConvergence() {
+            Document document = javaFile(400);
+            Highlighter highlighter = new Highlighter(Language.JAVA, document::line);
+            highlighter.highlight(390, document.lines.get(390));
+
+            document.lines.set(5, "int changed = 5;");
+            highlighter.linesChanged(5, 0, 0);
+            document.reads = 0;
+            highlighter.highlight(390, document.lines.get(390));
+
+            assertThat(document.reads).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should re-tokenize the lines after an opened block comment")
+        void shouldFollowOpenedComment() {
+            Document document = javaFile(100);
+            Highlighter highlighter = new Highlighter(Language.JAVA, document::line);
+            assertThat(highlighter.stateAt(50)).isEqualTo(Lexer.NORMAL);
+
+            document.lines.set(10, "/* unterminated");
+            highlighter.linesChanged(10, 0, 0);
+
+            assertThat(highlighter.stateAt(50)).isEqualTo(Lexer.BLOCK_COMMENT);
+        }
+
+        @Test
+        @DisplayName("should not stop converging before a second edit further down")
+        void shouldHonorEveryEdit() {
+            Document document = javaFile(100);
+            Highlighter highlighter = new Highlighter(Language.JAVA, document::line);
+            assertThat(highlighter.stateAt(90)).isEqualTo(Lexer.NORMAL);
+
+            document.lines.set(10, "int y = 1;");
+            highlighter.linesChanged(10, 0, 0);
+            document.lines.set(60, "/* open");
+            highlighter.linesChanged(60, 0, 0);
+
+            assertThat(highlighter.stateAt(90)).isEqualTo(Lexer.BLOCK_COMMENT);
+        }
+
+        @Test
+        @DisplayName("should not trust stale states derived from a state that was recomputed")
+        void shouldRecomputeAfterPartialCatchUp() {
+            Document document = javaFile(10);
+            document.lines.set(1, "/* open");
+            Highlighter highlighter = new Highlighter(Language.JAVA, document::line);
+            assertThat(highlighter.stateAt(4)).isEqualTo(Lexer.BLOCK_COMMENT);
+
+            document.lines.set(2, "close */");
+            highlighter.linesChanged(2, 0, 0);
+            assertThat(highlighter.stateAt(3)).isEqualTo(Lexer.NORMAL);
+            document.lines.add(3, "int inserted;");
+            highlighter.linesChanged(2, 0, 1);
+
+            assertThat(highlighter.stateAt(5)).isEqualTo(Lexer.NORMAL);
+        }
+
+        @Test
+        @DisplayName("should keep cached states aligned when lines are added and removed")
+        void shouldShiftStates() {
+            Document document = javaFile(100);
+            document.lines.set(20, "/* open");
+            document.lines.set(30, "close */");
+            Highlighter highlighter = new Highlighter(Language.JAVA, document::line);
+            assertThat(highlighter.stateAt(25)).isEqualTo(Lexer.BLOCK_COMMENT);
+            assertThat(highlighter.stateAt(35)).isEqualTo(Lexer.NORMAL);
+
+            document.lines.add(5, "int inserted;");
+            document.lines.add(5, "int inserted;");
+            highlighter.linesChanged(4, 0, 2);
+            document.reads = 0;
+
+            assertThat(highlighter.stateAt(31)).isEqualTo(Lexer.BLOCK_COMMENT);
+            assertThat(highlighter.stateAt(33)).isEqualTo(Lexer.NORMAL);
+            assertThat(document.reads).isEqualTo(3);
+
+            document.lines.remove(5);
+            highlighter.linesChanged(4, 1, 0);
+
+            assertThat(highlighter.stateAt(22)).isEqualTo(Lexer.BLOCK_COMMENT);
+            assertThat(highlighter.stateAt(31)).isEqualTo(Lexer.BLOCK_COMMENT);
+            assertThat(highlighter.stateAt(32)).isEqualTo(Lexer.NORMAL);
+        }
+
+        @Test
+        @DisplayName("should start near a distant line instead of tokenizing everything before it")
+        void shouldNotScanWholeFile() {
+            Document document = javaFile(100_000);
+            Highlighter highlighter = new Highlighter(Language.JAVA, document::line);
+
+            highlighter.highlight(90_000, document.lines.get(90_000));
+
+            assertThat(document.reads).isLessThanOrEqualTo(Highlighter.MARGIN);
+        }
+    }
+
+    @Test
+    @DisplayName("should pick the language from the file extension")
+    void shouldPickLanguage() {
+        assertThat(Language.forFileName("src/Main.JAVA")).isEqualTo(Language.JAVA);
+        assertThat(Language.forFileName("script.py")).isEqualTo(Language.PYTHON);
+        assertThat(Language.forFileName("notes.txt")).isNull();
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.load;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the background file loader.
+ */
+@DisplayName("Background file loader")
+class FileLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    // Runs "application thread" work directly on the loading thread
+    private final FileLoader loader = new FileLoader(Runnable::run, 2);
+
+    @AfterEach
+    void tearDown() {
+        loader.close();
+    }
+
+    @Test
+    @DisplayName("should read the file in the background and report bytes and lines")
+    void shouldReadAheadWithProgress() throws Exception {
+        Path file = tempDir.resolve("lines.txt");
+        Files.writeString(file, "one\ntwo\nthree\n");
+        CompletableFuture<Path> installed = new CompletableFuture<>();
+
+        LoadProgress progress = loader.load(file, Files.size(file), FileLoader::readAhead,
+            installed::complete, installed::completeExceptionally);
+
+        assertThat(installed.get(5, TimeUnit.SECONDS)).isEqualTo(file);
+        assertThat(progress.getBytes()).isEqualTo(14);
+        assertThat(progress.getRows()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should report failures to the error handler")
+    void shouldReportFailures() throws Exception {
+        Path missing = tempDir.resolve("missing.txt");
+        CompletableFuture<Exception> failure = new CompletableFuture<>();
+
+        loader.load(missing, 0, FileLoader::readAhead,
+            path -> failure.complete(null), failure::complete);
+
+        assertThat(failure.get(5, TimeUnit.SECONDS)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    @DisplayName("should keep the load running until its result is installed")
+    void shouldFinishAfterInstalling() throws Exception {
+        Path file = tempDir.resolve("file.txt");
+        Files.writeString(file, "content");
+        CompletableFuture<Boolean> doneWhileInstalling = new CompletableFuture<>();
+        CountDownLatch settled = new CountDownLatch(1);
+        LoadProgress[] progress = new LoadProgress[1];
+        CountDownLatch assigned = new CountDownLatch(1);
+
+        progress[0] = loader.load(file, 7, loading -> {
+            awaitQuietly(assigned, 5000);
+            return "model";
+        }, model -> doneWhileInstalling.complete(progress[0].isDone()),
+            doneWhileInstalling::completeExceptionally, settled::countDown);
+        assigned.countDown();
+
+        assertThat(settled.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(doneWhileInstalling.get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(progress[0].isDone()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should report an error thrown by a load and still settle it")
+    void shouldSettleAfterError() throws Exception {
+        Path file = tempDir.resolve("file.txt");
+        Files.writeString(file, "content");
+        CompletableFuture<Exception> failure = new CompletableFuture<>();
+        CountDownLatch settled = new CountDownLatch(1);
+
+        loader.load(file, 7, loading -> {
+            throw new OutOfMemoryError("Java heap space");
+        }, model -> { }, failure::complete, settled::countDown);
+
+        assertThat(settled.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(failure.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(OutOfMemoryError.class);
+    }
+
+    @Test
+    @DisplayName("should not install the result of a cancelled load")
+    void shouldDropCancelledLoads() throws Exception {
+        Path file = tempDir.resolve("file.txt");
+        Files.writeString(file, "content");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> installed = new CompletableFuture<>();
+
+        LoadProgress progress = loader.load(file, Files.size(file), loading -> {
+            started.countDown();
+            awaitQuietly(release, 5000);
+            return "model";
+        }, installed::complete, installed::completeExceptionally);
+        started.await(5, TimeUnit.SECONDS);
+        progress.cancel();
+        release.countDown();
+
+        while (!progress.isDone()) {
+            Thread.onSpinWait();
+        }
+        assertThat(installed).isNotDone();
+    }
+
+    @Test
+    @DisplayName("should never run more loads at once than allowed")
+    void shouldBoundParallelism() throws Exception {
+        Path file = tempDir.resolve("file.txt");
+        Files.writeString(file, "content");
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        int loads = 12;
+        CountDownLatch settled = new CountDownLatch(loads);
+
+        for (int i = 0; i < loads; i++) {
+            loader.load(file, 7, loading -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                awaitQuietly(new CountDownLatch(1), 20);
+                running.decrementAndGet();
+                return "model";
+            }, model -> { }, e -> { }, settled::countDown);
+        }
+
+        assertThat(settled.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should summarize failures once every file of a batch has settled")
+    void shouldSummarizeBatchFailures() {
+        List<List<String>> summaries = new ArrayList<>();
+        OpenBatch batch = new OpenBatch(3, summaries::add);
+
+        batch.settle();
+        batch.failed("a.csv", new IOException("File does not exist"));
+        batch.settle();
+        assertThat(summaries).isEmpty();
+
+        batch.settle();
+        assertThat(summaries).containsExactly(List.of("a.csv: File does not exist"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch, long millis) {
+        try {
+            latch.await(millis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
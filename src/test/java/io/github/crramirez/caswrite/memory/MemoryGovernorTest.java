@@ -0,0 +1,145 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.memory;
+
+import io.github.crramirez.caswrite.metrics.HeapUsage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the memory governor.
+ */
+@DisplayName("Memory governor")
+class MemoryGovernorTest {
+
+    private final MemoryGovernor governor = new MemoryGovernor(100);
+
+    @AfterEach
+    void tearDown() {
+        governor.close();
+    }
+
+    /**
+     * Window whose content is a number of bytes that spilling drops.
+     */
+    private static final class Window implements Spillable {
+        private final long size;
+        private final CountDownLatch spilled = new CountDownLatch(1);
+        private volatile long bytes;
+        private int restores;
+
+        Window(long size) {
+            this.size = size;
+            this.bytes = size;
+        }
+
+        @Override
+        public long estimateHeapBytes() {
+            return bytes;
+        }
+
+        @Override
+        public void spill() {
+            bytes = 0;
+            spilled.countDown();
+        }
+
+        @Override
+        public void restore() {
+            bytes = size;
+            restores++;
+        }
+
+        boolean awaitSpill() throws InterruptedException {
+            return spilled.await(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    @DisplayName("should spill the least recently activated windows once over budget")
+    void shouldSpillLeastRecentlyActivated() throws Exception {
+        Window first = new Window(40);
+        Window second = new Window(40);
+        Window third = new Window(40);
+        List<Object> open = List.of(first, second, third);
+
+        governor.activated(first, open);
+        governor.activated(second, open);
+        governor.activated(third, open);
+
+        assertThat(first.awaitSpill()).isTrue();
+        assertThat(governor.isSpilled(first)).isTrue();
+        assertThat(governor.isSpilled(second)).isFalse();
+        assertThat(second.estimateHeapBytes()).isEqualTo(40);
+    }
+
+    @Test
+    @DisplayName("should restore a spilled window when it is activated again")
+    void shouldRestoreOnActivation() throws Exception {
+        Window first = new Window(80);
+        Window second = new Window(80);
+        List<Object> open = List.of(first, second);
+        governor.activated(first, open);
+        governor.activated(second, open);
+        assertThat(first.awaitSpill()).isTrue();
+
+        governor.activated(first, open);
+
+        assertThat(first.restores).isEqualTo(1);
+        assertThat(first.estimateHeapBytes()).isEqualTo(80);
+        assertThat(governor.isSpilled(first)).isFalse();
+        assertThat(second.awaitSpill()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should count windows it cannot spill but never spill the active one")
+    void shouldKeepActiveWindow() throws IOException {
+        HeapUsage editor = () -> 90;
+        Window table = new Window(50);
+        List<Object> open = List.of(editor, table);
+
+        governor.activated(table, open);
+        governor.activated(editor, open);
+        governor.activated(table, open);
+
+        assertThat(governor.isSpilled(table)).isFalse();
+        assertThat(table.restores).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should forget windows that were closed")
+    void shouldForgetClosedWindows() throws IOException {
+        Window closed = new Window(80);
+        Window kept = new Window(80);
+        governor.activated(closed, List.of(closed, kept));
+        governor.activated(kept, List.of(closed, kept));
+
+        governor.activated(kept, List.of(kept));
+
+        assertThat(governor.isSpilled(closed)).isFalse();
+        assertThat(governor.isSpilled(kept)).isFalse();
+    }
+}
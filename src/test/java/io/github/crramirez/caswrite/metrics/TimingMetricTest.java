@@ -0,0 +1,95 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the bucketed timing metric.
+ */
+@DisplayName("Timing metric")
+class TimingMetricTest {
+
+    @Nested
+    @DisplayName("when recording durations")
+    class RecordingDurations {
+
+        @Test
+        @DisplayName("should keep count, last, mean and max exactly")
+        void shouldTrackExactValues() {
+            TimingMetric metric = new TimingMetric("test");
+            metric.record(1_000);
+            metric.record(3_000);
+            metric.record(2_000);
+
+            assertThat(metric.getCount()).isEqualTo(3);
+            assertThat(metric.getLast()).isEqualTo(2_000);
+            assertThat(metric.getMean()).isEqualTo(2_000);
+            assertThat(metric.getMax()).isEqualTo(3_000);
+        }
+
+        @Test
+        @DisplayName("should estimate percentiles to within one bucket")
+        void shouldEstimatePercentiles() {
+            TimingMetric metric = new TimingMetric("test");
+            for (int i = 1; i <= 1000; i++) {
+                metric.record(i * 1_000_000L);
+            }
+
+            assertThat(metric.percentile(50)).isBetween(500_000_000L, 575_000_000L);
+            assertThat(metric.percentile(99)).isBetween(990_000_000L, 1_000_000_000L);
+            assertThat(metric.percentile(100)).isEqualTo(1_000_000_000L);
+        }
+
+        @Test
+        @DisplayName("should report zero when empty and after a reset")
+        void shouldResetToEmpty() {
+            TimingMetric metric = new TimingMetric("test");
+            assertThat(metric.percentile(99)).isZero();
+
+            metric.record(5_000);
+            metric.reset();
+
+            assertThat(metric.getCount()).isZero();
+            assertThat(metric.getMax()).isZero();
+            assertThat(metric.percentile(50)).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("when choosing buckets")
+    class ChoosingBuckets {
+
+        @Test
+        @DisplayName("should place every value at or below its bucket's upper bound")
+        void shouldBoundValues() {
+            long[] values = {0, 7, 8, 15, 16, 17, 1_000, 123_456_789, Long.MAX_VALUE};
+            for (long value : values) {
+                int bucket = TimingMetric.bucketOf(value);
+                assertThat(TimingMetric.upperBound(bucket)).isGreaterThanOrEqualTo(value);
+                if (bucket > 0) {
+                    assertThat(TimingMetric.upperBound(bucket - 1)).isLessThan(value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.perf;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the latency harness input scripts and histograms.
+ */
+@DisplayName("Latency harness")
+class InputScriptTest {
+
+    @Nested
+    @DisplayName("when parsing a script")
+    class ParsingScripts {
+
+        @Test
+        @DisplayName("should skip comments and read repeat counts")
+        void shouldParseSteps() {
+            InputScript script = InputScript.parse(List.of(
+                "# scroll a little",
+                "",
+                "generate big 1GB",
+                "key PgDn x50",
+                "type  hello world "));
+
+            assertThat(script.getSteps()).hasSize(3);
+            InputScript.Step key = script.getSteps().get(1);
+            assertThat(key.command()).isEqualTo("key");
+            assertThat(key.arguments()).containsExactly("PgDn");
+            assertThat(key.repeat()).isEqualTo(50);
+            assertThat(key.line()).isEqualTo(4);
+            assertThat(script.getSteps().get(2).arguments()).containsExactly(" hello world");
+        }
+
+        @Test
+        @DisplayName("should reject unknown commands and wrong argument counts")
+        void shouldRejectMalformedLines() {
+            assertThatThrownBy(() -> InputScript.parse(List.of("jump 3")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Line 1");
+            assertThatThrownBy(() -> InputScript.parse(List.of("key", "click 3")))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        @DisplayName("should read size suffixes")
+        void shouldParseSizes() {
+            assertThat(LatencyHarness.parseSize("1GB")).isEqualTo(1L << 30);
+            assertThat(LatencyHarness.parseSize("64kb")).isEqualTo(64L << 10);
+            assertThat(LatencyHarness.parseSize("100")).isEqualTo(100);
+        }
+    }
+
+    @Nested
+    @DisplayName("when summarizing latencies")
+    class SummarizingLatencies {
+
+        @Test
+        @DisplayName("should report nearest-rank percentiles and the maximum")
+        void shouldComputePercentiles() {
+            LatencyHistogram histogram = new LatencyHistogram();
+            for (int i = 100; i >= 1; i--) {
+                histogram.record(i);
+            }
+
+            assertThat(histogram.getCount()).isEqualTo(100);
+            assertThat(histogram.percentile(50)).isEqualTo(50);
+            assertThat(histogram.percentile(99)).isEqualTo(99);
+            assertThat(histogram.getMax()).isEqualTo(100);
+        }
+
+        @Test
+        @DisplayName("should merge histograms and report zero when empty")
+        void shouldMergeHistograms() {
+            LatencyHistogram empty = new LatencyHistogram();
+            LatencyHistogram other = new LatencyHistogram();
+            other.record(7);
+
+            assertThat(empty.percentile(99)).isZero();
+            empty.addAll(other);
+            assertThat(empty.getMax()).isEqualTo(7);
+        }
+    }
+}
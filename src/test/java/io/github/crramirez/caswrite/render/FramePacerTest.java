@@ -0,0 +1,158 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.render;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the frame pacer, on a simulated clock.
+ */
+@DisplayName("Frame pacer")
+class FramePacerTest {
+
+    private long now;
+    private long slept;
+
+    /**
+     * Terminal that takes a fixed time per byte written.
+     */
+    private final class Terminal extends ByteArrayOutputStream {
+        long nanosPerByte;
+
+        Terminal(long nanosPerByte) {
+            this.nanosPerByte = nanosPerByte;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            super.write(b, off, len);
+            now += nanosPerByte * len;
+        }
+    }
+
+    private FramePacer pacer(Terminal terminal, int maxFps) {
+        return new FramePacer(terminal, maxFps, () -> now, hold -> {
+            slept += hold;
+            now += hold;
+        });
+    }
+
+    private static void frame(FramePacer pacer, int bytes) throws IOException {
+        pacer.write(new byte[bytes], 0, bytes);
+        pacer.flush();
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Test
+    @DisplayName("should pass the frames on unchanged")
+    void shouldPassFramesOn() throws IOException {
+        Terminal terminal = new Terminal(0);
+        FramePacer pacer = pacer(terminal, 60);
+
+        pacer.write("hello ".getBytes(StandardCharsets.UTF_8));
+        pacer.write('!');
+        pacer.flush();
+
+        assertThat(terminal.toString(StandardCharsets.UTF_8)).isEqualTo("hello !");
+    }
+
+    @Test
+    @DisplayName("should not hold frames on a fast terminal")
+    void shouldNotHoldFastTerminal() throws IOException {
+        FramePacer pacer = pacer(new Terminal(0), 50);
+
+        frame(pacer, 100);
+        frame(pacer, 100);
+
+        assertThat(now).isZero();
+        assertThat(slept).isZero();
+        assertThat(pacer.getBytesPerSecond()).isZero();
+    }
+
+    @Test
+    @DisplayName("should not hold frames a slow terminal carries at the maximum frame rate")
+    void shouldNotHoldSmallFrames() throws IOException {
+        // 1 MB/s: a 1 KB frame takes 1 ms, and 2 ms at half the speed
+        FramePacer pacer = pacer(new Terminal(1000), 60);
+
+        frame(pacer, 1_000);
+
+        assertThat(pacer.getBytesPerSecond()).isEqualTo(1e6);
+        assertThat(now).isEqualTo(millis(1));
+        assertThat(slept).isZero();
+    }
+
+    @Test
+    @DisplayName("should leave half of the measured speed of a slow terminal")
+    void shouldFollowMeasuredSpeed() throws IOException {
+        // 1 MB/s: a 10 KB frame takes 10 ms and is followed by 10 ms
+        FramePacer pacer = pacer(new Terminal(1000), 60);
+
+        frame(pacer, 10_000);
+
+        assertThat(pacer.getBytesPerSecond()).isEqualTo(1e6);
+        assertThat(now).isEqualTo(millis(20));
+        assertThat(slept).isEqualTo(millis(10));
+    }
+
+    @Test
+    @DisplayName("should hold a frame no longer than a quarter of a second")
+    void shouldLimitHold() throws IOException {
+        // 10 KB/s: a 2 KB frame takes 200 ms, and 400 ms at half the speed
+        FramePacer pacer = pacer(new Terminal(100_000), 60);
+
+        frame(pacer, 2_000);
+
+        assertThat(now).isEqualTo(millis(250));
+        assertThat(slept).isEqualTo(millis(50));
+    }
+
+    @Test
+    @DisplayName("should speed up when the terminal takes frames faster")
+    void shouldRecoverSpeed() throws IOException {
+        Terminal terminal = new Terminal(1000);
+        FramePacer pacer = pacer(terminal, 60);
+        frame(pacer, 10_000);
+
+        terminal.nanosPerByte = 0;
+        frame(pacer, 100_000);
+
+        // 100 KB in under a millisecond
+        assertThat(pacer.getBytesPerSecond()).isEqualTo(1e8);
+    }
+
+    @Test
+    @DisplayName("should read render modes by name")
+    void shouldReadRenderModes() {
+        assertThat(RenderMode.of("immediate", RenderMode.ADAPTIVE)).isEqualTo(RenderMode.IMMEDIATE);
+        assertThat(RenderMode.of(" Adaptive ", RenderMode.IMMEDIATE)).isEqualTo(RenderMode.ADAPTIVE);
+        assertThat(RenderMode.of("fast", RenderMode.ADAPTIVE)).isEqualTo(RenderMode.ADAPTIVE);
+        assertThat(RenderMode.of(null, RenderMode.IMMEDIATE)).isEqualTo(RenderMode.IMMEDIATE);
+    }
+}
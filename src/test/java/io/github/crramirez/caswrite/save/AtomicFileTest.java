@@ -0,0 +1,130 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.save;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for atomic, background file saving.
+ */
+@DisplayName("Atomic file save")
+class AtomicFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static AtomicFile.Content text(String content) {
+        return channel -> channel.write(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Nested
+    @DisplayName("when writing a file")
+    class WritingFile {
+
+        @Test
+        @DisplayName("should replace the content and leave no temporary file")
+        void shouldReplaceContent() throws IOException {
+            Path file = tempDir.resolve("notes.txt");
+            Files.writeString(file, "old content that is longer");
+
+            AtomicFile.write(file, text("new"));
+
+            assertThat(Files.readString(file)).isEqualTo("new");
+            try (var files = Files.list(tempDir)) {
+                assertThat(files).containsExactly(file);
+            }
+        }
+
+        @Test
+        @DisplayName("should leave the original untouched when writing fails")
+        void shouldKeepOriginalOnFailure() throws IOException {
+            Path file = tempDir.resolve("notes.txt");
+            Files.writeString(file, "original");
+
+            assertThatThrownBy(() -> AtomicFile.write(file, channel -> {
+                channel.write(ByteBuffer.wrap(new byte[] {'x'}));
+                throw new IOException("disk full");
+            })).hasMessageContaining("disk full");
+
+            assertThat(Files.readString(file)).isEqualTo("original");
+            try (var files = Files.list(tempDir)) {
+                assertThat(files).containsExactly(file);
+            }
+        }
+
+        @Test
+        @DisplayName("should keep the permissions of the file it replaces")
+        void shouldKeepPermissions() throws IOException {
+            Path file = tempDir.resolve("script.sh");
+            Files.writeString(file, "echo old");
+            Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rwxr-xr--");
+            assumeTrue(file.getFileSystem().supportedFileAttributeViews().contains("posix"),
+                "POSIX file system");
+            Files.setPosixFilePermissions(file, permissions);
+
+            AtomicFile.write(file, text("echo new"));
+
+            assertThat(Files.getPosixFilePermissions(file)).isEqualTo(permissions);
+        }
+    }
+
+    @Nested
+    @DisplayName("when saving in the background")
+    class SavingInBackground {
+
+        @Test
+        @DisplayName("should report success and failure through the executor")
+        void shouldReportOutcome() throws Exception {
+            List<String> events = new ArrayList<>();
+            CountDownLatch done = new CountDownLatch(2);
+            FileSaver saver = new FileSaver(work -> {
+                work.run();
+                done.countDown();
+            });
+            Path file = tempDir.resolve("saved.txt");
+
+            saver.save(file, text("saved"), () -> events.add("saved"), e -> events.add("failed"));
+            saver.save(tempDir.resolve("missing/dir/file.txt"), text("lost"),
+                () -> events.add("saved"), e -> events.add("failed"));
+
+            assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(events).containsExactlyInAnyOrder("saved", "failed");
+            assertThat(Files.readString(file)).isEqualTo("saved");
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.session;
+
+import io.github.crramirez.caswrite.table.CsvFormat;
+import io.github.crramirez.caswrite.table.CsvTableModel;
+import io.github.crramirez.caswrite.text.LineIndex;
+import io.github.crramirez.caswrite.text.MappedFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the session store.
+ */
+@DisplayName("Session store")
+class SessionStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SessionStore store() {
+        return new SessionStore(tempDir.resolve("session"));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, content);
+        return file;
+    }
+
+    private static String lines(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        return text.toString();
+    }
+
+    @Test
+    @DisplayName("should read back the windows in the order they were saved")
+    void shouldRoundTripWindows() throws IOException {
+        List<WindowState> windows = List.of(
+            new WindowState(tempDir.resolve("a.txt"), false, true, true, 1, 2, 80, 20, new Viewport(100, 110, 7)),
+            new WindowState(tempDir.resolve("b.csv"), true, false, false, 5, 3, 40, 10, null));
+
+        store().save(windows, Map.of());
+
+        assertThat(store().load()).isEqualTo(windows);
+    }
+
+    @Test
+    @DisplayName("should start empty when no session was saved")
+    void shouldStartEmpty() throws IOException {
+        assertThat(store().load()).isEmpty();
+    }
+
+    @Nested
+    @DisplayName("when keeping indexes")
+    class Indexes {
+
+        @Test
+        @DisplayName("should give back a line index while the file is unchanged")
+        void shouldRestoreLineIndex() throws IOException {
+            Path file = write("big.txt", lines(1000));
+            try (MappedFile mapped = MappedFile.open(file)) {
+                LineIndex index = new LineIndex(mapped);
+                index.run();
+                store().save(List.of(), Map.of(file, index));
+            }
+
+            try (MappedFile mapped = MappedFile.open(file)) {
+                LineIndex restored = new LineIndex(mapped);
+
+                assertThat(store().loadIndex(file, restored)).isTrue();
+                assertThat(restored.isComplete()).isTrue();
+                assertThat(restored.getIndexedNewlines()).isEqualTo(1000);
+                assertThat(restored.select(999)).isEqualTo(lines(999).length());
+            }
+        }
+
+        @Test
+        @DisplayName("should give back a row index while the file is unchanged")
+        void shouldRestoreRowIndex() throws IOException {
+            Path file = write("rows.csv", "id,note\n" + "1,\"two\nlines\"\n".repeat(500));
+            try (CsvTableModel model = CsvTableModel.open(file, CsvFormat.CSV)) {
+                model.getRowIndex().run();
+                store().save(List.of(), Map.of(file, model.getRowIndex()));
+            }
+
+            try (CsvTableModel model = CsvTableModel.open(file, CsvFormat.CSV)) {
+                assertThat(store().loadIndex(file, model.getRowIndex())).isTrue();
+                assertThat(model.getRowCount()).isEqualTo(500);
+                assertThat(model.getCell(499, 1)).isEqualTo("two\nlines");
+            }
+        }
+
+        @Test
+        @DisplayName("should scan again once the file has changed")
+        void shouldRejectChangedFile() throws IOException {
+            Path file = write("big.txt", lines(1000));
+            try (MappedFile mapped = MappedFile.open(file)) {
+                LineIndex index = new LineIndex(mapped);
+                index.run();
+                store().save(List.of(), Map.of(file, index));
+            }
+            Files.writeString(file, "appended\n", StandardOpenOption.APPEND);
+
+            try (MappedFile mapped = MappedFile.open(file)) {
+                LineIndex restored = new LineIndex(mapped);
+
+                assertThat(store().loadIndex(file, restored)).isFalse();
+                assertThat(restored.getIndexedLimit()).isZero();
+            }
+        }
+
+        @Test
+        @DisplayName("should delete the indexes of files no longer open")
+        void shouldDeleteStaleIndexes() throws IOException {
+            Path file = write("big.txt", lines(100));
+            try (MappedFile mapped = MappedFile.open(file)) {
+                LineIndex index = new LineIndex(mapped);
+                index.run();
+                store().save(List.of(), Map.of(file, index));
+                store().save(List.of(), Map.of());
+
+                assertThat(store().loadIndex(file, new LineIndex(mapped))).isFalse();
+            }
+        }
+    }
+}
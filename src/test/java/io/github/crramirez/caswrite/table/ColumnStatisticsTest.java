@@ -0,0 +1,230 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import io.github.crramirez.caswrite.load.LoadProgress;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit tests for column statistics and their parallel computation.
+ */
+@DisplayName("Column statistics")
+class ColumnStatisticsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ColumnarTableModel load(String content) throws IOException {
+        Path file = tempDir.resolve("data.csv");
+        Files.writeString(file, content);
+        return ColumnarTableModel.load(file, CsvFormat.CSV, new LoadProgress(file, Files.size(file)));
+    }
+
+    private static ColumnStatistics compute(TableModel model, int column) {
+        LoadProgress progress = LoadProgress.forRows(Path.of("data.csv"), "Statistics", model.getRowCount());
+        return TableOperations.statistics(model, column, progress, new ColumnStatistics());
+    }
+
+    @Nested
+    @DisplayName("when summarizing cells")
+    class Summarizing {
+
+        @Test
+        @DisplayName("should count nulls and summarize numbers")
+        void shouldSummarizeNumbers() {
+            ColumnStatistics stats = new ColumnStatistics();
+            for (String value : new String[]{"4", "", "-2", "10.5", "4"}) {
+                stats.add(value);
+            }
+
+            assertThat(stats.getCount()).isEqualTo(5);
+            assertThat(stats.getNullCount()).isEqualTo(1);
+            assertThat(stats.getSum()).isEqualTo(16.5);
+            assertThat(stats.getMin()).isEqualTo(-2);
+            assertThat(stats.getMax()).isEqualTo(10.5);
+            assertThat(stats.getMean()).isEqualTo(4.125);
+            assertThat(stats.getDistinctEstimate()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("should give the text range of non-numeric cells")
+        void shouldSummarizeText() {
+            ColumnStatistics stats = new ColumnStatistics();
+            for (String value : new String[]{"2024-03-01", "2023-12-31", "2024-01-15"}) {
+                stats.add(value);
+            }
+
+            assertThat(stats.getNumericCount()).isZero();
+            assertThat(stats.getMinText()).isEqualTo("2023-12-31");
+            assertThat(stats.getMaxText()).isEqualTo("2024-03-01");
+        }
+
+        @Test
+        @DisplayName("should estimate distinct counts within a few percent")
+        void shouldEstimateDistinctCount() {
+            ColumnStatistics stats = new ColumnStatistics();
+            for (int i = 0; i < 200_000; i++) {
+                stats.add("value-" + (i % 100_000));
+            }
+
+            assertThat((double) stats.getDistinctEstimate()).isCloseTo(100_000, within(3_000.0));
+        }
+    }
+
+    @Nested
+    @DisplayName("when cells are edited")
+    class Editing {
+
+        @Test
+        @DisplayName("should update counts and sum without recomputing")
+        void shouldUpdateIncrementally() {
+            ColumnStatistics stats = new ColumnStatistics();
+            stats.add("1");
+            stats.add("5");
+            stats.add("");
+
+            stats.replace("", "3");
+            stats.replace("1", "2");
+
+            assertThat(stats.getNullCount()).isZero();
+            assertThat(stats.getSum()).isEqualTo(10);
+            assertThat(stats.getMean()).isCloseTo(10.0 / 3, within(1e-9));
+            assertThat(stats.isRangeStale()).isTrue();
+        }
+
+        @Test
+        @DisplayName("should keep the range exact when neither end is edited")
+        void shouldKeepRangeWhenInteriorValueChanges() {
+            ColumnStatistics stats = new ColumnStatistics();
+            stats.add("1");
+            stats.add("5");
+            stats.add("9");
+
+            stats.replace("5", "6");
+
+            assertThat(stats.isRangeStale()).isFalse();
+            assertThat(stats.getMin()).isEqualTo(1);
+            assertThat(stats.getMax()).isEqualTo(9);
+        }
+    }
+
+    @Nested
+    @DisplayName("when computing in parallel")
+    class Computing {
+
+        @Test
+        @DisplayName("should match a sequential pass over typed and text columns")
+        void shouldMatchSequentialPass() throws IOException {
+            int rows = TableOperations.GRAIN * 3 + 11;
+            StringBuilder content = new StringBuilder("n,city\n");
+            ColumnStatistics expectedNumbers = new ColumnStatistics();
+            ColumnStatistics expectedCities = new ColumnStatistics();
+            for (int i = 0; i < rows; i++) {
+                String number = i % 10 == 0 ? "" : Integer.toString(i % 977);
+                String city = "city" + (i % 50);
+                content.append(number).append(',').append(city).append('\n');
+                expectedNumbers.add(number);
+                expectedCities.add(city);
+            }
+            ColumnarTableModel model = load(content.toString());
+
+            ColumnStatistics numbers = compute(model, 0);
+            ColumnStatistics cities = compute(model, 1);
+
+            assertThat(numbers.getCount()).isEqualTo(rows);
+            assertThat(numbers.getNullCount()).isEqualTo(expectedNumbers.getNullCount());
+            assertThat(numbers.getSum()).isEqualTo(expectedNumbers.getSum());
+            assertThat(numbers.getMax()).isEqualTo(976);
+            assertThat(numbers.getDistinctEstimate()).isEqualTo(expectedNumbers.getDistinctEstimate());
+            assertThat((double) cities.getDistinctEstimate()).isCloseTo(50, within(2.0));
+            assertThat(cities.getMinText()).isEqualTo("city0");
+        }
+
+        @Test
+        @DisplayName("should only count the rows a filtered view shows")
+        void shouldRespectFilter() throws IOException {
+            ColumnarTableModel model = load("n\n1\n2\n3\n4\n");
+            TableView view = new TableView(model);
+            RowFilter filter = RowFilter.parse("n > 2", model);
+            view.setFilter(filter, TableOperations.filter(model, filter,
+                LoadProgress.forRows(Path.of("data.csv"), "Filtering", 4)));
+
+            ColumnStatistics stats = compute(view, 0);
+
+            assertThat(stats.getCount()).isEqualTo(2);
+            assertThat(stats.getSum()).isEqualTo(7);
+        }
+    }
+
+    @Nested
+    @DisplayName("when rows are appended to a followed file")
+    class Following {
+
+        @Test
+        @DisplayName("should remove cells added before")
+        void shouldRemoveCells() {
+            ColumnStatistics stats = new ColumnStatistics();
+            stats.add("1");
+            stats.add("");
+            stats.add("5");
+
+            stats.remove("");
+            stats.remove("5");
+
+            assertThat(stats.getCount()).isEqualTo(1);
+            assertThat(stats.getNullCount()).isZero();
+            assertThat(stats.getSum()).isEqualTo(1);
+            assertThat(stats.isRangeStale()).isTrue();
+        }
+
+        @Test
+        @DisplayName("should add appended rows and the completed last row as the panel does")
+        void shouldTrackAppendedRows() throws IOException {
+            Path file = tempDir.resolve("follow.csv");
+            Files.writeString(file, "n\n1\n2\n3");
+            try (CsvTableModel model = CsvTableModel.open(file, CsvFormat.CSV)) {
+                model.getRowIndex().run();
+                ColumnStatistics stats = compute(new TableView(model), 0);
+                ColumnStatisticsWindow.RowTracker tracker =
+                    new ColumnStatisticsWindow.RowTracker(model, 0, stats, model.getRowCount());
+
+                Files.writeString(file, "4\n5\n\n", StandardOpenOption.APPEND);
+                model.extend(Files.size(file));
+                tracker.update();
+
+                // The last row "3" was completed to "34"
+                ColumnStatistics expected = compute(model, 0);
+                assertThat(stats.getCount()).isEqualTo(expected.getCount());
+                assertThat(stats.getNullCount()).isEqualTo(expected.getNullCount());
+                assertThat(stats.getSum()).isEqualTo(1 + 2 + 34 + 5);
+                assertThat(stats.getSum()).isEqualTo(expected.getSum());
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import io.github.crramirez.caswrite.load.LoadProgress;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the typed, column-oriented table model.
+ */
+@DisplayName("Columnar table model")
+class ColumnarTableModelTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ColumnarTableModel load(String content, CsvFormat format) throws IOException {
+        Path file = tempDir.resolve("data.csv");
+        Files.writeString(file, content);
+        LoadProgress progress = new LoadProgress(file, Files.size(file));
+        ColumnarTableModel model = ColumnarTableModel.load(file, format, progress);
+        assertThat(progress.getRows()).isEqualTo(model.getRowCount());
+        return model;
+    }
+
+    @Nested
+    @DisplayName("when inferring column types")
+    class InferringTypes {
+
+        @Test
+        @DisplayName("should store each column in the narrowest type all values fit")
+        void shouldInferTypes() throws IOException {
+            ColumnarTableModel model = load("id,price,active,day,city\n"
+                + "1,2.5,true,2024-01-31,Paris\n"
+                + "2,3.25,false,2024-02-29,Lima\n"
+                + "3,4,true,2024-03-01,Paris\n", CsvFormat.CSV);
+
+            assertThat(model.getColumn(0).getType()).isEqualTo(Column.Type.LONG);
+            assertThat(model.getColumn(1).getType()).isEqualTo(Column.Type.DOUBLE);
+            assertThat(model.getColumn(2).getType()).isEqualTo(Column.Type.BOOLEAN);
+            assertThat(model.getColumn(3).getType()).isEqualTo(Column.Type.DATE);
+            assertThat(model.getColumn(4).getType()).isEqualTo(Column.Type.STRING);
+            assertThat(((Column.StringColumn) model.getColumn(4)).getDistinctCount()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("should keep numbers with leading zeros or too many digits as text")
+        void shouldKeepCodesAsText() throws IOException {
+            ColumnarTableModel model = load("zip,account\n"
+                + "01234,12345678901234567890\n"
+                + "98765,1\n", CsvFormat.CSV);
+
+            assertThat(model.getColumn(0).getType()).isEqualTo(Column.Type.STRING);
+            assertThat(model.getColumn(1).getType()).isEqualTo(Column.Type.STRING);
+            assertThat(model.getCell(0, 0)).isEqualTo("01234");
+            assertThat(model.getCell(0, 1)).isEqualTo("12345678901234567890");
+        }
+
+        @Test
+        @DisplayName("should treat empty cells and missing fields as nulls")
+        void shouldTreatEmptyCellsAsNulls() throws IOException {
+            ColumnarTableModel model = load("a;b\n1;\n;2\n3\n", new CsvFormat((byte) ';', (byte) '"'));
+
+            assertThat(model.getColumn(0).getType()).isEqualTo(Column.Type.LONG);
+            assertThat(model.getColumn(1).getType()).isEqualTo(Column.Type.LONG);
+            assertThat(model.getColumn(0).isNull(1)).isTrue();
+            assertThat(model.getColumn(1).isNull(2)).isTrue();
+            assertThat(model.getCell(2, 1)).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("when formatting cells")
+    class FormattingCells {
+
+        @Test
+        @DisplayName("should show decimals with the column's number of fraction digits")
+        void shouldFormatDecimalsWithColumnScale() throws IOException {
+            ColumnarTableModel model = load("amount\n1.50\n2\n-0.125\n", CsvFormat.CSV);
+
+            assertThat(model.getCell(0, 0)).isEqualTo("1.500");
+            assertThat(model.getCell(1, 0)).isEqualTo("2.000");
+            assertThat(model.getCell(2, 0)).isEqualTo("-0.125");
+        }
+
+        @Test
+        @DisplayName("should reproduce dates, booleans and quoted text as written")
+        void shouldReproduceValues() throws IOException {
+            ColumnarTableModel model = load("\uFEFFday,flag,note\n"
+                + "2023-12-31,TRUE,\"a, b\"\n"
+                + "1969-07-20,FALSE,plain\n", CsvFormat.CSV);
+
+            assertThat(model.getColumnName(0)).isEqualTo("day");
+            assertThat(model.getCell(1, 0)).isEqualTo("1969-07-20");
+            assertThat(model.getCell(0, 1)).isEqualTo("TRUE");
+            assertThat(model.getCell(0, 2)).isEqualTo("a, b");
+            assertThat(model.getCell(5, 0)).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("when spilled to disk")
+    class Spilling {
+
+        @Test
+        @DisplayName("should read every column type back with the same cells")
+        void shouldRoundTripColumns() throws IOException {
+            ColumnarTableModel model = load("id,price,active,day,city,empty\n"
+                + "1,2.5,TRUE,2024-01-31,Paris,\n"
+                + ",3.25,FALSE,,Zoë,\n"
+                + "3,,TRUE,2024-03-01,,\n", CsvFormat.CSV);
+            model.spill();
+            assertThat(model.isSpilled()).isTrue();
+            assertThat(model.estimateHeapBytes()).isZero();
+            assertThat(model.getColumnName(4)).isEqualTo("city");
+            assertThat(model.isSpilled()).isTrue();
+
+            model.restore();
+            assertThat(model.isSpilled()).isFalse();
+            assertThat(model.estimateHeapBytes()).isPositive();
+            assertThat(model.getColumn(2).getType()).isEqualTo(Column.Type.BOOLEAN);
+            assertThat(model.getCell(0, 1)).isEqualTo("2.50");
+            assertThat(model.getCell(0, 2)).isEqualTo("TRUE");
+            assertThat(model.getCell(1, 0)).isEmpty();
+            assertThat(model.getCell(1, 4)).isEqualTo("Zoë");
+            assertThat(model.getCell(2, 3)).isEqualTo("2024-03-01");
+            assertThat(model.getColumn(4).isNull(2)).isTrue();
+            model.close();
+        }
+
+        @Test
+        @DisplayName("should read columns back when a cell is asked for")
+        void shouldRestoreOnAccess() throws IOException {
+            ColumnarTableModel model = load("n\n" + "1\n".repeat(300_000), CsvFormat.CSV);
+            Column before = model.getColumn(0);
+
+            model.spill();
+            assertThat(before.format(299_999)).isEqualTo("1");
+            assertThat(model.getCell(299_999, 0)).isEqualTo("1");
+
+            assertThat(model.isSpilled()).isFalse();
+            model.close();
+        }
+    }
+}
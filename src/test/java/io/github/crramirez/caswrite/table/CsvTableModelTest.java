@@ -0,0 +1,183 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the memory-mapped, paged CSV table model.
+ */
+@DisplayName("Virtualized CSV table model")
+class CsvTableModelTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CsvTableModel model;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (model != null) {
+            model.close();
+        }
+    }
+
+    private CsvTableModel open(String content, CsvFormat format) throws IOException {
+        Path file = tempDir.resolve("data.csv");
+        Files.writeString(file, content);
+        model = CsvTableModel.open(file, format);
+        model.getRowIndex().run();
+        return model;
+    }
+
+    @Nested
+    @DisplayName("when reading rows")
+    class ReadingRows {
+
+        @Test
+        @DisplayName("should use the first record as column names")
+        void shouldUseHeaderAsColumnNames() throws IOException {
+            open("id,name\n1,Ada\n2,Grace\n", CsvFormat.CSV);
+
+            assertThat(model.getColumnCount()).isEqualTo(2);
+            assertThat(model.getColumnName(1)).isEqualTo("name");
+            assertThat(model.getRowCount()).isEqualTo(2);
+            assertThat(model.getCell(1, 1)).isEqualTo("Grace");
+        }
+
+        @Test
+        @DisplayName("should find rows far beyond the first page and index stride")
+        void shouldSeekToDistantRows() throws IOException {
+            StringBuilder content = new StringBuilder("n\n");
+            int rows = CsvRowIndex.STRIDE * 5 + CsvTableModel.PAGE_ROWS + 7;
+            for (int i = 0; i < rows; i++) {
+                content.append(i).append('\n');
+            }
+            open(content.toString(), CsvFormat.CSV);
+
+            assertThat(model.getRowCount()).isEqualTo(rows);
+            assertThat(model.getCell(rows - 1, 0)).isEqualTo(Integer.toString(rows - 1));
+            assertThat(model.getCell(CsvRowIndex.STRIDE * 3, 0)).isEqualTo(Integer.toString(CsvRowIndex.STRIDE * 3));
+        }
+
+        @Test
+        @DisplayName("should keep quoted newlines, delimiters and quotes inside one cell")
+        void shouldParseQuotedFields() throws IOException {
+            open("a,b\r\n\"line one\nline two\",\"x, \"\"y\"\"\"\r\nlast,row", CsvFormat.CSV);
+
+            assertThat(model.getRowCount()).isEqualTo(2);
+            assertThat(model.getCell(0, 0)).isEqualTo("line one\nline two");
+            assertThat(model.getCell(0, 1)).isEqualTo("x, \"y\"");
+            assertThat(model.getCell(1, 1)).isEqualTo("row");
+        }
+
+        @Test
+        @DisplayName("should keep a quote inside an unquoted field as text")
+        void shouldKeepQuoteInsideField() throws IOException {
+            open("item,size\npipe,12\" long\nvalve,\"3, brass\"\nhose,2m\n", CsvFormat.CSV);
+
+            assertThat(model.getRowCount()).isEqualTo(3);
+            assertThat(model.getCell(0, 1)).isEqualTo("12\" long");
+            assertThat(model.getCell(1, 1)).isEqualTo("3, brass");
+            assertThat(model.getCell(2, 0)).isEqualTo("hose");
+        }
+
+        @Test
+        @DisplayName("should skip a byte order mark before the header")
+        void shouldSkipByteOrderMark() throws IOException {
+            open("\uFEFF\"id\",name\n1,Ada\n", CsvFormat.CSV);
+
+            assertThat(model.getColumnName(0)).isEqualTo("id");
+            assertThat(model.getRowCount()).isEqualTo(1);
+            assertThat(model.getCell(0, 1)).isEqualTo("Ada");
+        }
+
+        @Test
+        @DisplayName("should split tab-separated files on tabs")
+        void shouldReadTsv() throws IOException {
+            open("a\tb\n1,5\t2\n", CsvFormat.forFileName("export.TSV"));
+
+            assertThat(model.getCell(0, 0)).isEqualTo("1,5");
+            assertThat(model.getCell(0, 1)).isEqualTo("2");
+        }
+
+        @Test
+        @DisplayName("should decode fields in the charset of the format")
+        void shouldDecodeLegacyCharset() throws IOException {
+            Path file = tempDir.resolve("latin.csv");
+            Files.write(file, "name\nZoë\n".getBytes(StandardCharsets.ISO_8859_1));
+            model = CsvTableModel.open(file, CsvFormat.CSV.withCharset(StandardCharsets.ISO_8859_1));
+            model.getRowIndex().run();
+
+            assertThat(model.getCell(0, 0)).isEqualTo("Zoë");
+        }
+
+        @Test
+        @DisplayName("should return empty text for missing rows and fields")
+        void shouldReturnEmptyForMissingCells() throws IOException {
+            open("a,b,c\n1\n", CsvFormat.CSV);
+
+            assertThat(model.getCell(0, 2)).isEmpty();
+            assertThat(model.getCell(5, 0)).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("when the file grows")
+    class Following {
+
+        @Test
+        @DisplayName("should index appended records and complete a partial last row")
+        void shouldExtendWithAppendedRecords() throws IOException {
+            open("id,name\n1,Ada\n2,Gr", CsvFormat.CSV);
+            assertThat(model.getCell(1, 1)).isEqualTo("Gr");
+
+            Files.writeString(model.getPath(), "ace\n3,\"Mary\nJane\"\n", StandardOpenOption.APPEND);
+            model.extend(Files.size(model.getPath()));
+
+            assertThat(model.getRowCount()).isEqualTo(3);
+            assertThat(model.getCell(1, 1)).isEqualTo("Grace");
+            assertThat(model.getCell(2, 1)).isEqualTo("Mary\nJane");
+        }
+
+        @Test
+        @DisplayName("should keep a quoted field open across appends")
+        void shouldResumeInsideQuotes() throws IOException {
+            open("a,b\n1,\"x\n", CsvFormat.CSV);
+
+            Files.writeString(model.getPath(), "y\"\n2,z\n", StandardOpenOption.APPEND);
+            model.extend(Files.size(model.getPath()));
+
+            assertThat(model.getRowCount()).isEqualTo(2);
+            assertThat(model.getCell(0, 1)).isEqualTo("x\ny");
+            assertThat(model.getCell(1, 1)).isEqualTo("z");
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.table;
+
+import io.github.crramirez.caswrite.load.LoadProgress;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for parallel sorting and filtering through a table view.
+ */
+@DisplayName("Table sort and filter")
+class TableOperationsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ColumnarTableModel load(String content) throws IOException {
+        Path file = tempDir.resolve("data.csv");
+        Files.writeString(file, content);
+        return ColumnarTableModel.load(file, CsvFormat.CSV, new LoadProgress(file, Files.size(file)));
+    }
+
+    private static LoadProgress progress(TableModel model) {
+        return LoadProgress.forRows(Path.of("data.csv"), "Sorting", model.getRowCount());
+    }
+
+    /**
+     * Table of text cells, standing in for models without typed columns.
+     */
+    private record TextTable(String[] header, String[][] rows) implements TableModel {
+        @Override
+        public int getColumnCount() {
+            return header.length;
+        }
+
+        @Override
+        public long getRowCount() {
+            return rows.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return header[column];
+        }
+
+        @Override
+        public String getCell(long row, int column) {
+            return rows[(int) row][column];
+        }
+    }
+
+    @Nested
+    @DisplayName("when sorting")
+    class Sorting {
+
+        @Test
+        @DisplayName("should sort by several keys and keep ties in file order")
+        void shouldSortByKeysStably() throws IOException {
+            ColumnarTableModel model = load("city,price,id\n"
+                + "Lima,3,1\nParis,1,2\nLima,3,3\n,2,4\nParis,5,5\n");
+
+            List<SortKey> keys = SortKey.parse("city, price desc", model);
+            int[] order = TableOperations.sort(model, keys, progress(model));
+
+            assertThat(order).containsExactly(3, 0, 2, 4, 1);
+        }
+
+        @Test
+        @DisplayName("should sort text models numerically when every cell is a number")
+        void shouldSortTextNumerically() {
+            TextTable model = new TextTable(new String[]{"n"},
+                new String[][]{{"10"}, {"9"}, {""}, {"-1.5"}});
+
+            int[] order = TableOperations.sort(model, List.of(new SortKey(0, false)), progress(model));
+
+            assertThat(order).containsExactly(2, 3, 1, 0);
+        }
+
+        @Test
+        @DisplayName("should sort tables larger than one parallel task")
+        void shouldSortInParallel() throws IOException {
+            int rows = TableOperations.GRAIN * 4 + 7;
+            StringBuilder content = new StringBuilder("value,row\n");
+            for (int i = 0; i < rows; i++) {
+                content.append((i * 7919L) % 1000).append(',').append(i).append('\n');
+            }
+            ColumnarTableModel model = load(content.toString());
+            LoadProgress progress = progress(model);
+
+            int[] order = TableOperations.sort(model, List.of(new SortKey(0, false)), progress);
+
+            Column.LongColumn values = (Column.LongColumn) model.getColumn(0);
+            for (int i = 1; i < rows; i++) {
+                long previous = values.getLong(order[i - 1]);
+                long current = values.getLong(order[i]);
+                assertThat(previous).isLessThanOrEqualTo(current);
+                if (previous == current) {
+                    assertThat(order[i - 1]).isLessThan(order[i]);
+                }
+            }
+            assertThat(progress.getRows()).isEqualTo(rows);
+        }
+
+        @Test
+        @DisplayName("should stop when cancelled")
+        void shouldStopWhenCancelled() throws IOException {
+            ColumnarTableModel model = load("a\n2\n1\n");
+            LoadProgress progress = progress(model);
+            progress.cancel();
+
+            assertThatThrownBy(() -> TableOperations.sort(model, List.of(new SortKey(0, false)), progress))
+                .isInstanceOf(CancellationException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("when filtering")
+    class Filtering {
+
+        @Test
+        @DisplayName("should compare typed columns numerically")
+        void shouldFilterNumbers() throws IOException {
+            ColumnarTableModel model = load("price\n5\n20\n\n100\n");
+
+            BitSet kept = TableOperations.filter(model, RowFilter.parse("price >= 20", model), progress(model));
+
+            assertThat(kept.stream().toArray()).containsExactly(1, 3);
+        }
+
+        @Test
+        @DisplayName("should match text by containment, ignoring case")
+        void shouldFilterText() throws IOException {
+            ColumnarTableModel model = load("city\nParis\nLima\nparis\n");
+
+            BitSet kept = TableOperations.filter(model, RowFilter.parse("city ~ PAR", model), progress(model));
+
+            assertThat(kept.stream().toArray()).containsExactly(0, 2);
+        }
+
+        @Test
+        @DisplayName("should give a readable error for unknown columns")
+        void shouldRejectUnknownColumns() throws IOException {
+            ColumnarTableModel model = load("city\nParis\n");
+
+            assertThatThrownBy(() -> RowFilter.parse("town = Paris", model))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("town");
+        }
+    }
+
+    @Nested
+    @DisplayName("when viewing results")
+    class Viewing {
+
+        @Test
+        @DisplayName("should combine sort and filter and undo either one")
+        void shouldCombineAndUndo() throws IOException {
+            ColumnarTableModel model = load("n\n3\n1\n4\n2\n");
+            TableView view = new TableView(model);
+            List<SortKey> keys = List.of(new SortKey(0, false));
+            RowFilter filter = RowFilter.parse("n > 1", model);
+
+            view.setSort(keys, TableOperations.sort(model, keys, progress(model)));
+            view.setFilter(filter, TableOperations.filter(model, filter, progress(model)));
+            assertThat(view.getRowCount()).isEqualTo(3);
+            assertThat(view.getCell(0, 0)).isEqualTo("2");
+            assertThat(view.sourceRow(0)).isEqualTo(3);
+
+            view.clearSort();
+            assertThat(view.getCell(0, 0)).isEqualTo("3");
+
+            view.clearFilter();
+            assertThat(view.isSorted()).isFalse();
+            assertThat(view.getRowCount()).isEqualTo(4);
+            assertThat(view.getCell(1, 0)).isEqualTo("1");
+        }
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the memory-mapped piece-table text buffer.
+ */
+@DisplayName("Large file text buffer")
+class TextBufferTest {
+
+    // Unchanged text up to this long between matches is merged into the
+    // replacement, so the matches here are further apart
+    private static final int COALESCE_GAP = 256;
+
+    @TempDir
+    Path tempDir;
+
+    private TextBuffer buffer;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+
+    private TextBuffer open(String content) throws IOException {
+        Path file = tempDir.resolve("file.txt");
+        Files.writeString(file, content);
+        buffer = TextBuffer.open(file);
+        buffer.getLineIndex().run();
+        return buffer;
+    }
+
+    private static String line(TextBuffer buffer, long line) {
+        return new String(buffer.lineBytes(line, Integer.MAX_VALUE), StandardCharsets.UTF_8);
+    }
+
+    @Nested
+    @DisplayName("when reading lines")
+    class ReadingLines {
+
+        @Test
+        @DisplayName("should find every line of a file longer than one index stride")
+        void shouldFindEveryLine() throws IOException {
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < LineIndex.STRIDE * 3 + 5; i++) {
+                content.append("line ").append(i).append('\n');
+            }
+            open(content.toString());
+
+            assertThat(buffer.lineCount()).isEqualTo(LineIndex.STRIDE * 3 + 6);
+            assertThat(line(buffer, 0)).isEqualTo("line 0");
+            assertThat(line(buffer, LineIndex.STRIDE)).isEqualTo("line " + LineIndex.STRIDE);
+            assertThat(line(buffer, LineIndex.STRIDE * 3 + 4)).isEqualTo("line " + (LineIndex.STRIDE * 3 + 4));
+        }
+
+        @Test
+        @DisplayName("should find lines longer than the byte stride of the index")
+        void shouldFindLongLines() throws IOException {
+            String longLine = "x".repeat(LineIndex.BYTE_STRIDE * 2 + 7);
+            open("short\n" + longLine + "\n" + longLine + "y\nlast");
+            LineIndex index = buffer.getLineIndex();
+
+            assertThat(buffer.lineCount()).isEqualTo(4);
+            assertThat(line(buffer, 2)).isEqualTo(longLine + "y");
+            assertThat(line(buffer, 3)).isEqualTo("last");
+            assertThat(index.select(3)).isEqualTo(6 + 2 * (longLine.length() + 1) + 1);
+            assertThat(index.rank(LineIndex.BYTE_STRIDE * 3L)).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("should strip CRLF terminators")
+        void shouldStripCrLf() throws IOException {
+            open("first\r\nsecond\r\n");
+
+            assertThat(line(buffer, 0)).isEqualTo("first");
+            assertThat(line(buffer, 1)).isEqualTo("second");
+        }
+
+        @Test
+        @DisplayName("should report lines that are not indexed yet as unavailable")
+        void shouldReportUnindexedLines() throws IOException {
+            Path file = tempDir.resolve("unindexed.txt");
+            Files.writeString(file, "a\nb\nc\n");
+            buffer = TextBuffer.open(file);
+
+            assertThat(buffer.lineStart(0)).isZero();
+            assertThat(buffer.lineStart(1)).isEqualTo(-1);
+            assertThat(buffer.isLineCountKnown()).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("when editing")
+    class Editing {
+
+        @Test
+        @DisplayName("should insert text containing newlines")
+        void shouldInsertText() throws IOException {
+            open("hello world\nsecond\n");
+
+            buffer.insert(5, ",\nbig".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(buffer.isDirty()).isTrue();
+            assertThat(line(buffer, 0)).isEqualTo("hello,");
+            assertThat(line(buffer, 1)).isEqualTo("big world");
+            assertThat(line(buffer, 2)).isEqualTo("second");
+        }
+
+        @Test
+        @DisplayName("should delete ranges spanning several pieces")
+        void shouldDeleteAcrossPieces() throws IOException {
+            open("one\ntwo\nthree\n");
+            buffer.insert(4, "inserted ".getBytes(StandardCharsets.UTF_8));
+
+            buffer.delete(2, 13);
+
+            assertThat(line(buffer, 0)).isEqualTo("ono");
+            assertThat(line(buffer, 1)).isEqualTo("three");
+            assertThat(buffer.lineCount()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("should keep consecutive keystrokes as one piece of text")
+        void shouldCoalesceTyping() throws IOException {
+            open("ac\n");
+
+            buffer.insert(1, "b".getBytes(StandardCharsets.UTF_8));
+            buffer.insert(2, "b".getBytes(StandardCharsets.UTF_8));
+            buffer.insert(3, "b".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(line(buffer, 0)).isEqualTo("abbbc");
+        }
+
+        @Test
+        @DisplayName("should find lines and offsets among many pieces left by a replace-all")
+        void shouldFindLinesAmongManyPieces() throws IOException {
+            int lines = 5000;
+            StringBuilder content = new StringBuilder();
+            long[] offsets = new long[lines];
+            long[] lengths = new long[lines];
+            byte[][] replacements = new byte[lines][];
+            for (int i = 0; i < lines; i++) {
+                content.append("line ").append(i).append(' ').append("x".repeat(COALESCE_GAP)).append(" old\n");
+                offsets[i] = content.length() - 4;
+                lengths[i] = 3;
+                replacements[i] = (i % 2 == 0 ? "new\nline" : "").getBytes(StandardCharsets.UTF_8);
+            }
+            open(content.toString());
+
+            buffer.replaceAll(offsets, lengths, replacements, lines);
+            buffer.insert(buffer.lineStart(4000), "typed ".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(buffer.lineCount()).isEqualTo(lines + lines / 2 + 1);
+            assertThat(line(buffer, 0)).startsWith("line 0 ").endsWith(" new");
+            assertThat(line(buffer, 1)).isEqualTo("line");
+            assertThat(line(buffer, 4000)).isEqualTo("typed line");
+            assertThat(line(buffer, 4001)).startsWith("line 2667 ").endsWith("x ");
+            assertThat(buffer.lineOf(buffer.lineStart(4001) + 3)).isEqualTo(4001);
+        }
+    }
+
+    @Nested
+    @DisplayName("when undoing")
+    class Undoing {
+
+        @Test
+        @DisplayName("should undo consecutive keystrokes at once")
+        void shouldUndoTypingAtOnce() throws IOException {
+            open("ac\n");
+            buffer.insert(1, "b".getBytes(StandardCharsets.UTF_8));
+            buffer.insert(2, "b".getBytes(StandardCharsets.UTF_8));
+            buffer.sealChange();
+            buffer.delete(0, 1);
+
+            assertThat(buffer.undo()).isEqualTo(0);
+            assertThat(line(buffer, 0)).isEqualTo("abbc");
+            assertThat(buffer.undo()).isEqualTo(1);
+            assertThat(line(buffer, 0)).isEqualTo("ac");
+            assertThat(buffer.canUndo()).isFalse();
+
+            buffer.redo();
+
+            assertThat(line(buffer, 0)).isEqualTo("abbc");
+            assertThat(buffer.canRedo()).isTrue();
+        }
+
+        @Test
+        @DisplayName("should undo and redo a replacement of every match as one change")
+        void shouldUndoReplaceAll() throws IOException {
+            open("one two one\none\n");
+            buffer.replaceAll(new long[] {0, 8, 12}, new long[] {3, 3, 3},
+                new byte[][] {"1".getBytes(StandardCharsets.UTF_8), "1".getBytes(StandardCharsets.UTF_8),
+                    new byte[0]}, 3);
+
+            buffer.undo();
+
+            assertThat(line(buffer, 0)).isEqualTo("one two one");
+            assertThat(line(buffer, 1)).isEqualTo("one");
+
+            buffer.redo();
+
+            assertThat(line(buffer, 0)).isEqualTo("1 two 1");
+            assertThat(line(buffer, 1)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("should be clean again once every edit is undone")
+        void shouldBeCleanAfterUndoingEverything() throws IOException {
+            open("abc\n");
+            buffer.insert(3, "d".getBytes(StandardCharsets.UTF_8));
+            buffer.sealChange();
+            buffer.delete(0, 1);
+
+            buffer.undo();
+            assertThat(buffer.isDirty()).isTrue();
+            buffer.undo();
+            assertThat(buffer.isDirty()).isFalse();
+            buffer.redo();
+            assertThat(buffer.isDirty()).isTrue();
+        }
+
+        @Test
+        @DisplayName("should drop the redo history when a new edit is made")
+        void shouldDropRedoOnEdit() throws IOException {
+            open("abc\n");
+            buffer.delete(1, 1);
+            buffer.undo();
+
+            buffer.insert(0, "x".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(buffer.canRedo()).isFalse();
+            assertThat(line(buffer, 0)).isEqualTo("xabc");
+        }
+    }
+
+    @Nested
+    @DisplayName("when saving")
+    class Saving {
+
+        @Test
+        @DisplayName("should write the edited document over the mapped original")
+        void shouldSaveOverOriginal() throws IOException {
+            open("alpha\nbeta\n");
+            buffer.delete(0, 6);
+            buffer.insert(buffer.length(), "gamma\n".getBytes(StandardCharsets.UTF_8));
+
+            buffer.saveTo(buffer.getPath());
+
+            assertThat(Files.readString(buffer.getPath())).isEqualTo("beta\ngamma\n");
+        }
+
+        @Test
+        @DisplayName("should save more segments than fit in one gathering write")
+        void shouldSaveManySegments() throws IOException {
+            open("x".repeat(4000));
+            StringBuilder expected = new StringBuilder("x".repeat(4000));
+            for (int i = 3000; i > 0; i--) {
+                buffer.insert(i, "-".getBytes(StandardCharsets.UTF_8));
+                expected.insert(i, '-');
+            }
+
+            buffer.saveTo(buffer.getPath());
+
+            assertThat(Files.readString(buffer.getPath())).isEqualTo(expected.toString());
+        }
+    }
+
+    @Nested
+    @DisplayName("when the file grows")
+    class Following {
+
+        @Test
+        @DisplayName("should add appended lines without becoming dirty")
+        void shouldAppendGrownBytes() throws IOException {
+            open("first\nsecond\n");
+            Files.writeString(buffer.getPath(), "third\nfour", StandardOpenOption.APPEND);
+            long size = Files.size(buffer.getPath());
+
+            buffer.extendOriginal(size);
+            buffer.appendOriginal(size);
+
+            assertThat(buffer.lineCount()).isEqualTo(4);
+            assertThat(line(buffer, 2)).isEqualTo("third");
+            assertThat(line(buffer, 3)).isEqualTo("four");
+            assertThat(buffer.length()).isEqualTo(size);
+            assertThat(buffer.getOriginalSize()).isEqualTo(size);
+            assertThat(buffer.isDirty()).isFalse();
+        }
+
+        @Test
+        @DisplayName("should complete a partial last line when the rest arrives")
+        void shouldCompletePartialLine() throws IOException {
+            open("a\nhal");
+            Files.writeString(buffer.getPath(), "f\nb\n", StandardOpenOption.APPEND);
+            long size = Files.size(buffer.getPath());
+
+            buffer.extendOriginal(size);
+            buffer.appendOriginal(size);
+
+            assertThat(buffer.lineCount()).isEqualTo(4);
+            assertThat(line(buffer, 1)).isEqualTo("half");
+            assertThat(line(buffer, 2)).isEqualTo("b");
+        }
+
+        @Test
+        @DisplayName("should add appended bytes after text typed at the end")
+        void shouldAppendAfterEdits() throws IOException {
+            open("log\n");
+            buffer.insert(buffer.length(), "note\n".getBytes(StandardCharsets.UTF_8));
+            Files.writeString(buffer.getPath(), "more\n", StandardOpenOption.APPEND);
+            long size = Files.size(buffer.getPath());
+
+            buffer.extendOriginal(size);
+            buffer.appendOriginal(size);
+
+            assertThat(line(buffer, 1)).isEqualTo("note");
+            assertThat(line(buffer, 2)).isEqualTo("more");
+            assertThat(buffer.isDirty()).isTrue();
+        }
+    }
+
+    @Nested
+    @DisplayName("in other charsets")
+    class Charsets {
+
+        private TextBuffer open(byte[] content, Charset charset) throws IOException {
+            Path file = tempDir.resolve("encoded.txt");
+            Files.write(file, content);
+            buffer = TextBuffer.open(file, charset);
+            buffer.getLineIndex().run();
+            return buffer;
+        }
+
+        @Test
+        @DisplayName("should split UTF-16 lines only on newline code units")
+        void shouldSplitUtf16Lines() throws IOException {
+            // U+010A and U+0A0D contain the bytes of LF and CR
+            open("\uFEFFĊ one\r\n\u0A0D two\nthree".getBytes(StandardCharsets.UTF_16LE),
+                StandardCharsets.UTF_16LE);
+
+            assertThat(buffer.lineCount()).isEqualTo(3);
+            assertThat(buffer.lineText(0, 100)).isEqualTo("Ċ one");
+            assertThat(buffer.lineText(1, 100)).isEqualTo("\u0A0D two");
+            assertThat(buffer.lineText(2, 100)).isEqualTo("three");
+            assertThat(buffer.textStart(0)).isEqualTo(2);
+            assertThat(buffer.terminatorLength(buffer.lineStart(1))).isEqualTo(4);
+            assertThat(buffer.terminatorLength(buffer.lineStart(2))).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("should save edits in the file's charset and leave the rest untouched")
+        void shouldKeepCharsetOnSave() throws IOException {
+            Charset latin = StandardCharsets.ISO_8859_1;
+            open("café\r\nthé\r\n".getBytes(latin), latin);
+
+            buffer.insert(buffer.lineStart(1), buffer.getEncoding().encode("crème\r\n"));
+            Path target = tempDir.resolve("saved.txt");
+            buffer.saveTo(target);
+
+            assertThat(buffer.lineText(1, 100)).isEqualTo("crème");
+            assertThat(Files.readAllBytes(target)).isEqualTo("café\r\ncrème\r\nthé\r\n".getBytes(latin));
+        }
+
+        @Test
+        @DisplayName("should count lines typed into a UTF-16 document")
+        void shouldIndexTypedUtf16Lines() throws IOException {
+            open("a\nb".getBytes(StandardCharsets.UTF_16BE), StandardCharsets.UTF_16BE);
+
+            buffer.insert(2, buffer.getEncoding().encode("x\ny"));
+
+            assertThat(buffer.lineCount()).isEqualTo(3);
+            assertThat(buffer.lineText(0, 100)).isEqualTo("ax");
+            assertThat(buffer.lineText(1, 100)).isEqualTo("y");
+            assertThat(buffer.lineOf(buffer.length())).isEqualTo(2);
+        }
+    }
+}
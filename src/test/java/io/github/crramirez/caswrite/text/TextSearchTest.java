@@ -0,0 +1,252 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the background search and replace over text buffers.
+ */
+@DisplayName("Large file search")
+class TextSearchTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TextBuffer buffer;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+
+    private TextBuffer open(String content) throws IOException {
+        Path file = tempDir.resolve("file.txt");
+        Files.writeString(file, content);
+        buffer = TextBuffer.open(file);
+        buffer.getLineIndex().run();
+        return buffer;
+    }
+
+    private TextSearch search(String query, String replacement) {
+        TextSearch search = new TextSearch(buffer, TextSearch.Query.parse(query), replacement);
+        search.run();
+        return search;
+    }
+
+    private static long[] offsets(TextSearch search) {
+        long[] offsets = new long[search.getHitCount()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = search.getOffset(i);
+        }
+        return offsets;
+    }
+
+    private static String content(TextBuffer buffer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo(Channels.newChannel(out));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Nested
+    @DisplayName("when finding text")
+    class FindingText {
+
+        @Test
+        @DisplayName("should find every non-overlapping occurrence")
+        void shouldFindOccurrences() throws IOException {
+            open("abcabc aaaa\nabc");
+
+            assertThat(offsets(search("abc", null))).containsExactly(0, 3, 12);
+            assertThat(offsets(search("aa", null))).containsExactly(7, 9);
+        }
+
+        @Test
+        @DisplayName("should find matches that cross a chunk boundary exactly once")
+        void shouldFindAcrossChunks() throws IOException {
+            StringBuilder content = new StringBuilder("x".repeat(TextSearch.CHUNK_SIZE - 3));
+            content.append("needle").append("x".repeat(TextSearch.CHUNK_SIZE)).append("needle");
+            open(content.toString());
+
+            TextSearch search = search("needle", null);
+
+            assertThat(offsets(search)).containsExactly(TextSearch.CHUNK_SIZE - 3,
+                2L * TextSearch.CHUNK_SIZE + 3);
+            assertThat(search.isComplete()).isTrue();
+        }
+
+        @Test
+        @DisplayName("should search edited text as well as the original file")
+        void shouldSearchEdits() throws IOException {
+            open("one two\n");
+            buffer.insert(4, "two ".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(offsets(search("two", null))).containsExactly(4, 8);
+        }
+
+        @Test
+        @DisplayName("should match regular expressions per line at byte offsets")
+        void shouldMatchRegex() throws IOException {
+            open("día 12\r\nnoche 345\n");
+
+            TextSearch search = search("/[0-9]+/", null);
+
+            assertThat(offsets(search)).containsExactly(5, 15);
+            assertThat(search.getLength(1)).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("should ignore case when the query ends in /i")
+        void shouldIgnoreCase() throws IOException {
+            open("Alpha ALPHA alpha");
+
+            assertThat(search("/alpha/i", null).getHitCount()).isEqualTo(3);
+            assertThat(search("/alpha/", null).getHitCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should reject an empty query or an invalid pattern")
+        void shouldRejectInvalidQueries() {
+            assertThatThrownBy(() -> TextSearch.Query.parse(""))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> TextSearch.Query.parse("/(/"))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("when replacing text")
+    class ReplacingText {
+
+        @Test
+        @DisplayName("should replace every match in one edit")
+        void shouldReplaceAll() throws IOException {
+            open("cat dog cat\ncat");
+
+            int replaced = search("cat", "horse").replaceAll();
+
+            assertThat(replaced).isEqualTo(3);
+            assertThat(content(buffer)).isEqualTo("horse dog horse\nhorse");
+            assertThat(buffer.lineCount()).isEqualTo(2);
+            assertThat(buffer.isDirty()).isTrue();
+        }
+
+        @Test
+        @DisplayName("should expand regex groups in the replacement")
+        void shouldExpandGroups() throws IOException {
+            open("x=1, y=22\n");
+
+            search("/(\\w)=(\\d+)/", "$2:$1").replaceAll();
+
+            assertThat(content(buffer)).isEqualTo("1:x, 22:y\n");
+        }
+
+        @Test
+        @DisplayName("should keep far-apart unchanged text intact")
+        void shouldKeepUnchangedText() throws IOException {
+            String filler = "-".repeat(1000);
+            open("a" + filler + "a" + filler + "a");
+
+            search("a", "bb").replaceAll();
+
+            assertThat(content(buffer)).isEqualTo("bb" + filler + "bb" + filler + "bb");
+        }
+
+        @Test
+        @DisplayName("should refuse to replace after the document was edited")
+        void shouldRefuseStaleReplace() throws IOException {
+            open("abc");
+            TextSearch search = search("b", "x");
+            buffer.insert(0, "z".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(search.isValidFor(buffer)).isFalse();
+            assertThatThrownBy(search::replaceAll).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("when locating matches")
+    class LocatingMatches {
+
+        @Test
+        @DisplayName("should map offsets to lines and find the next match")
+        void shouldLocateMatches() throws IOException {
+            open("a\nb a\n\na");
+            TextSearch search = search("a", null);
+
+            assertThat(buffer.lineOf(4)).isEqualTo(1);
+            assertThat(buffer.lineOf(7)).isEqualTo(3);
+            assertThat(search.nextHit(1)).isEqualTo(1);
+            assertThat(search.nextHit(8)).isEqualTo(-1);
+        }
+    }
+
+    @Nested
+    @DisplayName("in other charsets")
+    class Charsets {
+
+        private void open(String content, Charset charset) throws IOException {
+            Path file = tempDir.resolve("encoded.txt");
+            Files.write(file, content.getBytes(charset));
+            buffer = TextBuffer.open(file, charset);
+            buffer.getLineIndex().run();
+        }
+
+        @Test
+        @DisplayName("should not match bytes that straddle two UTF-16 characters")
+        void shouldAlignUtf16Matches() throws IOException {
+            // In UTF-16LE the bytes of "a" span the end of U+6162 and the
+            // start of U+4E00
+            open("\u6162\u4E00\na", StandardCharsets.UTF_16LE);
+
+            TextSearch search = search("a", null);
+
+            assertThat(offsets(search)).containsExactly(6);
+        }
+
+        @Test
+        @DisplayName("should replace regular expression matches in the file's charset")
+        void shouldReplaceInLegacyCharset() throws IOException {
+            open("né\nnée\n", StandardCharsets.ISO_8859_1);
+
+            TextSearch search = search("/n\\S+/", "ça");
+            search.replaceAll();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            buffer.writeTo(Channels.newChannel(out));
+
+            assertThat(out.toByteArray()).isEqualTo("ça\nça\n".getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+}
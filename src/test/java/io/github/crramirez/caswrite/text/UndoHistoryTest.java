@@ -0,0 +1,102 @@
+/*
+ * CasWrite - Text editor with table support based on Casciian
+ *
+ * Copyright 2025 Carlos Rafael Ramirez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.crramirez.caswrite.text;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the undo history.
+ */
+@DisplayName("Undo history")
+class UndoHistoryTest {
+
+    // Small enough that only the newest change stays on the heap
+    private final UndoHistory history = new UndoHistory(1);
+
+    @AfterEach
+    void tearDown() throws IOException {
+        history.close();
+    }
+
+    @Test
+    @DisplayName("should read changes moved to the journal back newest first")
+    void shouldReadJournalBack() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            history.recordChange(new UndoHistory.Edit[] {
+                new UndoHistory.Edit(i * 10L, new long[] {i, 1}, new long[] {~(long) i, 2})});
+        }
+
+        for (int i = 4; i >= 0; i--) {
+            UndoHistory.Edit edit = history.undo().edits()[0];
+            assertThat(edit.offset()).isEqualTo(i * 10L);
+            assertThat(edit.removed()).containsExactly(i, 1);
+            assertThat(edit.inserted()).containsExactly(~(long) i, 2);
+        }
+        assertThat(history.canUndo()).isFalse();
+        assertThat(history.undo()).isNull();
+    }
+
+    @Test
+    @DisplayName("should merge backspaces into one span of the original file")
+    void shouldMergeBackspaces() throws IOException {
+        history.recordDelete(5, new long[] {5, 1});
+        history.recordDelete(4, new long[] {4, 1});
+        history.recordDelete(3, new long[] {3, 1});
+
+        UndoHistory.Edit edit = history.undo().edits()[0];
+
+        assertThat(edit.offset()).isEqualTo(3);
+        assertThat(edit.removed()).containsExactly(3, 3);
+        assertThat(history.canUndo()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should know when undo and redo lead back to the saved state")
+    void shouldTrackSavedState() throws IOException {
+        history.recordInsert(0, 0, 1);
+        history.markSaved();
+        history.recordInsert(1, 1, 1);
+        assertThat(history.isAtSavedState()).isFalse();
+
+        history.undo();
+        assertThat(history.isAtSavedState()).isTrue();
+        history.undo();
+        assertThat(history.isAtSavedState()).isFalse();
+        history.redo();
+        assertThat(history.isAtSavedState()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should never reach the saved state again once it was undone and replaced")
+    void shouldForgetReplacedSavedState() throws IOException {
+        history.recordInsert(0, 0, 1);
+        history.markSaved();
+        history.undo();
+
+        history.recordInsert(0, 1, 1);
+        assertThat(history.isAtSavedState()).isFalse();
+        history.undo();
+        assertThat(history.isAtSavedState()).isFalse();
+    }
+}